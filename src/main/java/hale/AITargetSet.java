@@ -6,9 +6,12 @@ import java.util.Comparator;
 import java.util.List;
 
 import hale.*;
+import hale.bonus.Stat;
 import hale.entity.Creature;
 import hale.entity.Path;
 import hale.util.AreaUtil;
+import hale.util.DistanceField;
+import hale.util.PathFinder;
 
 /**
  * A class for holding a set of possible targets for the AI to attack.
@@ -35,6 +38,14 @@ public class AITargetSet
 
         int reach = parent.getMainHandWeapon().getTemplate().getMaxRange();
 
+        // a single distance field is computed from the parent's position and used to find
+        // the paths to all targets, rather than searching for each target separately.  The
+        // field first only covers the distance the parent can move this turn, and is only
+        // extended to the whole area if a target is not found within that distance
+        AreaUtil util = parent.getLocation().getArea().getUtil();
+        int maxCost = getMaxFieldCost(parent, possibleTargets, reach);
+        DistanceField field = null;
+
         for (Creature target : possibleTargets) {
             int distance;
             Path path = null;
@@ -45,8 +56,16 @@ public class AITargetSet
 
                 // if the creature is not in melee range, compute the distance by finding a path
                 if (distance > reach) {
-                    path = parent.getLocation().getArea().getUtil().findShortestPath(parent,
-                            target.getLocation().toPoint(), reach);
+                    if (field == null) {
+                        field = util.computeDistanceField(parent, PathFinder.Mode.Normal, maxCost);
+                    }
+
+                    path = field.getPath(target.getLocation().toPoint(), reach);
+
+                    if (path == null && !field.isComplete()) {
+                        field = util.computeDistanceField(parent, PathFinder.Mode.Normal);
+                        path = field.getPath(target.getLocation().toPoint(), reach);
+                    }
 
                     // distance is path length + 1
                     if (path != null) {
@@ -57,8 +76,16 @@ public class AITargetSet
                 }
             } else {
                 // for non melee, compute using shortest path to the target's tile
-                path = parent.getLocation().getArea().getUtil().findShortestPathIgnoreCreatures(parent,
-                        target.getLocation().toPoint());
+                if (field == null) {
+                    field = util.computeDistanceField(parent, PathFinder.Mode.IgnoreCreatures, maxCost);
+                }
+
+                path = field.getPath(target.getLocation().toPoint());
+
+                if (path == null && !field.isComplete()) {
+                    field = util.computeDistanceField(parent, PathFinder.Mode.IgnoreCreatures);
+                    path = field.getPath(target.getLocation().toPoint());
+                }
 
                 // distance is path length + 1
                 if (path != null) {
@@ -79,6 +106,34 @@ public class AITargetSet
         }
     }
 
+    /*
+     * Returns the number of steps the parent can move with its remaining AP, or no limit
+     * outside of combat.  Each step costs at least one, so a target further away than that
+     * can't be found in a field limited to this cost.  In that case there is no limit, rather
+     * than computing the field twice
+     */
+
+    private static int getMaxFieldCost(Creature parent, List<Creature> possibleTargets, int reach)
+    {
+        if (!Game.isInTurnMode()) return Integer.MAX_VALUE;
+
+        int movementCost = parent.stats.get(Stat.MovementCost);
+        if (movementCost <= 0) return Integer.MAX_VALUE;
+
+        int maxCost = parent.timer.getAP() / movementCost;
+
+        int goalDistance = parent.getMainHandWeapon().isMelee() ? reach : 0;
+
+        for (Creature target : possibleTargets) {
+            int distance = AreaUtil.distance(parent.getLocation().getX(), parent.getLocation().getY(),
+                    target.getLocation().getX(), target.getLocation().getY());
+
+            if (distance - goalDistance > maxCost) return Integer.MAX_VALUE;
+        }
+
+        return maxCost;
+    }
+
     /**
      * @param index
      * @return return the path for the target at the specified index.
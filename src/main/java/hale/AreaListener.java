@@ -266,6 +266,9 @@ public class AreaListener
 
     public void computeMouseState()
     {
+        // there is no mouse or cursor theme in a headless simulation
+        if (Game.isHeadless()) return;
+
         int xOffset = lastMouseX + areaViewer.getScrollX() - areaViewer.getX();
         int yOffset = lastMouseY + areaViewer.getScrollY() - areaViewer.getY();
 
@@ -89,6 +89,19 @@ public class CombatRunner
         runTurn();
     }
 
+    /**
+     * Immediately initiates combat, without the delay normally used to notify the player.
+     * Combat will only continue past the first turn if there are AI active hostiles.
+     */
+
+    public void initiateCombat()
+    {
+        combatModeInitiating = true;
+        combatStartRound = Game.curCampaign.getDate().getTotalRoundsElapsed();
+
+        nextCombatTurn();
+    }
+
     /**
      * Returns the list of creatures currently threatening the specified target.  This is
      * assumed to be threatening for a purpose other than movement.  To get the list of
@@ -186,48 +199,53 @@ public class CombatRunner
 
             TakeAoOCallback takeCallback = new TakeAoOCallback(current, target);
 
-            if (current instanceof PC) {
-                lockInterface = true;
+            if (current instanceof PC && Game.isHeadless()) {
+                // there is no player to choose whether to take the attack
+                takeCallback.takeAoO();
 
-                // create a list targeter with no scriptable callback and no ability slot for current
-                ListTargeter targeter = new ListTargeter(current, null, null);
-                targeter.addAllowedPoint(target.getLocation());
-                targeter.setMenuTitle("Attack of Opportunity");
-                targeter.setActivateCallback(takeCallback);
+            } else
+                if (current instanceof PC) {
+                    lockInterface = true;
 
-                // the targeter can only proceed if the target is alive when it is set
-                targeter.setCheckValidCallback(new CheckAoOCallback(target));
+                    // create a list targeter with no scriptable callback and no ability slot for current
+                    ListTargeter targeter = new ListTargeter(current, null, null);
+                    targeter.addAllowedPoint(target.getLocation());
+                    targeter.setMenuTitle("Attack of Opportunity");
+                    targeter.setActivateCallback(takeCallback);
 
-                Game.areaListener.getTargeterManager().addTargeter(targeter);
+                    // the targeter can only proceed if the target is alive when it is set
+                    targeter.setCheckValidCallback(new CheckAoOCallback(target));
 
-                if (mover != null) {
-                    mover.incrementPauseCount();
-                    takeCallback.moverToUnPause = mover;
+                    Game.areaListener.getTargeterManager().addTargeter(targeter);
 
-                    CancelAoOCallback cancelCallback = new CancelAoOCallback();
-                    cancelCallback.moverToUnPause = mover;
-                    targeter.setCancelCallback(cancelCallback);
-                }
+                    if (mover != null) {
+                        mover.incrementPauseCount();
+                        takeCallback.moverToUnPause = mover;
 
-                // scroll to the first creature with an AoO
-                if (Game.config.autoScrollDuringCombat() && !alreadyScrolled) {
-                    Game.areaViewer.addDelayedScrollToCreature(current);
-                    alreadyScrolled = true;
-                }
+                        CancelAoOCallback cancelCallback = new CancelAoOCallback();
+                        cancelCallback.moverToUnPause = mover;
+                        targeter.setCancelCallback(cancelCallback);
+                    }
 
-            } else
-                if (current.getTemplate().hasScript()) {
-                    if (current.getTemplate().getScript().hasFunction(ScriptFunctionType.takeAttackOfOpportunity)) {
-                        Object executeAttack = current.getTemplate().getScript().executeFunction(
-                                ScriptFunctionType.takeAttackOfOpportunity, current, target);
+                    // scroll to the first creature with an AoO
+                    if (Game.config.autoScrollDuringCombat() && !alreadyScrolled) {
+                        Game.areaViewer.addDelayedScrollToCreature(current);
+                        alreadyScrolled = true;
+                    }
+
+                } else
+                    if (current.getTemplate().hasScript()) {
+                        if (current.getTemplate().getScript().hasFunction(ScriptFunctionType.takeAttackOfOpportunity)) {
+                            Object executeAttack = current.getTemplate().getScript().executeFunction(
+                                    ScriptFunctionType.takeAttackOfOpportunity, current, target);
 
-                        if (Boolean.TRUE.equals(executeAttack)) {
+                            if (Boolean.TRUE.equals(executeAttack)) {
+                                takeCallback.takeAoO();
+                            }
+                        } else {
                             takeCallback.takeAoO();
                         }
-                    } else {
-                        takeCallback.takeAoO();
                     }
-                }
         }
 
         if (lockInterface) {
@@ -373,7 +391,7 @@ public class CombatRunner
 
         attack.computeFlankingBonus(Game.curCampaign.curArea.getEntities());
 
-        if (animate) {
+        if (animate && !Game.isHeadless()) {
             DelayedAttackCallback cb;
 
             long delay = 0l;
@@ -639,22 +657,27 @@ public class CombatRunner
                 checkAIActivation(current);
             }
 
+            if (Game.isHeadless()) Game.headlessSimulation.turnStarted(current);
+
             if (current instanceof PC) {
                 Game.curCampaign.party.setSelected(current);
                 Game.curCampaign.curArea.getUtil().setPartyVisibility();
+            }
 
+            if (current instanceof PC && !Game.isHeadless()) {
                 // allow the player to take their turn
                 break;
 
             } else
-                if (current.getTemplate().hasScript() && current.isAIActive()) {
-                    // if current is an NPC with an AI
+                if (current instanceof PC || current.getTemplate().hasScript() && current.isAIActive()) {
+                    // if current is an NPC with an AI, or a PC controlled by a headless simulation
                     try {
-                        Scriptable ai = current.getTemplate().getScript();
+                        Scriptable ai = getAIScript(current);
 
                         AsyncScriptable runner = new AsyncScriptable(ai);
                         // set delay prior to starting runner's turn
                         runner.setDelayMillis(Game.config.getCombatDelay() * 3);
+                        if (Game.isHeadless()) Game.headlessSimulation.aiTurnStarted(runner);
                         runner.executeAsync(ScriptFunctionType.runTurn, current);
 
                         Game.interfaceLocker.add(new InterfaceAILock(current, runner));
@@ -682,6 +705,15 @@ public class CombatRunner
         Game.mainViewer.updateInterface();
     }
 
+    private Scriptable getAIScript(Creature creature)
+    {
+        if (creature instanceof PC) {
+            return Game.headlessSimulation.getPartyAI();
+        } else {
+            return creature.getTemplate().getScript();
+        }
+    }
+
     /**
      * Changes the order of the combat queue.  The currently active creature is moved
      * the specified number of places forward, so that its turn will come up after that
@@ -768,8 +800,10 @@ public class CombatRunner
 
         Game.curCampaign.party.setDefeated(true);
 
-        InGameMenu menu = new InGameMenu(Game.mainViewer);
-        menu.openPopupCentered();
+        if (!Game.isHeadless()) {
+            InGameMenu menu = new InGameMenu(Game.mainViewer);
+            menu.openPopupCentered();
+        }
     }
 
     /**
@@ -1028,7 +1062,12 @@ public class CombatRunner
             parent.takeAttackOfOpportunity();
             DelayedAttackCallback cb = CombatRunner.this.creatureAoOAttack(parent, target);
 
-            cb.addCallback(new CheckDefeatedAfterAoOCallback());
+            if (Game.isHeadless()) {
+                // the attack is not animated, so it has already completed
+                new CheckDefeatedAfterAoOCallback().run();
+            } else {
+                cb.addCallback(new CheckDefeatedAfterAoOCallback());
+            }
         }
     }
 
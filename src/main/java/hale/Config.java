@@ -34,6 +34,7 @@ import de.matthiasmann.twl.theme.ThemeManager;
 
 import hale.resource.URLResourceStreamHandler;
 import hale.util.FileUtil;
+import hale.util.JSEngineManager;
 import hale.util.Logger;
 import hale.util.SimpleJSONArray;
 import hale.util.SimpleJSONArrayEntry;
@@ -67,6 +68,10 @@ public class Config
     private final boolean warningMode;
     private final int combatDelay;
     private final long checkForUpdatesInterval;
+    private final int maxScriptEngines;
+    private final boolean binarySaves;
+    private final long resourceCacheBudget;
+    private final long areaMemoryBudget;
 
     private final String versionID;
 
@@ -83,6 +88,54 @@ public class Config
         return checkForUpdatesInterval;
     }
 
+    /**
+     * Returns the maximum number of JavaScript engines that will normally be pooled
+     * for running scripts concurrently
+     *
+     * @return the maximum number of pooled script engines
+     */
+
+    public int getMaxScriptEngines()
+    {
+        return maxScriptEngines;
+    }
+
+    /**
+     * Returns true if games should be saved in the compact binary format, or false
+     * if they should be saved in the human readable JSON format
+     *
+     * @return whether to write binary save files
+     */
+
+    public boolean useBinarySaves()
+    {
+        return binarySaves;
+    }
+
+    /**
+     * Returns the total size of the resource text, such as scripts, that will be kept
+     * in memory after being read
+     *
+     * @return the resource cache budget in bytes
+     */
+
+    public long getResourceCacheBudget()
+    {
+        return resourceCacheBudget;
+    }
+
+    /**
+     * Returns the estimated total memory that visited areas may use before the least
+     * recently visited areas are written to disk and unloaded
+     *
+     * @return the area memory budget in bytes
+     */
+
+    public long getAreaMemoryBudget()
+    {
+        return areaMemoryBudget;
+    }
+
     /**
      * Returns true if a random seed has been set in the config file, false otherwise
      *
@@ -107,13 +160,16 @@ public class Config
 
     /**
      * Returns the base combat speed in milliseconds.  This is used to determine
-     * the amount of time movement and cycling through hostiles takes
+     * the amount of time movement and cycling through hostiles takes.  There is no
+     * delay when running a headless simulation
      *
      * @return the base combat speed
      */
 
     public int getCombatDelay()
     {
+        if (Game.isHeadless()) return 0;
+
         return combatDelay;
     }
 
@@ -351,6 +407,10 @@ public class Config
         debugMode = parser.get("DebugMode", false);
         warningMode = parser.get("WarningMode", false);
         checkForUpdatesInterval = parser.get("CheckForUpdatesInterval", 86400000);
+        maxScriptEngines = parser.get("MaxScriptEngines", JSEngineManager.DefaultMaxEngines);
+        binarySaves = parser.get("BinarySaves", true);
+        resourceCacheBudget = parser.get("ResourceCacheBudgetMB", 16) * 1024L * 1024L;
+        areaMemoryBudget = parser.get("AreaMemoryBudgetMB", 256) * 1024L * 1024L;
 
         if (parser.containsKey("RandomSeed")) {
             randSeedSet = true;
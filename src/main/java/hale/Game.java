@@ -43,9 +43,12 @@ import hale.resource.SpriteManager;
 import hale.rules.Campaign;
 import hale.rules.Dice;
 import hale.rules.Ruleset;
+import hale.util.FrameProfiler;
 import hale.util.JSEngineManager;
 import hale.util.Logger;
 import hale.util.SaveGameUtil;
+import hale.util.SaveGameWriter;
+import hale.util.ScriptExecutor;
 import hale.view.AreaViewer;
 import hale.view.MainViewer;
 import hale.*;
@@ -146,6 +149,12 @@ public class Game
 
     public static JSEngineManager scriptEngineManager;
 
+    /**
+     * The shared executor used to run scripts, such as AI turns, asynchronously
+     */
+
+    public static ScriptExecutor scriptExecutor;
+
     /**
      * The main view, the root widget.  Also contains the in game main loop.
      */
@@ -228,6 +237,25 @@ public class Game
 
     public static AsyncTextureLoader textureLoader;
 
+    /**
+     * Records the time spent in each phase of the main loop
+     */
+
+    public static FrameProfiler profiler;
+
+    /**
+     * Writes save games in the background
+     */
+
+    public static SaveGameWriter saveWriter;
+
+    /**
+     * The simulation controlling the game when running without a display, or null
+     * when the game is being played normally
+     */
+
+    public static HeadlessSimulation headlessSimulation;
+
     /**
      * System Operative when run the application
      */
@@ -248,6 +276,19 @@ public class Game
         return turnMode;
     }
 
+    /**
+     * Returns whether the game is running a headless simulation, without an OpenGL display.
+     * In this case, no interface is shown, player characters are controlled by AI scripts,
+     * and animation and interface delays are skipped.
+     *
+     * @return whether the game is running headless
+     */
+
+    public static boolean isHeadless()
+    {
+        return headlessSimulation != null;
+    }
+
     /**
      * Switches turn based combat mode on or off.  Combat mode off means the game will run in real
      * time, combat mode on means it will run turn based
@@ -296,15 +337,12 @@ public class Game
     public static OSType osType;
 
     /**
-     * The global main method.  Handles initializing the global variables,
-     * determining available display modes, creating the display, and parsing any arguments
-     * <p>
-     * Then, starts the main menu loop.  Once the player makes a selection, either the game
-     * proper or the editor is loaded.
-     *
-     * @param args any arguments passed to the program are ignored
+     * Initializes the global variables that do not depend on the display.  This is called
+     * by {@link #main(String[])} before the display is created, and may be called by tools
+     * that run the game rules without a display, such as the headless simulation
      */
-    public static void main(String[] args)
+
+    public static void initialize()
     {
         // Determine System Operative
         String systemOperative = System.getProperty("os.name").toLowerCase();
@@ -331,20 +369,46 @@ public class Game
         Game.config = new Config(Game.plataform.getConfigDirectory() + "config.json");
         Game.dice = new Dice();
 
-        Game.scriptEngineManager = new JSEngineManager();
+        ResourceManager.setFileCacheBudget(Game.config.getResourceCacheBudget());
+
+        Game.scriptEngineManager = new JSEngineManager(Game.config.getMaxScriptEngines());
+        Game.scriptExecutor = new ScriptExecutor(Game.scriptEngineManager);
         Game.scriptInterface = new ScriptInterface();
 
         Game.particleManager = new ParticleManager();
 
         Game.timer = new GameTimer();
+        Game.profiler = new FrameProfiler();
+        Game.saveWriter = new SaveGameWriter();
         Game.interfaceLocker = new InterfaceLocker();
         Game.scriptInterface.ai = new AIScriptInterface();
 
+        textureLoader = new AsyncTextureLoader();
+    }
+
+    /**
+     * The global main method.  Handles initializing the global variables,
+     * determining available display modes, creating the display, and parsing any arguments
+     * <p>
+     * Then, starts the main menu loop.  Once the player makes a selection, either the game
+     * proper or the editor is loaded.
+     *
+     * @param args any arguments passed to the program are ignored
+     */
+    public static void main(String[] args)
+    {
+        initialize();
+
+        if (args.length > 0 && args[0].equals(HeadlessSimulation.Argument)) {
+            headlessSimulation = new HeadlessSimulation(args);
+
+            // script executor threads are not daemons, so exit explicitly
+            System.exit(headlessSimulation.run());
+        }
+
         Display.setTitle("Hale");
         setDisplayIcon();
 
-        textureLoader = new AsyncTextureLoader();
-
         try {
             allDisplayModes = Config.getUsableDisplayModes(false);
             all2xUsableDisplayModes = Config.getUsableDisplayModes(true);
@@ -126,19 +126,21 @@ public class GameTimer
     }
 
     /**
-     * Updates the visibility matrix with any temporary visibility areas being tracked by
-     * the timer
+     * Returns the list of all points within temporary visibility areas being tracked
+     * by the timer
      *
-     * @param vis the visibility matrix
+     * @return the list of temporarily visible points
      */
 
-    public void getTemporaryVisibilityAreas(boolean[][] vis)
+    public List<Point> getTemporaryVisibilityPoints()
     {
+        List<Point> points = new ArrayList<Point>();
+
         for (TemporarySightArea area : sightAreas) {
-            for (Point point : area.points) {
-                vis[point.x][point.y] = true;
-            }
+            points.addAll(area.points);
         }
+
+        return points;
     }
 
     /**
@@ -0,0 +1,459 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import hale.ability.AsyncScriptable;
+import hale.ability.Scriptable;
+import hale.entity.Creature;
+import hale.entity.Encounter;
+import hale.entity.EntityManager;
+import hale.entity.PC;
+import hale.loading.CampaignLoadingTaskList;
+import hale.loading.LoadGameLoadingTaskList;
+import hale.loading.LoadingTaskList;
+import hale.resource.ResourceManager;
+import hale.resource.ResourceType;
+import hale.rules.Campaign;
+import hale.util.Logger;
+import hale.util.SaveGameUtil;
+import hale.view.MainViewer;
+
+/**
+ * Runs combats without an OpenGL display, as fast as possible, in order to measure the
+ * throughput of the AI scripts and rules.  The simulation is started with the arguments
+ * <pre>--headless campaignID saveName [combats] [maxRounds] [partyID]</pre>
+ * <p>
+ * If a party is specified and there is no save with the specified name, a new game is
+ * first started in the campaign's start area with that premade party from the
+ * characters/parties directory, and saved under that name.
+ * <p>
+ * For each combat, the specified save is loaded, every encounter in the current area that
+ * is hostile to the party is activated, and combat is started immediately.  The party is
+ * controlled by the standard AI script.  Combat and interface delays are skipped, and
+ * attacks are not animated.  Combat runs until one side is defeated, or until the maximum
+ * number of rounds has elapsed.  The number of turns per second and the per turn latency
+ * are then printed to standard output.
+ * <p>
+ * Each pass of the main loop counts as at least one millisecond of game time, so movement
+ * and timed interface locks advance on every pass.  While an AI script is running and the
+ * main thread has nothing else to do, the loop blocks until the script either adds a lock
+ * or a move for this thread to process, or returns.
+ */
+
+public class HeadlessSimulation
+{
+    /**
+     * The command line argument which starts a headless simulation
+     */
+
+    public static final String Argument = "--headless";
+
+    private static final String PartyAIScript = "ai/aiStandard";
+
+    private static final int DefaultCombats = 1;
+    private static final int DefaultMaxRounds = 100;
+
+    // guards against waiting forever on an AI script blocked on something other than a lock or move
+    private static final long MaxWorkWaitMillis = 50;
+
+    private final String campaignID;
+    private final String saveName;
+    private final int combats;
+    private final int maxRounds;
+    private final String partyID;
+
+    private Scriptable partyAI;
+
+    // signals from AI script threads that the main loop has work to do
+    private final Object workLock = new Object();
+    private boolean workSignalled;
+    private AsyncScriptable aiRunner;
+    private boolean aiRunnerReturned;
+    private int longWorkWaits;
+
+    private int turns;
+
+    // the time between the starts of consecutive turns in the same combat
+    private long[] turnNanos;
+    private int turnNanosCount;
+    private long lastTurnStart;
+
+    /**
+     * Creates a new HeadlessSimulation with the specified command line arguments.  The
+     * first argument must be {@link #Argument}
+     *
+     * @param args the command line arguments
+     */
+
+    public HeadlessSimulation(String[] args)
+    {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Usage: " + Argument +
+                    " campaignID saveName [combats] [maxRounds] [partyID]");
+        }
+
+        this.campaignID = args[1];
+        this.saveName = args[2];
+        this.combats = args.length > 3 ? Integer.parseInt(args[3]) : DefaultCombats;
+        this.maxRounds = args.length > 4 ? Integer.parseInt(args[4]) : DefaultMaxRounds;
+        this.partyID = args.length > 5 ? args[5] : null;
+
+        this.turnNanos = new long[256];
+    }
+
+    /**
+     * Returns the AI script used to run the turns of player characters
+     *
+     * @return the party AI script
+     */
+
+    public Scriptable getPartyAI()
+    {
+        return partyAI;
+    }
+
+    /**
+     * Called by the combat runner at the start of each creature's turn
+     *
+     * @param creature the creature whose turn is starting
+     */
+
+    public synchronized void turnStarted(Creature creature)
+    {
+        long now = System.nanoTime();
+
+        if (lastTurnStart != 0l) {
+            if (turnNanosCount == turnNanos.length) {
+                turnNanos = Arrays.copyOf(turnNanos, turnNanosCount * 2);
+            }
+
+            turnNanos[turnNanosCount] = now - lastTurnStart;
+            turnNanosCount++;
+        }
+
+        lastTurnStart = now;
+        turns++;
+    }
+
+    /**
+     * Called by the combat runner before the specified AI script is executed.  The main loop
+     * waits on the script rather than polling while it runs
+     *
+     * @param runner the AI script about to be executed
+     */
+
+    public void aiTurnStarted(final AsyncScriptable runner)
+    {
+        synchronized (workLock) {
+            aiRunner = runner;
+            aiRunnerReturned = false;
+        }
+
+        runner.addCallback(new Runnable() {
+            @Override
+            public void run()
+            {
+                synchronized (workLock) {
+                    if (aiRunner == runner) aiRunnerReturned = true;
+
+                    workLock.notifyAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * Called when an AI script adds an interface lock or a move, which must be processed
+     * by the main loop before the script can continue
+     */
+
+    public void signalWork()
+    {
+        synchronized (workLock) {
+            workSignalled = true;
+
+            workLock.notifyAll();
+        }
+    }
+
+    /**
+     * Loads the campaign and runs each combat in turn, then prints the results
+     *
+     * @return the process exit status; 0 if all combats were run, nonzero otherwise
+     */
+
+    public int run()
+    {
+        if (!loadCampaign()) return 1;
+
+        long totalNanos = 0l;
+
+        for (int i = 0; i < combats; i++) {
+            if (!loadSave()) return 1;
+
+            int turnsBefore = turns;
+            long startTime = System.nanoTime();
+
+            String result = runCombat();
+            if (result == null) {
+                System.err.println("No encounters hostile to the party in " + Game.curCampaign.curArea.getName());
+                return 1;
+            }
+
+            long combatNanos = System.nanoTime() - startTime;
+            totalNanos += combatNanos;
+
+            System.out.println("Combat " + (i + 1) + ": " + result + ", " + (turns - turnsBefore) + " turns in " +
+                    formatMillis(combatNanos));
+        }
+
+        printResults(totalNanos);
+
+        return 0;
+    }
+
+    /**
+     * Loads the campaign.  If a party was specified and the save does not exist yet, the
+     * save is then created
+     *
+     * @return true if the campaign was loaded and the save exists, false otherwise
+     */
+
+    public boolean loadCampaign()
+    {
+        Game.curCampaign = new Campaign(campaignID);
+
+        if (!runLoader(new CampaignLoadingTaskList())) {
+            System.err.println("Unable to load campaign " + campaignID);
+            return false;
+        }
+
+        partyAI = new Scriptable(ResourceManager.getScriptResourceAsString(PartyAIScript), PartyAIScript, false);
+
+        File saveFile = SaveGameUtil.getSaveFile(saveName);
+        if (!saveFile.exists() && partyID != null && !createSave(saveFile)) {
+            System.err.println("Unable to create save " + saveName + " with party " + partyID);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Loads the save into the campaign, which must already have been loaded with
+     * {@link #loadCampaign()}
+     *
+     * @return true if the save was loaded, false otherwise
+     */
+
+    public boolean loadSave()
+    {
+        new MainViewer();
+
+        if (!runLoader(new LoadGameLoadingTaskList(SaveGameUtil.getSaveFile(saveName)))) {
+            System.err.println("Unable to load save " + saveName);
+            return false;
+        }
+
+        Game.particleManager.clear();
+
+        return true;
+    }
+
+    /*
+     * Starts a new game in the campaign's start area with the premade party, in the same
+     * way as the new game window, and saves it to the specified file
+     */
+
+    private boolean createSave(File file)
+    {
+        SavedParty party = new SavedParty("characters/parties/" + partyID + ResourceType.JSON.getExtension(), partyID);
+
+        Game.curCampaign.addParty(party.getCharacterIDs(), party.getName());
+        Game.curCampaign.party.setFirstMemberSelected();
+        Game.curCampaign.partyCurrency.setValue(Math.max(party.getCurrency(), Game.curCampaign.getMinCurrency()));
+        Game.curCampaign.levelUpToMinIfAllowed();
+
+        // the default difficulty, as preselected by the new game window
+        DifficultyManager difficulty = Game.ruleset.getDifficultyManager();
+        difficulty.setCurrentDifficulty(difficulty.getCurrentDifficulty());
+
+        EntityManager.clear();
+        Game.curCampaign.curArea.addPlayerCharacters();
+        new MainViewer();
+        Game.curCampaign.curArea.setEntityVisibility();
+
+        try {
+            SaveGameUtil.saveGame(file);
+        } catch (IOException e) {
+            Logger.appendToErrorLog("Error writing headless simulation save " + file, e);
+            return false;
+        }
+
+        System.out.println("Created save " + file.getName() + " in " + Game.curCampaign.curArea.getName() +
+                " with party " + party.getName());
+
+        return true;
+    }
+
+    /*
+     * Runs a single combat in the current area to completion, returning a description
+     * of its result, or null if there were no hostile encounters to fight
+     */
+
+    private String runCombat()
+    {
+        List<Creature> party = new ArrayList<Creature>();
+        for (PC pc : Game.curCampaign.party) {
+            party.add(pc);
+        }
+
+        List<Encounter> hostileEncounters = new ArrayList<Encounter>();
+        for (Encounter encounter : Game.curCampaign.curArea.getEncounters()) {
+            if (!encounter.getFaction().isHostile(Game.curCampaign.party.getSelected())) continue;
+
+            encounter.setAIActive(true);
+            encounter.addHostiles(party);
+            hostileEncounters.add(encounter);
+        }
+
+        if (hostileEncounters.isEmpty()) return null;
+
+        synchronized (this) {
+            lastTurnStart = 0l;
+        }
+
+        int startRound = Game.curCampaign.getDate().getTotalRoundsElapsed();
+        boolean roundLimitReached = false;
+
+        Game.areaListener.getCombatRunner().initiateCombat();
+
+        long curTime = 0l;
+
+        while (Game.isInTurnMode() || Game.interfaceLocker.locked()) {
+            if (!roundLimitReached && Game.curCampaign.getDate().getTotalRoundsElapsed() - startRound > maxRounds) {
+                // combat ends at the start of the next turn once no hostiles are active
+                for (Encounter encounter : hostileEncounters) {
+                    encounter.setAIActive(false);
+                }
+
+                roundLimitReached = true;
+            }
+
+            curTime = Math.max(System.currentTimeMillis(), curTime + 1);
+
+            Game.particleManager.update(curTime);
+            Game.interfaceLocker.checkTime(curTime);
+            Game.timer.updateTime(curTime);
+
+            // there is no display to upload textures to or show the interface on
+            Game.textureLoader.clear();
+            Game.mainViewer.updateHeadlessContent();
+
+            try {
+                awaitWork();
+            } catch (InterruptedException e) {
+                Logger.appendToErrorLog("Headless simulation interrupted", e);
+                break;
+            }
+        }
+
+        synchronized (workLock) {
+            aiRunner = null;
+        }
+
+        if (Game.curCampaign.party.isDefeated()) {
+            return "party defeated";
+        } else
+            if (roundLimitReached) {
+                return "round limit reached";
+            } else {
+                return "party victorious";
+            }
+    }
+
+    /*
+     * Blocks while the only work remaining is an AI script running on another thread.  Work
+     * signalled since the last pass, movement in progress, or a script that has returned but
+     * not yet been seen as done by its interface lock all keep the loop running
+     */
+
+    private void awaitWork() throws InterruptedException
+    {
+        synchronized (workLock) {
+            if (!workSignalled && aiRunner != null && !aiRunnerReturned && !Game.interfaceLocker.isMoving()) {
+                workLock.wait(MaxWorkWaitMillis);
+
+                if (!workSignalled && !aiRunnerReturned) longWorkWaits++;
+            }
+
+            workSignalled = false;
+        }
+    }
+
+    private boolean runLoader(LoadingTaskList loader)
+    {
+        loader.start();
+
+        try {
+            loader.join();
+        } catch (InterruptedException e) {
+            return false;
+        }
+
+        return loader.isCompletedSuccessfully();
+    }
+
+    private void printResults(long totalNanos)
+    {
+        long[] sorted = Arrays.copyOf(turnNanos, turnNanosCount);
+        Arrays.sort(sorted);
+
+        double seconds = totalNanos / 1000000000.0;
+
+        System.out.println("Turns: " + turns + " in " + formatMillis(totalNanos));
+        System.out.println("Turns per second: " + Game.numberFormat(2).format(seconds > 0.0 ? turns / seconds : 0.0));
+        System.out.println("Turn latency p50 " + formatMillis(percentile(sorted, 50.0)) +
+                "  p95 " + formatMillis(percentile(sorted, 95.0)) +
+                "  p99 " + formatMillis(percentile(sorted, 99.0)) +
+                "  max " + formatMillis(percentile(sorted, 100.0)));
+        System.out.println("Waits on AI scripts longer than " + MaxWorkWaitMillis + " ms: " + longWorkWaits);
+    }
+
+    private static long percentile(long[] sorted, double percentile)
+    {
+        if (sorted.length == 0) return 0l;
+
+        int index = (int)Math.ceil(percentile / 100.0 * sorted.length) - 1;
+
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String formatMillis(long nanos)
+    {
+        return Game.numberFormat(2).format(nanos / 1000000.0) + " ms";
+    }
+}
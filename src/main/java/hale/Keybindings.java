@@ -29,7 +29,7 @@ import hale.*;
 import hale.mainmenu.InGameMenu;
 import hale.quickbar.Quickbar;
 import hale.util.Logger;
-import hale.util.SaveGameUtil;
+import hale.util.SaveGameWriter;
 import hale.interfacelock.MovementHandler;
 import de.matthiasmann.twl.Color;
 import de.matthiasmann.twl.Widget;
@@ -63,6 +63,8 @@ public class Keybindings
         bindings.add(new ToggleWindow(Game.mainViewer.logWindow, "LogWindow"));
         bindings.add(new ToggleWindow(Game.mainViewer.miniMapWindow, "MiniMap"));
         bindings.add(new ToggleWindow(Game.mainViewer.scriptConsole, "ScriptConsole"));
+        bindings.add(new ToggleWindow(Game.mainViewer.profilerOverlay, "ProfilerOverlay"));
+        bindings.add(new DumpProfilerStats());
         bindings.add(new CancelMovement());
         bindings.add(new ShowMenu());
         bindings.add(new EndTurn());
@@ -269,16 +271,47 @@ public class Keybindings
                 return;
             }
 
-            File fout = SaveGameUtil.getNextQuickSaveFile();
+            File fout = Game.saveWriter.getNextQuickSaveFile();
+
+            Game.saveWriter.save(fout, new SaveGameWriter.Listener()
+            {
+                @Override
+                public void saveProgress(File file, SaveGameWriter.Stage stage)
+                {
+                }
+
+                @Override
+                public void saveCompleted(File file, Exception error)
+                {
+                    if (error != null) {
+                        Logger.appendToErrorLog("Error when quicksaving to " + file.getPath(), error);
+                        Game.mainViewer.addMessage("red", "Error saving game!");
+                    } else {
+                        Game.mainViewer.addMessage("link", "Quicksave successful.");
+                        Game.mainViewer.addFixedFadeAway("Quicksave successful.", 10, 10, Color.RED);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * A callback to write the frame profiler statistics to a CSV file in the config directory
+     */
+
+    public static class DumpProfilerStats extends Binding
+    {
+        @Override
+        public void run()
+        {
+            File fout = new File(Game.plataform.getConfigDirectory() + "profile-" + System.currentTimeMillis() + ".csv");
 
             try {
-                SaveGameUtil.saveGame(fout);
-                Game.mainViewer.addMessage("link", "Quicksave successful.");
-                Game.mainViewer.addFixedFadeAway("Quicksave successful.", 10, 10, Color.RED);
+                Game.profiler.writeCSV(fout);
+                Game.mainViewer.addMessage("link", "Profiler statistics written to " + fout.getPath());
             } catch (Exception e) {
-                Logger.appendToErrorLog("Error when quicksaving to " + fout.getPath(), e);
-                Game.mainViewer.addMessage("red", "Error saving game!");
-                fout.delete();
+                Logger.appendToErrorLog("Error writing profiler statistics to " + fout.getPath(), e);
+                Game.mainViewer.addMessage("red", "Error writing profiler statistics!");
             }
         }
     }
@@ -789,6 +789,8 @@ public class ScriptInterface implements HasScriptState
     {
         Game.particleManager.add(animation);
 
+        if (Game.isHeadless()) return;
+
         try {
             Thread.sleep((long)(animation.getSecondsRemaining() * 1000.0f));
         } catch (InterruptedException e) {
@@ -804,6 +806,8 @@ public class ScriptInterface implements HasScriptState
     {
         Game.particleManager.add(generator);
 
+        if (Game.isHeadless()) return;
+
         try {
             Thread.sleep((long)(generator.getTimeLeft() * 1000.0f));
         } catch (InterruptedException e) {
@@ -902,6 +906,8 @@ public class ScriptInterface implements HasScriptState
 
     public void lockInterface(float timeSeconds)
     {
+        if (Game.isHeadless()) return;
+
         InterfaceLock lock = new InterfaceLock(null, (long)(1000.0f * timeSeconds));
         Game.interfaceLocker.add(lock);
 
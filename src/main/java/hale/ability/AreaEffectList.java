@@ -30,7 +30,6 @@ import java.util.Set;
 import hale.area.Area;
 import hale.area.AreaEntityList;
 import hale.bonus.Bonus;
-import hale.bonus.BonusStackTypeList;
 import hale.entity.Creature;
 import hale.loading.JSONOrderedObject;
 import hale.loading.LoadGameException;
@@ -235,6 +234,8 @@ public class AreaEffectList implements Saveable
         }
 
         effects.put(aura, newPoints);
+
+        area.markSaveDataChanged();
     }
 
     /**
@@ -257,6 +258,7 @@ public class AreaEffectList implements Saveable
         newPoints.trimToSize();
 
         effects.put(effect, newPoints);
+        area.markSaveDataChanged();
 
         effect.executeFunction(ScriptFunctionType.onApply, effect);
 
@@ -311,6 +313,7 @@ public class AreaEffectList implements Saveable
         }
 
         effects.remove(effect);
+        area.markSaveDataChanged();
 
         effect.endAnimations();
     }
@@ -417,15 +420,22 @@ public class AreaEffectList implements Saveable
 
         if (effectsAtPosition[x][y] == null) return 0;
 
-        BonusStackTypeList list = new BonusStackTypeList();
+        int total = 0;
 
         for (Effect effect : effectsAtPosition[x][y]) {
             for (Bonus bonus : effect.getBonuses()) {
-                if (bonus.getType() == bonusType) list.add(bonus);
+                if (bonus.getType() != bonusType || !bonus.hasValue()) continue;
+
+                if (bonus.getStackType().isStackable()) {
+                    total += bonus.getValue();
+                } else
+                    if (Math.abs(bonus.getValue()) > Math.abs(total)) {
+                        total = bonus.getValue();
+                    }
             }
         }
 
-        return list.getCurrentTotal();
+        return total;
     }
 
     /**
@@ -1,26 +1,29 @@
 package hale.ability;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import hale.Game;
+import hale.util.ScriptExecutor;
+
 /**
  * Wrapper class for {@link Scriptable}.
  * <p>
  * This object enables Script execution via the Scriptable object
- * to be done asynchronously (in a new Thread).
+ * to be done asynchronously, on the shared {@link ScriptExecutor}.
  * <p>
- * Note that calling the start() method of this Object directly
- * will generate an IllegalStateException.  You need to instead
- * use the executeAsync functions.
+ * Each AsyncScriptable may only be executed once.
  *
  * @author Jared Stephen
  */
 
-public class AsyncScriptable extends Thread
+public class AsyncScriptable
 {
     private Scriptable scriptable;
 
-    private volatile boolean readyToExecute = false;
-    private ScriptFunctionType type;
-    private String function;
-    private Object[] arguments;
+    private ScriptExecutor.Task task;
+
+    private final List<Runnable> callbacks = new ArrayList<Runnable>();
 
     private long delayMillis;
 
@@ -58,45 +61,90 @@ public class AsyncScriptable extends Thread
         return scriptable;
     }
 
-    public void executeAsync(String function, Object... arguments)
+    /**
+     * Adds a callback that is run on the script thread once the script returns, whether or
+     * not it completed normally.  Callbacks must be added before the script is executed.
+     *
+     * @param callback the callback to run
+     */
+
+    public synchronized void addCallback(Runnable callback)
     {
-        this.function = function;
-        this.arguments = arguments;
-        this.readyToExecute = true;
+        if (task != null) {
+            throw new IllegalStateException("AsyncScriptable has already been executed.");
+        }
 
-        this.start();
+        callbacks.add(callback);
     }
 
-    public void executeAsync(ScriptFunctionType type, Object... arguments)
+    public void executeAsync(final String function, final Object... arguments)
     {
-        this.type = type;
-        this.arguments = arguments;
-        this.readyToExecute = true;
+        submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                scriptable.executeFunction(function, arguments);
+            }
+        });
+    }
 
-        this.start();
+    public void executeAsync(final ScriptFunctionType type, final Object... arguments)
+    {
+        submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                scriptable.executeFunction(type, arguments);
+            }
+        });
     }
 
-    @Override
-    public void run()
+    private synchronized void submit(final Runnable runnable)
     {
-        if (!readyToExecute) {
-            throw new IllegalStateException("Cannot use start() method of AsyncScriptable directly.  " +
-                    "Use executeAsync instead.");
+        if (task != null) {
+            throw new IllegalStateException("AsyncScriptable has already been executed.");
         }
 
-        if (delayMillis != 0l) {
-            try {
-                Thread.sleep(delayMillis);
-            } catch (InterruptedException e) {
-                // thread was interrupted, can exit
-                return;
+        task = Game.scriptExecutor.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                try {
+                    runnable.run();
+                } finally {
+                    for (Runnable callback : callbacks) {
+                        callback.run();
+                    }
+                }
             }
-        }
+        }, delayMillis);
+    }
 
-        if (function != null) {
-            scriptable.executeFunction(function, arguments);
-        } else {
-            scriptable.executeFunction(type, arguments);
+    /**
+     * Returns true if the script has been executed and has finished running
+     *
+     * @return whether this AsyncScriptable is done
+     */
+
+    public synchronized boolean isDone()
+    {
+        return task != null && task.isFinished();
+    }
+
+    /**
+     * Blocks until the script has finished running.  Returns immediately if the
+     * script has not been executed.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+
+    public void awaitDone() throws InterruptedException
+    {
+        ScriptExecutor.Task task;
+        synchronized (this) {
+            task = this.task;
         }
+
+        if (task != null) task.awaitFinished();
     }
 }
@@ -10,6 +10,7 @@ import hale.Game;
 import hale.entity.Creature;
 import hale.entity.Location;
 import hale.util.AreaUtil;
+import hale.util.BitGrid;
 import hale.util.Point;
 
 /**
@@ -33,7 +34,7 @@ public class ConeTargeter extends AreaTargeter
     private double lineAngle;
     private double lineLength;
 
-    private boolean[][] visible;
+    private BitGrid visible;
 
     private Point gridEnd;
     private Point screenEnd;
@@ -225,8 +226,8 @@ public class ConeTargeter extends AreaTargeter
     {
         if (!hasVisibilityCriterion) return true;
 
-        if (p.x < 0 || p.x >= visible.length || p.y < 0 || p.y >= visible[0].length) return false;
-        return visible[p.x][p.y];
+        if (!visible.isInBounds(p.x, p.y)) return false;
+        return visible.get(p.x, p.y);
     }
 
     @Override
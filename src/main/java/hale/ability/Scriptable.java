@@ -88,18 +88,20 @@ public class Scriptable implements Saveable
             JSEngine engine = Game.scriptEngineManager.getEngine();
 
             try {
-                engine.eval(script);
-            } catch (ScriptException e) {
-                Logger.appendToErrorLog("Error preparsing script at " + scriptLocation, e);
-            }
+                try {
+                    engine.evalCached(getScriptCacheKey(), script);
+                } catch (ScriptException e) {
+                    Logger.appendToErrorLog("Error preparsing script at " + scriptLocation, e);
+                }
 
-            for (ScriptFunctionType type : ScriptFunctionType.values()) {
-                if (engine.hasFunction(type.toString())) {
-                    scriptFunctions.add(type);
+                for (ScriptFunctionType type : ScriptFunctionType.values()) {
+                    if (engine.hasFunction(type.toString())) {
+                        scriptFunctions.add(type);
+                    }
                 }
+            } finally {
+                engine.release();
             }
-
-            engine.release();
         }
     }
 
@@ -241,7 +243,7 @@ public class Scriptable implements Saveable
 
         try {
             // script has already been pre-parsed; eval should not return any errors
-            engine.eval(script);
+            engine.evalCached(getScriptCacheKey(), script);
             returnValue = engine.invokeFunction(function, Scriptable.createArgumentList(arguments));
         } catch (ScriptException e) {
             Logger.appendToErrorLog("Error invoking function " + function +
@@ -249,13 +251,28 @@ public class Scriptable implements Saveable
         } catch (NoSuchMethodException e) {
             Logger.appendToErrorLog("Error invoking function " + function +
                     " for script " + scriptLocation, e);
+        } finally {
+            engine.release();
         }
 
-        engine.release();
-
         return returnValue;
     }
 
+    /*
+     * Returns the key that the compiled and evaluated script is cached under
+     * by the JSEngine.  Inline scripts are not guaranteed to match the contents
+     * at their script location, so they are keyed on their contents
+     */
+
+    private String getScriptCacheKey()
+    {
+        if (inline || scriptLocation == null) {
+            return script;
+        } else {
+            return scriptLocation;
+        }
+    }
+
     /*
      * Creates an argument list that will work with invokeFunction above with
      * Game.scriptInterface added to the front
@@ -490,7 +490,7 @@ public abstract class Targeter
 
         // player characters can only target explored tiles
         if (parent.getFaction() == Game.ruleset.getFaction(Game.ruleset.getString("PlayerFaction"))) {
-            targetOK = targetOK && Game.curCampaign.curArea.getExplored()[gridPoint.x][gridPoint.y];
+            targetOK = targetOK && Game.curCampaign.curArea.getExplored().get(gridPoint.x, gridPoint.y);
         }
 
         // check range conditions
@@ -26,6 +26,8 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import hale.Game;
 import hale.ability.AreaEffectList;
@@ -52,6 +54,8 @@ import hale.resource.ResourceType;
 import hale.tileset.AreaElevationGrid;
 import hale.tileset.AreaTileGrid;
 import hale.util.AreaUtil;
+import hale.util.BitGrid;
+import hale.util.DirtyRegion;
 import hale.util.Logger;
 import hale.util.Point;
 import hale.util.PointImmutable;
@@ -67,9 +71,9 @@ public class Area implements EffectTarget, Saveable
     private final int width, height;
     private final int visibilityRadius;
     private final String tileset;
-    private final boolean[][] passable;
-    private final boolean[][] transparency;
-    private final boolean[][] visibility;
+    private final BitGrid passable;
+    private final BitGrid transparency;
+    private final BitGrid visibility;
     private final AreaElevationGrid elevation;
     private final AreaTileGrid tileGrid;
     private final List<PointImmutable> startLocations;
@@ -80,7 +84,17 @@ public class Area implements EffectTarget, Saveable
     private final Map<String, Trigger> triggers;
     private final String id, name;
     private final boolean isExplored;
-    private final boolean[][] explored;
+    private final BitGrid explored;
+
+    // the regions of changed points tracked for each view drawing this area
+    private final List<DirtyRegion> changeTrackers;
+
+    // incremented whenever the data written by save() may have changed
+    private final AtomicInteger saveVersion = new AtomicInteger();
+
+    // typical memory used per tile (grids, tile lists, and screen coordinates) and per entity
+    private static final long EstimatedBytesPerTile = 256;
+    private static final long EstimatedBytesPerEntity = 4096;
 
     private AreaUtil areaUtil;
     private Procedural procedural;
@@ -99,18 +113,8 @@ public class Area implements EffectTarget, Saveable
             data.put("generatorSeed", seedStr);
         }
 
-        // write out the explored matrix
-        List<Object> exp = new ArrayList<Object>();
-        for (int x = 0; x < explored.length; x++) {
-            for (int y = 0; y < explored[0].length; y++) {
-                if (explored[x][y]) {
-                    // write this as a JSON formated object, but with multiple
-                    // entries per line
-                    exp.add(Integer.toString(x) + ',' + Integer.toString(y));
-                }
-            }
-        }
-        data.put("explored", exp.toArray());
+        // write out a copy of the explored matrix; the save writer determines its format
+        data.put("explored", new BitGrid(explored));
 
         Object[] encounterData = new Object[encounters.size()];
         for (int i = 0; i < encounterData.length; i++) {
@@ -260,19 +264,19 @@ public class Area implements EffectTarget, Saveable
         data.put("layers", tileGrid.writeToJSON());
 
         // write transparency
-        int[][] transparencyData = new int[transparency[0].length][transparency.length];
-        for (int x = 0; x < transparency.length; x++) {
-            for (int y = 0; y < transparency[x].length; y++) {
-                transparencyData[y][x] = transparency[x][y] ? 0 : 1;
+        int[][] transparencyData = new int[height][width];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                transparencyData[y][x] = transparency.get(x, y) ? 0 : 1;
             }
         }
         data.put("transparencyGrid", transparencyData);
 
         // write passability
-        int[][] passabilityData = new int[passable[0].length][passable.length];
-        for (int x = 0; x < passable.length; x++) {
-            for (int y = 0; y < passable[x].length; y++) {
-                passabilityData[y][x] = passable[x][y] ? 1 : 0;
+        int[][] passabilityData = new int[height][width];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                passabilityData[y][x] = passable.get(x, y) ? 1 : 0;
             }
         }
         data.put("passabilityGrid", passabilityData);
@@ -334,17 +338,18 @@ public class Area implements EffectTarget, Saveable
         this.isExplored = parser.get("explored", false);
 
         // initialize matrices
-        explored = new boolean[width][height];
-        transparency = new boolean[width][height];
+        explored = new BitGrid(width, height);
+        transparency = new BitGrid(width, height);
         elevation = new AreaElevationGrid(width, height);
-        entityList = new AreaEntityList(width, height);
+        entityList = new AreaEntityList(this, width, height);
         effects = new AreaEffectList(this);
         tileGrid = new AreaTileGrid(Game.curCampaign.getTileset(tileset), width, height);
-        passable = new boolean[width][height];
-        visibility = new boolean[width][height];
+        passable = new BitGrid(width, height);
+        visibility = new BitGrid(width, height);
+        changeTrackers = new CopyOnWriteArrayList<DirtyRegion>();
 
         if (parser.get("explored", false)) {
-            AreaUtil.setMatrix(explored, true);
+            explored.setAll(true);
         }
 
         // parse start locations
@@ -393,7 +398,7 @@ public class Area implements EffectTarget, Saveable
             x = 0;
             for (SimpleJSONArrayEntry rowEntry : rowIn) {
                 int value = rowEntry.getInt(0);
-                this.transparency[x][y] = (value == 0 ? true : false);
+                this.transparency.set(x, y, value == 0);
                 x++;
             }
 
@@ -409,7 +414,7 @@ public class Area implements EffectTarget, Saveable
             x = 0;
             for (SimpleJSONArrayEntry rowEntry : rowIn) {
                 int value = rowEntry.getInt(0);
-                this.passable[x][y] = (value == 1 ? true : false);
+                this.passable.set(x, y, value == 1);
                 x++;
             }
 
@@ -468,9 +473,9 @@ public class Area implements EffectTarget, Saveable
                 Door door = (Door)entity;
 
                 if (!door.isTransparent()) {
-                    transparency[door.getLocation().getX()][door.getLocation().getY()] = false;
+                    transparency.set(door.getLocation().getX(), door.getLocation().getY(), false);
                 } else {
-                    transparency[door.getLocation().getX()][door.getLocation().getY()] = true;
+                    transparency.set(door.getLocation().getX(), door.getLocation().getY(), true);
                 }
             }
         }
@@ -503,20 +508,25 @@ public class Area implements EffectTarget, Saveable
     {
         refHandler.add(data.get("ref", null), this);
 
-        // parse explored data
-        SimpleJSONArray exploredArray = data.getArray("explored");
-        for (SimpleJSONArrayEntry entry : exploredArray) {
-            String exploredString = entry.getString();
+        // parse explored data, which is a grid in binary saves and a list of points in JSON saves
+        BitGrid exploredGrid = data.getBitGrid("explored");
+        if (exploredGrid != null) {
+            explored.copyFrom(exploredGrid);
+        } else {
+            SimpleJSONArray exploredArray = data.getArray("explored");
+            for (SimpleJSONArrayEntry entry : exploredArray) {
+                String exploredString = entry.getString();
 
-            String[] coords = exploredString.split(",");
+                String[] coords = exploredString.split(",");
 
-            if (coords.length != 2) {
-                Logger.appendToErrorLog("Error parsing explored entry " + exploredString);
-            } else {
-                int x = Integer.parseInt(coords[0]);
-                int y = Integer.parseInt(coords[1]);
+                if (coords.length != 2) {
+                    Logger.appendToErrorLog("Error parsing explored entry " + exploredString);
+                } else {
+                    int x = Integer.parseInt(coords[0]);
+                    int y = Integer.parseInt(coords[1]);
 
-                explored[x][y] = true;
+                    explored.set(x, y, true);
+                }
             }
         }
 
@@ -712,7 +722,9 @@ public class Area implements EffectTarget, Saveable
     public void checkEncounterRespawns()
     {
         for (Encounter encounter : encounters) {
-            encounter.checkSpawnCreatures();
+            if (encounter.checkSpawnCreatures()) {
+                markSaveDataChanged();
+            }
         }
     }
 
@@ -766,26 +778,137 @@ public class Area implements EffectTarget, Saveable
         return visibilityRadius;
     }
 
-    public boolean[][] getExplored()
+    public BitGrid getExplored()
     {
         return explored;
     }
 
-    public boolean[][] getTransparency()
+    public BitGrid getTransparency()
     {
         return transparency;
     }
 
-    public boolean[][] getPassability()
+    public BitGrid getPassability()
     {
         return passable;
     }
 
-    public boolean[][] getVisibility()
+    public BitGrid getVisibility()
     {
         return visibility;
     }
 
+    /**
+     * Adds the specified region to the set of regions tracking changes to this area.  Every
+     * point passed to {@link #markChanged(int, int, int, int)} is added to the region until
+     * it is removed
+     *
+     * @param tracker the region to add changed points to
+     */
+
+    public void addChangeTracker(DirtyRegion tracker)
+    {
+        changeTrackers.add(tracker);
+    }
+
+    /**
+     * Removes the specified region from the set of regions tracking changes to this area
+     *
+     * @param tracker the region to remove
+     */
+
+    public void removeChangeTracker(DirtyRegion tracker)
+    {
+        changeTrackers.remove(tracker);
+    }
+
+    /**
+     * Adds the specified rectangle of points to all regions tracking changes to this area.
+     * This must be called whenever the visibility or explored state of points changes, or
+     * whenever a door or container is added, removed, or moved
+     *
+     * @param x1 the minimum x grid coordinate
+     * @param y1 the minimum y grid coordinate
+     * @param x2 the maximum x grid coordinate
+     * @param y2 the maximum y grid coordinate
+     */
+
+    public void markChanged(int x1, int y1, int x2, int y2)
+    {
+        for (DirtyRegion tracker : changeTrackers) {
+            tracker.add(x1, y1, x2, y2);
+        }
+
+        markSaveDataChanged();
+    }
+
+    /**
+     * Returns a rough estimate of the memory used by this area, in bytes.  This includes
+     * the grids, tiles, and entities of the area, based on the typical cost of each
+     *
+     * @return the estimated memory used by this area
+     */
+
+    public long getEstimatedMemoryUsage()
+    {
+        long entities = 0;
+        for (Iterator<Entity> iter = entityList.iterator(); iter.hasNext(); ) {
+            iter.next();
+            entities++;
+        }
+
+        return (long)width * height * EstimatedBytesPerTile + entities * EstimatedBytesPerEntity;
+    }
+
+    /**
+     * Returns true if this area can be removed from memory and later reloaded from its
+     * save data without changing the state of the game.  This is only the case if no
+     * other area or the party can hold a reference to anything in this area, so the area
+     * must contain no player characters and no effects, either on the area itself or on
+     * any entity in the area.
+     *
+     * @return whether this area can be unloaded
+     */
+
+    public boolean canBeUnloaded()
+    {
+        if (effects.size() > 0) return false;
+
+        for (Entity entity : entityList) {
+            if (entity instanceof PC) return false;
+
+            if (entity.getEffects().size() > 0) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the current save version of this area.  The version is incremented each
+     * time {@link #markSaveDataChanged()} is called.  If the version is unchanged, the data
+     * returned by {@link #save()} is the same as when the version was last checked.
+     *
+     * @return the current save version
+     */
+
+    public int getSaveVersion()
+    {
+        return saveVersion.get();
+    }
+
+    /**
+     * Increments the save version of this area.  This is called automatically whenever
+     * entities or effects in this area are added, removed, or moved, entity passabilities
+     * change, or the explored state changes.  It must be called whenever this area is
+     * modified in some other way while it is not the current area, since the state of the
+     * current area is always assumed to have changed.
+     */
+
+    public void markSaveDataChanged()
+    {
+        saveVersion.incrementAndGet();
+    }
+
     public void applyEffect(Effect effect, List<Point> points)
     {
         if (!(effect instanceof Aura)) {
@@ -884,7 +1007,7 @@ public class Area implements EffectTarget, Saveable
             areaPathConcealment += effects.getBonusAt(Bonus.Type.Concealment, p.x, p.y);
             areaPathConcealment -= effects.getBonusAt(Bonus.Type.ConcealmentNegation, p.x, p.y);
 
-            if (!this.transparency[p.x][p.y]) {
+            if (!this.transparency.get(p.x, p.y)) {
                 obstructionsInPathConcealment += 15;
             } else {
                 Creature c = this.getCreatureAtGridPoint(p);
@@ -931,11 +1054,9 @@ public class Area implements EffectTarget, Saveable
         return getConcealment(attacker, defender, defender.getLocation().getX(), defender.getLocation().getY());
     }
 
-    public boolean[][] getMatrixOfSize()
+    public BitGrid getMatrixOfSize()
     {
-        boolean[][] matrix = new boolean[width][height];
-
-        return matrix;
+        return new BitGrid(width, height);
     }
 
     public void removeEntity(Entity entity)
@@ -1050,9 +1171,9 @@ public class Area implements EffectTarget, Saveable
         return entityList.getCreature(x, y);
     }
 
-    public boolean[][] getEntityPassabilities(Creature mover)
+    public void getEntityPassabilities(Creature mover, BitGrid pass)
     {
-        return entityList.getEntityPassabilities(mover);
+        entityList.getEntityPassabilities(mover, pass);
     }
 
     public List<Entity> getEntitiesAtGridPoint(Point p)
@@ -1076,18 +1197,15 @@ public class Area implements EffectTarget, Saveable
 
     public void setAllTilesExplored()
     {
-        for (int i = 0; i < explored.length; i++) {
-            for (int j = 0; j < explored[i].length; j++) {
-                explored[i][j] = true;
-            }
-        }
+        explored.setAll(true);
+        markChanged(0, 0, width - 1, height - 1);
     }
 
     public final boolean isVisible(int x, int y)
     {
         if (x < 0 || x >= width || y < 0 || y >= height) return false;
 
-        return this.visibility[x][y];
+        return this.visibility.get(x, y);
     }
 
     public final boolean isTransparent(Point p)
@@ -1099,23 +1217,23 @@ public class Area implements EffectTarget, Saveable
     {
         if (x < 0 || x >= width || y < 0 || y >= height) return false;
 
-        return this.transparency[x][y];
+        return this.transparency.get(x, y);
     }
 
-    public boolean[][] getCurrentPassable()
+    public BitGrid getCurrentPassable()
     {
-        boolean[][] pass = new boolean[width][height];
+        BitGrid pass = new BitGrid(width, height);
 
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
                 if (entityList.getCreature(x, y) != null) {
-                    pass[x][y] = false;
+                    pass.set(x, y, false);
                 } else {
                     Door d = entityList.getDoor(x, y);
                     if (d != null && !d.isOpen()) {
-                        pass[x][y] = false;
+                        pass.set(x, y, false);
                     } else {
-                        pass[x][y] = this.passable[x][y];
+                        pass.set(x, y, this.passable.get(x, y));
                     }
                 }
             }
@@ -1133,7 +1251,7 @@ public class Area implements EffectTarget, Saveable
         Door door = entityList.getDoor(x, y);
         if (door != null && !door.isOpen()) return false;
 
-        return passable[x][y];
+        return passable.get(x, y);
     }
 
     public final boolean isFreeForCreature(int x, int y)
@@ -1151,7 +1269,7 @@ public class Area implements EffectTarget, Saveable
     {
         if (x < 0 || x >= width || y < 0 || y >= height) return false;
 
-        return passable[x][y];
+        return passable.get(x, y);
     }
 
     public void setEntityVisibility()
@@ -27,6 +27,7 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import hale.entity.Container;
 import hale.entity.Creature;
@@ -43,6 +44,7 @@ import hale.loading.LoadGameException;
 import hale.loading.ReferenceHandler;
 import hale.loading.Saveable;
 import hale.util.AreaUtil;
+import hale.util.BitGrid;
 import hale.util.Point;
 import hale.util.SimpleJSONArrayEntry;
 import hale.util.SimpleJSONObject;
@@ -52,6 +54,10 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
     private EntityList[][] entities;
     private Set<Entity> entitiesSet;
 
+    private final AtomicInteger passabilityVersion = new AtomicInteger();
+
+    private final Area area;
+
     @Override
     public Object save()
     {
@@ -131,12 +137,40 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
         }
     }
 
-    public AreaEntityList(int width, int height)
+    public AreaEntityList(Area area, int width, int height)
     {
+        this.area = area;
         entities = new EntityList[width][height];
         entitiesSet = new LinkedHashSet<Entity>();
     }
 
+    /**
+     * Returns the current passability version of this list.  The version is incremented
+     * each time an entity is added, removed, or moved, or when
+     * {@link #invalidatePassabilities()} is called.  Any cached data computed from the
+     * entity passabilities is no longer valid once the version changes.
+     *
+     * @return the current passability version
+     */
+
+    public int getPassabilityVersion()
+    {
+        return passabilityVersion.get();
+    }
+
+    /**
+     * Increments the passability version of this list.  This should be called whenever
+     * an entity changes in a way that affects path finding without changing its location,
+     * such as a door opening or a trap being spotted
+     */
+
+    public void invalidatePassabilities()
+    {
+        passabilityVersion.incrementAndGet();
+
+        area.markSaveDataChanged();
+    }
+
     /**
      * Returns true if this List contains the specified entity within the standard
      * EntityList.  Does not return true for entities that have been removed and
@@ -164,6 +198,7 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
         addTrapAt(trap.getLocation().getX(), trap.getLocation().getY(), trap);
 
         entitiesSet.add(trap);
+        invalidatePassabilities();
     }
 
     /**
@@ -179,6 +214,8 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
         addContainerAt(container.getLocation().getX(), container.getLocation().getY(), container);
 
         entitiesSet.add(container);
+        invalidatePassabilities();
+        markChanged(container, container.getLocation());
     }
 
     /**
@@ -196,56 +233,47 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
         addAt(entity.getLocation().getX(), entity.getLocation().getY(), entity);
 
         entitiesSet.add(entity);
-    }
-
-    private void setMatrix(boolean[][] matrix, boolean value, int x, int y)
-    {
-        if (x >= 0 && y >= 0 && x < matrix.length && y < matrix[0].length) {
-            matrix[x][y] = value;
-        }
+        invalidatePassabilities();
+        markChanged(entity, entity.getLocation());
     }
 
     /**
-     * Gets the matrix of passabilities for each tile in the map based on the
-     * specified creature, ignored creatures
+     * Sets the specified grid to the passabilities for each tile in the map based on the
+     * specified creature, ignoring creatures
      *
      * @param mover the creature who is moving
-     * @return the matrix of passabilities
+     * @param pass  the grid to store the passabilities in, which must be the size of the area
      */
 
-    public synchronized boolean[][] getDoorPassabilities(Creature mover)
+    public synchronized void getDoorPassabilities(Creature mover, BitGrid pass)
     {
-        boolean[][] pass = new boolean[entities.length][entities[0].length];
-        AreaUtil.setMatrix(pass, true);
+        pass.setAll(true);
 
         for (Entity entity : entitiesSet) {
             if (entity instanceof Door) {
                 if (!((Door)entity).isOpen()) {
-                    setMatrix(pass, false, entity.getLocation().getX(), entity.getLocation().getY());
+                    pass.setIfInBounds(entity.getLocation().getX(), entity.getLocation().getY(), false);
                 }
             }
         }
-
-        return pass;
     }
 
     /**
-     * Gets the matrix of passabilities for each tile in the map based on the
+     * Sets the specified grid to the passabilities for each tile in the map based on the
      * specified creature
      *
      * @param mover the creature who is moving
-     * @return the matrix of passabilities
+     * @param pass  the grid to store the passabilities in, which must be the size of the area
      */
 
-    public synchronized boolean[][] getEntityPassabilities(Creature mover)
+    public synchronized void getEntityPassabilities(Creature mover, BitGrid pass)
     {
-        boolean[][] pass = new boolean[entities.length][entities[0].length];
-        AreaUtil.setMatrix(pass, true);
+        pass.setAll(true);
 
         for (Entity entity : entitiesSet) {
             if (entity instanceof Door) {
                 if (!((Door)entity).isOpen()) {
-                    setMatrix(pass, false, entity.getLocation().getX(), entity.getLocation().getY());
+                    pass.setIfInBounds(entity.getLocation().getX(), entity.getLocation().getY(), false);
                 }
             } else
                 if (entity instanceof Creature) {
@@ -256,12 +284,10 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
                     // back to their last position which will prevent the two remaining in the same tile.
 
                     if (!entity.getFaction().isFriendly(mover) && !((Creature)entity).stats.isHelpless()) {
-                        setMatrix(pass, false, entity.getLocation().getX(), entity.getLocation().getY());
+                        pass.setIfInBounds(entity.getLocation().getX(), entity.getLocation().getY(), false);
                     }
                 }
         }
-
-        return pass;
     }
 
     /**
@@ -288,6 +314,8 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
         removeAt(entity.getLocation().getX(), entity.getLocation().getY(), entity);
 
         entitiesSet.remove(entity);
+        invalidatePassabilities();
+        markChanged(entity, entity.getLocation());
 
         // remove the creature from the encounter that is tracking it, if applicable
         if (entity instanceof Creature) {
@@ -366,6 +394,22 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
         removeAt(lastLocation.getX(), lastLocation.getY(), entity);
 
         addAt(entity.getLocation().getX(), entity.getLocation().getY(), entity);
+
+        invalidatePassabilities();
+        markChanged(entity, lastLocation);
+        markChanged(entity, entity.getLocation());
+    }
+
+    /*
+     * doors and containers are part of the cached minimap, so views of the area
+     * must be told when one is added, removed, or moved
+     */
+
+    private void markChanged(Entity entity, Location location)
+    {
+        if (entity instanceof Door || entity instanceof Container) {
+            area.markChanged(location.getX(), location.getY(), location.getX(), location.getY());
+        }
     }
 
     public List<Entity> getEntitiesWithID(String id)
@@ -527,13 +571,13 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
         return doors;
     }
 
-    public List<Trap> getVisibleTraps(boolean[][] visibility)
+    public List<Trap> getVisibleTraps(BitGrid visibility)
     {
         List<Trap> traps = new LinkedList<Trap>();
 
         for (int i = 0; i < entities.length; i++) {
             for (int j = 0; j < entities[0].length; j++) {
-                if (visibility[i][j]) {
+                if (visibility.get(i, j)) {
                     Trap t = getTrap(i, j);
                     if (t != null) traps.add(t);
                 }
@@ -543,13 +587,13 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
         return traps;
     }
 
-    public List<Creature> getVisibleCreatures(boolean[][] visibility)
+    public List<Creature> getVisibleCreatures(BitGrid visibility)
     {
         List<Creature> creatures = new LinkedList<Creature>();
 
         for (int i = 0; i < entities.length; i++) {
             for (int j = 0; j < entities[0].length; j++) {
-                if (visibility[i][j]) {
+                if (visibility.get(i, j)) {
                     Creature c = getCreature(i, j);
                     if (c != null) creatures.add(c);
                 }
@@ -644,6 +688,20 @@ public class AreaEntityList implements Saveable, Iterable<Entity>
 
         this.entities = newEntities;
         this.entitiesSet = newHash;
+
+        invalidatePassabilities();
+    }
+
+    /**
+     * Starts decoding the images for the icons of all entities in this list on background
+     * threads, so they are ready by the time the entities are first drawn
+     */
+
+    public void prefetchSprites()
+    {
+        for (Entity entity : entitiesSet) {
+            entity.getTemplate().getIcon().prefetchSprites();
+        }
     }
 
     @Override
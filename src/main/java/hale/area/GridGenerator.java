@@ -101,11 +101,11 @@ public class GridGenerator implements Generator
         for (int x = 0; x < area.getWidth(); x++) {
             for (int y = 0; y < area.getHeight(); y++) {
                 if (area.getElevationGrid().getElevation(x, y) != 0) {
-                    area.getPassability()[x][y] = false;
+                    area.getPassability().set(x, y, false);
                 }
 
                 if (area.getElevationGrid().getElevation(x, y) > 0) {
-                    area.getTransparency()[x][y] = false;
+                    area.getTransparency().set(x, y, false);
                 }
             }
         }
@@ -133,7 +133,7 @@ public class GridGenerator implements Generator
                         Point impass = elevation.getImpassable().getRelativePoint(p);
 
                         if (area.isValidPoint(impass)) {
-                            area.getPassability()[impass.x][impass.y] = false;
+                            area.getPassability().set(impass.x, impass.y, false);
                         }
 
                     }
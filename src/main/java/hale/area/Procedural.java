@@ -87,8 +87,8 @@ public class Procedural
 
                 area.getTileGrid().addTile(tile.getID(), tile.getLayerID(), x, y);
 
-                area.getTransparency()[x][y] = true;
-                area.getPassability()[x][y] = true;
+                area.getTransparency().set(x, y, true);
+                area.getPassability().set(x, y, true);
             }
         }
 
@@ -112,7 +112,13 @@ public class Bonus implements Saveable
         StackableBonus, StackablePenalty,
         GenericBonus, MoraleBonus, DeflectionBonus, NaturalArmorBonus, ArmorBonus, ShieldBonus,
         GenericPenalty, MoralePenalty, DeflectionPenalty, NaturalArmorPenalty, ArmorPenalty, ShieldPenalty,
-        EnhancementBonus, EnhancementPenalty, LuckBonus, LuckPenalty,
+        EnhancementBonus, EnhancementPenalty, LuckBonus, LuckPenalty;
+
+        // stackable bonuses are summed, while only the largest bonus of other stack types applies
+        public boolean isStackable()
+        {
+            return this == StackableBonus || this == StackablePenalty;
+        }
     }
 
     ;
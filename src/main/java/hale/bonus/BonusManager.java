@@ -19,6 +19,7 @@
 
 package hale.bonus;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -33,12 +34,15 @@ public class BonusManager
     private final ProficiencyList armorProficiencies;
     private final StandaloneDamageBonusList standaloneDamageBonuses;
 
-    private final Map<Bonus.Type, BonusTypeList> bonuses;
+    private static final int Types = Bonus.Type.values().length;
+
+    // the bonuses of each type, indexed by ordinal, or null if there are none of that type
+    private final BonusTypeList[] bonuses;
     private final Map<String, BonusSuperTypeList> bonusesWithSuperType;
 
     public BonusManager()
     {
-        this.bonuses = new HashMap<Bonus.Type, BonusTypeList>();
+        this.bonuses = new BonusTypeList[Types];
 
         this.weaponProficiencies = new ProficiencyList();
         this.armorProficiencies = new ProficiencyList();
@@ -50,10 +54,9 @@ public class BonusManager
 
     public BonusManager(BonusManager other)
     {
-        this.bonuses = new HashMap<Bonus.Type, BonusTypeList>();
-        for (Bonus.Type key : other.bonuses.keySet()) {
-            BonusTypeList list = new BonusTypeList(other.bonuses.get(key));
-            this.bonuses.put(key, list);
+        this.bonuses = new BonusTypeList[Types];
+        for (int i = 0; i < Types; i++) {
+            if (other.bonuses[i] != null) this.bonuses[i] = new BonusTypeList(other.bonuses[i]);
         }
 
         this.weaponProficiencies = new ProficiencyList(other.weaponProficiencies);
@@ -77,11 +80,13 @@ public class BonusManager
 
     public void remove(Bonus bonus)
     {
-        if (bonuses.containsKey(bonus.getType())) {
-            bonuses.get(bonus.getType()).remove(bonus);
+        int index = bonus.getType().ordinal();
+
+        if (bonuses[index] != null) {
+            bonuses[index].remove(bonus);
 
-            if (bonuses.get(bonus.getType()).isEmpty()) {
-                bonuses.remove(bonus.getType());
+            if (bonuses[index].isEmpty()) {
+                bonuses[index] = null;
             }
         }
 
@@ -111,8 +116,9 @@ public class BonusManager
             case AttackForWeaponType:
                 String superType = ((BonusWithSuperType)bonus).getSuperType();
 
-                if (bonusesWithSuperType.get(superType) != null) {
-                    bonusesWithSuperType.get(superType).remove(bonus);
+                BonusSuperTypeList superTypeList = bonusesWithSuperType.get(superType);
+                if (superTypeList != null) {
+                    superTypeList.remove(bonus);
                 }
                 break;
             case StandaloneDamage:
@@ -161,57 +167,51 @@ public class BonusManager
             case DamageForSpellType:
             case AttackForWeaponType:
                 String superType = ((BonusWithSuperType)bonus).getSuperType();
-                if (bonusesWithSuperType.containsKey(superType)) {
-                    bonusesWithSuperType.get(superType).add(bonus);
-                } else {
-                    BonusSuperTypeList bonusSuperTypeList = new BonusSuperTypeList();
-                    bonusSuperTypeList.add(bonus);
+                BonusSuperTypeList bonusSuperTypeList = bonusesWithSuperType.get(superType);
+                if (bonusSuperTypeList == null) {
+                    bonusSuperTypeList = new BonusSuperTypeList();
                     bonusesWithSuperType.put(superType, bonusSuperTypeList);
                 }
+
+                bonusSuperTypeList.add(bonus);
                 break;
             case StandaloneDamage:
                 standaloneDamageBonuses.add(bonus);
             default:
-                if (bonuses.containsKey(bonus.getType())) {
-                    bonuses.get(bonus.getType()).add(bonus);
-                } else {
-                    BonusTypeList bonusTypeList = new BonusTypeList();
-                    bonusTypeList.add(bonus);
-                    bonuses.put(bonus.getType(), bonusTypeList);
+                int index = bonus.getType().ordinal();
+
+                if (bonuses[index] == null) {
+                    bonuses[index] = new BonusTypeList();
                 }
+
+                bonuses[index].add(bonus);
         }
     }
 
     public boolean has(Bonus.Type type)
     {
-        return bonuses.containsKey(type);
+        return bonuses[type.ordinal()] != null;
     }
 
     public int get(String superType, Bonus.Type type)
     {
-        if (bonusesWithSuperType.containsKey(superType)) {
-            return bonusesWithSuperType.get(superType).getCurrentTotal(type);
-        } else {
-            return 0;
-        }
+        BonusSuperTypeList list = bonusesWithSuperType.get(superType);
+
+        return list == null ? 0 : list.getCurrentTotal(type);
     }
 
     public int get(Bonus.Type type)
     {
-        if (bonuses.containsKey(type)) {
-            return bonuses.get(type).getCurrentTotal();
-        } else {
-            return 0;
-        }
+        BonusTypeList list = bonuses[type.ordinal()];
+
+        return list == null ? 0 : list.getCurrentTotal();
     }
 
     public int get(Bonus.Type type, Bonus.StackType stackType)
     {
-        if (bonuses.containsKey(type)) {
-            return bonuses.get(type).get(stackType);
-        } else {
-            return 0;
-        }
+        BonusTypeList list = bonuses[type.ordinal()];
+
+        return list == null ? 0 : list.get(stackType);
     }
 
     public boolean hasWeaponProficiency(String baseWeapon)
@@ -226,11 +226,7 @@ public class BonusManager
 
     public int getSkillBonus(String skillID)
     {
-        if (bonusesWithSuperType.containsKey(skillID)) {
-            return bonusesWithSuperType.get(skillID).getCurrentTotal(Bonus.Type.Skill);
-        } else {
-            return 0;
-        }
+        return get(skillID, Bonus.Type.Skill);
     }
 
     public Damage rollStandaloneDamage(Creature parent)
@@ -242,7 +238,7 @@ public class BonusManager
     {
         weaponProficiencies.clear();
         armorProficiencies.clear();
-        bonuses.clear();
+        Arrays.fill(bonuses, null);
         bonusesWithSuperType.clear();
         standaloneDamageBonuses.clear();
     }
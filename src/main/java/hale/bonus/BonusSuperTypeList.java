@@ -19,7 +19,7 @@
 
 package hale.bonus;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 public class BonusSuperTypeList
@@ -28,12 +28,12 @@ public class BonusSuperTypeList
 
     public BonusSuperTypeList()
     {
-        bonuses = new HashMap<Bonus.Type, BonusTypeList>();
+        bonuses = new EnumMap<Bonus.Type, BonusTypeList>(Bonus.Type.class);
     }
 
     public BonusSuperTypeList(BonusSuperTypeList other)
     {
-        this.bonuses = new HashMap<Bonus.Type, BonusTypeList>();
+        this.bonuses = new EnumMap<Bonus.Type, BonusTypeList>(Bonus.Type.class);
 
         for (Bonus.Type key : other.bonuses.keySet()) {
             BonusTypeList list = new BonusTypeList(other.bonuses.get(key));
@@ -69,10 +69,8 @@ public class BonusSuperTypeList
 
     public int getCurrentTotal(Bonus.Type type)
     {
-        if (bonuses.containsKey(type)) {
-            return bonuses.get(type).getCurrentTotal();
-        } else {
-            return 0;
-        }
+        BonusTypeList list = bonuses.get(type);
+
+        return list == null ? 0 : list.getCurrentTotal();
     }
 }
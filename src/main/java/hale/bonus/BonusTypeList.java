@@ -19,82 +19,87 @@
 
 package hale.bonus;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class BonusTypeList
 {
+    private static final int StackTypes = Bonus.StackType.values().length;
+
     private int currentTotal;
-    private Map<Bonus.StackType, BonusStackTypeList> bonuses;
+
+    // the current total for each stack type, indexed by ordinal
+    private final int[] stackTotals;
+
+    // all bonuses of this type, in the order they were added
+    private final List<Bonus> bonuses;
 
     public BonusTypeList()
     {
-        bonuses = new HashMap<Bonus.StackType, BonusStackTypeList>();
+        bonuses = new ArrayList<Bonus>(2);
+        stackTotals = new int[StackTypes];
         currentTotal = 0;
     }
 
     public BonusTypeList(BonusTypeList other)
     {
-        this.bonuses = new HashMap<Bonus.StackType, BonusStackTypeList>();
-        for (Bonus.StackType key : other.bonuses.keySet()) {
-            BonusStackTypeList list = new BonusStackTypeList(other.bonuses.get(key));
-            this.bonuses.put(key, list);
-        }
-
+        this.bonuses = new ArrayList<Bonus>(other.bonuses);
+        this.stackTotals = Arrays.copyOf(other.stackTotals, StackTypes);
         this.currentTotal = other.currentTotal;
     }
 
     public void remove(Bonus bonus)
     {
-        Bonus.StackType stackType = bonus.getStackType();
+        if (!bonuses.remove(bonus)) return;
 
-        if (bonuses.containsKey(stackType)) {
-            bonuses.get(stackType).remove(bonus);
+        if (!bonus.hasValue()) return;
 
-            if (bonuses.get(stackType).isEmpty()) {
-                bonuses.remove(stackType);
+        Bonus.StackType stackType = bonus.getStackType();
+        int index = stackType.ordinal();
+        int oldTotal = stackTotals[index];
+
+        if (stackType.isStackable()) {
+            stackTotals[index] -= bonus.getValue();
+        } else
+            if (Math.abs(bonus.getValue()) == Math.abs(oldTotal)) {
+                // the removed bonus may have been the largest, so we need to find the new largest
+                int total = 0;
+                for (Bonus b : bonuses) {
+                    if (b.getStackType() == stackType && Math.abs(b.getValue()) > Math.abs(total)) {
+                        total = b.getValue();
+                    }
+                }
+
+                stackTotals[index] = total;
             }
-        }
-
-        // we need to recompute the total after removing a bonus
-        if (bonus.hasValue()) {
-            currentTotal = 0;
 
-            for (Bonus.StackType type : bonuses.keySet()) {
-                currentTotal += bonuses.get(type).getCurrentTotal();
-            }
-        }
+        currentTotal += stackTotals[index] - oldTotal;
     }
 
     public void add(Bonus bonus)
     {
-        Bonus.StackType stackType = bonus.getStackType();
-
-        if (bonuses.containsKey(stackType)) {
-            // subtract the old total from this stack type
-            currentTotal -= bonuses.get(stackType).getCurrentTotal();
+        bonuses.add(bonus);
 
-            bonuses.get(stackType).add(bonus);
+        if (!bonus.hasValue()) return;
 
-            // add the new total from this stack type
-            if (bonus.hasValue()) currentTotal += bonuses.get(stackType).getCurrentTotal();
-
-        } else {
-            BonusStackTypeList bonusStackTypeList = new BonusStackTypeList();
-            bonusStackTypeList.add(bonus);
-            bonuses.put(stackType, bonusStackTypeList);
+        Bonus.StackType stackType = bonus.getStackType();
+        int index = stackType.ordinal();
+        int oldTotal = stackTotals[index];
+
+        if (stackType.isStackable()) {
+            stackTotals[index] += bonus.getValue();
+        } else
+            if (Math.abs(bonus.getValue()) > Math.abs(oldTotal)) {
+                stackTotals[index] = bonus.getValue();
+            }
 
-            if (bonus.hasValue()) currentTotal += bonuses.get(stackType).getCurrentTotal();
-        }
+        currentTotal += stackTotals[index] - oldTotal;
     }
 
     public int get(Bonus.StackType stackType)
     {
-        if (bonuses.containsKey(stackType)) {
-            return bonuses.get(stackType).getCurrentTotal();
-        } else {
-            return 0;
-        }
+        return stackTotals[stackType.ordinal()];
     }
 
     public int getCurrentTotal()
@@ -104,6 +109,6 @@ public class BonusTypeList
 
     public boolean isEmpty()
     {
-        return bonuses.keySet().size() == 0;
+        return bonuses.isEmpty();
     }
 }
@@ -20,9 +20,8 @@
 package hale.bonus;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 import hale.Game;
 import hale.ability.Effect;
@@ -47,7 +46,8 @@ public class StatManager
 
     private final Creature parent;
 
-    private final Map<Stat, Integer> stats;
+    // the current value of each stat, indexed by ordinal
+    private final int[] stats;
 
     private final BonusManager bonuses;
 
@@ -55,7 +55,7 @@ public class StatManager
     {
         this.parent = parent;
         this.bonuses = new BonusManager();
-        this.stats = new HashMap<Stat, Integer>();
+        this.stats = new int[Stat.values().length];
     }
 
     public StatManager(StatManager other, Creature parent)
@@ -64,7 +64,7 @@ public class StatManager
 
         this.bonuses = new BonusManager(other.bonuses);
 
-        this.stats = new HashMap<Stat, Integer>(other.stats);
+        this.stats = Arrays.copyOf(other.stats, other.stats.length);
     }
 
     public void removeEffectPenaltiesOfType(String bonusType)
@@ -364,11 +364,7 @@ public class StatManager
 
     public int get(Stat stat)
     {
-        if (stats.containsKey(stat)) {
-            return stats.get(stat);
-        } else {
-            return 0;
-        }
+        return stats[stat.ordinal()];
     }
 
     public boolean hasWeaponProficiency(String baseWeapon)
@@ -402,21 +398,21 @@ public class StatManager
 
     private void addToStat(Stat stat, int addedValue)
     {
-        int currentValue = stats.get(stat);
+        int currentValue = stats[stat.ordinal()];
 
-        stats.put(stat, currentValue + addedValue);
+        stats[stat.ordinal()] = currentValue + addedValue;
     }
 
     private void zeroStats(Stat... statsToZero)
     {
         for (Stat stat : statsToZero) {
-            stats.put(stat, 0);
+            stats[stat.ordinal()] = 0;
         }
     }
 
     public void recomputeStr()
     {
-        stats.put(Stat.Str, getBaseStr() + get(Bonus.Type.Str));
+        stats[Stat.Str.ordinal()] = getBaseStr() + get(Bonus.Type.Str);
         recomputeWeightLimit();
         recomputeAttackBonus();
     }
@@ -424,13 +420,13 @@ public class StatManager
     // for use when recomputing all stats so we don't compute attackBonus twice - once for str and again for dex
     private void recomputeStrNoAttackBonus()
     {
-        stats.put(Stat.Str, getBaseStr() + get(Bonus.Type.Str));
+        stats[Stat.Str.ordinal()] = getBaseStr() + get(Bonus.Type.Str);
         recomputeWeightLimit();
     }
 
     public void recomputeDex()
     {
-        stats.put(Stat.Dex, getBaseDex() + get(Bonus.Type.Dex));
+        stats[Stat.Dex.ordinal()] = getBaseDex() + get(Bonus.Type.Dex);
         recomputeReflexResistance();
         recomputeArmorClass();
         recomputeAttackBonus();
@@ -438,33 +434,33 @@ public class StatManager
 
     public void recomputeCon()
     {
-        stats.put(Stat.Con, getBaseCon() + get(Bonus.Type.Con));
+        stats[Stat.Con.ordinal()] = getBaseCon() + get(Bonus.Type.Con);
         recomputeLevelAndMaxHP();
         recomputePhysicalResistance();
     }
 
     public void recomputeInt()
     {
-        stats.put(Stat.Int, getBaseInt() + get(Bonus.Type.Int));
+        stats[Stat.Int.ordinal()] = getBaseInt() + get(Bonus.Type.Int);
     }
 
     public void recomputeWis()
     {
-        stats.put(Stat.Wis, getBaseWis() + get(Bonus.Type.Wis));
+        stats[Stat.Wis.ordinal()] = getBaseWis() + get(Bonus.Type.Wis);
         recomputeMentalResistance();
     }
 
     public void recomputeCha()
     {
-        stats.put(Stat.Cha, getBaseCha() + get(Bonus.Type.Cha));
+        stats[Stat.Cha.ordinal()] = getBaseCha() + get(Bonus.Type.Cha);
     }
 
     public void recomputeLevelAndMaxHP()
     {
         zeroStats(Stat.LevelAttackBonus, Stat.LevelDamageBonus, Stat.MaxHP);
 
-        stats.put(Stat.CasterLevel, parent.roles.getCasterLevel());
-        stats.put(Stat.CreatureLevel, parent.roles.getTotalLevel());
+        stats[Stat.CasterLevel.ordinal()] = parent.roles.getCasterLevel();
+        stats[Stat.CreatureLevel.ordinal()] = parent.roles.getTotalLevel();
 
         for (String roleID : parent.roles.getRoleIDs()) {
             Role role = Game.ruleset.getRole(roleID);
@@ -489,23 +485,23 @@ public class StatManager
 
     public void recomputeMentalResistance()
     {
-        stats.put(Stat.MentalResistance, (getWis() - 10) * 2 + getCreatureLevel() * 3);
+        stats[Stat.MentalResistance.ordinal()] = (getWis() - 10) * 2 + getCreatureLevel() * 3;
     }
 
     public void recomputePhysicalResistance()
     {
-        stats.put(Stat.PhysicalResistance, (getCon() - 10) * 2 + getCreatureLevel() * 3);
+        stats[Stat.PhysicalResistance.ordinal()] = (getCon() - 10) * 2 + getCreatureLevel() * 3;
     }
 
     public void recomputeReflexResistance()
     {
-        stats.put(Stat.ReflexResistance, (getDex() - 10) * 2 + getCreatureLevel() * 3);
+        stats[Stat.ReflexResistance.ordinal()] = (getDex() - 10) * 2 + getCreatureLevel() * 3;
     }
 
     public void recomputeWeightLimit()
     {
-        stats.put(Stat.WeightLimit, Game.ruleset.getValue("WeightLimitBase") +
-                (getStr() - 10) * Game.ruleset.getValue("WeightLimitStrengthFactor"));
+        stats[Stat.WeightLimit.ordinal()] = Game.ruleset.getValue("WeightLimitBase") +
+                (getStr() - 10) * Game.ruleset.getValue("WeightLimitStrengthFactor");
     }
 
     public void recomputeArmorClass()
@@ -730,7 +726,7 @@ public class StatManager
 
     public void setStat(Stat stat, int value)
     {
-        stats.put(stat, value);
+        stats[stat.ordinal()] = value;
 
         recomputeAllStats();
     }
@@ -740,12 +736,12 @@ public class StatManager
         if (attributes == null) return;
 
         if (attributes.length == 6) {
-            stats.put(Stat.BaseStr, attributes[0]);
-            stats.put(Stat.BaseDex, attributes[1]);
-            stats.put(Stat.BaseCon, attributes[2]);
-            stats.put(Stat.BaseInt, attributes[3]);
-            stats.put(Stat.BaseWis, attributes[4]);
-            stats.put(Stat.BaseCha, attributes[5]);
+            stats[Stat.BaseStr.ordinal()] = attributes[0];
+            stats[Stat.BaseDex.ordinal()] = attributes[1];
+            stats[Stat.BaseCon.ordinal()] = attributes[2];
+            stats[Stat.BaseInt.ordinal()] = attributes[3];
+            stats[Stat.BaseWis.ordinal()] = attributes[4];
+            stats[Stat.BaseCha.ordinal()] = attributes[5];
         }
     }
 
@@ -753,12 +749,12 @@ public class StatManager
     {
         int[] attributes = new int[6];
 
-        attributes[0] = stats.get(Stat.BaseStr);
-        attributes[1] = stats.get(Stat.BaseDex);
-        attributes[2] = stats.get(Stat.BaseCon);
-        attributes[3] = stats.get(Stat.BaseInt);
-        attributes[4] = stats.get(Stat.BaseWis);
-        attributes[5] = stats.get(Stat.BaseCha);
+        attributes[0] = stats[Stat.BaseStr.ordinal()];
+        attributes[1] = stats[Stat.BaseDex.ordinal()];
+        attributes[2] = stats[Stat.BaseCon.ordinal()];
+        attributes[3] = stats[Stat.BaseInt.ordinal()];
+        attributes[4] = stats[Stat.BaseWis.ordinal()];
+        attributes[5] = stats[Stat.BaseCha.ordinal()];
 
         return attributes;
     }
@@ -912,12 +908,12 @@ public class StatManager
 
     public int getAttackCost()
     {
-        return stats.get(Stat.AttackCost);
+        return stats[Stat.AttackCost.ordinal()];
     }
 
     public int getMovementCost()
     {
-        return stats.get(Stat.MovementCost);
+        return stats[Stat.MovementCost.ordinal()];
     }
 
     public boolean getMentalResistanceCheck(int difficulty)
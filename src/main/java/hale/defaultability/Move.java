@@ -31,6 +31,7 @@ import hale.entity.PC;
 import hale.entity.Path;
 import hale.interfacelock.MovementHandler;
 import hale.util.AreaUtil;
+import hale.util.BitGrid;
 import hale.util.Logger;
 import hale.util.Point;
 
@@ -266,13 +267,13 @@ public class Move implements DefaultAbility
         // get passabilities; party members are moving so their current positions
         // will be passable
 
-        boolean[][] pass = Game.curCampaign.curArea.getCurrentPassable();
+        BitGrid pass = Game.curCampaign.curArea.getCurrentPassable();
         for (Creature current : Game.curCampaign.party) {
-            pass[current.getLocation().getX()][current.getLocation().getY()] = true;
+            pass.set(current.getLocation().getX(), current.getLocation().getY(), true);
         }
 
         Point lastPosition = computedPath.get(0).toPoint();
-        pass[lastPosition.x][lastPosition.y] = false;
+        pass.set(lastPosition.x, lastPosition.y, false);
 
         int pathIndex = 1;
 
@@ -318,7 +319,7 @@ public class Move implements DefaultAbility
                     lastPosition = currentCreature.getLocation().toPoint();
                 }
 
-                pass[lastPosition.x][lastPosition.y] = false;
+                pass.set(lastPosition.x, lastPosition.y, false);
             }
         }
 
@@ -356,7 +357,7 @@ public class Move implements DefaultAbility
 
             // if no path is found to this point, we can try to find a different point
             if (curPath == null) {
-                pass[newPosition.x][newPosition.y] = false;
+                pass.set(newPosition.x, newPosition.y, false);
                 partyIter.previous();
                 continue;
             }
@@ -364,7 +365,7 @@ public class Move implements DefaultAbility
             // if curCreature is already at the right point
             if (curPath.length() == 0) {
                 lastPosition = newPosition;
-                pass[newPosition.x][newPosition.y] = false;
+                pass.set(newPosition.x, newPosition.y, false);
                 continue;
             }
 
@@ -375,7 +376,7 @@ public class Move implements DefaultAbility
 
             if (curPath.length() > 3 * currentCreature.getLocation().getDistance(computedPath.get(0))) {
                 // if the path is too long, try to find another point
-                pass[newPosition.x][newPosition.y] = false;
+                pass.set(newPosition.x, newPosition.y, false);
                 continue;
             }
 
@@ -386,7 +387,7 @@ public class Move implements DefaultAbility
 
             // the destination for the current creature will be occupied
             lastPosition = curPath.get(0).toPoint();
-            pass[lastPosition.x][lastPosition.y] = false;
+            pass.set(lastPosition.x, lastPosition.y, false);
         }
     }
 
@@ -395,10 +396,10 @@ public class Move implements DefaultAbility
     // finds the empty point closest to the specified point; mainCreaturePosition is used
     // for tie breaking
 
-    private Point getNearestAvailablePoint(Point target, boolean[][] pass, Location mainCreaturePosition)
+    private Point getNearestAvailablePoint(Point target, BitGrid pass, Location mainCreaturePosition)
     {
         if (checkCoordinates(target)) {
-            if (pass[target.x][target.y]) return target;
+            if (pass.get(target.x, target.y)) return target;
         }
 
         // search at each radius up to the max radius
@@ -413,7 +414,7 @@ public class Move implements DefaultAbility
                 // check that the point is inside the area
                 if (!checkCoordinates(current)) continue;
 
-                if (pass[current.x][current.y]) {
+                if (pass.get(current.x, current.y)) {
                     int distance = mainCreaturePosition.getDistance(current);
 
                     if (distance < minDistance) {
@@ -49,6 +49,7 @@ import hale.rules.Damage;
 import hale.rules.RoleSet;
 import hale.rules.SkillSet;
 import hale.util.AreaUtil;
+import hale.util.BitGrid;
 import hale.util.Logger;
 import hale.util.Point;
 import hale.util.SimpleJSONArray;
@@ -79,7 +80,8 @@ public abstract class Creature extends Entity
     // for group aspects of the AI
     private Encounter encounter;
 
-    private boolean[][] visibility;
+    private BitGrid visibility;
+    private int[] visiblePoints;
 
     private int currentHitPoints, temporaryHitPoints;
 
@@ -682,7 +684,7 @@ public abstract class Creature extends Entity
 
     public final boolean hasVisibilityInCurrentArea(int x, int y)
     {
-        return visibility[x][y];
+        return visibility.get(x, y);
     }
 
     /**
@@ -699,7 +701,7 @@ public abstract class Creature extends Entity
             return false;
         }
 
-        return visibility[location.getX()][location.getY()];
+        return visibility.get(location.getX(), location.getY());
     }
 
     /**
@@ -716,12 +718,35 @@ public abstract class Creature extends Entity
         int height = location.getArea().getHeight();
 
         // recreate the matrix if it is not of the correct size
-        if (visibility == null || visibility.length != width || visibility[0].length != height) {
-            visibility = new boolean[width][height];
-        }
+        if (visibility == null || visibility.getWidth() != width || visibility.getHeight() != height) {
+            visibility = new BitGrid(width, height);
+        } else
+            if (visiblePoints != null) {
+                // only the previously visible points need to be cleared
+                for (int point : visiblePoints) {
+                    visibility.set(point / height, point % height, false);
+                }
+            }
+
+        AreaUtil util = location.getArea().getUtil();
+        util.addVisibilityFromPosition(visibility, location.getX(), location.getY());
+
+        visiblePoints = util.getVisiblePoints(visibility, location.getX(), location.getY());
+    }
+
+    /**
+     * Returns the set of points that were visible to this creature when its visibility
+     * was last computed.  Each point is stored as x * height + y, where height is the
+     * height of this creature's current area.  A new array is created each time visibility
+     * is computed, so callers may compare references to determine whether visibility has
+     * changed.  The returned array must not be modified.
+     *
+     * @return the visible points, or null if visibility has not been computed
+     */
 
-        location.getArea().getUtil().setVisibilityWithRespectToPosition(visibility,
-                location.getX(), location.getY());
+    public int[] getVisiblePoints()
+    {
+        return visiblePoints;
     }
 
     /**
@@ -736,12 +761,12 @@ public abstract class Creature extends Entity
      * @param matrix the matrix to set the visibility of
      */
 
-    public void addVisibilityToMatrix(boolean[][] matrix)
+    public void addVisibilityToMatrix(BitGrid matrix)
     {
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = 0; j < matrix[i].length; j++) {
-                matrix[i][j] = visibility[i][j] || matrix[i][j];
-            }
+        int height = matrix.getHeight();
+
+        for (int point : visiblePoints) {
+            matrix.set(point / height, point % height, true);
         }
     }
 
@@ -779,6 +804,11 @@ public abstract class Creature extends Entity
     public void takeMoveAoO(Creature target)
     {
         moveAoOsThisRound.add(target);
+
+        // this creature no longer threatens the target's paths this round
+        if (getLocation() != null && getLocation().getArea() != null) {
+            getLocation().getArea().getUtil().invalidatePathsOf(target);
+        }
     }
 
     /**
@@ -790,6 +820,8 @@ public abstract class Creature extends Entity
     public void takeAttackOfOpportunity()
     {
         this.attacksOfOpportunityAvailable--;
+
+        if (this.attacksOfOpportunityAvailable < 1) invalidateThreatenedPaths();
     }
 
     /**
@@ -905,7 +937,7 @@ public abstract class Creature extends Entity
         if (this.stats.isHelpless()) return false;
 
         // must be able to see the tile
-        if (!this.visibility[x][y]) return false;
+        if (!this.visibility.get(x, y)) return false;
 
         Weapon weapon = getMainHandWeapon();
         if (!weapon.getTemplate().threatensAoOs()) return false;
@@ -940,7 +972,7 @@ public abstract class Creature extends Entity
 
         if (stats.isHelpless()) return false;
 
-        if (!visibility[location.getX()][location.getY()]) return false;
+        if (!visibility.get(location.getX(), location.getY())) return false;
 
         // can only attack on the same elevation
         if (getLocation().getElevation() != location.getElevation()) return false;
@@ -1034,6 +1066,8 @@ public abstract class Creature extends Entity
         // dead creatures can't take damage
         if (isDead()) return;
 
+        boolean wasDown = isDying();
+
         getEffects().executeOnAll(ScriptFunctionType.onDamaged, damage);
 
         int damageLeftToApply = damage.getTotalAppliedDamage();
@@ -1058,6 +1092,9 @@ public abstract class Creature extends Entity
             Game.mainViewer.updateEntity(this);
         }
 
+        // dying and dead creatures do not threaten any points
+        if (wasDown != (isDying() || isDead())) invalidateThreatenedPaths();
+
         this.updateListeners();
     }
 
@@ -1074,8 +1111,12 @@ public abstract class Creature extends Entity
 
         amount = Math.max(0, Math.min(amount, stats.getMaxHP() - currentHitPoints));
 
+        boolean wasDying = isDying();
+
         currentHitPoints += amount;
 
+        if (wasDying && !isDying()) invalidateThreatenedPaths();
+
         Game.mainViewer.addMessage("blue", getTemplate().getName() + " was healed for " + amount + " hit points.");
 
         Game.mainViewer.addFadeAway(Integer.toString(amount), getLocation().getX(),
@@ -1097,6 +1138,8 @@ public abstract class Creature extends Entity
         this.temporaryHitPoints = 0;
         this.currentHitPoints = 1;
 
+        invalidateThreatenedPaths();
+
         Game.mainViewer.addFadeAway("Raised", getLocation().getX(),
                 getLocation().getY(), new Color(0xFF33CCFF));
         Game.mainViewer.addMessage("blue", getTemplate().getName() + " was raised.");
@@ -1319,6 +1362,9 @@ public abstract class Creature extends Entity
 
         this.attacksOfOpportunityAvailable = stats.getAttacksOfOpportunity();
 
+        // attacks of opportunity available are reset each round, which changes path costs
+        invalidateThreatenedPaths();
+
         if (isSummoned() && summonExpiration <= Game.curCampaign.getDate().getTotalRoundsElapsed()) {
             this.currentHitPoints = -20;
             this.temporaryHitPoints = 0;
@@ -1383,6 +1429,7 @@ public abstract class Creature extends Entity
             stats.addAllNoRecompute(effect.getBonuses());
         } else {
             stats.addAll(effect.getBonuses());
+            invalidateAreaPassabilities();
         }
     }
 
@@ -1390,6 +1437,32 @@ public abstract class Creature extends Entity
     protected void removeEffectBonuses(Effect effect)
     {
         stats.removeAll(effect.getBonuses());
+        invalidateAreaPassabilities();
+    }
+
+    /*
+     * Effects can change whether this creature is helpless or hidden, which affects the
+     * paths that other creatures will take
+     */
+
+    private void invalidateAreaPassabilities()
+    {
+        if (getLocation() != null && getLocation().getArea() != null) {
+            getLocation().getArea().getEntities().invalidatePassabilities();
+        }
+    }
+
+    /*
+     * Called when the points this creature threatens with attacks of opportunity change, due to
+     * its attacks of opportunity, hit points, or wielded weapon.  Only the cached paths of the
+     * creatures that this creature is hostile to are affected
+     */
+
+    void invalidateThreatenedPaths()
+    {
+        if (getLocation() != null && getLocation().getArea() != null) {
+            getLocation().getArea().getUtil().invalidatePathsThreatenedBy(this);
+        }
     }
 
     @Override
@@ -88,8 +88,9 @@ public class Door extends Openable
     {
         boolean isOpen = super.attemptOpen(opener);
 
-        getLocation().getArea().getTransparency()[getLocation().getX()][getLocation().getY()] = isOpen();
-        opener.getLocation().getArea().getUtil().updateVisibility();
+        getLocation().getArea().getTransparency().set(getLocation().getX(), getLocation().getY(), isOpen());
+        getLocation().getArea().getEntities().invalidatePassabilities();
+        getLocation().getArea().getUtil().updateVisibility(getLocation().getX(), getLocation().getY());
 
         if (isOpen) {
             Game.areaListener.getCombatRunner().checkAIActivation();
@@ -103,8 +104,9 @@ public class Door extends Openable
     {
         super.close(closer);
 
-        getLocation().getArea().getTransparency()[getLocation().getX()][getLocation().getY()] = isOpen();
-        closer.getLocation().getArea().getUtil().updateVisibility();
+        getLocation().getArea().getTransparency().set(getLocation().getX(), getLocation().getY(), isOpen());
+        getLocation().getArea().getEntities().invalidatePassabilities();
+        getLocation().getArea().getUtil().updateVisibility(getLocation().getX(), getLocation().getY());
 
     }
 
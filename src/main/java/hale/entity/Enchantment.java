@@ -58,9 +58,10 @@ public class Enchantment
         engine.put("entity", bonuses);
         try {
             engine.eval(script);
-            engine.release();
         } catch (ScriptException e) {
             Logger.appendToErrorLog("Error running enchantment " + script);
+        } finally {
+            engine.release();
         }
     }
 
@@ -396,6 +396,11 @@ public abstract class Entity implements EffectTarget, Saveable, HasScriptState,
     public void setFaction(Faction faction)
     {
         this.faction = faction.getName();
+
+        // passability for other creatures depends on faction relationships
+        if (location != null && location.getArea() != null) {
+            location.getArea().getEntities().invalidatePassabilities();
+        }
     }
 
     /**
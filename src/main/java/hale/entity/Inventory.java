@@ -402,6 +402,9 @@ public class Inventory implements ItemList.Listener, Saveable
             parent.stats.removeAll(currentlyEquippedItem.getBonusList());
             parent.removeSubIcon(currentlyEquippedItem, slot);
 
+            // the main hand weapon determines the points the parent threatens
+            if (slot == Slot.MainHand) parent.invalidateThreatenedPaths();
+
             if (currentlyEquippedItem.getTemplate().hasScript()) {
                 currentlyEquippedItem.getTemplate().getScript().executeFunction(ScriptFunctionType.onUnequipItem,
                         parent, currentlyEquippedItem);
@@ -431,6 +434,8 @@ public class Inventory implements ItemList.Listener, Saveable
 
         parent.addSubIcon(item, slot);
 
+        if (slot == Slot.MainHand) parent.invalidateThreatenedPaths();
+
         if (item.getTemplate().hasScript()) {
             item.getTemplate().getScript().executeFunction(ScriptFunctionType.onEquipItem, parent, item);
         }
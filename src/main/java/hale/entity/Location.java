@@ -507,7 +507,7 @@ public class Location implements Saveable
             throw new UnsupportedOperationException("isAreaExplored() can only be called on locations within an Area");
         }
 
-        return area.getExplored()[x][y];
+        return area.getExplored().get(x, y);
     }
 
     /**
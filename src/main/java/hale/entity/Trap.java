@@ -235,6 +235,9 @@ public class Trap extends Item
             Game.mainViewer.addFadeAway("Search: Success", getLocation().getX(), getLocation().getY(), new Color(0xFFAbA9A9));
 
             isSpotted = true;
+
+            // spotted traps are avoided when path finding
+            getLocation().getArea().getEntities().invalidatePassabilities();
         }
 
         return isSpotted;
@@ -71,6 +71,14 @@ public class AnimatedIcon implements Icon
         this.totalDuration = frameDuration * frames.length;
     }
 
+    @Override
+    public void prefetchSprites()
+    {
+        for (SimpleIcon frame : frames) {
+            frame.prefetchSprites();
+        }
+    }
+
     @Override
     public void draw(int x, int y)
     {
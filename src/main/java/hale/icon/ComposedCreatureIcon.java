@@ -25,6 +25,7 @@ import java.util.List;
 
 import hale.Game;
 import hale.loading.JSONOrderedObject;
+import hale.resource.SpriteManager;
 import hale.util.SimpleJSONArrayEntry;
 import hale.util.SimpleJSONObject;
 import de.matthiasmann.twl.Color;
@@ -200,6 +201,14 @@ public class ComposedCreatureIcon implements Icon, Iterable<ComposedCreatureIcon
         return false;
     }
 
+    @Override
+    public void prefetchSprites()
+    {
+        for (Entry entry : entries) {
+            SpriteManager.prefetchSprite(entry.spriteID);
+        }
+    }
+
     /**
      * Drawing is not implemented for ComposedCreatureIcons.  Instead, a SubIconList
      * must be created from this Icon.  That SubIconList can then be drawn
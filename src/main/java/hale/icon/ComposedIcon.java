@@ -79,6 +79,14 @@ public class ComposedIcon implements Icon
         this.height = height;
     }
 
+    @Override
+    public void prefetchSprites()
+    {
+        for (Icon icon : icons) {
+            icon.prefetchSprites();
+        }
+    }
+
     @Override
     public void draw(int x, int y)
     {
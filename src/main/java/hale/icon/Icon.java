@@ -62,6 +62,13 @@ public interface Icon extends IconRenderer
 
     public Icon multiplyByColor(Color color);
 
+    /**
+     * Starts decoding any images drawn by this Icon that are not yet loaded on
+     * background threads
+     */
+
+    public void prefetchSprites();
+
     /**
      * Stores a representation of this Icon as JSON
      *
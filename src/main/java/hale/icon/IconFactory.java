@@ -96,6 +96,11 @@ public class IconFactory
         {
         }
 
+        @Override
+        public void prefetchSprites()
+        {
+        }
+
         @Override
         public int getWidth()
         {
@@ -19,10 +19,9 @@
 
 package hale.icon;
 
-import org.lwjgl.opengl.GL11;
-
 import hale.loading.JSONOrderedObject;
 import hale.resource.Sprite;
+import hale.resource.SpriteBatch;
 import hale.resource.SpriteManager;
 import hale.util.SimpleJSONObject;
 import de.matthiasmann.twl.Color;
@@ -110,11 +109,17 @@ public class SimpleIcon implements Icon
         return new SimpleIcon(this.spriteResourceID, newColor);
     }
 
+    @Override
+    public void prefetchSprites()
+    {
+        SpriteManager.prefetchSprite(spriteResourceID);
+    }
+
     @Override
     public void draw(int x, int y)
     {
-        GL11.glColor4ub(color.getR(), color.getG(), color.getB(), color.getA());
-        SpriteManager.getSprite(spriteResourceID).draw(x, y);
+        SpriteBatch.setColor(color);
+        SpriteBatch.draw(SpriteManager.getSprite(spriteResourceID), x, y);
     }
 
     @Override
@@ -122,8 +127,8 @@ public class SimpleIcon implements Icon
     {
         Sprite sprite = SpriteManager.getSprite(spriteResourceID);
 
-        GL11.glColor4ub(color.getR(), color.getG(), color.getB(), color.getA());
-        sprite.draw(x + (width - sprite.getWidth()) / 2, y + (height - sprite.getHeight()) / 2);
+        SpriteBatch.setColor(color);
+        SpriteBatch.draw(sprite, x + (width - sprite.getWidth()) / 2, y + (height - sprite.getHeight()) / 2);
     }
 
     @Override
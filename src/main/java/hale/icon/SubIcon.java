@@ -20,13 +20,12 @@
 package hale.icon;
 
 import hale.resource.Sprite;
+import hale.resource.SpriteBatch;
 import hale.resource.SpriteManager;
 import hale.rules.Race;
 import hale.rules.Ruleset;
 import hale.util.Point;
 
-import org.lwjgl.opengl.GL11;
-
 import de.matthiasmann.twl.Color;
 
 public class SubIcon implements Comparable<SubIcon>
@@ -153,16 +152,15 @@ public class SubIcon implements Comparable<SubIcon>
 
     public final void draw(int x, int y)
     {
-        GL11.glColor4ub(color.getR(), color.getG(), color.getB(), color.getA());
+        SpriteBatch.setColor(color);
 
-        SpriteManager.getSprite(this.icon).draw(x + offset.x, y + offset.y);
+        SpriteBatch.draw(SpriteManager.getSprite(this.icon), x + offset.x, y + offset.y);
 
         Sprite secondarySprite = SpriteManager.getSprite(this.secondaryIcon);
         if (secondarySprite != null) {
-            GL11.glColor4ub(secondaryColor.getR(), secondaryColor.getG(),
-                    secondaryColor.getB(), secondaryColor.getA());
+            SpriteBatch.setColor(secondaryColor);
 
-            secondarySprite.draw(x + offset.x, y + offset.y);
+            SpriteBatch.draw(secondarySprite, x + offset.x, y + offset.y);
         }
     }
 
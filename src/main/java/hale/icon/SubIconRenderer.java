@@ -25,12 +25,11 @@ import java.util.Iterator;
 import java.util.List;
 
 import hale.Game;
+import hale.resource.SpriteBatch;
 import hale.rules.Race;
 import hale.rules.Ruleset;
 import hale.util.Point;
 
-import org.lwjgl.opengl.GL11;
-
 import de.matthiasmann.twl.Color;
 
 /**
@@ -415,7 +414,7 @@ public class SubIconRenderer implements IconRenderer
             subIcon.draw(x, y);
         }
 
-        GL11.glColor3f(1.0f, 1.0f, 1.0f);
+        SpriteBatch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
     }
 
     @Override
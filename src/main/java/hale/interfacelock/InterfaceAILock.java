@@ -32,6 +32,9 @@ import hale.entity.Creature;
 
 public class InterfaceAILock extends InterfaceLock
 {
+    // the time the interface remains locked after the AI script finishes
+    private static final long FinishDelayMillis = 800;
+
     private AsyncScriptable runner;
     private boolean finishing = false;
 
@@ -56,9 +59,10 @@ public class InterfaceAILock extends InterfaceLock
         super.setCurrentTime(curTime);
 
         if (!finishing) {
-            super.setUnlockTime(curTime + 800);
+            if (runner.isDone()) finishing = true;
 
-            if (!runner.isAlive()) finishing = true;
+            // a headless simulation unlocks as soon as the runner finishes, with no delay
+            super.setUnlockTime(finishing && Game.isHeadless() ? curTime : curTime + FinishDelayMillis);
         }
     }
 
@@ -120,7 +120,22 @@ public class InterfaceLocker
     {
         interfaceLocked = true;
 
-        return movementHandler.addMove(mover, path, provokeAoOs);
+        MovementHandler.Mover move = movementHandler.addMove(mover, path, provokeAoOs);
+
+        if (Game.isHeadless()) Game.headlessSimulation.signalWork();
+
+        return move;
+    }
+
+    /**
+     * Returns true if the movement handler currently has one or more moves in progress
+     *
+     * @return whether any creature is currently moving
+     */
+
+    public boolean isMoving()
+    {
+        return movementHandler.isLocked();
     }
 
     /**
@@ -163,6 +178,8 @@ public class InterfaceLocker
         }
 
         if (iter == null) addQueued();
+
+        if (Game.isHeadless()) Game.headlessSimulation.signalWork();
     }
 
     private void addQueued()
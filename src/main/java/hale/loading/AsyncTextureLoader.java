@@ -21,7 +21,7 @@ package hale.loading;
 
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.List;
 
 import hale.resource.Sprite;
@@ -35,21 +35,61 @@ import org.lwjgl.opengl.GL11;
  * loading, while the {@link #loadTexture(ByteBuffer, int, int, List)} method can be
  * called from any thread and will eventually set the texture for any sprites once the
  * OpenGL loading is complete
+ * <p>
+ * Uploads are performed in the order they were requested.  Each call to {@link #update()}
+ * performs uploads until either the byte or time budget for the frame is used up, so that
+ * a large number of queued textures is spread across several frames.  At least one upload
+ * is always performed per update.
  *
  * @author Jared Stephen
  */
 
 public class AsyncTextureLoader
 {
-    private final List<TextureSpriteLoadList> loadLists;
+    /**
+     * The default maximum number of bytes of pixel data uploaded per frame
+     */
+
+    public static final long DefaultBudgetBytes = 4L * 1024L * 1024L;
+
+    /**
+     * The default maximum time spent uploading textures per frame, in milliseconds
+     */
+
+    public static final long DefaultBudgetMillis = 4L;
+
+    private final ArrayDeque<Upload> uploads;
+
+    private long budgetBytes;
+    private long budgetNanos;
+
+    private long lastFrameUploadBytes;
+    private long lastFrameUploadNanos;
+    private long totalUploadNanos;
 
     /**
-     * Creates an empty AsyncTextureLoader
+     * Creates an empty AsyncTextureLoader with the default upload budget
      */
 
     public AsyncTextureLoader()
     {
-        loadLists = new ArrayList<>();
+        uploads = new ArrayDeque<>();
+
+        setUploadBudget(DefaultBudgetBytes, DefaultBudgetMillis);
+    }
+
+    /**
+     * Sets the maximum amount of pixel data and time that will be spent uploading
+     * textures in each call to {@link #update()}
+     *
+     * @param bytes  the maximum number of bytes per frame
+     * @param millis the maximum number of milliseconds per frame
+     */
+
+    public void setUploadBudget(long bytes, long millis)
+    {
+        this.budgetBytes = bytes;
+        this.budgetNanos = millis * 1000000L;
     }
 
     /**
@@ -59,25 +99,64 @@ public class AsyncTextureLoader
 
     public void clear()
     {
-        synchronized (loadLists) {
-            loadLists.clear();
+        synchronized (uploads) {
+            uploads.clear();
         }
     }
 
     /**
-     * This method should only be called by the main OpenGL context owning Thread.  Loads all
-     * outstanding textures that have been specified by {@link #loadTexture(ByteBuffer, int, int, List)}
+     * This method should only be called by the main OpenGL context owning Thread.  Loads
+     * outstanding textures that have been specified by {@link #loadTexture(ByteBuffer, int, int, List)},
+     * in order, until the upload budget for this frame is exhausted
      */
 
     public void update()
     {
-        synchronized (loadLists) {
-            for (TextureSpriteLoadList list : loadLists) {
-                list.loadTexture();
+        long bytes = 0;
+        long startTime = System.nanoTime();
+        long elapsed = 0;
+
+        while (bytes < budgetBytes && elapsed < budgetNanos) {
+            Upload upload;
+            synchronized (uploads) {
+                upload = uploads.poll();
             }
 
-            loadLists.clear();
+            if (upload == null) break;
+
+            upload.upload();
+
+            bytes += upload.getBytes();
+            elapsed = System.nanoTime() - startTime;
         }
+
+        lastFrameUploadBytes = bytes;
+        lastFrameUploadNanos = elapsed;
+        totalUploadNanos += elapsed;
+    }
+
+    /**
+     * This method should only be called by the main OpenGL context owning Thread.  Loads all
+     * outstanding textures, ignoring the upload budget.  This is useful at the end of a loading
+     * screen, so that the first frames afterwards are drawn complete.
+     */
+
+    public void flush()
+    {
+        long startTime = System.nanoTime();
+
+        while (true) {
+            Upload upload;
+            synchronized (uploads) {
+                upload = uploads.poll();
+            }
+
+            if (upload == null) break;
+
+            upload.upload();
+        }
+
+        totalUploadNanos += System.nanoTime() - startTime;
     }
 
     /**
@@ -85,7 +164,7 @@ public class AsyncTextureLoader
      * The next time {@link #update()} is called, the specified Sprite will have its
      * texture set to the value returned from OpenGL by loading the texture
      *
-     * @param pixels  the pixel data to load
+     * @param pixels  the pixel data to load, or null to create an empty texture
      * @param width   the width of the pixel data
      * @param height  the height of the pixel data
      * @param sprites the sprites to set the texture for
@@ -93,14 +172,93 @@ public class AsyncTextureLoader
 
     public void loadTexture(ByteBuffer pixels, int width, int height, List<Sprite> sprites)
     {
-        TextureSpriteLoadList list = new TextureSpriteLoadList(pixels, width, height, sprites);
+        add(new TextureSpriteLoadList(pixels, width, height, sprites));
+    }
 
-        synchronized (loadLists) {
-            loadLists.add(list);
+    /**
+     * Tells the loader to add the specified pixel data to the queue of textures to be loaded.
+     * The pixels are copied into a region of the texture of the specified target sprite, which
+     * must have been previously queued with {@link #loadTexture(ByteBuffer, int, int, List)}.
+     * Once uploaded, the specified sprites have their texture set to the target's texture.
+     *
+     * @param target  the sprite owning the texture to upload into
+     * @param pixels  the pixel data to load
+     * @param x       the x coordinate of the region within the target texture
+     * @param y       the y coordinate of the region within the target texture
+     * @param width   the width of the pixel data
+     * @param height  the height of the pixel data
+     * @param sprites the sprites to set the texture for
+     */
+
+    public void loadSubTexture(Sprite target, ByteBuffer pixels, int x, int y, int width, int height,
+                               List<Sprite> sprites)
+    {
+        add(new SubTextureLoadList(target, pixels, x, y, width, height, sprites));
+    }
+
+    /**
+     * Returns the number of textures that are queued but have not yet been uploaded
+     *
+     * @return the number of pending uploads
+     */
+
+    public int getPendingUploads()
+    {
+        synchronized (uploads) {
+            return uploads.size();
         }
     }
 
-    private static class TextureSpriteLoadList
+    /**
+     * Returns the number of bytes of pixel data uploaded by the most recent call to
+     * {@link #update()}
+     *
+     * @return the number of bytes uploaded last frame
+     */
+
+    public long getLastFrameUploadBytes()
+    {
+        return lastFrameUploadBytes;
+    }
+
+    /**
+     * Returns the time spent uploading textures in the most recent call to
+     * {@link #update()}, in nanoseconds
+     *
+     * @return the time spent uploading last frame
+     */
+
+    public long getLastFrameUploadNanos()
+    {
+        return lastFrameUploadNanos;
+    }
+
+    /**
+     * Returns the total time spent uploading textures, in nanoseconds
+     *
+     * @return the total upload time
+     */
+
+    public long getTotalUploadNanos()
+    {
+        return totalUploadNanos;
+    }
+
+    private void add(Upload upload)
+    {
+        synchronized (uploads) {
+            uploads.add(upload);
+        }
+    }
+
+    private interface Upload
+    {
+        public void upload();
+
+        public long getBytes();
+    }
+
+    private static class TextureSpriteLoadList implements Upload
     {
         private final ByteBuffer pixels;
         private final int width;
@@ -116,7 +274,14 @@ public class AsyncTextureLoader
             this.sprites = sprites;
         }
 
-        private void loadTexture()
+        @Override
+        public long getBytes()
+        {
+            return pixels == null ? 0 : pixels.remaining();
+        }
+
+        @Override
+        public void upload()
         {
             IntBuffer textures = BufferUtils.createIntBuffer(1);
 
@@ -134,4 +299,45 @@ public class AsyncTextureLoader
             }
         }
     }
+
+    private static class SubTextureLoadList implements Upload
+    {
+        private final Sprite target;
+        private final ByteBuffer pixels;
+        private final int x, y;
+        private final int width, height;
+
+        private final List<Sprite> sprites;
+
+        private SubTextureLoadList(Sprite target, ByteBuffer pixels, int x, int y, int width, int height,
+                                   List<Sprite> sprites)
+        {
+            this.target = target;
+            this.pixels = pixels;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.sprites = sprites;
+        }
+
+        @Override
+        public long getBytes()
+        {
+            return pixels.remaining();
+        }
+
+        @Override
+        public void upload()
+        {
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, target.getTextureReference());
+
+            GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, x, y, width, height, GL11.GL_RGBA,
+                    GL11.GL_UNSIGNED_BYTE, pixels);
+
+            for (Sprite sprite : sprites) {
+                sprite.setTexture(target.getTextureReference());
+            }
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.loading;
+
+/**
+ * The constants describing the binary save game format, written by {@link BinarySaveWriter}
+ * and read by {@link BinarySaveReader}.  The binary format holds the same tree of values as
+ * the JSON format written by {@link SaveWriter}, and follows the save file header.
+ * <p>
+ * The data starts with the 4 byte {@link #Magic} number and the 4 byte {@link #Version},
+ * followed by the root object.  Each value is a one byte tag followed by its contents:
+ * <ul>
+ * <li>null, false, and true have no contents</li>
+ * <li>ints and longs are zigzag encoded variable length integers</li>
+ * <li>doubles are 8 bytes</li>
+ * <li>a new string is its length in UTF-8 bytes followed by the bytes.  Each new string
+ * is added to a table, and later occurrences of the same string, including object keys,
+ * are written as a reference holding the string's index in the table</li>
+ * <li>objects are the number of entries followed by a string key and a value for each entry</li>
+ * <li>arrays are the number of elements followed by each value</li>
+ * <li>grids are the width and height followed by the packed words of the grid</li>
+ * </ul>
+ * All lengths, counts, and indices are unsigned variable length integers, holding 7 bits
+ * per byte with the high bit set on all but the last byte.
+ */
+
+public class BinarySaveFormat
+{
+    /**
+     * The first four bytes of binary save data.  This can never be confused with the
+     * start of JSON save data
+     */
+
+    public static final int Magic = 0x48534156;
+
+    /**
+     * The current version of the binary format.  This must be incremented whenever
+     * the format changes
+     */
+
+    public static final int Version = 1;
+
+    static final byte TagNull = 0;
+    static final byte TagFalse = 1;
+    static final byte TagTrue = 2;
+    static final byte TagInt = 3;
+    static final byte TagLong = 4;
+    static final byte TagDouble = 5;
+    static final byte TagString = 6;
+    static final byte TagStringReference = 7;
+    static final byte TagObject = 8;
+    static final byte TagArray = 9;
+    static final byte TagGrid = 10;
+
+    private BinarySaveFormat()
+    {
+    }
+}
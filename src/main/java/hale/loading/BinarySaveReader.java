@@ -0,0 +1,282 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.loading;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import hale.util.BitGrid;
+import hale.util.SimpleJSONParser;
+
+/**
+ * Reads save game data in the binary format described by {@link BinarySaveFormat}.  The
+ * data is read directly into the same objects produced by parsing the JSON format, so
+ * the result can be used by all existing load methods.  Integers and floating point values
+ * are read as the same types the JSON parser produces for them.
+ */
+
+public class BinarySaveReader
+{
+    private final DataInputStream in;
+
+    private final List<String> stringTable;
+
+    /**
+     * Returns true if the specified stream is positioned at the start of binary save data.
+     * The stream must support mark and reset, and its position is not changed.
+     *
+     * @param in the stream to check
+     * @return whether the stream holds binary save data
+     * @throws IOException if an error occurs reading from the stream
+     */
+
+    public static boolean isBinarySave(InputStream in) throws IOException
+    {
+        in.mark(4);
+
+        int magic = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = in.read();
+            if (b == -1) break;
+
+            magic = (magic << 8) | b;
+        }
+
+        in.reset();
+
+        return magic == BinarySaveFormat.Magic;
+    }
+
+    /**
+     * Creates a new BinarySaveReader reading from the specified stream, and reads the
+     * format magic number and version
+     *
+     * @param in the stream to read from
+     * @throws IOException if an error occurs reading from the stream, the stream does not
+     *                     hold binary save data, or the data is from an unsupported version
+     */
+
+    public BinarySaveReader(InputStream in) throws IOException
+    {
+        this.in = new DataInputStream(in);
+        this.stringTable = new ArrayList<String>();
+
+        if (this.in.readInt() != BinarySaveFormat.Magic) {
+            throw new IOException("Not a binary save file.");
+        }
+
+        int version = this.in.readInt();
+        if (version != BinarySaveFormat.Version) {
+            throw new IOException("Unsupported binary save version " + version);
+        }
+    }
+
+    /**
+     * Reads the root object of the save data
+     *
+     * @param id the ID of the data, used for informational purposes if an error occurs
+     * @return a parser wrapping the root object
+     * @throws IOException if an error occurs reading from the stream or the data is invalid
+     */
+
+    public SimpleJSONParser read(String id) throws IOException
+    {
+        return new SimpleJSONParser(readRoot(id), id);
+    }
+
+    /**
+     * Reads the root object of the data
+     *
+     * @param id the ID of the data, used for informational purposes if an error occurs
+     * @return the root object
+     * @throws IOException if an error occurs reading from the stream or the data is invalid
+     */
+
+    public JSONObject readRoot(String id) throws IOException
+    {
+        Object root = readValue();
+
+        if (!(root instanceof JSONObject)) {
+            throw new IOException("Invalid save data in " + id + ", root is not an object.");
+        }
+
+        return (JSONObject)root;
+    }
+
+    /**
+     * Reads only the first entry of the root object of the save data, leaving the rest of
+     * the data unread.  This allows information stored at the start of the data to be read
+     * without the cost of reading the entire save
+     *
+     * @param key the key that the first entry is expected to have
+     * @return the value of the first entry, or null if the root object is empty or its
+     * first entry has a different key
+     * @throws IOException if an error occurs reading from the stream or the data is invalid
+     */
+
+    public Object readFirstEntry(String key) throws IOException
+    {
+        if (in.readByte() != BinarySaveFormat.TagObject) {
+            throw new IOException("Invalid save data, root is not an object.");
+        }
+
+        if (readVarInt() == 0) return null;
+
+        if (!key.equals(readString(in.readByte()))) return null;
+
+        return readValue();
+    }
+
+    private Object readValue() throws IOException
+    {
+        byte tag = in.readByte();
+
+        switch (tag) {
+            case BinarySaveFormat.TagNull:
+                return null;
+            case BinarySaveFormat.TagFalse:
+                return Boolean.FALSE;
+            case BinarySaveFormat.TagTrue:
+                return Boolean.TRUE;
+            case BinarySaveFormat.TagInt:
+                return Integer.valueOf((int)readZigZag());
+            case BinarySaveFormat.TagLong:
+                return Long.valueOf(readZigZag());
+            case BinarySaveFormat.TagDouble:
+                return Double.valueOf(in.readDouble());
+            case BinarySaveFormat.TagString:
+            case BinarySaveFormat.TagStringReference:
+                return readString(tag);
+            case BinarySaveFormat.TagObject:
+                return readObject();
+            case BinarySaveFormat.TagArray:
+                return readArray();
+            case BinarySaveFormat.TagGrid:
+                return readGrid();
+            default:
+                throw new IOException("Invalid value tag " + tag);
+        }
+    }
+
+    private String readString(byte tag) throws IOException
+    {
+        if (tag == BinarySaveFormat.TagStringReference) {
+            int index = readVarInt();
+
+            if (index >= stringTable.size()) {
+                throw new IOException("Invalid string reference " + index);
+            }
+
+            return stringTable.get(index);
+
+        } else
+            if (tag == BinarySaveFormat.TagString) {
+                byte[] bytes = new byte[readVarInt()];
+                in.readFully(bytes);
+
+                String value = new String(bytes, StandardCharsets.UTF_8);
+                stringTable.add(value);
+
+                return value;
+            } else {
+                throw new IOException("Expected a string, found tag " + tag);
+            }
+    }
+
+    private JSONObject readObject() throws IOException
+    {
+        int size = readVarInt();
+
+        JSONObject object = new JSONObject();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in.readByte());
+
+            object.put(key, readValue());
+        }
+
+        return object;
+    }
+
+    private JSONArray readArray() throws IOException
+    {
+        int size = readVarInt();
+
+        JSONArray array = new JSONArray();
+        array.ensureCapacity(Math.min(size, 4096));
+
+        for (int i = 0; i < size; i++) {
+            array.add(readValue());
+        }
+
+        return array;
+    }
+
+    private BitGrid readGrid() throws IOException
+    {
+        int width = readVarInt();
+        int height = readVarInt();
+
+        long[] words = new long[(int)(((long)width * height + 63L) >>> 6)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+
+        return new BitGrid(width, height, words);
+    }
+
+    private long readZigZag() throws IOException
+    {
+        long value = readVarLong();
+
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    private int readVarInt() throws IOException
+    {
+        long value = readVarLong();
+
+        if (value < 0L || value > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length " + value);
+        }
+
+        return (int)value;
+    }
+
+    private long readVarLong() throws IOException
+    {
+        long value = 0L;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+
+            value |= (long)(b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) return value;
+        }
+
+        throw new IOException("Invalid variable length integer");
+    }
+}
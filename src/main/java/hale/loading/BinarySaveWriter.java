@@ -0,0 +1,234 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.loading;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import hale.util.BitGrid;
+
+/**
+ * Writes save game data in the binary format described by {@link BinarySaveFormat}.
+ * Values are written to the stream as they are visited, without building an intermediate
+ * text representation.  The accepted values are the same as for {@link SaveWriter}:
+ * Maps with String keys, Iterables, arrays, Strings, Numbers, Booleans, and null, along
+ * with {@link BitGrid}s.
+ */
+
+public class BinarySaveWriter implements Closeable
+{
+    private final DataOutputStream out;
+
+    private final Map<String, Integer> stringTable;
+
+    /**
+     * Creates a new BinarySaveWriter writing to the specified stream, and writes
+     * the format magic number and version
+     *
+     * @param out the stream to write to
+     * @throws IOException if an error occurs writing to the stream
+     */
+
+    public BinarySaveWriter(OutputStream out) throws IOException
+    {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.stringTable = new HashMap<String, Integer>();
+
+        this.out.writeInt(BinarySaveFormat.Magic);
+        this.out.writeInt(BinarySaveFormat.Version);
+    }
+
+    /**
+     * Writes the specified key value map as the root object of the save data
+     *
+     * @param data the map to write
+     * @throws IOException if an error occurs writing to the stream, or the data
+     *                     contains a value that cannot be written
+     */
+
+    public void write(Map<String, ? extends Object> data) throws IOException
+    {
+        writeObject(data);
+    }
+
+    /**
+     * Flushes and closes the underlying stream
+     *
+     * @throws IOException if an error occurs closing the stream
+     */
+
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+
+    private void writeObject(Map<String, ? extends Object> map) throws IOException
+    {
+        out.writeByte(BinarySaveFormat.TagObject);
+        writeVarInt(map.size());
+
+        for (Map.Entry<String, ? extends Object> entry : map.entrySet()) {
+            writeString(entry.getKey());
+            writeValue(entry.getValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeValue(Object value) throws IOException
+    {
+        if (value == null) {
+            out.writeByte(BinarySaveFormat.TagNull);
+        } else
+            if (value instanceof String) {
+                writeString((String)value);
+            } else
+                if (value instanceof Boolean) {
+                    out.writeByte((Boolean)value ? BinarySaveFormat.TagTrue : BinarySaveFormat.TagFalse);
+                } else
+                    if (value instanceof Integer || value instanceof Long || value instanceof Short ||
+                            value instanceof Byte) {
+                        writeInteger(((Number)value).longValue());
+                    } else
+                        if (value instanceof Float) {
+                            // match the value read back from the JSON representation of the float
+                            writeDouble(Double.parseDouble(value.toString()));
+                        } else
+                            if (value instanceof Number) {
+                                writeDouble(((Number)value).doubleValue());
+                            } else
+                                if (value instanceof Map<?, ?>) {
+                                    writeObject((Map<String, Object>)value);
+                                } else
+                                    if (value instanceof Iterable<?>) {
+                                        writeIterable((Iterable<Object>)value);
+                                    } else
+                                        if (value.getClass().isArray()) {
+                                            writeArray(value);
+                                        } else
+                                            if (value instanceof BitGrid) {
+                                                writeGrid((BitGrid)value);
+                                            } else {
+                                                throw new IOException("Unable to write value of type " +
+                                                        value.getClass().getName());
+                                            }
+    }
+
+    private void writeInteger(long value) throws IOException
+    {
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            out.writeByte(BinarySaveFormat.TagInt);
+        } else {
+            out.writeByte(BinarySaveFormat.TagLong);
+        }
+
+        // zigzag encode so that small negative values are also short
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeDouble(double value) throws IOException
+    {
+        // infinite values are not valid JSON, and are written as null by the SaveWriter
+        if (Double.isInfinite(value)) {
+            out.writeByte(BinarySaveFormat.TagNull);
+        } else {
+            out.writeByte(BinarySaveFormat.TagDouble);
+            out.writeDouble(value);
+        }
+    }
+
+    private void writeString(String value) throws IOException
+    {
+        Integer index = stringTable.get(value);
+
+        if (index != null) {
+            out.writeByte(BinarySaveFormat.TagStringReference);
+            writeVarInt(index);
+        } else {
+            stringTable.put(value, stringTable.size());
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            out.writeByte(BinarySaveFormat.TagString);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private void writeIterable(Iterable<Object> iterable) throws IOException
+    {
+        int size = 0;
+        for (Object value : iterable) {
+            size++;
+        }
+
+        out.writeByte(BinarySaveFormat.TagArray);
+        writeVarInt(size);
+
+        for (Object value : iterable) {
+            writeValue(value);
+        }
+    }
+
+    private void writeArray(Object array) throws IOException
+    {
+        int length = Array.getLength(array);
+
+        out.writeByte(BinarySaveFormat.TagArray);
+        writeVarInt(length);
+
+        for (int i = 0; i < length; i++) {
+            writeValue(Array.get(array, i));
+        }
+    }
+
+    private void writeGrid(BitGrid grid) throws IOException
+    {
+        out.writeByte(BinarySaveFormat.TagGrid);
+        writeVarInt(grid.getWidth());
+        writeVarInt(grid.getHeight());
+
+        for (long word : grid.toLongArray()) {
+            out.writeLong(word);
+        }
+    }
+
+    private void writeVarInt(int value) throws IOException
+    {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    private void writeVarLong(long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0L) {
+            out.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        out.writeByte((int)value);
+    }
+}
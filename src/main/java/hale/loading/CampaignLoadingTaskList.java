@@ -20,6 +20,8 @@
 package hale.loading;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import hale.Game;
 import hale.entity.EntityManager;
@@ -56,12 +58,18 @@ public class CampaignLoadingTaskList extends LoadingTaskList
             }
         };
 
-        // load spritesheets task
-        LoadingTask spriteTask = new LoadingTask(null, "Loading Images");
+        LoadingTask registerTask = new LoadingTask(registerCampaign, "Registering Campaign Resources", 1);
+        addTask(registerTask);
+
+        // each spritesheet is decoded independently of the others
+        List<LoadingTask> spriteTasks = new ArrayList<LoadingTask>();
         for (String resource : ResourceManager.getResourcesInDirectory("images")) {
             if (!resource.endsWith(ResourceType.JSON.getExtension())) continue;
 
-            spriteTask.addSubTask(new SpriteSheetLoader(resource), 10);
+            LoadingTask spriteTask = new LoadingTask(new SpriteSheetLoader(resource), "Loading Images", 10);
+            spriteTask.setPrerequisites(registerTask);
+            addTask(spriteTask);
+            spriteTasks.add(spriteTask);
         }
 
         Runnable loadAnimations = new Runnable()
@@ -97,11 +105,23 @@ public class CampaignLoadingTaskList extends LoadingTaskList
             }
         };
 
-        addTask(registerCampaign, "Registering Campaign Resources", 1);
-        addTask(spriteTask);
-        addTask(loadAnimations, "Loading Animations", 5);
-        addTask(loadRuleset, "Loading Ruleset", 30);
-        addTask(loadCampaign, "Loading Campaign resources", 30);
+        // animations and particle generators look up their sprites when created
+        LoadingTask animationsTask = new LoadingTask(loadAnimations, "Loading Animations", 5);
+        animationsTask.setPrerequisites(spriteTasks);
+        addTask(animationsTask);
+
+        LoadingTask rulesetTask = new LoadingTask(loadRuleset, "Loading Ruleset", 30);
+        rulesetTask.setPrerequisites(registerTask);
+        addTask(rulesetTask);
+
+        // the campaign tilesets look up their sprites when created
+        List<LoadingTask> campaignPrerequisites = new ArrayList<LoadingTask>(spriteTasks);
+        campaignPrerequisites.add(rulesetTask);
+        campaignPrerequisites.add(animationsTask);
+
+        LoadingTask campaignTask = new LoadingTask(loadCampaign, "Loading Campaign resources", 30);
+        campaignTask.setPrerequisites(campaignPrerequisites);
+        addTask(campaignTask);
     }
 
     @Override
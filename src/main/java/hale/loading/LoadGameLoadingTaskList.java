@@ -19,8 +19,10 @@
 
 package hale.loading;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.zip.GZIPInputStream;
@@ -63,6 +65,9 @@ public class LoadGameLoadingTaskList extends LoadingTaskList
                 Game.curCampaign.getTileset(Game.curCampaign.curArea.getTileset()).freeTiles();
             }
 
+            // the file may still be being written if it was just saved
+            Game.saveWriter.waitForPendingSaves();
+
             FileInputStream fin = new FileInputStream(fileToLoad);
             gz = new GZIPInputStream(fin);
 
@@ -91,8 +96,16 @@ public class LoadGameLoadingTaskList extends LoadingTaskList
             public void run()
             {
                 try {
-                    Reader reader = new InputStreamReader(gz);
-                    parser = new SimpleJSONParser(reader, fileToLoad.getName());
+                    InputStream in = new BufferedInputStream(gz);
+
+                    if (BinarySaveReader.isBinarySave(in)) {
+                        parser = new BinarySaveReader(in).read(fileToLoad.getName());
+                        in.close();
+                    } else {
+                        Reader reader = new InputStreamReader(in);
+                        parser = new SimpleJSONParser(reader, fileToLoad.getName());
+                    }
+
                     parser.setWarnOnMissingKeys(false);
                 } catch (Exception e) {
                     Logger.appendToErrorLog("Error parsing saved game: " + fileToLoad.getPath(), e);
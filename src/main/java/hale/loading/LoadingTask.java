@@ -20,6 +20,8 @@
 package hale.loading;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -27,6 +29,10 @@ import java.util.NoSuchElementException;
 /**
  * A single task that is performed in the process of loading.  Each task has a
  * different weight and can contain sub tasks.
+ * <p>
+ * A task may declare the other tasks that must complete before it can run.  Tasks
+ * that do not declare any prerequisites are run after the task added to the
+ * {@link LoadingTaskList} before them.
  *
  * @author Jared Stephen
  */
@@ -41,6 +47,8 @@ public class LoadingTask
     private Iterator<SubTask> subTasksIter;
     private List<SubTask> subTasks;
 
+    private List<LoadingTask> prerequisites;
+
     /**
      * Creates a new LoadingTask with the default weight of 1 and the specified description
      *
@@ -91,6 +99,58 @@ public class LoadingTask
         taskWeight += subTask.weight;
     }
 
+    /**
+     * Sets the tasks that must complete before this task is run.  This task may be
+     * run concurrently with any other tasks that it does not depend on, directly or
+     * indirectly.  Calling this method with no arguments declares that this task is
+     * independent of all other tasks.
+     *
+     * @param tasks the prerequisite tasks, which must be added to the same
+     *              LoadingTaskList prior to this task
+     */
+
+    public void setPrerequisites(LoadingTask... tasks)
+    {
+        setPrerequisites(Arrays.asList(tasks));
+    }
+
+    /**
+     * Sets the tasks that must complete before this task is run.  See
+     * {@link #setPrerequisites(LoadingTask...)}
+     *
+     * @param tasks the prerequisite tasks
+     */
+
+    public void setPrerequisites(List<LoadingTask> tasks)
+    {
+        this.prerequisites = new ArrayList<LoadingTask>(tasks);
+    }
+
+    /**
+     * Returns true if this task has declared its prerequisites via
+     * {@link #setPrerequisites(LoadingTask...)}, even if that list is empty
+     *
+     * @return whether this task has declared prerequisites
+     */
+
+    public boolean hasDeclaredPrerequisites()
+    {
+        return prerequisites != null;
+    }
+
+    /**
+     * Returns the list of tasks that must complete before this task is run
+     *
+     * @return the list of prerequisite tasks
+     */
+
+    public List<LoadingTask> getPrerequisites()
+    {
+        if (prerequisites == null) return Collections.emptyList();
+
+        return Collections.unmodifiableList(prerequisites);
+    }
+
     /**
      * Returns the weight for this LoadingTask.
      *
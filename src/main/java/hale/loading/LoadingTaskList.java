@@ -20,13 +20,22 @@
 package hale.loading;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import hale.util.Logger;
 
 /**
- * A list of LoadingTasks.  Will execute each task in order, updating the
- * GUI as appropriate.  Should be run as a normal thread, with {@link #start()}
+ * A list of LoadingTasks.  Will execute each task once its prerequisites have
+ * completed, updating the GUI as appropriate.  Tasks that do not depend on each other
+ * are run concurrently on a fork join pool.  Tasks that do not declare any
+ * prerequisites are run in the order they were added.  Should be run as a normal
+ * thread, with {@link #start()}
  *
  * @author Jared Stephen
  */
@@ -36,10 +45,10 @@ public class LoadingTaskList extends Thread
     private List<LoadingTask> tasks;
     private int totalWeight;
 
-    private float completedFraction;
-    private String currentDescription;
+    private final AtomicInteger completedWeight;
+    private volatile String currentDescription;
 
-    private boolean success;
+    private volatile boolean success;
 
     /**
      * Creates a new, empty LoadingTaskList containing no LoadingTasks
@@ -48,6 +57,7 @@ public class LoadingTaskList extends Thread
     public LoadingTaskList()
     {
         tasks = new ArrayList<LoadingTask>();
+        completedWeight = new AtomicInteger();
     }
 
     /**
@@ -99,11 +109,14 @@ public class LoadingTaskList extends Thread
 
     public float getCompletedFraction()
     {
-        return completedFraction;
+        if (totalWeight == 0) return 0.0f;
+
+        return ((float)completedWeight.get()) / ((float)totalWeight);
     }
 
     /**
-     * Returns the String description of the task currently being executed
+     * Returns the String description of the task currently being executed.  If several
+     * tasks are executing concurrently, this is the most recently started task
      *
      * @return the description of the LoadingTask currently being executed
      */
@@ -134,26 +147,67 @@ public class LoadingTaskList extends Thread
     @Override
     public void run()
     {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
         try {
-            int completedWeight = 0;
+            Map<LoadingTask, CompletableFuture<Void>> futures = new IdentityHashMap<>();
+            CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+
+            for (final LoadingTask task : tasks) {
+                CompletableFuture<Void> ready;
+
+                if (task.hasDeclaredPrerequisites()) {
+                    List<CompletableFuture<Void>> prerequisites = new ArrayList<>();
 
-            for (LoadingTask task : tasks) {
-                currentDescription = task.getDescription();
+                    for (LoadingTask prerequisite : task.getPrerequisites()) {
+                        CompletableFuture<Void> future = futures.get(prerequisite);
 
-                while (task.hasNextTask()) {
-                    completedWeight += task.executeNextTask();
-                    completedFraction = ((float)completedWeight) / ((float)totalWeight);
+                        if (future == null) {
+                            throw new IllegalStateException("Prerequisite " + prerequisite.getDescription() +
+                                    " must be added prior to " + task.getDescription());
+                        }
+
+                        prerequisites.add(future);
+                    }
+
+                    ready = CompletableFuture.allOf(prerequisites.toArray(new CompletableFuture<?>[0]));
+                } else {
+                    ready = previous;
                 }
+
+                previous = ready.thenRunAsync(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        execute(task);
+                    }
+                }, pool);
+
+                futures.put(task, previous);
             }
 
-            // sleep so the user sees the completed progress bar for a moment
-            Thread.sleep(300);
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
 
             success = true;
 
+        } catch (CompletionException e) {
+            onError();
+            Logger.appendToErrorLog("Exception while loading data", e.getCause());
         } catch (Exception e) {
             onError();
             Logger.appendToErrorLog("Exception while loading data", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void execute(LoadingTask task)
+    {
+        currentDescription = task.getDescription();
+
+        while (task.hasNextTask()) {
+            completedWeight.addAndGet(task.executeNextTask());
         }
     }
 }
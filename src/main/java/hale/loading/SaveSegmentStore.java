@@ -0,0 +1,328 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.loading;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.minidev.json.JSONObject;
+import hale.Game;
+import hale.resource.ResourceType;
+import hale.util.SaveFileHeader;
+import hale.util.SaveGameUtil;
+import hale.util.SimpleJSONParser;
+
+/**
+ * A content addressed store of save data segments for a single campaign.  Each segment
+ * holds the save data for one area, in the binary save format, and is named by the hash
+ * of its contents.  A save which stores its areas as segments lists the hashes of its
+ * segments under {@link #SegmentsKey}, as the first entry of its root object, in place of
+ * the usual "loadedAreas" entry.  Since unchanged areas produce identical segments, saves
+ * share the segments for all areas that did not change between them, and only the
+ * segments for changed areas need to be written.
+ * <p>
+ * Segments are stored in a directory for the campaign within the save directory.  Segments
+ * which are no longer referenced by any save file are removed by {@link #collectGarbage(Collection)},
+ * unless they have been pinned.  Segments are pinned while they hold the only copy of the state
+ * of an area, such as an area that has been evicted from memory.
+ */
+
+public class SaveSegmentStore
+{
+    /**
+     * The key of the save data entry listing the segments for each loaded area
+     */
+
+    public static final String SegmentsKey = "areaSegments";
+
+    private static final String Extension = ".seg";
+    private static final String TempFileExtension = ".tmp";
+
+    // the files of all pinned segments, which are never removed
+    private static final Set<File> pinnedFiles = ConcurrentHashMap.newKeySet();
+
+    private final String campaignID;
+    private final File directory;
+
+    /**
+     * Creates a new SaveSegmentStore for the campaign with the specified ID
+     *
+     * @param campaignID the ID of the campaign
+     */
+
+    public SaveSegmentStore(String campaignID)
+    {
+        this.campaignID = campaignID;
+        this.directory = new File(Game.plataform.getSaveDirectory() + "segments" + File.separator + campaignID);
+    }
+
+    /**
+     * Returns true if this store contains the segment with the specified hash
+     *
+     * @param hash the hash of the segment
+     * @return whether the segment is stored
+     */
+
+    public boolean contains(String hash)
+    {
+        return getFile(hash).isFile();
+    }
+
+    /**
+     * Encodes the specified data as a segment and adds it to this store, if an identical
+     * segment is not already stored.  The segment file is written to a temporary file
+     * and then renamed, so a segment is never seen partially written
+     *
+     * @param data the data to store
+     * @return the hash identifying the segment
+     * @throws IOException if an error occurs encoding or writing the segment
+     */
+
+    public String write(Map<String, ? extends Object> data) throws IOException
+    {
+        return write(data, false);
+    }
+
+    /**
+     * Encodes the specified data as a segment and adds it to this store, in the same way
+     * as {@link #write(Map)}.  The segment is then pinned, so it will not be removed until
+     * {@link #unpin(String)} is called, even if no save file references it
+     *
+     * @param data the data to store
+     * @return the hash identifying the segment
+     * @throws IOException if an error occurs encoding or writing the segment
+     */
+
+    public String writePinned(Map<String, ? extends Object> data) throws IOException
+    {
+        return write(data, true);
+    }
+
+    /**
+     * Allows the segment with the specified hash to be removed once it is no longer
+     * referenced by any save file
+     *
+     * @param hash the hash of the segment
+     */
+
+    public void unpin(String hash)
+    {
+        pinnedFiles.remove(getFile(hash));
+    }
+
+    private String write(Map<String, ? extends Object> data, boolean pin) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        BinarySaveWriter writer = new BinarySaveWriter(bytes);
+        writer.write(data);
+        writer.close();
+
+        byte[] segment = bytes.toByteArray();
+        String hash = computeHash(segment);
+
+        File file = getFile(hash);
+
+        // pinning and checking for an existing segment must not be interleaved with its removal
+        synchronized (pinnedFiles) {
+            if (pin) pinnedFiles.add(file);
+
+            if (file.isFile()) return hash;
+        }
+
+        directory.mkdirs();
+
+        File tempFile = new File(file.getPath() + TempFileExtension);
+
+        try {
+            OutputStream out = new GZIPOutputStream(new FileOutputStream(tempFile));
+            try {
+                out.write(segment);
+            } finally {
+                out.close();
+            }
+
+            SaveGameUtil.replaceFile(tempFile, file);
+
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Reads the segment with the specified hash
+     *
+     * @param hash the hash of the segment
+     * @return a parser wrapping the data stored in the segment
+     * @throws IOException if the segment does not exist or cannot be read
+     */
+
+    public SimpleJSONParser read(String hash) throws IOException
+    {
+        InputStream in = new BufferedInputStream(new GZIPInputStream(new FileInputStream(getFile(hash))));
+
+        try {
+            SimpleJSONParser parser = new BinarySaveReader(in).read(hash + Extension);
+            parser.setWarnOnMissingKeys(false);
+
+            return parser;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the data stored in the segment with the specified hash
+     *
+     * @param hash the hash of the segment
+     * @return the root object of the data stored in the segment
+     * @throws IOException if the segment does not exist or cannot be read
+     */
+
+    public JSONObject readData(String hash) throws IOException
+    {
+        InputStream in = new BufferedInputStream(new GZIPInputStream(new FileInputStream(getFile(hash))));
+
+        try {
+            return new BinarySaveReader(in).readRoot(hash + Extension);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Removes all segments that are not referenced by any save file for the campaign,
+     * are not pinned, and are not in the specified collection of segments to keep.  If
+     * any save file cannot be read, no segments are removed
+     *
+     * @param keep segments that must not be removed even if no save file references them
+     * @return the number of segments that were removed
+     */
+
+    public int collectGarbage(Collection<String> keep)
+    {
+        File[] segmentFiles = directory.listFiles();
+        if (segmentFiles == null) return 0;
+
+        Set<String> referenced = new HashSet<String>(keep);
+
+        File[] saveFiles = new File(Game.plataform.getSaveDirectory()).listFiles();
+        if (saveFiles != null) {
+            for (File saveFile : saveFiles) {
+                String name = saveFile.getName();
+
+                if (!name.startsWith(campaignID + "-") || !name.endsWith(ResourceType.SaveGame.getExtension())) {
+                    continue;
+                }
+
+                try {
+                    readSegmentReferences(saveFile, referenced);
+                } catch (Exception e) {
+                    // the save may reference any segment, so none can be safely removed
+                    return 0;
+                }
+            }
+        }
+
+        int removed = 0;
+        for (File segmentFile : segmentFiles) {
+            String name = segmentFile.getName();
+            if (!name.endsWith(Extension)) continue;
+
+            String hash = name.substring(0, name.length() - Extension.length());
+            if (referenced.contains(hash)) continue;
+
+            synchronized (pinnedFiles) {
+                if (!pinnedFiles.contains(segmentFile) && segmentFile.delete()) removed++;
+            }
+        }
+
+        return removed;
+    }
+
+    /*
+     * Adds the segments listed by the specified save file to the set.  Only the start of
+     * the file is read, as the segment list is always the first entry of the save data
+     */
+
+    private static void readSegmentReferences(File saveFile, Set<String> referenced) throws IOException
+    {
+        GZIPInputStream gz = new GZIPInputStream(new FileInputStream(saveFile));
+
+        try {
+            SaveFileHeader.read(gz);
+
+            InputStream in = new BufferedInputStream(gz);
+            if (!BinarySaveReader.isBinarySave(in)) return;
+
+            Object segments = new BinarySaveReader(in).readFirstEntry(SegmentsKey);
+            if (segments instanceof List<?>) {
+                for (Object segment : (List<?>)segments) {
+                    referenced.add(segment.toString());
+                }
+            }
+        } finally {
+            gz.close();
+        }
+    }
+
+    private File getFile(String hash)
+    {
+        return new File(directory, hash + Extension);
+    }
+
+    private static String computeHash(byte[] data)
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // all Java platforms are required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest(data)) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+    }
+}
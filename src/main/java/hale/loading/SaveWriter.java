@@ -21,8 +21,12 @@ package hale.loading;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import hale.util.BitGrid;
+
 /**
  * An object providing for better formatting of output file than the standard JSONObject
  *
@@ -62,9 +66,33 @@ public class SaveWriter
         out.append(']');
     }
 
+    /*
+     * Returns the "x,y" coordinates of each point that is set in the specified grid
+     */
+
+    private static Object[] getSetPoints(BitGrid grid)
+    {
+        List<Object> points = new ArrayList<Object>();
+
+        for (int x = 0; x < grid.getWidth(); x++) {
+            for (int y = 0; y < grid.getHeight(); y++) {
+                if (grid.get(x, y)) {
+                    points.add(Integer.toString(x) + ',' + Integer.toString(y));
+                }
+            }
+        }
+
+        return points.toArray();
+    }
+
     @SuppressWarnings("unchecked")
     private static void writeJSONValue(Object value, PrintWriter out, String indent) throws IOException
     {
+        if (value instanceof BitGrid) {
+            // grids are written as the list of their set points
+            value = getSetPoints((BitGrid)value);
+        }
+
         if (value == null) {
             out.append("null");
         } else
@@ -24,6 +24,7 @@ import java.io.File;
 import hale.Game;
 import hale.util.Logger;
 import hale.util.SaveGameUtil;
+import hale.util.SaveGameWriter;
 
 import de.matthiasmann.twl.Button;
 import de.matthiasmann.twl.Color;
@@ -71,18 +72,29 @@ public class InGameMenu extends PopupWindow implements LoadGamePopup.Callback, S
     {
         File fout = SaveGameUtil.getSaveFile(saveGame);
 
-        try {
-            SaveGameUtil.saveGame(fout);
-        } catch (Exception e) {
-            Logger.appendToErrorLog("Error saving game to file " + fout.getName(), e);
-            Game.mainViewer.addMessage("link", "Error saving game!");
-            Game.mainViewer.addFixedFadeAway("Error saving game!", 10, 10, Color.RED);
-            fout.delete();
-            return;
-        }
+        // the game state is captured before this returns, so the menu can be closed
+        // while the save is written
+        Game.saveWriter.save(fout, new SaveGameWriter.Listener()
+        {
+            @Override
+            public void saveProgress(File file, SaveGameWriter.Stage stage)
+            {
+            }
+
+            @Override
+            public void saveCompleted(File file, Exception error)
+            {
+                if (error != null) {
+                    Logger.appendToErrorLog("Error saving game to file " + file.getName(), error);
+                    Game.mainViewer.addMessage("link", "Error saving game!");
+                    Game.mainViewer.addFixedFadeAway("Error saving game!", 10, 10, Color.RED);
+                } else {
+                    Game.mainViewer.addMessage("link", "Game saved successfully.");
+                    Game.mainViewer.addFixedFadeAway("Game saved successfully.", 10, 10, Color.RED);
+                }
+            }
+        });
 
-        Game.mainViewer.addMessage("link", "Game saved successfully.");
-        Game.mainViewer.addFixedFadeAway("Game saved successfully.", 10, 10, Color.RED);
         Game.mainViewer.updateInterface();
 
         closePopup();
@@ -642,6 +642,7 @@ public class MainMenu extends DesktopArea implements LoadGamePopup.Callback
     public void loadCampaign(String campaignID)
     {
         Game.curCampaign = new Campaign(campaignID);
+        Game.curCampaign.setAreaMemoryBudget(Game.config.getAreaMemoryBudget());
 
         loader = new CampaignLoadingTaskList();
 
@@ -21,6 +21,7 @@ package hale.particle;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import hale.icon.Icon;
@@ -28,13 +29,11 @@ import hale.icon.SimpleIcon;
 import hale.loading.JSONOrderedObject;
 import hale.loading.LoadGameException;
 import hale.resource.Sprite;
+import hale.resource.SpriteBatch;
 import hale.resource.SpriteManager;
 import hale.util.SimpleJSONArrayEntry;
 import hale.util.SimpleJSONObject;
 
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL14;
-
 import de.matthiasmann.twl.Color;
 
 // TODO support animations replacing / modifying sub icons & icons on the target creature
@@ -61,6 +60,14 @@ public class Animation extends AnimationBase implements Animated
         data.put("texture", textureSprite);
         data.put("frameDuration", frameDuration);
 
+        // save the bounds of the texture sprite, so that frame coordinates can be remapped if
+        // the sprite is packed into a different location when loaded
+        Sprite sprite = SpriteManager.getSprite(textureSprite);
+        if (sprite != null) {
+            data.put("textureBounds", new float[]{(float)sprite.getTexCoordStartX(),
+                    (float)sprite.getTexCoordStartY(), (float)sprite.getTexCoordEndX(), (float)sprite.getTexCoordEndY()});
+        }
+
         data.put("drawingMode", drawingMode.toString());
         data.put("currentFrame", currentFrameIndex);
         data.put("numLoops", numLoops);
@@ -99,6 +106,24 @@ public class Animation extends AnimationBase implements Animated
         animation.currentFrameIndex = data.get("currentFrame", 0);
         animation.numLoops = data.get("numLoops", 0);
 
+        // the transform from the saved texture coordinates to the current ones
+        double scaleX = 1.0, scaleY = 1.0, offsetX = 0.0, offsetY = 0.0;
+        Sprite texture = SpriteManager.getSprite(sprite);
+        if (data.containsKey("textureBounds")) {
+            Iterator<SimpleJSONArrayEntry> iter = data.getArray("textureBounds").iterator();
+            double startX = iter.next().getFloat(0.0f);
+            double startY = iter.next().getFloat(0.0f);
+            double endX = iter.next().getFloat(1.0f);
+            double endY = iter.next().getFloat(1.0f);
+
+            if (texture != null && endX != startX && endY != startY) {
+                scaleX = (texture.getTexCoordEndX() - texture.getTexCoordStartX()) / (endX - startX);
+                scaleY = (texture.getTexCoordEndY() - texture.getTexCoordStartY()) / (endY - startY);
+                offsetX = texture.getTexCoordStartX() - startX * scaleX;
+                offsetY = texture.getTexCoordStartY() - startY * scaleY;
+            }
+        }
+
         for (SimpleJSONArrayEntry entry : data.getArray("frames")) {
             SimpleJSONObject entryData = entry.getObject();
 
@@ -108,8 +133,9 @@ public class Animation extends AnimationBase implements Animated
             float texCoordEndX = entryData.get("texCoordEndX", 0.0f);
             float texCoordEndY = entryData.get("texCoordEndY", 0.0f);
 
-            AnimationFrame frame = animation.new AnimationFrame(texCoordStartX, texCoordStartY,
-                    texCoordEndX, texCoordEndY, initialDuration);
+            AnimationFrame frame = animation.new AnimationFrame(offsetX + texCoordStartX * scaleX,
+                    offsetY + texCoordStartY * scaleY, offsetX + texCoordEndX * scaleX,
+                    offsetY + texCoordEndY * scaleY, initialDuration);
             frame.duration = entryData.get("duration", 0.0f);
 
             animation.frames.add(frame);
@@ -348,36 +374,15 @@ public class Animation extends AnimationBase implements Animated
 
     public final void draw()
     {
-        GL11.glColor4f(getR(), getG(), getB(), getA());
-        GL14.glSecondaryColor3f(getR2(), getG2(), getB2());
-
-        GL11.glPushMatrix();
-
-        GL11.glTranslatef(getX(), getY(), 0.0f);
-
-        if (getRotation() != 0.0f) GL11.glRotatef(getRotation(), 0.0f, 0.0f, 1.0f);
+        SpriteBatch.setColor(getR(), getG(), getB(), getA());
+        SpriteBatch.setSecondaryColor(getR2(), getG2(), getB2());
 
         AnimationFrame curFrame = frames.get(currentFrameIndex);
 
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
-
-        GL11.glBegin(GL11.GL_QUADS);
-
-        GL11.glTexCoord2d(curFrame.texCoordStartX, curFrame.texCoordStartY);
-        GL11.glVertex2i(-halfWidth, -halfHeight);
-
-        GL11.glTexCoord2d(curFrame.texCoordEndX, curFrame.texCoordStartY);
-        GL11.glVertex2i(halfWidth, -halfHeight);
-
-        GL11.glTexCoord2d(curFrame.texCoordEndX, curFrame.texCoordEndY);
-        GL11.glVertex2i(halfWidth, halfHeight);
-
-        GL11.glTexCoord2d(curFrame.texCoordStartX, curFrame.texCoordEndY);
-        GL11.glVertex2i(-halfWidth, halfHeight);
-
-        GL11.glEnd();
-
-        GL11.glPopMatrix();
+        SpriteBatch.drawRotatedQuad(texture, getX(), getY(), getRotation(),
+                -halfWidth, -halfHeight, halfWidth, halfHeight,
+                curFrame.texCoordStartX, curFrame.texCoordStartY,
+                curFrame.texCoordEndX, curFrame.texCoordEndY);
     }
 
     public void setColor(Color color)
@@ -139,6 +139,27 @@ public abstract class AnimationBase implements Saveable
         this.secondsRemaining = other.secondsRemaining;
     }
 
+    // sets all state other than the size back to its initial value, so this
+    // object can be reused
+    protected final void resetState()
+    {
+        r = g = b = a = 0.0f;
+        vr = vg = vb = va = 0.0f;
+
+        r2 = g2 = b2 = 0.0f;
+        vr2 = vg2 = vb2 = 0.0f;
+
+        positionX = positionY = 0.0f;
+        velocityX = velocityY = 0.0f;
+        speed = 0.0f;
+        velocityAngle = 0.0f;
+
+        rotation = 0.0f;
+        rotationSpeed = 0.0f;
+
+        secondsRemaining = 0.0f;
+    }
+
     public boolean elapseTime(float seconds)
     {
         rotation += (rotationSpeed * seconds);
@@ -338,6 +359,41 @@ public abstract class AnimationBase implements Saveable
         return b2;
     }
 
+    public final float getRedSpeed()
+    {
+        return vr;
+    }
+
+    public final float getGreenSpeed()
+    {
+        return vg;
+    }
+
+    public final float getBlueSpeed()
+    {
+        return vb;
+    }
+
+    public final float getAlphaSpeed()
+    {
+        return va;
+    }
+
+    public final float getSecondaryRedSpeed()
+    {
+        return vr2;
+    }
+
+    public final float getSecondaryGreenSpeed()
+    {
+        return vg2;
+    }
+
+    public final float getSecondaryBlueSpeed()
+    {
+        return vb2;
+    }
+
     public final float getX()
     {
         return positionX;
@@ -19,91 +19,43 @@
 
 package hale.particle;
 
-import hale.Game;
-import hale.area.Area;
 import hale.resource.Sprite;
-import hale.util.AreaUtil;
-import hale.util.Point;
 
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL14;
+/**
+ * The properties of a single particle at the moment it is created.  A ParticleGenerator
+ * reuses one Particle to compute the position, color, velocity, and other properties of
+ * each new particle via its distributions, and then copies those properties into its
+ * {@link ParticleList}, which holds the particles for the rest of their lifetime
+ */
 
 public class Particle extends AnimationBase
 {
     private final Sprite sprite;
-    private boolean stopAtOpaque, drawInOpaque;
 
     public Particle(Particle other)
     {
         super(other);
 
         this.sprite = other.sprite;
-
-        this.stopAtOpaque = other.stopAtOpaque;
-        this.drawInOpaque = other.drawInOpaque;
     }
 
     public Particle(Sprite sprite)
     {
         super(sprite.getWidth() / 2, sprite.getHeight() / 2);
         this.sprite = sprite;
-
-        this.stopAtOpaque = false;
-        this.drawInOpaque = false;
     }
 
-    public final void setDrawInOpaque(boolean drawInOpaque)
+    public final Sprite getSprite()
     {
-        this.drawInOpaque = drawInOpaque;
+        return sprite;
     }
 
-    public final void setStopAtOpaque(boolean stopAtOpaque)
-    {
-        this.stopAtOpaque = stopAtOpaque;
-    }
+    /**
+     * Resets all properties of this particle, so that it may be used for a new particle
+     */
 
-    public final void draw()
+    public final void reset()
     {
-        GL11.glColor4f(getR(), getG(), getB(), getA());
-        GL14.glSecondaryColor3f(getR2(), getG2(), getB2());
-
-        int posX = (int)getX();
-        int posY = (int)getY();
-
-        Point pos1 = AreaUtil.convertScreenToGrid(posX + getHalfWidth(), posY + getHalfHeight());
-        Point pos2 = AreaUtil.convertScreenToGrid(posX + getHalfWidth(), posY - getHalfHeight());
-        Point pos3 = AreaUtil.convertScreenToGrid(posX - getHalfWidth(), posY + getHalfHeight());
-        Point pos4 = AreaUtil.convertScreenToGrid(posX - getHalfWidth(), posY - getHalfHeight());
-
-        Area area = Game.curCampaign.curArea;
-
-        if (!drawInOpaque) {
-            // don't draw effects in opaque tiles regardless of whether the effect stops or not
-            if ((!area.isTransparent(pos1) || !area.isTransparent(pos2) ||
-                    !area.isTransparent(pos3) || !area.isTransparent(pos4))) {
-                Point pos = AreaUtil.convertScreenToGrid(posX + getHalfWidth(), posY + getHalfHeight());
-                if (!area.isTransparent(pos) && stopAtOpaque) finish();
-
-                return;
-            }
-        }
-
-        if (getRotation() != 0.0f) {
-            GL11.glPushMatrix();
-
-            GL11.glTranslatef(getX(), getY(), 0.0f);
-
-            GL11.glRotatef(getRotation(), 0.0f, 0.0f, 1.0f);
-
-            if (area.isVisible(pos1) || area.isVisible(pos2) || area.isVisible(pos3) || area.isVisible(pos4)) {
-                sprite.drawNoTextureBind(-getHalfWidth(), -getHalfHeight());
-            }
-
-            GL11.glPopMatrix();
-        } else {
-            if (area.isVisible(pos1) || area.isVisible(pos2) || area.isVisible(pos3) || area.isVisible(pos4)) {
-                sprite.drawNoTextureBind((int)getX() - getHalfWidth(), (int)getY() - getHalfHeight());
-            }
-        }
+        resetState();
     }
 }
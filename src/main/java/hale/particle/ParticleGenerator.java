@@ -35,8 +35,6 @@ import hale.util.SaveGameUtil;
 import hale.util.SimpleJSONArrayEntry;
 import hale.util.SimpleJSONObject;
 
-import org.lwjgl.opengl.GL11;
-
 public class ParticleGenerator implements Animated
 {
     public enum Mode
@@ -45,7 +43,10 @@ public class ParticleGenerator implements Animated
     }
 
     private Sprite particleSprite;
-    private List<Particle> particles;
+    private ParticleList particles;
+
+    // reused to set up the properties of each new particle
+    private Particle newParticle;
     private float speed;
 
     private Mode mode;
@@ -288,7 +289,6 @@ public class ParticleGenerator implements Animated
 
     public ParticleGenerator(ParticleGenerator other)
     {
-        this.particles = new LinkedList<Particle>();
         this.subGenerators = new LinkedList<SubGenerator>();
 
         this.initialized = other.initialized;
@@ -378,9 +378,7 @@ public class ParticleGenerator implements Animated
         this.particleSprite = other.particleSprite;
         this.spriteRef = other.spriteRef;
 
-        for (Particle particle : other.particles) {
-            this.particles.add(new Particle(particle));
-        }
+        this.particles = new ParticleList(other.particles);
     }
 
     public ParticleGenerator(Mode mode, String particleSprite, float numParticles)
@@ -394,7 +392,7 @@ public class ParticleGenerator implements Animated
 
         this.numParticles = numParticles;
 
-        this.particles = new LinkedList<Particle>();
+        this.particles = new ParticleList();
 
         this.subGenerators = new LinkedList<SubGenerator>();
 
@@ -438,6 +436,17 @@ public class ParticleGenerator implements Animated
         return numParticles;
     }
 
+    /**
+     * Returns the number of particles currently alive in this generator
+     *
+     * @return the number of live particles
+     */
+
+    public int getParticleCount()
+    {
+        return particles.size();
+    }
+
     public final float getX()
     {
         return positionX;
@@ -667,14 +676,7 @@ public class ParticleGenerator implements Animated
 
         offsetPosition(velocityX * seconds, velocityY * seconds);
 
-        Iterator<Particle> iter = particles.iterator();
-        while (iter.hasNext()) {
-            boolean finished = iter.next().elapseTime(seconds);
-
-            if (finished) {
-                iter.remove();
-            }
-        }
+        particles.elapseTime(seconds);
 
         if (timeLeft > 0.0f) {
             switch (mode) {
@@ -714,10 +716,16 @@ public class ParticleGenerator implements Animated
 
     private void addParticles(int num)
     {
+        if (num <= 0) return;
+
+        if (newParticle == null || newParticle.getSprite() != particleSprite) {
+            newParticle = new Particle(particleSprite);
+        }
+
+        Particle p = newParticle;
+
         for (int i = 0; i < num; i++) {
-            Particle p = new Particle(particleSprite);
-            p.setStopAtOpaque(stopAtOpaque);
-            p.setDrawInOpaque(drawInOpaque);
+            p.reset();
 
             setParticlePosition(p);
 
@@ -758,14 +766,7 @@ public class ParticleGenerator implements Animated
 
     public void draw()
     {
-        // it is a big performance improvement to bind the texture only once
-        // this assumes that all particles in this generator use a texture from the same spritesheet
-
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, particleSprite.getTextureReference());
-
-        for (Particle particle : particles) {
-            particle.draw();
-        }
+        particles.draw(particleSprite, Game.curCampaign.curArea, drawInOpaque, stopAtOpaque);
     }
 
     @Override
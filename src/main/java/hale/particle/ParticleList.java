@@ -0,0 +1,352 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.particle;
+
+import java.util.Arrays;
+
+import hale.area.Area;
+import hale.resource.Sprite;
+import hale.resource.SpriteBatch;
+import hale.util.AreaUtil;
+import hale.util.Point;
+
+/**
+ * The live particles of a single ParticleGenerator.  Each property of the particles is
+ * stored in its own array, with one slot per particle, rather than as a separate object
+ * for each particle.  Particles are kept in the order they were added.  Slots freed by
+ * finished particles are reused by later particles, and the arrays only grow, so once a
+ * generator reaches its peak particle count, updating and drawing do not allocate.
+ * <p>
+ * This class is not synchronized.
+ */
+
+class ParticleList
+{
+    private static final int InitialCapacity = 32;
+
+    private int size;
+
+    private float[] r, g, b, a;
+    private float[] vr, vg, vb, va;
+
+    private float[] r2, g2, b2;
+    private float[] vr2, vg2, vb2;
+
+    private float[] positionX, positionY;
+    private float[] velocityX, velocityY;
+
+    private float[] rotation, rotationSpeed;
+
+    private float[] secondsRemaining;
+
+    // reused to compute the grid points covered by each particle when drawing
+    private final Point corner1 = new Point();
+    private final Point corner2 = new Point();
+    private final Point corner3 = new Point();
+    private final Point corner4 = new Point();
+
+    /**
+     * Creates a new, empty ParticleList
+     */
+
+    ParticleList()
+    {
+        allocate(InitialCapacity);
+    }
+
+    /**
+     * Creates a new ParticleList containing copies of all the particles in the specified list
+     *
+     * @param other the list to copy
+     */
+
+    ParticleList(ParticleList other)
+    {
+        copyArrays(other, Math.max(InitialCapacity, other.size));
+
+        this.size = other.size;
+    }
+
+    /**
+     * Returns the number of particles in this list
+     *
+     * @return the number of particles
+     */
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Adds a new particle to the end of this list, with its properties copied from the
+     * specified particle
+     *
+     * @param p the particle to copy
+     */
+
+    void add(Particle p)
+    {
+        if (size == secondsRemaining.length) grow();
+
+        int i = size;
+
+        r[i] = p.getR();
+        g[i] = p.getG();
+        b[i] = p.getB();
+        a[i] = p.getA();
+
+        r2[i] = p.getR2();
+        g2[i] = p.getG2();
+        b2[i] = p.getB2();
+
+        positionX[i] = p.getX();
+        positionY[i] = p.getY();
+        velocityX[i] = p.getVX();
+        velocityY[i] = p.getVY();
+
+        rotation[i] = p.getRotation();
+        rotationSpeed[i] = p.getRotationSpeed();
+
+        vr[i] = p.getRedSpeed();
+        vg[i] = p.getGreenSpeed();
+        vb[i] = p.getBlueSpeed();
+        va[i] = p.getAlphaSpeed();
+
+        vr2[i] = p.getSecondaryRedSpeed();
+        vg2[i] = p.getSecondaryGreenSpeed();
+        vb2[i] = p.getSecondaryBlueSpeed();
+
+        secondsRemaining[i] = p.getSecondsRemaining();
+
+        size++;
+    }
+
+    /**
+     * Advances all particles by the specified number of seconds, and removes any
+     * particles whose duration has expired
+     *
+     * @param seconds the elapsed time
+     */
+
+    void elapseTime(float seconds)
+    {
+        int count = size;
+
+        for (int i = 0; i < count; i++) {
+            rotation[i] += rotationSpeed[i] * seconds;
+
+            positionX[i] += velocityX[i] * seconds;
+            positionY[i] += velocityY[i] * seconds;
+
+            r[i] += vr[i] * seconds;
+            g[i] += vg[i] * seconds;
+            b[i] += vb[i] * seconds;
+            a[i] += va[i] * seconds;
+
+            r2[i] += vr2[i] * seconds;
+            g2[i] += vg2[i] * seconds;
+            b2[i] += vb2[i] * seconds;
+
+            secondsRemaining[i] -= seconds;
+        }
+
+        removeFinished();
+    }
+
+    /**
+     * Draws all particles in this list.  Particles are not drawn if none of the grid points
+     * they cover are visible.  Unless drawInOpaque is set, particles are also not drawn if
+     * they cover any opaque grid point.
+     *
+     * @param sprite       the sprite to draw each particle with
+     * @param area         the area the particles are being drawn in
+     * @param drawInOpaque whether to draw particles covering opaque grid points
+     * @param stopAtOpaque whether particles whose lower right corner is in an opaque grid point
+     *                     should be finished and removed at the next update
+     */
+
+    void draw(Sprite sprite, Area area, boolean drawInOpaque, boolean stopAtOpaque)
+    {
+        int halfWidth = sprite.getWidth() / 2;
+        int halfHeight = sprite.getHeight() / 2;
+
+        int texture = sprite.getTextureReference();
+        double u1 = sprite.getTexCoordStartX();
+        double v1 = sprite.getTexCoordStartY();
+        double u2 = sprite.getTexCoordEndX();
+        double v2 = sprite.getTexCoordEndY();
+
+        for (int i = 0; i < size; i++) {
+            int posX = (int)positionX[i];
+            int posY = (int)positionY[i];
+
+            AreaUtil.convertScreenToGrid(posX + halfWidth, posY + halfHeight, corner1);
+            AreaUtil.convertScreenToGrid(posX + halfWidth, posY - halfHeight, corner2);
+            AreaUtil.convertScreenToGrid(posX - halfWidth, posY + halfHeight, corner3);
+            AreaUtil.convertScreenToGrid(posX - halfWidth, posY - halfHeight, corner4);
+
+            if (!drawInOpaque) {
+                // don't draw effects in opaque tiles regardless of whether the effect stops or not
+                boolean corner1Transparent = area.isTransparent(corner1);
+
+                if (!corner1Transparent || !area.isTransparent(corner2) ||
+                        !area.isTransparent(corner3) || !area.isTransparent(corner4)) {
+                    if (!corner1Transparent && stopAtOpaque) secondsRemaining[i] = 0.0f;
+
+                    continue;
+                }
+            }
+
+            if (!area.isVisible(corner1) && !area.isVisible(corner2) &&
+                    !area.isVisible(corner3) && !area.isVisible(corner4)) {
+                continue;
+            }
+
+            SpriteBatch.setColor(r[i], g[i], b[i], a[i]);
+            SpriteBatch.setSecondaryColor(r2[i], g2[i], b2[i]);
+
+            if (rotation[i] != 0.0f) {
+                SpriteBatch.drawRotatedQuad(texture, positionX[i], positionY[i], rotation[i],
+                        -halfWidth, -halfHeight, sprite.getWidth() - halfWidth, sprite.getHeight() - halfHeight,
+                        u1, v1, u2, v2);
+            } else {
+                SpriteBatch.draw(sprite, posX - halfWidth, posY - halfHeight);
+            }
+        }
+    }
+
+    /*
+     * Moves all particles that have not finished toward the front of the arrays, keeping
+     * them in order
+     */
+
+    private void removeFinished()
+    {
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (secondsRemaining[i] <= 0.0f) continue;
+
+            if (count != i) move(i, count);
+
+            count++;
+        }
+
+        size = count;
+    }
+
+    private void move(int from, int to)
+    {
+        r[to] = r[from];
+        g[to] = g[from];
+        b[to] = b[from];
+        a[to] = a[from];
+        vr[to] = vr[from];
+        vg[to] = vg[from];
+        vb[to] = vb[from];
+        va[to] = va[from];
+
+        r2[to] = r2[from];
+        g2[to] = g2[from];
+        b2[to] = b2[from];
+        vr2[to] = vr2[from];
+        vg2[to] = vg2[from];
+        vb2[to] = vb2[from];
+
+        positionX[to] = positionX[from];
+        positionY[to] = positionY[from];
+        velocityX[to] = velocityX[from];
+        velocityY[to] = velocityY[from];
+
+        rotation[to] = rotation[from];
+        rotationSpeed[to] = rotationSpeed[from];
+
+        secondsRemaining[to] = secondsRemaining[from];
+    }
+
+    private void grow()
+    {
+        copyArrays(this, secondsRemaining.length * 2);
+    }
+
+    private void allocate(int capacity)
+    {
+        r = new float[capacity];
+        g = new float[capacity];
+        b = new float[capacity];
+        a = new float[capacity];
+        vr = new float[capacity];
+        vg = new float[capacity];
+        vb = new float[capacity];
+        va = new float[capacity];
+
+        r2 = new float[capacity];
+        g2 = new float[capacity];
+        b2 = new float[capacity];
+        vr2 = new float[capacity];
+        vg2 = new float[capacity];
+        vb2 = new float[capacity];
+
+        positionX = new float[capacity];
+        positionY = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+
+        rotation = new float[capacity];
+        rotationSpeed = new float[capacity];
+
+        secondsRemaining = new float[capacity];
+    }
+
+    /*
+     * Sets the arrays of this list to copies of the arrays of the specified list, with
+     * the specified capacity
+     */
+
+    private void copyArrays(ParticleList source, int capacity)
+    {
+        r = Arrays.copyOf(source.r, capacity);
+        g = Arrays.copyOf(source.g, capacity);
+        b = Arrays.copyOf(source.b, capacity);
+        a = Arrays.copyOf(source.a, capacity);
+        vr = Arrays.copyOf(source.vr, capacity);
+        vg = Arrays.copyOf(source.vg, capacity);
+        vb = Arrays.copyOf(source.vb, capacity);
+        va = Arrays.copyOf(source.va, capacity);
+
+        r2 = Arrays.copyOf(source.r2, capacity);
+        g2 = Arrays.copyOf(source.g2, capacity);
+        b2 = Arrays.copyOf(source.b2, capacity);
+        vr2 = Arrays.copyOf(source.vr2, capacity);
+        vg2 = Arrays.copyOf(source.vg2, capacity);
+        vb2 = Arrays.copyOf(source.vb2, capacity);
+
+        positionX = Arrays.copyOf(source.positionX, capacity);
+        positionY = Arrays.copyOf(source.positionY, capacity);
+        velocityX = Arrays.copyOf(source.velocityX, capacity);
+        velocityY = Arrays.copyOf(source.velocityY, capacity);
+
+        rotation = Arrays.copyOf(source.rotation, capacity);
+        rotationSpeed = Arrays.copyOf(source.rotationSpeed, capacity);
+
+        secondsRemaining = Arrays.copyOf(source.secondsRemaining, capacity);
+    }
+}
@@ -32,11 +32,11 @@ import hale.Game;
 import hale.interfacelock.EntityOffsetAnimation;
 import hale.resource.ResourceManager;
 import hale.resource.ResourceType;
+import hale.resource.SpriteBatch;
 import hale.util.JSEngine;
 import hale.util.Logger;
 
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL14;
 
 /**
  * Handles updating and storing all particles and animations
@@ -100,9 +100,10 @@ public class ParticleManager
 
         try {
             animation = (Animation)engine.eval(ResourceManager.getResourceAsString(resource));
-            engine.release();
         } catch (ScriptException e) {
             Logger.appendToErrorLog("Error running script for animation " + resource, e);
+        } finally {
+            engine.release();
         }
 
         String id = ResourceManager.getResourceIDNoPath(resource, ResourceType.JavaScript);
@@ -124,9 +125,10 @@ public class ParticleManager
 
         try {
             generator = (ParticleGenerator)engine.eval(ResourceManager.getResourceAsString(resource));
-            engine.release();
         } catch (ScriptException e) {
             Logger.appendToErrorLog("Error running script for particle effect " + resource, e);
+        } finally {
+            engine.release();
         }
 
         String id = ResourceManager.getResourceIDNoPath(resource, ResourceType.JavaScript);
@@ -232,27 +234,64 @@ public class ParticleManager
         lastTime = curTime;
     }
 
-    public final void drawBelowEntities()
+    /**
+     * Returns the total number of live particles in all active particle generators
+     *
+     * @return the number of live particles
+     */
+
+    public int getActiveParticleCount()
     {
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        int count = 0;
 
         for (Animated animation : activeBelowAnimations) {
-            animation.draw();
+            if (animation instanceof ParticleGenerator) {
+                count += ((ParticleGenerator)animation).getParticleCount();
+            }
+        }
+
+        for (Animated animation : activeAboveAnimations) {
+            if (animation instanceof ParticleGenerator) {
+                count += ((ParticleGenerator)animation).getParticleCount();
+            }
         }
 
-        GL11.glColor3f(1.0f, 1.0f, 1.0f);
-        GL14.glSecondaryColor3f(0.0f, 0.0f, 0.0f);
+        return count;
     }
 
-    public final void drawAboveEntities()
+    public final void drawBelowEntities()
     {
         GL11.glEnable(GL11.GL_TEXTURE_2D);
 
-        for (Animated animation : activeAboveAnimations) {
-            animation.draw();
+        SpriteBatch.begin();
+
+        try {
+            for (Animated animation : activeBelowAnimations) {
+                animation.draw();
+            }
+
+            SpriteBatch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+            SpriteBatch.setSecondaryColor(0.0f, 0.0f, 0.0f);
+        } finally {
+            SpriteBatch.end();
         }
+    }
 
-        GL11.glColor3f(1.0f, 1.0f, 1.0f);
-        GL14.glSecondaryColor3f(0.0f, 0.0f, 0.0f);
+    public final void drawAboveEntities()
+    {
+        GL11.glEnable(GL11.GL_TEXTURE_2D);
+
+        SpriteBatch.begin();
+
+        try {
+            for (Animated animation : activeAboveAnimations) {
+                animation.draw();
+            }
+
+            SpriteBatch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+            SpriteBatch.setSecondaryColor(0.0f, 0.0f, 0.0f);
+        } finally {
+            SpriteBatch.end();
+        }
     }
 }
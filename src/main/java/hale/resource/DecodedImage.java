@@ -0,0 +1,81 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.resource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The pixels of an image that has already been decoded into the RGBA form that is
+ * uploaded to OpenGL
+ */
+
+public class DecodedImage
+{
+    private final ByteBuffer pixels;
+    private final int width, height;
+
+    /**
+     * Creates a new DecodedImage with the specified pixels
+     *
+     * @param pixels the RGBA pixels, 4 bytes per pixel, from the current position to the limit
+     * @param width  the width of the image in pixels
+     * @param height the height of the image in pixels
+     */
+
+    public DecodedImage(ByteBuffer pixels, int width, int height)
+    {
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns the RGBA pixels of this image
+     *
+     * @return the pixels of this image
+     */
+
+    public ByteBuffer getPixels()
+    {
+        return pixels;
+    }
+
+    /**
+     * Returns the width of this image in pixels
+     *
+     * @return the width of this image
+     */
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of this image in pixels
+     *
+     * @return the height of this image
+     */
+
+    public int getHeight()
+    {
+        return height;
+    }
+}
@@ -29,7 +29,8 @@ package hale.resource;
 
 public enum PackageType
 {
-    Campaign, // a campaign package, can be either zip or directory
+    Campaign, // a campaign package, can be a zip, resource pack, or directory
     CoreDirectory, // core package contained in a directory hierarchy
+    CorePack, // core package contained in a resource pack
     CoreZip; // core package contained in a zipFile
 }
@@ -0,0 +1,239 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import net.minidev.json.JSONObject;
+import hale.loading.BinarySaveReader;
+import hale.util.Logger;
+
+/**
+ * A ResourcePackage where all resources are contained in a single resource pack file,
+ * created by {@link ResourcePacker}.  The file is memory mapped, and resources are read
+ * directly from the mapping, so no files are opened after the package is created.  Resources
+ * are located with the hashed path index stored in the file.
+ * <p>
+ * In addition to the original contents of each resource, JSON resources are stored already
+ * parsed and PNG images are stored already decoded.  These are returned by
+ * {@link #getParsedJSON(String)} and {@link #getDecodedImage(String)}.  See
+ * {@link ResourcePackFormat} for a description of the file.
+ */
+
+public class PackedResourcePackage extends ResourcePackage
+{
+    private final File file;
+    private final ByteBuffer buffer;
+
+    private final int slotCount;
+    private final int entryTableOffset;
+
+    /**
+     * Create a new PackedResourcePackage with the specified resource pack file and PackageType.
+     * The file is mapped into memory, and all resources in the file are registered as package
+     * resources.
+     *
+     * @param file the resource pack file containing all resources
+     * @param type the PackageType of this ResourcePackage
+     * @throws IOException if the file cannot be mapped or is not a valid resource pack
+     */
+
+    public PackedResourcePackage(File file, PackageType type) throws IOException
+    {
+        super(type);
+        this.file = file;
+
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            // the mapping remains valid after the file is closed
+            this.buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+        } finally {
+            in.close();
+        }
+
+        if (buffer.capacity() < ResourcePackFormat.HeaderSize || buffer.getInt(0) != ResourcePackFormat.Magic) {
+            throw new IOException("Not a resource pack: " + file.getPath());
+        }
+
+        int version = buffer.getInt(4);
+        if (version != ResourcePackFormat.Version) {
+            throw new IOException("Unsupported resource pack version " + version + " in " + file.getPath());
+        }
+
+        int entryCount = buffer.getInt(8);
+        this.slotCount = buffer.getInt(12);
+        this.entryTableOffset = ResourcePackFormat.HeaderSize + slotCount * 4;
+
+        for (int index = 0; index < entryCount; index++) {
+            entries.add(getPath(getEntryOffset(index)));
+        }
+    }
+
+    @Override
+    public InputStream getStream(String path)
+    {
+        int entry = findEntry(path);
+        if (entry == -1) {
+            Logger.appendToErrorLog("Error getting stream from " + path + " in " + file.getName());
+            return null;
+        }
+
+        return new ByteBufferInputStream(slice(buffer.getInt(entry + 24), buffer.getInt(entry + 28)));
+    }
+
+    @Override
+    public JSONObject getParsedJSON(String path)
+    {
+        int entry = findEntry(path);
+        if (entry == -1 || buffer.getInt(entry + 12) != ResourcePackFormat.KindJSON) return null;
+
+        ByteBuffer data = slice(buffer.getInt(entry + 32), buffer.getInt(entry + 36));
+
+        try {
+            return new BinarySaveReader(new ByteBufferInputStream(data)).readRoot(path);
+        } catch (IOException e) {
+            Logger.appendToErrorLog("Error reading parsed JSON for " + path + " in " + file.getName(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public DecodedImage getDecodedImage(String path)
+    {
+        int entry = findEntry(path);
+        if (entry == -1 || buffer.getInt(entry + 12) != ResourcePackFormat.KindImage) return null;
+
+        // the mapped buffer is direct, so the slice can be passed to OpenGL without copying
+        ByteBuffer pixels = slice(buffer.getInt(entry + 32), buffer.getInt(entry + 36));
+
+        return new DecodedImage(pixels, buffer.getInt(entry + 16), buffer.getInt(entry + 20));
+    }
+
+    /*
+     * Returns the offset of the entry with the specified path in the entry table, or -1
+     * if there is no such entry
+     */
+
+    private int findEntry(String path)
+    {
+        int hash = path.hashCode();
+        byte[] pathBytes = null;
+
+        for (int probe = 0; probe < slotCount; probe++) {
+            int slot = (hash + probe) & (slotCount - 1);
+
+            int index = buffer.getInt(ResourcePackFormat.HeaderSize + slot * 4) - 1;
+            if (index == -1) return -1;
+
+            int entry = getEntryOffset(index);
+            if (buffer.getInt(entry) != hash) continue;
+
+            if (pathBytes == null) pathBytes = path.getBytes(StandardCharsets.UTF_8);
+
+            if (Arrays.equals(pathBytes, getBytes(buffer.getInt(entry + 4), buffer.getInt(entry + 8)))) {
+                return entry;
+            }
+        }
+
+        return -1;
+    }
+
+    private int getEntryOffset(int index)
+    {
+        return entryTableOffset + index * ResourcePackFormat.EntrySize;
+    }
+
+    private String getPath(int entry)
+    {
+        return new String(getBytes(buffer.getInt(entry + 4), buffer.getInt(entry + 8)), StandardCharsets.UTF_8);
+    }
+
+    private byte[] getBytes(int offset, int length)
+    {
+        byte[] bytes = new byte[length];
+        slice(offset, length).get(bytes);
+        return bytes;
+    }
+
+    /*
+     * Returns a new buffer sharing the specified region of the mapped file.  The mapped
+     * buffer itself is never repositioned, so it may be safely used by multiple threads
+     */
+
+    private ByteBuffer slice(int offset, int length)
+    {
+        ByteBuffer region = buffer.duplicate();
+        region.position(offset);
+        region.limit(offset + length);
+        return region.slice();
+    }
+
+    /*
+     * An InputStream reading the remaining contents of a buffer
+     */
+
+    private static class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer data;
+
+        private ByteBufferInputStream(ByteBuffer data)
+        {
+            this.data = data;
+        }
+
+        @Override
+        public int read()
+        {
+            return data.hasRemaining() ? (data.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+        {
+            if (length == 0) return 0;
+            if (!data.hasRemaining()) return -1;
+
+            int count = Math.min(length, data.remaining());
+            data.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count)
+        {
+            int skipped = (int)Math.max(0L, Math.min(count, data.remaining()));
+            data.position(data.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available()
+        {
+            return data.remaining();
+        }
+    }
+}
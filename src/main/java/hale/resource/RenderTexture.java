@@ -0,0 +1,261 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.resource;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.ContextCapabilities;
+import org.lwjgl.opengl.EXTFramebufferObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GLContext;
+
+/**
+ * A texture that can be drawn into, using a framebuffer object.  Any part of the texture
+ * may be redrawn by calling {@link #begin(int, int, int, int)}, drawing normally in screen
+ * coordinates relative to the top left corner of the texture, and then calling {@link #end()}.
+ * Everything drawn between the two calls is clipped to the specified rectangle.
+ * <p>
+ * The texture contents are stored with premultiplied alpha, so translucent images drawn
+ * into the texture blend the same way when the texture is drawn as they would if they
+ * were drawn directly.
+ * <p>
+ * This class may only be used from the OpenGL thread.
+ */
+
+public class RenderTexture
+{
+    private final int width, height;
+    private final int textureWidth, textureHeight;
+
+    private int texture;
+    private int framebuffer;
+    private boolean rendering;
+
+    /**
+     * Returns true if the current OpenGL context supports render textures of the
+     * specified size
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @return whether a RenderTexture of the specified size can be created
+     */
+
+    public static boolean isSupported(int width, int height)
+    {
+        ContextCapabilities capabilities = GLContext.getCapabilities();
+        if (!capabilities.GL_EXT_framebuffer_object || !capabilities.OpenGL14) return false;
+
+        int maxSize = GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE);
+
+        return nextPowerOfTwo(width) <= maxSize && nextPowerOfTwo(height) <= maxSize;
+    }
+
+    /**
+     * Creates a new, fully transparent RenderTexture of the specified size.  The size
+     * must be supported, as determined by {@link #isSupported(int, int)}
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @throws IllegalStateException if the framebuffer object cannot be created
+     */
+
+    public RenderTexture(int width, int height)
+    {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid render texture size " + width + "x" + height);
+        }
+
+        this.width = width;
+        this.height = height;
+        this.textureWidth = nextPowerOfTwo(width);
+        this.textureHeight = nextPowerOfTwo(height);
+
+        texture = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, textureWidth, textureHeight, 0,
+                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer)null);
+
+        framebuffer = EXTFramebufferObject.glGenFramebuffersEXT();
+        EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, framebuffer);
+        EXTFramebufferObject.glFramebufferTexture2DEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT,
+                EXTFramebufferObject.GL_COLOR_ATTACHMENT0_EXT, GL11.GL_TEXTURE_2D, texture, 0);
+        int status = EXTFramebufferObject.glCheckFramebufferStatusEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT);
+        EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, 0);
+
+        if (status != EXTFramebufferObject.GL_FRAMEBUFFER_COMPLETE_EXT) {
+            dispose();
+            throw new IllegalStateException("Unable to create framebuffer, status " + status);
+        }
+
+        // clear the entire texture, as its initial contents are undefined
+        begin(0, 0, textureWidth, textureHeight);
+        end();
+    }
+
+    /**
+     * Returns the width of this texture, as specified when it was created
+     *
+     * @return the width in pixels
+     */
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of this texture, as specified when it was created
+     *
+     * @return the height in pixels
+     */
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Directs all subsequent drawing into the specified rectangle of this texture, until
+     * {@link #end()} is called.  The rectangle is cleared to be fully transparent.  The
+     * OpenGL matrices are set so that drawing coordinates are in pixels relative to the
+     * top left corner of this texture.
+     *
+     * @param x      the left edge of the rectangle
+     * @param y      the top edge of the rectangle
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     */
+
+    public void begin(int x, int y, int width, int height)
+    {
+        if (rendering) throw new IllegalStateException("RenderTexture.begin() called twice without end()");
+
+        rendering = true;
+
+        // any pending quads belong to the current framebuffer
+        SpriteBatch.flush();
+
+        GL11.glPushAttrib(GL11.GL_VIEWPORT_BIT | GL11.GL_SCISSOR_BIT | GL11.GL_COLOR_BUFFER_BIT);
+
+        EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, framebuffer);
+        GL11.glViewport(0, 0, textureWidth, textureHeight);
+
+        // the projection maps screen y to texture row y, so the texture is drawn
+        // upright with a texture coordinate of 0 at its top edge
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glPushMatrix();
+        GL11.glLoadIdentity();
+        GL11.glOrtho(0, textureWidth, 0, textureHeight, -1, 1);
+
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glPushMatrix();
+        GL11.glLoadIdentity();
+
+        GL11.glEnable(GL11.GL_SCISSOR_TEST);
+        GL11.glScissor(x, y, width, height);
+
+        GL11.glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+
+        GL11.glEnable(GL11.GL_BLEND);
+        GL14.glBlendFuncSeparate(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA,
+                GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    /**
+     * Finishes drawing into this texture, and restores drawing to the screen with the
+     * OpenGL state in effect when {@link #begin(int, int, int, int)} was called
+     */
+
+    public void end()
+    {
+        if (!rendering) throw new IllegalStateException("RenderTexture.end() called without begin()");
+
+        SpriteBatch.flush();
+
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glPopMatrix();
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glPopMatrix();
+
+        EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, 0);
+
+        GL11.glPopAttrib();
+
+        rendering = false;
+    }
+
+    /**
+     * Draws this texture with its top left corner at the specified position, relative
+     * to the current OpenGL matrix
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+
+    public void draw(int x, int y)
+    {
+        SpriteBatch.flush();
+
+        GL11.glPushAttrib(GL11.GL_CURRENT_BIT | GL11.GL_COLOR_BUFFER_BIT);
+        GL11.glBlendFunc(GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+
+        SpriteBatch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+        SpriteBatch.drawQuad(texture, x, y, x + width, y + height,
+                0.0, 0.0, (double)width / textureWidth, (double)height / textureHeight);
+        SpriteBatch.flush();
+
+        GL11.glPopAttrib();
+    }
+
+    /**
+     * Frees the texture and framebuffer used by this RenderTexture.  It may not be
+     * used after this method is called
+     */
+
+    public void dispose()
+    {
+        if (framebuffer != 0) {
+            EXTFramebufferObject.glDeleteFramebuffersEXT(framebuffer);
+            framebuffer = 0;
+        }
+
+        if (texture != 0) {
+            GL11.glDeleteTextures(texture);
+            texture = 0;
+        }
+    }
+
+    private static int nextPowerOfTwo(int value)
+    {
+        int power = 1;
+        while (power < value) {
+            power *= 2;
+        }
+
+        return power;
+    }
+}
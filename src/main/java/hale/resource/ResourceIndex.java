@@ -0,0 +1,278 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single index of the resources in all registered packages, used by the
+ * {@link ResourceManager} so that resolving a resource does not require checking
+ * each package in turn.  Each path is mapped to the package that overrides all others
+ * containing that path, which is the first such package in the package ordering.  The
+ * paths are also arranged in a tree of directories, for finding all resources in a
+ * directory.
+ * <p>
+ * The index is built from the packages when it is created, and is then updated as
+ * individual resources are added to or removed from a package.  It may be read by
+ * multiple threads.
+ */
+
+class ResourceIndex
+{
+    private final List<ResourcePackage> packages;
+    private final Map<ResourcePackage, Integer> ranks;
+
+    private final Map<String, ResourcePackage> owners;
+    private final Directory root;
+
+    private final AtomicLong lookups;
+    private final AtomicLong misses;
+
+    /**
+     * Creates a new index of all the resources in the specified packages, which must be
+     * sorted in their intrinsic ordering
+     *
+     * @param packages the packages to index
+     */
+
+    ResourceIndex(List<ResourcePackage> packages)
+    {
+        this.packages = new ArrayList<ResourcePackage>(packages);
+        this.ranks = new IdentityHashMap<ResourcePackage, Integer>();
+
+        this.owners = new ConcurrentHashMap<String, ResourcePackage>();
+        this.root = new Directory();
+
+        this.lookups = new AtomicLong();
+        this.misses = new AtomicLong();
+
+        for (int i = 0; i < this.packages.size(); i++) {
+            ResourcePackage resourcePackage = this.packages.get(i);
+            ranks.put(resourcePackage, i);
+
+            for (String path : resourcePackage.entries) {
+                if (owners.putIfAbsent(path, resourcePackage) == null) {
+                    root.add(path, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the package that the resource with the specified path is taken from, or
+     * null if no package contains the resource
+     *
+     * @param path the path of the resource
+     * @return the package containing the resource
+     */
+
+    ResourcePackage getPackage(String path)
+    {
+        lookups.incrementAndGet();
+
+        ResourcePackage resourcePackage = owners.get(path);
+        if (resourcePackage == null) misses.incrementAndGet();
+
+        return resourcePackage;
+    }
+
+    /**
+     * Returns all resources contained in the specified directory or any of its
+     * subdirectories.  Resources are ordered by the package they are taken from, in
+     * the package ordering, and then by path.
+     *
+     * @param directory the directory
+     * @return the set of resources in the directory
+     */
+
+    synchronized Set<String> getResourcesIn(String directory)
+    {
+        List<String> paths = new ArrayList<String>();
+
+        Directory parent = root.find(directory.isEmpty() ? new String[0] : directory.split("/"));
+        if (parent != null) parent.collect(paths);
+
+        Collections.sort(paths, new Comparator<String>()
+        {
+            @Override
+            public int compare(String a, String b)
+            {
+                int rankA = ranks.get(owners.get(a));
+                int rankB = ranks.get(owners.get(b));
+
+                if (rankA != rankB) return rankA - rankB;
+
+                return a.compareTo(b);
+            }
+        });
+
+        return new LinkedHashSet<String>(paths);
+    }
+
+    /**
+     * Called after the specified path has been added to the specified package, to
+     * update the index
+     *
+     * @param path            the path that was added
+     * @param resourcePackage the package the path was added to
+     */
+
+    synchronized void resourceAdded(String path, ResourcePackage resourcePackage)
+    {
+        ResourcePackage owner = owners.get(path);
+
+        if (owner == null) {
+            owners.put(path, resourcePackage);
+            root.add(path, 0);
+        } else
+            if (ranks.get(resourcePackage) < ranks.get(owner)) {
+                owners.put(path, resourcePackage);
+            }
+    }
+
+    /**
+     * Called after the specified path has been removed from a package, to update the
+     * index.  The path is then taken from the next package containing it, if any
+     *
+     * @param path the path that was removed
+     */
+
+    synchronized void resourceRemoved(String path)
+    {
+        ResourcePackage owner = null;
+        for (ResourcePackage resourcePackage : packages) {
+            if (resourcePackage.hasResource(path)) {
+                owner = resourcePackage;
+                break;
+            }
+        }
+
+        if (owner != null) {
+            owners.put(path, owner);
+        } else
+            if (owners.remove(path) != null) {
+                root.remove(path, 0);
+            }
+    }
+
+    /**
+     * Returns the total number of resource lookups made with this index
+     *
+     * @return the number of lookups
+     */
+
+    long getLookups()
+    {
+        return lookups.get();
+    }
+
+    /**
+     * Returns the number of resource lookups made with this index that did not find
+     * the resource
+     *
+     * @return the number of lookups of missing resources
+     */
+
+    long getMisses()
+    {
+        return misses.get();
+    }
+
+    /*
+     * A node in the directory tree, holding the paths of the resources directly in the
+     * directory and the subdirectories
+     */
+
+    private static class Directory
+    {
+        private final Map<String, Directory> children = new HashMap<String, Directory>();
+        private final Set<String> files = new TreeSet<String>();
+
+        private void add(String path, int start)
+        {
+            int end = path.indexOf('/', start);
+
+            if (end == -1) {
+                files.add(path);
+            } else {
+                String name = path.substring(start, end);
+
+                Directory child = children.get(name);
+                if (child == null) {
+                    child = new Directory();
+                    children.put(name, child);
+                }
+
+                child.add(path, end + 1);
+            }
+        }
+
+        private boolean remove(String path, int start)
+        {
+            int end = path.indexOf('/', start);
+
+            if (end == -1) {
+                files.remove(path);
+            } else {
+                String name = path.substring(start, end);
+
+                Directory child = children.get(name);
+                if (child != null && child.remove(path, end + 1)) {
+                    children.remove(name);
+                }
+            }
+
+            // returns whether this directory is now empty
+            return files.isEmpty() && children.isEmpty();
+        }
+
+        private Directory find(String[] names)
+        {
+            Directory directory = this;
+
+            for (String name : names) {
+                directory = directory.children.get(name);
+                if (directory == null) return null;
+            }
+
+            return directory;
+        }
+
+        private void collect(List<String> paths)
+        {
+            paths.addAll(files);
+
+            for (Directory child : children.values()) {
+                child.collect(paths);
+            }
+        }
+    }
+}
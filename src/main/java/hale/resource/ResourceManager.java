@@ -26,10 +26,13 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipFile;
 
+import net.minidev.json.JSONObject;
 import hale.Game;
 import hale.util.FileUtil;
+import hale.util.LRUCache;
 import hale.util.Logger;
 
 /**
@@ -39,7 +42,9 @@ import hale.util.Logger;
  * <p>
  * When searching for any resource, the ResourceManager searches in each
  * registered package in the ResourcePackages intrinsic order (based on their
- * PackageType) and returns the first resource found.
+ * PackageType) and returns the first resource found.  The result of this search
+ * for every resource is kept in a single index, which is rebuilt whenever a
+ * package is registered.
  *
  * @author Jared Stephen
  */
@@ -48,10 +53,17 @@ public class ResourceManager
 {
     // Fields
 
-    private static final Map<String, String> cachedFiles = new HashMap<>();
+    private static final long DefaultFileCacheBudget = 16L * 1024L * 1024L;
+
+    // the text of recently read resources, accessed concurrently by loading tasks
+    private static final LRUCache<String, String> cachedFiles = new LRUCache<String, String>(DefaultFileCacheBudget,
+            (path, text) -> 2L * (path.length() + text.length()) + 64L, null);
 
     private static final List<ResourcePackage> packages = new ArrayList<>(2);
 
+    private static volatile ResourceIndex index = new ResourceIndex(packages);
+    private static final AtomicLong resourceVersion = new AtomicLong();
+
     public static List<ResourcePackage> getPackages()
     {
         return packages;
@@ -83,6 +95,8 @@ public class ResourceManager
         for (ResourcePackage resourcePackage : packages) {
             if (resourcePackage.getType() == PackageType.Campaign) {
                 resourcePackage.removeResource(path);
+                index.resourceRemoved(path);
+                resourceVersion.incrementAndGet();
                 break;
             }
         }
@@ -102,6 +116,8 @@ public class ResourceManager
         for (ResourcePackage resourcePackage : packages) {
             if (resourcePackage.getType() == PackageType.Campaign) {
                 resourcePackage.addResource(path);
+                index.resourceAdded(path, resourcePackage);
+                resourceVersion.incrementAndGet();
                 break;
             }
         }
@@ -181,8 +197,8 @@ public class ResourceManager
     /**
      * Searches for packages based on the ID of Game.curCampaign.
      * If a directory package is found, it is created and added to the Manager.
-     * If no directory package is found and a zip package is found, it is
-     * created and added to the manager.
+     * If no directory package is found and a resource pack or zip package is found,
+     * it is created and added to the manager, with the resource pack preferred.
      * <p>
      * If no package is found, an exception is thrown and no packages are created
      * <p>
@@ -192,28 +208,36 @@ public class ResourceManager
     public static void registerCampaignPackage()
     {
         String directoryPath = "campaigns/" + Game.curCampaign.getID();
+        String packPath = directoryPath + ResourceType.Pack.getExtension();
         String zipPath = directoryPath + ResourceType.Zip.getExtension();
 
         File directoryFile = getFileFromResource(directoryPath);
+        File packFile = new File(packPath);
+        File zipFile = new File(zipPath);
         if (directoryFile.exists() && directoryFile.isDirectory()) {
             removePackageOfType(PackageType.Campaign);
             registerPackage(directoryFile, PackageType.Campaign);
-        } else {
-            File zipFile = new File(zipPath);
-            if (zipFile.exists()) {
+        } else
+            if (packFile.exists()) {
                 removePackageOfType(PackageType.Campaign);
-                registerPackage(zipFile, PackageType.Campaign);
-            } else {
-                throw new IllegalStateException("Package could not be found at " + directoryPath + " or " + zipPath);
-            }
-        }
+                registerPackage(packFile, PackageType.Campaign);
+            } else
+                if (zipFile.exists()) {
+                    removePackageOfType(PackageType.Campaign);
+                    registerPackage(zipFile, PackageType.Campaign);
+                } else {
+                    throw new IllegalStateException("Package could not be found at " + directoryPath + ", " +
+                            packPath + ", or " + zipPath);
+                }
 
         cachedFiles.clear();
     }
 
     /**
-     * Searches for directory package "core" and zip package "core.zip" and creates
-     * either or both if they are found.  Created packages are registered with the Manager.
+     * Searches for directory package "core", resource pack "core.pack", and zip package
+     * "core.zip" and creates any of them that are found.  Created packages are registered
+     * with the Manager.  Resources are taken from the directory first, then the resource
+     * pack, and then the zip package.
      * <p>
      * Registering a package also clears any cached resources.
      */
@@ -221,6 +245,7 @@ public class ResourceManager
     public static void registerCorePackage()
     {
         final String directoryPath = "core";
+        final String packPath = directoryPath + ResourceType.Pack.getExtension();
         final String zipPath = directoryPath + ResourceType.Zip.getExtension();
 
         final File directoryFile = getFileFromResource(directoryPath);
@@ -229,6 +254,12 @@ public class ResourceManager
             registerPackage(directoryFile, PackageType.CoreDirectory);
         }
 
+        File packFile = new File(packPath);
+        if (packFile.exists()) {
+            removePackageOfType(PackageType.CorePack);
+            registerPackage(packFile, PackageType.CorePack);
+        }
+
         File zipFile = new File(zipPath);
         if (zipFile.exists()) {
             removePackageOfType(PackageType.CoreZip);
@@ -241,6 +272,9 @@ public class ResourceManager
     private static void removePackageOfType(PackageType type)
     {
         packages.removeIf(resourcePackage -> resourcePackage.getType() == type);
+
+        index = new ResourceIndex(packages);
+        resourceVersion.incrementAndGet();
     }
 
     private static void registerPackage(final File file, final PackageType type)
@@ -250,13 +284,20 @@ public class ResourceManager
         } else
             if (file.isFile()) {
                 try {
-                    packages.add(new ZipResourcePackage(new ZipFile(file), type));
+                    if (file.getName().endsWith(ResourceType.Pack.getExtension())) {
+                        packages.add(new PackedResourcePackage(file, type));
+                    } else {
+                        packages.add(new ZipResourcePackage(new ZipFile(file), type));
+                    }
                 } catch (Exception e) {
                     Logger.appendToErrorLog("Error reading package from " + file.getName(), e);
                 }
             }
 
         Collections.sort(packages);
+
+        index = new ResourceIndex(packages);
+        resourceVersion.incrementAndGet();
     }
 
     /**
@@ -271,14 +312,7 @@ public class ResourceManager
 
     public static Set<String> getResourcesInDirectory(String directory)
     {
-        Set<String> resources = new LinkedHashSet<>();
-
-        for (ResourcePackage resourcePackage : packages) {
-            Set<String> resourcesInPackage = resourcePackage.getResourcesIn(directory);
-            if (resourcesInPackage != null) resources.addAll(resourcesInPackage);
-        }
-
-        return resources;
+        return index.getResourcesIn(directory);
     }
 
     /**
@@ -299,6 +333,7 @@ public class ResourceManager
             // only use Core ZIP and Core directory packages
             switch (resourcePackage.getType()) {
                 case CoreZip:
+                case CorePack:
                 case CoreDirectory:
                     break;
                 default:
@@ -322,13 +357,7 @@ public class ResourceManager
 
     public static boolean hasResource(final String path)
     {
-        for (ResourcePackage resourcePackage : packages) {
-            if (resourcePackage.hasResource(path)) {
-                return true;
-            }
-        }
-
-        return false;
+        return index.getPackage(path) != null;
     }
 
     /**
@@ -382,13 +411,41 @@ public class ResourceManager
 
     public static InputStream getStream(String path)
     {
-        for (ResourcePackage resourcePackage : packages) {
-            if (resourcePackage.hasResource(path)) {
-                return resourcePackage.getStream(path);
-            }
-        }
+        ResourcePackage resourcePackage = index.getPackage(path);
 
-        return null;
+        return resourcePackage == null ? null : resourcePackage.getStream(path);
+    }
+
+    /**
+     * Returns the already parsed contents of the first JSON resource found in any registered
+     * package with the specified path, if that package stores JSON resources in parsed form.
+     * See {@link ResourcePackage#getParsedJSON(String)}
+     *
+     * @param path the path of the resource to find
+     * @return the parsed root object of the resource, or null if the resource must be parsed
+     */
+
+    public static JSONObject getParsedJSON(String path)
+    {
+        ResourcePackage resourcePackage = index.getPackage(path);
+
+        return resourcePackage == null ? null : resourcePackage.getParsedJSON(path);
+    }
+
+    /**
+     * Returns the already decoded pixels of the first image resource found in any registered
+     * package with the specified path, if that package stores images in decoded form.
+     * See {@link ResourcePackage#getDecodedImage(String)}
+     *
+     * @param path the path of the resource to find
+     * @return the decoded pixels of the image, or null if the image must be decoded
+     */
+
+    public static DecodedImage getDecodedImage(String path)
+    {
+        ResourcePackage resourcePackage = index.getPackage(path);
+
+        return resourcePackage == null ? null : resourcePackage.getDecodedImage(path);
     }
 
     /**
@@ -428,13 +485,9 @@ public class ResourceManager
 
     public static String getPackageIDOfResource(String path)
     {
-        for (ResourcePackage resourcePackage : packages) {
-            if (resourcePackage.hasResource(path)) {
-                return resourcePackage.getType().toString();
-            }
-        }
+        ResourcePackage resourcePackage = index.getPackage(path);
 
-        return null;
+        return resourcePackage == null ? null : resourcePackage.getType().toString();
     }
 
     /**
@@ -448,11 +501,46 @@ public class ResourceManager
 
     public static PackageType getPackageTypeOfResource(String path)
     {
-        for (ResourcePackage resourcePackage : packages) {
-            if (resourcePackage.hasResource(path)) return resourcePackage.getType();
-        }
+        ResourcePackage resourcePackage = index.getPackage(path);
 
-        return null;
+        return resourcePackage == null ? null : resourcePackage.getType();
+    }
+
+    /**
+     * Returns a number which changes whenever the set of available resources changes,
+     * either by registering a package or by adding or removing a campaign resource.  Any
+     * information cached about which resources exist must be discarded when this changes.
+     *
+     * @return the current version of the set of resources
+     */
+
+    public static long getResourceVersion()
+    {
+        return resourceVersion.get();
+    }
+
+    /**
+     * Returns the total number of lookups of a resource by path since packages were
+     * last registered
+     *
+     * @return the number of resource lookups
+     */
+
+    public static long getResourceLookups()
+    {
+        return index.getLookups();
+    }
+
+    /**
+     * Returns the number of lookups of a resource by path, since packages were last
+     * registered, for which the resource did not exist
+     *
+     * @return the number of lookups of missing resources
+     */
+
+    public static long getResourceLookupMisses()
+    {
+        return index.getMisses();
     }
 
     /**
@@ -486,6 +574,31 @@ public class ResourceManager
         return getResourceAsString(path + type.getExtension());
     }
 
+    /**
+     * Sets the total size of the resource text that is cached by
+     * {@link #getResourceAsString(String)}.  Once the cache is full, the least
+     * recently used text is discarded.
+     *
+     * @param budget the size of the cache in bytes
+     */
+
+    public static void setFileCacheBudget(long budget)
+    {
+        cachedFiles.setBudget(budget);
+    }
+
+    /**
+     * Returns the cache of resource text read by {@link #getResourceAsString(String)},
+     * which may be used to report the cache size and hit rate
+     *
+     * @return the resource text cache
+     */
+
+    public static LRUCache<String, String> getFileCache()
+    {
+        return cachedFiles;
+    }
+
     /**
      * Returns the contents of the resource at the specified path
      * as a String.  Results are cached when possible for faster lookup.
@@ -496,15 +609,12 @@ public class ResourceManager
 
     public static String getResourceAsString(String path)
     {
-        if (cachedFiles.containsKey(path)) {
-            return cachedFiles.get(path);
-        }
+        String cached = cachedFiles.get(path);
+        if (cached != null) return cached;
 
+        // missing resources are not cached, as the resource index already finds them quickly
         InputStream in = getStream(path);
-        if (in == null) {
-            cachedFiles.put(path, null);
-            return null;
-        }
+        if (in == null) return null;
 
         String resource = getResourceAsString(in);
         cachedFiles.put(path, resource);
@@ -527,6 +637,7 @@ public class ResourceManager
             // only use Core ZIP and Core directory packages
             switch (resourcePackage.getType()) {
                 case CoreZip:
+                case CorePack:
                 case CoreDirectory:
                     break;
                 default:
@@ -0,0 +1,97 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.resource;
+
+/**
+ * The constants describing the resource pack format, written by {@link ResourcePacker}
+ * and read by {@link PackedResourcePackage}.  A resource pack holds all of the resources
+ * of a single package in one file, preprocessed so that they can be used directly from a
+ * memory mapping of the file.  All integers are 4 bytes, big endian, and all offsets are
+ * from the start of the file.
+ * <p>
+ * The file starts with a header of the 4 byte {@link #Magic} number, the 4 byte
+ * {@link #Version}, the number of entries, and the number of slots in the path index.
+ * <p>
+ * The path index follows the header.  It is an open addressing hash table, with one integer
+ * for each slot.  An empty slot holds 0, and any other slot holds the index of an entry plus
+ * one.  An entry is found by starting at the slot given by the {@link String#hashCode()} of
+ * its path, masked by the number of slots (which is always a power of two), and checking
+ * each following slot until the entry or an empty slot is found.
+ * <p>
+ * The entry table follows the path index, with {@link #EntrySize} bytes per entry, holding
+ * in order: the hash code of the path, the offset and length in bytes of the UTF-8 path,
+ * the entry kind, the width and height of a decoded image, the offset and length of the
+ * original contents of the resource, and the offset and length of the preprocessed contents.
+ * The paths and the contents of all entries follow the entry table.  The preprocessed contents
+ * depend on the kind of the entry:
+ * <ul>
+ * <li>{@link #KindRaw} entries have no preprocessed contents</li>
+ * <li>{@link #KindJSON} entries hold the parsed root object of the JSON resource in the binary
+ * format described by {@link hale.loading.BinarySaveFormat}</li>
+ * <li>{@link #KindImage} entries hold the decoded RGBA pixels of the image, in the form
+ * that is uploaded to OpenGL</li>
+ * </ul>
+ */
+
+public class ResourcePackFormat
+{
+    /**
+     * The first four bytes of a resource pack
+     */
+
+    public static final int Magic = 0x4850414B;
+
+    /**
+     * The current version of the resource pack format.  This must be incremented whenever
+     * the format changes
+     */
+
+    public static final int Version = 1;
+
+    /**
+     * The size in bytes of the header
+     */
+
+    public static final int HeaderSize = 16;
+
+    /**
+     * The size in bytes of each entry in the entry table
+     */
+
+    public static final int EntrySize = 40;
+
+    /**
+     * An entry holding only the original contents of the resource
+     */
+
+    public static final int KindRaw = 0;
+
+    /**
+     * An entry for a JSON resource, which also holds the parsed JSON data
+     */
+
+    public static final int KindJSON = 1;
+
+    /**
+     * An entry for a PNG image, which also holds the decoded pixels
+     */
+
+    public static final int KindImage = 2;
+}
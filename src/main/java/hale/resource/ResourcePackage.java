@@ -4,6 +4,8 @@ import java.io.InputStream;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import net.minidev.json.JSONObject;
+
 /**
  * A set of Strings representing the locations of resources.  The resources themselves can
  * be contained in a directory structure or compressed archive.
@@ -89,6 +91,35 @@ public abstract class ResourcePackage implements Comparable<ResourcePackage>
 
     public abstract InputStream getStream(String path);
 
+    /**
+     * Returns the already parsed contents of the JSON resource at the specified path, if
+     * this package stores JSON resources in parsed form.  Otherwise, returns null, and
+     * the resource must be parsed from the stream returned by {@link #getStream(String)}.
+     * A new object is returned by each call, so it may be modified by the caller.
+     *
+     * @param path the path of the resource
+     * @return the parsed root object of the resource, or null
+     */
+
+    public JSONObject getParsedJSON(String path)
+    {
+        return null;
+    }
+
+    /**
+     * Returns the already decoded pixels of the image resource at the specified path, if
+     * this package stores images in decoded form.  Otherwise, returns null, and the image
+     * must be decoded from the stream returned by {@link #getStream(String)}
+     *
+     * @param path the path of the resource
+     * @return the decoded pixels of the image, or null
+     */
+
+    public DecodedImage getDecodedImage(String path)
+    {
+        return null;
+    }
+
     /**
      * Returns the PackageType of this ResourcePackage
      *
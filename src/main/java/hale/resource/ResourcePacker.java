@@ -0,0 +1,333 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.minidev.json.JSONObject;
+import net.minidev.json.parser.JSONParser;
+import de.matthiasmann.twl.utils.PNGDecoder;
+import hale.loading.BinarySaveWriter;
+import hale.util.FileUtil;
+
+/**
+ * The offline build step creating resource packs, which are read by
+ * {@link PackedResourcePackage}.  All files in a package directory are written to a single
+ * resource pack file, along with a hashed index of their paths.  JSON files are parsed and
+ * stored in binary form, and PNG images are decoded and stored as RGBA pixels, so that
+ * neither needs to be parsed or decoded when the resources are used.  See
+ * {@link ResourcePackFormat} for a description of the file.
+ * <p>
+ * Packs are created from the command line with the package directory and the pack file,
+ * for example "core core.pack".  The pack for a campaign is placed next to the campaign
+ * directory or zip file, as "campaigns/[campaign ID].pack".
+ */
+
+public class ResourcePacker
+{
+    private final File root;
+
+    private final List<Entry> entries;
+
+    /**
+     * Creates packs from the command line.  The arguments are the directory to pack
+     * and the resource pack file to create
+     *
+     * @param args the command line arguments
+     */
+
+    public static void main(String[] args)
+    {
+        if (args.length != 2) {
+            System.err.println("Usage: ResourcePacker <package directory> <pack file>");
+            System.exit(1);
+        }
+
+        try {
+            ResourcePacker packer = new ResourcePacker(new File(args[0]));
+            packer.write(new File(args[1]));
+
+            System.out.println("Packed " + packer.entries.size() + " resources from " + args[0] + " into " + args[1]);
+
+        } catch (IOException e) {
+            System.err.println("Error creating resource pack " + args[1]);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Creates a new ResourcePacker for all files in the specified package directory.  The
+     * files are read and preprocessed when the pack is written.
+     *
+     * @param root the package directory
+     */
+
+    public ResourcePacker(File root)
+    {
+        this.root = root;
+        this.entries = new ArrayList<Entry>();
+
+        for (File file : FileUtil.getFiles(root)) {
+            if (file.isDirectory()) continue;
+
+            if (file.getPath().contains(".svn")) continue;
+
+            entries.add(new Entry(FileUtil.getRelativePath(root, file)));
+        }
+
+        // resources in the same directory are usually read together, so keep them together in the file
+        Collections.sort(entries);
+    }
+
+    /**
+     * Writes the resource pack to the specified file, replacing any existing file
+     *
+     * @param file the file to write
+     * @throws IOException if an error occurs reading a resource or writing the file, or
+     *                     the resources are too large to be stored in a single pack
+     */
+
+    public void write(File file) throws IOException
+    {
+        int slotCount = 1;
+        while (slotCount < entries.size() * 2) {
+            slotCount *= 2;
+        }
+
+        long offset = ResourcePackFormat.HeaderSize + 4L * slotCount +
+                (long)ResourcePackFormat.EntrySize * entries.size();
+
+        for (Entry entry : entries) {
+            entry.pathOffset = offset;
+            offset += entry.pathBytes.length;
+        }
+
+        // the header, path index, entry table, and paths, which are written once all offsets are known
+        long indexSize = offset;
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(0L);
+            FileChannel channel = out.getChannel();
+
+            for (Entry entry : entries) {
+                entry.read();
+
+                entry.dataOffset = offset;
+                offset = writeBytes(channel, entry.data, offset);
+
+                entry.extraOffset = offset;
+                offset = writeBytes(channel, entry.extra, offset);
+
+                // the contents are no longer needed once written
+                entry.data = null;
+                entry.extra = null;
+            }
+
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("Resources in " + root.getPath() + " are too large for a single pack.");
+            }
+
+            ByteBuffer index = ByteBuffer.allocate((int)indexSize);
+            index.putInt(ResourcePackFormat.Magic);
+            index.putInt(ResourcePackFormat.Version);
+            index.putInt(entries.size());
+            index.putInt(slotCount);
+
+            int[] slots = new int[slotCount];
+            for (int i = 0; i < entries.size(); i++) {
+                int slot = entries.get(i).hash & (slotCount - 1);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & (slotCount - 1);
+                }
+
+                slots[slot] = i + 1;
+            }
+
+            for (int slot : slots) {
+                index.putInt(slot);
+            }
+
+            for (Entry entry : entries) {
+                index.putInt(entry.hash);
+                index.putInt((int)entry.pathOffset);
+                index.putInt(entry.pathBytes.length);
+                index.putInt(entry.kind);
+                index.putInt(entry.width);
+                index.putInt(entry.height);
+                index.putInt((int)entry.dataOffset);
+                index.putInt(entry.dataLength);
+                index.putInt((int)entry.extraOffset);
+                index.putInt(entry.extraLength);
+            }
+
+            for (Entry entry : entries) {
+                index.put(entry.pathBytes);
+            }
+
+            index.flip();
+            writeBytes(channel, index, 0L);
+
+        } finally {
+            out.close();
+        }
+    }
+
+    /*
+     * A single resource in the pack, along with its preprocessed contents
+     */
+
+    private class Entry implements Comparable<Entry>
+    {
+        private final String path;
+        private final byte[] pathBytes;
+        private final int hash;
+
+        private int kind;
+        private int width, height;
+
+        private byte[] data;
+        private byte[] extra;
+        private int dataLength, extraLength;
+
+        private long pathOffset, dataOffset, extraOffset;
+
+        private Entry(String path)
+        {
+            this.path = path;
+            this.pathBytes = path.getBytes(StandardCharsets.UTF_8);
+            this.hash = path.hashCode();
+        }
+
+        /*
+         * Reads the contents of this resource and preprocesses them based on the file type
+         */
+
+        private void read() throws IOException
+        {
+            data = Files.readAllBytes(new File(root, path).toPath());
+            dataLength = data.length;
+
+            kind = ResourcePackFormat.KindRaw;
+
+            if (path.endsWith(ResourceType.JSON.getExtension())) {
+                extra = parseJSON();
+                if (extra != null) kind = ResourcePackFormat.KindJSON;
+            } else
+                if (path.endsWith(ResourceType.PNG.getExtension())) {
+                    extra = decodePNG();
+                    if (extra != null) kind = ResourcePackFormat.KindImage;
+                }
+
+            extraLength = extra == null ? 0 : extra.length;
+        }
+
+        /*
+         * Parses the JSON in the same way as SimpleJSONParser.  Returns null if the
+         * resource is not a JSON object, in which case it is only stored as text
+         */
+
+        private byte[] parseJSON() throws IOException
+        {
+            JSONParser parser = new JSONParser(JSONParser.MODE_PERMISSIVE);
+
+            Object root;
+            try {
+                root = parser.parse(new InputStreamReader(new ByteArrayInputStream(data)));
+            } catch (Exception e) {
+                System.err.println("Storing " + path + " as text, it could not be parsed: " + e.getMessage());
+                return null;
+            }
+
+            if (!(root instanceof JSONObject)) return null;
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            BinarySaveWriter writer = new BinarySaveWriter(bytes);
+            writer.write((JSONObject)root);
+            writer.close();
+
+            return bytes.toByteArray();
+        }
+
+        /*
+         * Decodes the PNG in the same way as SpriteManager.  Returns null if the PNG uses a
+         * format not supported by the decoder, in which case it is only stored encoded
+         */
+
+        private byte[] decodePNG() throws IOException
+        {
+            try {
+                PNGDecoder decoder = new PNGDecoder(new ByteArrayInputStream(data));
+
+                width = decoder.getWidth();
+                height = decoder.getHeight();
+
+                ByteBuffer pixels = ByteBuffer.allocate(width * height * 4);
+                decoder.decode(pixels, width * 4, PNGDecoder.Format.RGBA);
+
+                return pixels.array();
+
+            } catch (UnsupportedOperationException e) {
+                width = 0;
+                height = 0;
+                return null;
+            }
+        }
+
+        @Override
+        public int compareTo(Entry other)
+        {
+            return path.compareTo(other.path);
+        }
+    }
+
+    private static long writeBytes(FileChannel channel, byte[] bytes, long offset) throws IOException
+    {
+        if (bytes == null) return offset;
+
+        return writeBytes(channel, ByteBuffer.wrap(bytes), offset);
+    }
+
+    private static long writeBytes(FileChannel channel, ByteBuffer bytes, long offset) throws IOException
+    {
+        while (bytes.hasRemaining()) {
+            offset += channel.write(bytes, offset);
+        }
+
+        return offset;
+    }
+}
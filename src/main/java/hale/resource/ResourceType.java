@@ -37,6 +37,7 @@ public enum ResourceType
     JSON(".json"),
     HTML(".html"),
     Zip(".zip"),
+    Pack(".pack"),
     SaveGame(".json.gz");
 
     private final String extension;
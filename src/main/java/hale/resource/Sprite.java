@@ -31,6 +31,9 @@ import org.lwjgl.opengl.GL11;
 
 public class Sprite
 {
+    // the number of texture binds performed by Sprites since the last reset, on the OpenGL thread
+    private static int textureBinds;
+
     private int textureReference;
 
     private final int width;
@@ -79,6 +82,20 @@ public class Sprite
         this.texCoordEndY = texCoordEndY;
     }
 
+    /**
+     * Returns the number of texture binds performed by drawing Sprites since the last
+     * call to this method, and resets the count to zero
+     *
+     * @return the number of texture binds
+     */
+
+    static int getAndResetTextureBinds()
+    {
+        int binds = textureBinds;
+        textureBinds = 0;
+        return binds;
+    }
+
     /**
      * This method should only be called by the AsyncTextureLoader.  Calling it
      * anywhere else is not recommended.
@@ -210,6 +227,7 @@ public class Sprite
     public final void draw(int x, int y)
     {
         GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureReference);
+        textureBinds++;
 
         GL11.glBegin(GL11.GL_QUADS);
 
@@ -241,6 +259,7 @@ public class Sprite
     public final void draw(int x, int y, int w, int h)
     {
         GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureReference);
+        textureBinds++;
 
         GL11.glBegin(GL11.GL_QUADS);
 
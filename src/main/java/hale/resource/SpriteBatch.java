@@ -0,0 +1,415 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.resource;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
+
+import de.matthiasmann.twl.Color;
+
+/**
+ * Draws textured quads in batches using vertex arrays, rather than issuing immediate
+ * mode calls for each quad.  Quads are accumulated in a direct buffer along with their
+ * primary and secondary colors, and the batch is drawn with a single call whenever the
+ * texture changes, the buffer is full, or the batch is flushed or ended.  Quads are always
+ * drawn in the order they were added.
+ * <p>
+ * Batching is active between calls to {@link #begin()} and {@link #end()}.  While active,
+ * any code that draws directly with OpenGL, or changes OpenGL state such as the blending
+ * function or the current matrix, must call {@link #flush()} first.  While not active, the
+ * drawing methods of this class draw immediately, so they may be used from code that is
+ * called both inside and outside of a batch.
+ * <p>
+ * This class may only be used from the OpenGL thread.
+ */
+
+public class SpriteBatch
+{
+    private static final int MaxQuads = 2048;
+
+    // x, y, u, v, r, g, b, a, r2, g2, b2, and one unused float for alignment
+    static final int FloatsPerVertex = 12;
+    private static final int Stride = FloatsPerVertex * 4;
+
+    private static final FloatBuffer vertices = BufferUtils.createFloatBuffer(MaxQuads * 4 * FloatsPerVertex);
+
+    private static int depth;
+    private static int quadCount;
+    private static int texture;
+
+    private static float r = 1.0f, g = 1.0f, b = 1.0f, a = 1.0f;
+    private static float r2, g2, b2;
+
+    private static int drawCalls;
+
+    private SpriteBatch()
+    {
+    }
+
+    /**
+     * Begins batching.  Calls to this method may be nested, in which case batching ends
+     * when the outermost {@link #end()} is called.  The batch starts with an opaque white
+     * primary color and a black secondary color.  The current OpenGL colors are not read back,
+     * as that would stall the pipeline, so any other colors must be set on the batch with
+     * {@link #setColor(float, float, float, float)} and {@link #setSecondaryColor(float, float, float)}.
+     */
+
+    public static void begin()
+    {
+        depth++;
+        if (depth > 1) return;
+
+        r = 1.0f;
+        g = 1.0f;
+        b = 1.0f;
+        a = 1.0f;
+
+        r2 = 0.0f;
+        g2 = 0.0f;
+        b2 = 0.0f;
+
+        quadCount = 0;
+    }
+
+    /**
+     * Ends batching, drawing any pending quads.  The current OpenGL colors are set to the
+     * last colors set on this batch
+     */
+
+    public static void end()
+    {
+        if (depth == 0) throw new IllegalStateException("SpriteBatch.end() called without begin()");
+
+        depth--;
+        if (depth > 0) return;
+
+        flush();
+
+        GL11.glColor4f(r, g, b, a);
+        GL14.glSecondaryColor3f(r2, g2, b2);
+    }
+
+    /**
+     * Returns true if batching is currently active
+     *
+     * @return whether batching is active
+     */
+
+    public static boolean isActive()
+    {
+        return depth > 0;
+    }
+
+    /**
+     * Draws all pending quads
+     */
+
+    public static void flush()
+    {
+        if (quadCount == 0) return;
+
+        GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glEnableClientState(GL14.GL_SECONDARY_COLOR_ARRAY);
+
+        vertices.position(0);
+        GL11.glVertexPointer(2, Stride, vertices);
+        vertices.position(2);
+        GL11.glTexCoordPointer(2, Stride, vertices);
+        vertices.position(4);
+        GL11.glColorPointer(4, Stride, vertices);
+        vertices.position(8);
+        GL14.glSecondaryColorPointer(3, Stride, vertices);
+        vertices.position(0);
+
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        GL11.glDrawArrays(GL11.GL_QUADS, 0, quadCount * 4);
+
+        GL11.glDisableClientState(GL14.GL_SECONDARY_COLOR_ARRAY);
+        GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+
+        quadCount = 0;
+        drawCalls++;
+    }
+
+    /**
+     * Sets the primary color used for subsequently drawn quads
+     *
+     * @param red   the red component, from 0.0 to 1.0
+     * @param green the green component, from 0.0 to 1.0
+     * @param blue  the blue component, from 0.0 to 1.0
+     * @param alpha the alpha component, from 0.0 to 1.0
+     */
+
+    public static void setColor(float red, float green, float blue, float alpha)
+    {
+        r = red;
+        g = green;
+        b = blue;
+        a = alpha;
+
+        if (depth == 0) GL11.glColor4f(red, green, blue, alpha);
+    }
+
+    /**
+     * Sets the primary color used for subsequently drawn quads
+     *
+     * @param color the color
+     */
+
+    public static void setColor(Color color)
+    {
+        setColor(color.getRedFloat(), color.getGreenFloat(), color.getBlueFloat(), color.getAlphaFloat());
+    }
+
+    /**
+     * Sets the secondary color, added to the texture color, used for subsequently drawn quads
+     *
+     * @param red   the red component, from 0.0 to 1.0
+     * @param green the green component, from 0.0 to 1.0
+     * @param blue  the blue component, from 0.0 to 1.0
+     */
+
+    public static void setSecondaryColor(float red, float green, float blue)
+    {
+        r2 = red;
+        g2 = green;
+        b2 = blue;
+
+        if (depth == 0) GL14.glSecondaryColor3f(red, green, blue);
+    }
+
+    /**
+     * Draws the specified sprite at its natural size
+     *
+     * @param sprite the sprite to draw
+     * @param x      the x coordinate relative to the current OpenGL matrix
+     * @param y      the y coordinate relative to the current OpenGL matrix
+     */
+
+    public static void draw(Sprite sprite, int x, int y)
+    {
+        draw(sprite, x, y, sprite.getWidth(), sprite.getHeight());
+    }
+
+    /**
+     * Draws the specified sprite stretched to the specified size
+     *
+     * @param sprite the sprite to draw
+     * @param x      the x coordinate relative to the current OpenGL matrix
+     * @param y      the y coordinate relative to the current OpenGL matrix
+     * @param w      the width to stretch to
+     * @param h      the height to stretch to
+     */
+
+    public static void draw(Sprite sprite, int x, int y, int w, int h)
+    {
+        if (depth == 0) {
+            sprite.draw(x, y, w, h);
+            return;
+        }
+
+        drawQuad(sprite.getTextureReference(), x, y, x + w, y + h, sprite.getTexCoordStartX(),
+                sprite.getTexCoordStartY(), sprite.getTexCoordEndX(), sprite.getTexCoordEndY());
+    }
+
+    /**
+     * Draws a quad with the specified texture coordinates
+     *
+     * @param texture the OpenGL texture to draw from
+     * @param x1      the left screen coordinate
+     * @param y1      the top screen coordinate
+     * @param x2      the right screen coordinate
+     * @param y2      the bottom screen coordinate
+     * @param u1      the left texture coordinate
+     * @param v1      the top texture coordinate
+     * @param u2      the right texture coordinate
+     * @param v2      the bottom texture coordinate
+     */
+
+    public static void drawQuad(int texture, float x1, float y1, float x2, float y2,
+                                double u1, double v1, double u2, double v2)
+    {
+        boolean immediate = depth == 0;
+        if (immediate) begin();
+
+        int index = startQuad(texture);
+
+        index = putVertex(index, x1, y1, (float)u1, (float)v1);
+        index = putVertex(index, x2, y1, (float)u2, (float)v1);
+        index = putVertex(index, x2, y2, (float)u2, (float)v2);
+        putVertex(index, x1, y2, (float)u1, (float)v2);
+
+        if (immediate) end();
+    }
+
+    /**
+     * Draws a quad rotated about the specified origin, with the specified texture coordinates.
+     * The quad is positioned relative to the origin and then rotated, in the same way as
+     * drawing the quad after calling glTranslatef and glRotatef.
+     *
+     * @param texture the OpenGL texture to draw from
+     * @param originX the x coordinate of the origin
+     * @param originY the y coordinate of the origin
+     * @param degrees the rotation in degrees
+     * @param x1      the left coordinate, relative to the origin
+     * @param y1      the top coordinate, relative to the origin
+     * @param x2      the right coordinate, relative to the origin
+     * @param y2      the bottom coordinate, relative to the origin
+     * @param u1      the left texture coordinate
+     * @param v1      the top texture coordinate
+     * @param u2      the right texture coordinate
+     * @param v2      the bottom texture coordinate
+     */
+
+    public static void drawRotatedQuad(int texture, float originX, float originY, float degrees,
+                                       float x1, float y1, float x2, float y2,
+                                       double u1, double v1, double u2, double v2)
+    {
+        if (degrees == 0.0f) {
+            drawQuad(texture, originX + x1, originY + y1, originX + x2, originY + y2, u1, v1, u2, v2);
+            return;
+        }
+
+        boolean immediate = depth == 0;
+        if (immediate) begin();
+
+        double radians = Math.toRadians(degrees);
+        float cos = (float)Math.cos(radians);
+        float sin = (float)Math.sin(radians);
+
+        int index = startQuad(texture);
+
+        index = putVertex(index, originX + x1 * cos - y1 * sin, originY + x1 * sin + y1 * cos, (float)u1, (float)v1);
+        index = putVertex(index, originX + x2 * cos - y1 * sin, originY + x2 * sin + y1 * cos, (float)u2, (float)v1);
+        index = putVertex(index, originX + x2 * cos - y2 * sin, originY + x2 * sin + y2 * cos, (float)u2, (float)v2);
+        putVertex(index, originX + x1 * cos - y2 * sin, originY + x1 * sin + y2 * cos, (float)u1, (float)v2);
+
+        if (immediate) end();
+    }
+
+    /**
+     * Draws the specified range of quads from the specified cache.  The cached vertex
+     * data is copied into the batch as is, in the order it was added to the cache
+     *
+     * @param cache     the cache to draw from
+     * @param startQuad the index of the first quad to draw
+     * @param endQuad   the index after the last quad to draw
+     */
+
+    public static void draw(SpriteCache cache, int startQuad, int endQuad)
+    {
+        if (startQuad == endQuad) return;
+
+        boolean immediate = depth == 0;
+        if (immediate) begin();
+
+        float[] data = cache.getVertices();
+        int floatsPerQuad = 4 * FloatsPerVertex;
+
+        int quad = startQuad;
+        while (quad < endQuad) {
+            // find the run of quads sharing a texture
+            int runTexture = cache.getSprite(quad).getTextureReference();
+            int runEnd = quad + 1;
+            while (runEnd < endQuad && cache.getSprite(runEnd).getTextureReference() == runTexture) {
+                runEnd++;
+            }
+
+            while (quad < runEnd) {
+                if (quadCount > 0 && (runTexture != texture || quadCount == MaxQuads)) {
+                    flush();
+                }
+
+                texture = runTexture;
+
+                int count = Math.min(runEnd - quad, MaxQuads - quadCount);
+
+                vertices.position(quadCount * floatsPerQuad);
+                vertices.put(data, quad * floatsPerQuad, count * floatsPerQuad);
+                vertices.position(0);
+
+                quadCount += count;
+                quad += count;
+            }
+        }
+
+        if (immediate) end();
+    }
+
+    /**
+     * Returns the number of draw calls issued by this batch since the last call to
+     * this method, and resets the count to zero
+     *
+     * @return the number of draw calls
+     */
+
+    public static int getAndResetDrawCalls()
+    {
+        int calls = drawCalls;
+        drawCalls = 0;
+        return calls;
+    }
+
+    /*
+     * Reserves space for a new quad with the specified texture, flushing first if needed.
+     * Returns the buffer index of the first vertex of the quad
+     */
+
+    private static int startQuad(int newTexture)
+    {
+        if (quadCount > 0 && (newTexture != texture || quadCount == MaxQuads)) {
+            flush();
+        }
+
+        texture = newTexture;
+        quadCount++;
+
+        return (quadCount - 1) * 4 * FloatsPerVertex;
+    }
+
+    /*
+     * Writes a vertex with the current colors at the specified buffer index, and returns
+     * the index of the next vertex
+     */
+
+    private static int putVertex(int index, float x, float y, float u, float v)
+    {
+        vertices.put(index, x);
+        vertices.put(index + 1, y);
+        vertices.put(index + 2, u);
+        vertices.put(index + 3, v);
+        vertices.put(index + 4, r);
+        vertices.put(index + 5, g);
+        vertices.put(index + 6, b);
+        vertices.put(index + 7, a);
+        vertices.put(index + 8, r2);
+        vertices.put(index + 9, g2);
+        vertices.put(index + 10, b2);
+
+        return index + FloatsPerVertex;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.resource;
+
+import java.util.Arrays;
+
+/**
+ * A set of sprite quads whose vertex data is computed once and then drawn any number
+ * of times via {@link SpriteBatch#draw(SpriteCache, int, int)}.  Drawing a cache copies
+ * its vertex data directly into the batch, rather than computing each quad again.
+ * <p>
+ * Cached quads are always drawn untinted, with a white primary color and no secondary
+ * color.  The texture of each quad is looked up from its sprite when it is drawn, so a
+ * cache remains valid when a sprite's texture finishes loading after the cache is built.
+ */
+
+public class SpriteCache
+{
+    private static final int FloatsPerQuad = 4 * SpriteBatch.FloatsPerVertex;
+
+    private float[] vertices;
+    private Sprite[] sprites;
+    private int quadCount;
+
+    /**
+     * Creates a new, empty SpriteCache
+     */
+
+    public SpriteCache()
+    {
+        this.vertices = new float[16 * FloatsPerQuad];
+        this.sprites = new Sprite[16];
+    }
+
+    /**
+     * Adds the specified sprite at its natural size to the end of this cache
+     *
+     * @param sprite the sprite to add
+     * @param x      the x coordinate relative to the OpenGL matrix when the cache is drawn
+     * @param y      the y coordinate relative to the OpenGL matrix when the cache is drawn
+     */
+
+    public void add(Sprite sprite, int x, int y)
+    {
+        if (quadCount == sprites.length) {
+            sprites = Arrays.copyOf(sprites, quadCount * 2);
+            vertices = Arrays.copyOf(vertices, quadCount * 2 * FloatsPerQuad);
+        }
+
+        int x2 = x + sprite.getWidth();
+        int y2 = y + sprite.getHeight();
+
+        float u1 = (float)sprite.getTexCoordStartX();
+        float v1 = (float)sprite.getTexCoordStartY();
+        float u2 = (float)sprite.getTexCoordEndX();
+        float v2 = (float)sprite.getTexCoordEndY();
+
+        int index = quadCount * FloatsPerQuad;
+        index = putVertex(index, x, y, u1, v1);
+        index = putVertex(index, x2, y, u2, v1);
+        index = putVertex(index, x2, y2, u2, v2);
+        putVertex(index, x, y2, u1, v2);
+
+        sprites[quadCount] = sprite;
+        quadCount++;
+    }
+
+    /**
+     * Releases any unused space at the end of this cache.  Should be called once all
+     * quads have been added
+     */
+
+    public void trim()
+    {
+        sprites = Arrays.copyOf(sprites, quadCount);
+        vertices = Arrays.copyOf(vertices, quadCount * FloatsPerQuad);
+    }
+
+    /**
+     * Returns the number of quads that have been added to this cache
+     *
+     * @return the number of quads
+     */
+
+    public int getQuadCount()
+    {
+        return quadCount;
+    }
+
+    /**
+     * Returns the number of bytes of vertex data held by this cache
+     *
+     * @return the size of the vertex data in bytes
+     */
+
+    public long getMemoryUsage()
+    {
+        return vertices.length * 4L;
+    }
+
+    final Sprite getSprite(int quad)
+    {
+        return sprites[quad];
+    }
+
+    final float[] getVertices()
+    {
+        return vertices;
+    }
+
+    private int putVertex(int index, float x, float y, float u, float v)
+    {
+        vertices[index] = x;
+        vertices[index + 1] = y;
+        vertices[index + 2] = u;
+        vertices[index + 3] = v;
+
+        // white primary color, no secondary color
+        vertices[index + 4] = 1.0f;
+        vertices[index + 5] = 1.0f;
+        vertices[index + 6] = 1.0f;
+        vertices[index + 7] = 1.0f;
+
+        return index + SpriteBatch.FloatsPerVertex;
+    }
+}
@@ -20,17 +20,25 @@
 package hale.resource;
 
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
 
@@ -41,6 +49,8 @@ import hale.util.SimpleJSONArrayEntry;
 import hale.util.SimpleJSONObject;
 import hale.util.SimpleJSONParser;
 
+import de.matthiasmann.twl.utils.PNGDecoder;
+
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 
@@ -53,10 +63,27 @@ import org.lwjgl.opengl.GL11;
 
 public class SpriteManager
 {
-    private final static Map<String, Sprite> sprites = new HashMap<String, Sprite>();
-    private final static Map<String, Sprite> spriteSheets = new HashMap<String, Sprite>();
+    private final static Map<String, Sprite> sprites = new ConcurrentHashMap<String, Sprite>();
+    private final static Map<String, Sprite> spriteSheets = new ConcurrentHashMap<String, Sprite>();
+
+    private final static Map<String, BufferedImage> sourceImages = new ConcurrentHashMap<String, BufferedImage>();
+
+    private final static TextureAtlas atlas = new TextureAtlas();
+
+    // images being decoded ahead of time by the decoder threads
+    private final static Map<String, Future<ByteBufferSized>> pendingDecodes =
+            new ConcurrentHashMap<String, Future<ByteBufferSized>>();
+
+    private final static ExecutorService decoder = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), new DecoderThreadFactory());
 
-    private final static Map<String, BufferedImage> sourceImages = new HashMap<String, BufferedImage>();
+    // the resource ID found for each sprite ID looked up with any extension, or NoSprite if none exists
+    private final static Map<String, String> resolvedSpriteIDs = new ConcurrentHashMap<String, String>();
+    private final static String NoSprite = "";
+    private static volatile long resolvedResourceVersion;
+
+    private static int textureBindsLastFrame;
+    private static int drawCallsLastFrame;
 
     private static boolean saveSourceImages = false;
 
@@ -129,7 +156,7 @@ public class SpriteManager
         // category is a mapping between source, and reference.
         String category = parser.get("category", null);
         String mapping = category != null ? category : source;
-        pixelData = SpriteManager.loadPixels(parent + "/" + source + ".png");
+        pixelData = SpriteManager.loadPixels(getSpriteSheetImage(resource, source));
         Sprite spriteSheet = new Sprite(0, pixelData.width, pixelData.height);
         spritesToLoad.add(spriteSheet);
 
@@ -190,6 +217,9 @@ public class SpriteManager
         }
         spriteSheets.put(reference, spriteSheet);
 
+        // the sprites in the sheet may previously have been looked up and not found
+        resolvedSpriteIDs.clear();
+
         return images;
     }
 
@@ -273,11 +303,27 @@ public class SpriteManager
 
     public static final Sprite getSpriteAnyExtension(String ref)
     {
-        Sprite sprite = SpriteManager.getImage("images/" + ref + ResourceType.PNG.getExtension());
-        if (sprite != null) return sprite;
+        long resourceVersion = ResourceManager.getResourceVersion();
+        if (resourceVersion != resolvedResourceVersion) {
+            resolvedSpriteIDs.clear();
+            resolvedResourceVersion = resourceVersion;
+        }
 
-        sprite = SpriteManager.getImage("images/" + ref + ResourceType.JPEG.getExtension());
-        return sprite;
+        String resourceID = resolvedSpriteIDs.computeIfAbsent(ref, SpriteManager::resolveSpriteID);
+        if (resourceID == NoSprite) return null;
+
+        return SpriteManager.getImage(resourceID);
+    }
+
+    private static String resolveSpriteID(String ref)
+    {
+        String png = "images/" + ref + ResourceType.PNG.getExtension();
+        if (sprites.containsKey(png) || ResourceManager.hasResource(png)) return png;
+
+        String jpeg = "images/" + ref + ResourceType.JPEG.getExtension();
+        if (sprites.containsKey(jpeg) || ResourceManager.hasResource(jpeg)) return jpeg;
+
+        return NoSprite;
     }
 
     /**
@@ -331,17 +377,123 @@ public class SpriteManager
 
     public static final Sprite getImage(String ref)
     {
-        if (!sprites.containsKey(ref)) {
-            if (ResourceManager.hasResource(ref)) {
-                sprites.put(ref, SpriteManager.loadImage(ref));
+        Sprite sprite = sprites.get(ref);
+
+        if (sprite == null && ResourceManager.hasResource(ref)) {
+            // the pixels are decoded without holding any lock, so loaders of other images are not blocked
+            sprite = loadImage(ref, loadPixels(ref));
+        }
+
+        return sprite;
+    }
+
+    /**
+     * Starts decoding the image at the specified resource ID on a background thread, if it
+     * is not already loaded or being decoded.  A later request for the image waits for the
+     * decode to complete rather than decoding the image again.  This should be called for
+     * images which are expected to be needed soon, so that they are not decoded on the
+     * thread which needs them.
+     *
+     * @param ref the resource ID of the image
+     */
+
+    public static void prefetchImage(String ref)
+    {
+        if (sprites.containsKey(ref) || pendingDecodes.containsKey(ref) || !ResourceManager.hasResource(ref)) {
+            return;
+        }
+
+        pendingDecodes.computeIfAbsent(ref, key -> decoder.submit(() -> decodePrefetched(key)));
+    }
+
+    /**
+     * Starts decoding the image for the specified Sprite ID on a background thread.  See
+     * {@link #prefetchImage(String)} and {@link #getSprite(String)}
+     *
+     * @param ref the Sprite ID
+     */
+
+    public static void prefetchSprite(String ref)
+    {
+        prefetchImage("images/" + ref + ResourceType.PNG.getExtension());
+    }
+
+    /**
+     * Starts decoding the image for the SpriteSheet at the specified location on a background
+     * thread.  The SpriteSheet itself is still read by {@link #readSpriteSheet(String)}, which
+     * will then use the decoded image.
+     *
+     * @param resource the resource ID of the SpriteSheet
+     */
+
+    public static void prefetchSpriteSheet(String resource)
+    {
+        SimpleJSONParser parser = new SimpleJSONParser(resource);
+        String source = parser.get("source", null);
+
+        String parent = new File(resource).getParent().replace('\\', '/');
+        if (spriteSheets.containsKey(parent + "/" + source)) return;
+
+        prefetchImage(getSpriteSheetImage(resource, source));
+    }
+
+    private static String getSpriteSheetImage(String resource, String source)
+    {
+        String parent = new File(resource).getParent().replace('\\', '/');
+
+        return parent + "/" + source + ResourceType.PNG.getExtension();
+    }
+
+    // decodes a prefetched image, unless it was loaded by another thread in the meantime
+    private static ByteBufferSized decodePrefetched(String ref)
+    {
+        if (sprites.containsKey(ref)) {
+            pendingDecodes.remove(ref);
+            return null;
+        }
+
+        return decodePixels(ref);
+    }
+
+    /*
+     * Returns the decoded pixels of the specified image, waiting for the decode if the
+     * image has been prefetched, and otherwise decoding it on the calling thread
+     */
+
+    private static ByteBufferSized loadPixels(String ref)
+    {
+        Future<ByteBufferSized> decode = pendingDecodes.remove(ref);
+
+        if (decode != null) {
+            try {
+                ByteBufferSized buffer = decode.get();
+                if (buffer != null) return buffer;
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // the failure has already been logged by the decoding thread
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
             }
         }
 
-        return sprites.get(ref);
+        return decodePixels(ref);
     }
 
-    private static final ByteBufferSized loadPixels(String ref)
+    private static ByteBufferSized decodePixels(String ref)
     {
+        if (!saveSourceImages) {
+            // resource packs store images already decoded, and the pixels are used in place
+            DecodedImage image = ResourceManager.getDecodedImage(ref);
+            if (image != null) return new ByteBufferSized(image.getPixels(), image.getWidth(), image.getHeight());
+        }
+
+        // the PNG decoder writes directly into the buffer passed to OpenGL, with no intermediate copies
+        if (!saveSourceImages && ref.endsWith(ResourceType.PNG.getExtension())) {
+            ByteBufferSized buffer = decodePNG(ref);
+            if (buffer != null) return buffer;
+        }
+
         BufferedImage sourceImage = null;
         // read the image
         try {
@@ -361,30 +513,83 @@ public class SpriteManager
         sourceImage.getRGB(0, 0, sourceImage.getWidth(), sourceImage.getHeight(), rgb, 0, sourceImage.getWidth());
 
         // convert the rgb data to the appropriate format for OpenGL use
-        byte[] src = new byte[rgb.length * 4];
+        ByteBuffer pixels = BufferUtils.createByteBuffer(rgb.length * 4);
         for (int i = 0; i < rgb.length; i++) {
-            src[4 * i + 3] = (byte)(rgb[i] >>> 24);
-            src[4 * i + 0] = (byte)(rgb[i] >>> 16);
-            src[4 * i + 1] = (byte)(rgb[i] >>> 8);
-            src[4 * i + 2] = (byte)rgb[i];
+            pixels.put((byte)(rgb[i] >>> 16));
+            pixels.put((byte)(rgb[i] >>> 8));
+            pixels.put((byte)rgb[i]);
+            pixels.put((byte)(rgb[i] >>> 24));
         }
-
-        ByteBuffer pixels = (ByteBuffer)BufferUtils.createByteBuffer(src.length).put(src).flip();
+        pixels.flip();
 
         ByteBufferSized buffer = new ByteBufferSized(pixels, sourceImage.getWidth(), sourceImage.getHeight());
         return buffer;
     }
 
-    private static final Sprite loadImage(String ref)
+    /*
+     * Decodes the specified PNG directly into RGBA pixels.  Returns null if the PNG
+     * uses a format not supported by the decoder, in which case it must be read by ImageIO
+     */
+
+    private static ByteBufferSized decodePNG(String ref)
     {
-        ByteBufferSized buffer = SpriteManager.loadPixels(ref);
+        InputStream in = ResourceManager.getStream(ref);
+        if (in == null) return null;
 
-        Sprite sprite = new Sprite(0, buffer.width, buffer.height);
-        List<Sprite> sprites = Collections.singletonList(sprite);
+        try {
+            PNGDecoder decoder = new PNGDecoder(new BufferedInputStream(in));
 
-        // load the texture asynchronously
-        Game.textureLoader.loadTexture(buffer.pixels, buffer.width, buffer.height, sprites);
-        return sprite;
+            int width = decoder.getWidth();
+            int height = decoder.getHeight();
+
+            ByteBuffer pixels = BufferUtils.createByteBuffer(width * height * 4);
+            decoder.decode(pixels, width * 4, PNGDecoder.Format.RGBA);
+            pixels.flip();
+
+            return new ByteBufferSized(pixels, width, height);
+
+        } catch (UnsupportedOperationException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                Logger.appendToErrorLog("Error closing image: " + ref, e);
+            }
+        }
+    }
+
+    /*
+     * Creates and publishes the Sprite for the specified decoded image.  If another thread
+     * decoded the same image concurrently, its Sprite is returned instead.  Publishing is
+     * guarded by the atlas, so an image is never packed or uploaded twice
+     */
+
+    private static final Sprite loadImage(String ref, ByteBufferSized buffer)
+    {
+        synchronized (atlas) {
+            Sprite existing = sprites.get(ref);
+            if (existing != null) return existing;
+
+            Sprite sprite;
+
+            // small images share texture pages
+            if (atlas.canPack(buffer.width, buffer.height)) {
+                sprite = atlas.add(buffer.pixels, buffer.width, buffer.height);
+            } else {
+                sprite = new Sprite(0, buffer.width, buffer.height);
+
+                // load the texture asynchronously
+                Game.textureLoader.loadTexture(buffer.pixels, buffer.width, buffer.height,
+                        Collections.singletonList(sprite));
+            }
+
+            sprites.putIfAbsent(ref, sprite);
+
+            return sprite;
+        }
     }
 
     /**
@@ -398,12 +603,21 @@ public class SpriteManager
         Set<Integer> deletedTextures = new HashSet<Integer>();
 
         // free up all texture memory
+        for (Sprite page : atlas.getPageSprites()) {
+            Integer texture = page.getTextureReference();
+            if (!deletedTextures.contains(texture)) {
+                deleteTexture(texture);
+                deletedTextures.add(texture);
+            }
+        }
+        atlas.clear();
+
         for (String id : spriteSheets.keySet()) {
             Sprite spriteSheet = spriteSheets.get(id);
 
             Integer texture = spriteSheet.getTextureReference();
             if (!deletedTextures.contains(texture)) {
-                GL11.glDeleteTextures(texture);
+                deleteTexture(texture);
                 deletedTextures.add(texture);
             }
         }
@@ -413,18 +627,36 @@ public class SpriteManager
 
             Integer texture = sprite.getTextureReference();
             if (!deletedTextures.contains(texture)) {
-                GL11.glDeleteTextures(texture);
+                deleteTexture(texture);
                 deletedTextures.add(texture);
             }
         }
 
         sprites.clear();
         spriteSheets.clear();
+        resolvedSpriteIDs.clear();
+
+        cancelPrefetches();
+    }
+
+    /**
+     * Cancels all image decodes started by the prefetch methods that have not yet been
+     * used, freeing any pixels they have already decoded.  This should be called when the
+     * images that were prefetched are no longer expected to be needed.
+     */
+
+    public static void cancelPrefetches()
+    {
+        for (Future<ByteBufferSized> decode : pendingDecodes.values()) {
+            decode.cancel(false);
+        }
+        pendingDecodes.clear();
     }
 
     /**
      * Frees the texture used by this Sprite and removes all Sprites and Spritesheets in the
-     * SpriteManager that reference that texture
+     * SpriteManager that reference that texture.  If the Sprite is packed into a shared
+     * atlas page, only the Sprite itself is removed and the page texture is kept.
      *
      * @param spriteToDelete the Sprite who's texture is to be deleted
      */
@@ -432,6 +664,13 @@ public class SpriteManager
     public static void freeTexture(Sprite spriteToDelete)
     {
         int texture = spriteToDelete.getTextureReference();
+
+        // a texture that has not been uploaded yet may not be shared with other sprites
+        if (atlas.contains(spriteToDelete) || texture == 0) {
+            sprites.values().removeAll(Collections.singleton(spriteToDelete));
+            return;
+        }
+
         GL11.glDeleteTextures(texture);
 
         Iterator<String> iter = spriteSheets.keySet().iterator();
@@ -453,6 +692,12 @@ public class SpriteManager
         }
     }
 
+    // textures are only created once uploaded, which never happens in a headless simulation
+    private static void deleteTexture(int texture)
+    {
+        if (texture != 0) GL11.glDeleteTextures(texture);
+    }
+
     /**
      * Computes the total size in bytes of all currently loaded sprites and spritesheets.
      * Does not include memory used by the GUI toolkit TWL.
@@ -466,6 +711,16 @@ public class SpriteManager
 
         Set<Integer> texturesAlreadyCounted = new HashSet<Integer>();
 
+        for (Sprite page : atlas.getPageSprites()) {
+            Integer textureID = page.getTextureReference();
+
+            if (texturesAlreadyCounted.contains(textureID)) continue;
+
+            texturesAlreadyCounted.add(textureID);
+
+            total += page.getWidth() * page.getHeight() * 4;
+        }
+
         for (String id : spriteSheets.keySet()) {
             Sprite spriteSheet = spriteSheets.get(id);
 
@@ -495,6 +750,64 @@ public class SpriteManager
         return total;
     }
 
+    /**
+     * Returns the number of shared texture pages that small images have been packed into
+     *
+     * @return the number of atlas pages
+     */
+
+    public static int getAtlasPageCount()
+    {
+        return atlas.getPageCount();
+    }
+
+    /**
+     * Returns the number of texture binds performed while drawing Sprites in the
+     * previous frame, including one bind for each batch drawn by the SpriteBatch
+     *
+     * @return the number of texture binds in the previous frame
+     */
+
+    public static int getTextureBindsLastFrame()
+    {
+        return textureBindsLastFrame;
+    }
+
+    /**
+     * Returns the number of batches drawn by the SpriteBatch in the previous frame
+     *
+     * @return the number of batched draw calls in the previous frame
+     */
+
+    public static int getDrawCallsLastFrame()
+    {
+        return drawCallsLastFrame;
+    }
+
+    /**
+     * Marks the start of a new frame for the purposes of the texture bind statistics.
+     * Should be called once per frame by the main OpenGL thread
+     */
+
+    public static void beginFrame()
+    {
+        drawCallsLastFrame = SpriteBatch.getAndResetDrawCalls();
+        textureBindsLastFrame = Sprite.getAndResetTextureBinds() + drawCallsLastFrame;
+    }
+
+    private static class DecoderThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "SpriteDecoder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
     private static class ByteBufferSized
     {
         private ByteBuffer pixels;
@@ -0,0 +1,215 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.resource;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import hale.Game;
+
+/**
+ * Packs small, individually loaded images into shared texture pages, so that drawing
+ * many of them does not require a separate texture for each.  Images are placed on
+ * each page in rows (shelves), with a one pixel gap between images.  Space on a page
+ * is not reclaimed when an image is freed; pages are only freed when the atlas is
+ * cleared.
+ * <p>
+ * This class is thread safe.  Texture uploads are queued with the AsyncTextureLoader.
+ */
+
+class TextureAtlas
+{
+    /**
+     * The width and height of each texture page
+     */
+
+    static final int PageSize = 1024;
+
+    /**
+     * Images larger than this in either dimension are not packed
+     */
+
+    static final int MaxImageSize = 256;
+
+    private static final int Padding = 1;
+
+    private final List<Page> pages;
+    private final Set<Sprite> packedSprites;
+
+    /**
+     * Creates a new, empty atlas
+     */
+
+    TextureAtlas()
+    {
+        pages = new ArrayList<Page>();
+        packedSprites = Collections.newSetFromMap(new IdentityHashMap<Sprite, Boolean>());
+    }
+
+    /**
+     * Returns true if an image of the specified size will be packed by this atlas
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @return whether the image can be packed
+     */
+
+    boolean canPack(int width, int height)
+    {
+        return width <= MaxImageSize && height <= MaxImageSize;
+    }
+
+    /**
+     * Adds the specified image to this atlas, and queues its pixels for upload into
+     * the page texture.  The returned sprite's texture will be set once the page has
+     * been uploaded.
+     *
+     * @param pixels the RGBA pixel data for the image
+     * @param width  the image width
+     * @param height the image height
+     * @return the sprite referencing the image within its page
+     */
+
+    synchronized Sprite add(ByteBuffer pixels, int width, int height)
+    {
+        if (!canPack(width, height)) {
+            throw new IllegalArgumentException("Image of size " + width + "x" + height + " is too large to pack");
+        }
+
+        Page page = null;
+        int[] position = null;
+
+        if (!pages.isEmpty()) {
+            page = pages.get(pages.size() - 1);
+            position = page.allocate(width, height);
+        }
+
+        if (position == null) {
+            page = new Page();
+            pages.add(page);
+            position = page.allocate(width, height);
+
+            Game.textureLoader.loadTexture(null, PageSize, PageSize, Collections.singletonList(page.sprite));
+        }
+
+        double size = PageSize;
+        Sprite sprite = new Sprite(0, width, height, position[0] / size, position[1] / size,
+                (position[0] + width) / size, (position[1] + height) / size);
+        packedSprites.add(sprite);
+
+        Game.textureLoader.loadSubTexture(page.sprite, pixels, position[0], position[1], width, height,
+                Collections.singletonList(sprite));
+
+        return sprite;
+    }
+
+    /**
+     * Returns true if the specified sprite was packed into this atlas
+     *
+     * @param sprite the sprite to check
+     * @return whether the sprite is part of this atlas
+     */
+
+    synchronized boolean contains(Sprite sprite)
+    {
+        return packedSprites.contains(sprite);
+    }
+
+    /**
+     * Returns the sprites representing each full page of this atlas
+     *
+     * @return the list of page sprites
+     */
+
+    synchronized List<Sprite> getPageSprites()
+    {
+        List<Sprite> sprites = new ArrayList<Sprite>(pages.size());
+        for (Page page : pages) {
+            sprites.add(page.sprite);
+        }
+
+        return sprites;
+    }
+
+    /**
+     * Returns the number of texture pages in this atlas
+     *
+     * @return the number of pages
+     */
+
+    synchronized int getPageCount()
+    {
+        return pages.size();
+    }
+
+    /**
+     * Removes all pages and sprites from this atlas.  The page textures are not freed
+     * by this method
+     */
+
+    synchronized void clear()
+    {
+        pages.clear();
+        packedSprites.clear();
+    }
+
+    private static class Page
+    {
+        private final Sprite sprite;
+
+        private int shelfX, shelfY;
+        private int shelfHeight;
+
+        private Page()
+        {
+            sprite = new Sprite(0, PageSize, PageSize);
+        }
+
+        /*
+         * Returns the position of the allocated space as {x, y}, or null if there is no room
+         */
+
+        private int[] allocate(int width, int height)
+        {
+            int paddedWidth = width + Padding;
+            int paddedHeight = height + Padding;
+
+            // start a new shelf if this image doesn't fit on the current one
+            if (shelfX + paddedWidth > PageSize) {
+                shelfY += shelfHeight;
+                shelfX = 0;
+                shelfHeight = 0;
+            }
+
+            if (shelfY + paddedHeight > PageSize) return null;
+
+            int[] position = new int[]{shelfX, shelfY};
+
+            shelfX += paddedWidth;
+            shelfHeight = Math.max(shelfHeight, paddedHeight);
+
+            return position;
+        }
+    }
+}
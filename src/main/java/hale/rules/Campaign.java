@@ -20,8 +20,10 @@
 package hale.rules;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -46,12 +48,14 @@ import hale.entity.PC;
 import hale.loading.JSONOrderedObject;
 import hale.loading.LoadGameException;
 import hale.loading.ReferenceHandler;
+import hale.loading.SaveSegmentStore;
 import hale.resource.ResourceManager;
 import hale.resource.ResourceType;
 import hale.resource.Sprite;
 import hale.resource.SpriteManager;
 import hale.tileset.Tileset;
 import hale.util.FileUtil;
+import hale.util.LRUCache;
 import hale.util.Logger;
 import hale.util.Point;
 import hale.util.PointImmutable;
@@ -82,7 +86,11 @@ public class Campaign
     private final List<Faction.CustomRelationship> customRelationships;
     private final Map<String, Merchant> merchants;
     private final Map<String, Transition> transitions;
-    private final Map<String, Area> areas;
+    private final LRUCache<String, Area> areas;
+
+    // the segment holding the save data for each area that has been unloaded to save memory
+    private final Map<String, String> unloadedAreas;
+    private long areaMemoryBudget;
 
     public Party party;
     public final Currency partyCurrency;
@@ -100,6 +108,19 @@ public class Campaign
      */
 
     public JSONOrderedObject getSaveGameData()
+    {
+        return getSaveGameData(true);
+    }
+
+    /**
+     * Gets a JSONObject with the save game data from this campaign.  If the loaded areas are
+     * not included, they must be saved separately, as segments in the {@link SaveSegmentStore}
+     *
+     * @param includeAreas whether to include the save data for each loaded area
+     * @return the JSONObject
+     */
+
+    public JSONOrderedObject getSaveGameData(boolean includeAreas)
     {
         JSONOrderedObject data = new JSONOrderedObject();
 
@@ -114,13 +135,24 @@ public class Campaign
 
         data.put("party", party.save());
 
-        Object[] areasData = new Object[areas.size()];
         int i = 0;
-        for (String areaID : areas.keySet()) {
-            areasData[i] = areas.get(areaID).save();
-            i++;
+        if (includeAreas) {
+            List<Object> areasData = new ArrayList<Object>();
+            for (Area area : areas.values()) {
+                areasData.add(area.save());
+            }
+
+            SaveSegmentStore store = new SaveSegmentStore(id);
+            for (String segment : unloadedAreas.values()) {
+                try {
+                    areasData.add(store.readData(segment));
+                } catch (IOException e) {
+                    Logger.appendToErrorLog("Error reading unloaded area segment " + segment, e);
+                }
+            }
+
+            data.put("loadedAreas", areasData.toArray());
         }
-        data.put("loadedAreas", areasData);
 
         if (createdItems.size() > 0) {
             Object[] createdItemsData = new Object[createdItems.size()];
@@ -205,13 +237,37 @@ public class Campaign
             }
         }
 
+        // all areas in the save are loaded, and are only unloaded again once all references are resolved
+        areas.setBudget(Long.MAX_VALUE);
         areas.clear();
-        SimpleJSONArray loadedAreas = data.getArray("loadedAreas");
-        for (SimpleJSONArrayEntry entry : loadedAreas) {
-            SimpleJSONObject areaData = entry.getObject();
+        clearUnloadedAreas();
+
+        if (data.containsKey(SaveSegmentStore.SegmentsKey)) {
+            // each area is saved in a separate segment
+            SaveSegmentStore store = new SaveSegmentStore(id);
+
+            for (SimpleJSONArrayEntry entry : data.getArray(SaveSegmentStore.SegmentsKey)) {
+                String segment = entry.getString();
+
+                SimpleJSONObject areaData;
+                try {
+                    areaData = store.read(segment).getObject();
+                } catch (IOException e) {
+                    Logger.appendToErrorLog("Error reading area segment " + segment, e);
+                    throw new LoadGameException("Unable to read area segment " + segment);
+                }
+
+                Area area = Area.load(areaData, refHandler);
+                areas.put(area.getID(), area);
+            }
+        } else {
+            SimpleJSONArray loadedAreas = data.getArray("loadedAreas");
+            for (SimpleJSONArrayEntry entry : loadedAreas) {
+                SimpleJSONObject areaData = entry.getObject();
 
-            Area area = Area.load(areaData, refHandler);
-            areas.put(area.getID(), area);
+                Area area = Area.load(areaData, refHandler);
+                areas.put(area.getID(), area);
+            }
         }
 
         this.party = Party.load(data.getObject("party"), refHandler);
@@ -271,6 +327,8 @@ public class Campaign
         }
 
         refHandler.resolveAllReferences();
+
+        areas.setBudget(areaMemoryBudget);
     }
 
     public void readCampaignFile()
@@ -342,7 +400,10 @@ public class Campaign
     {
         this.id = id;
         name = "";
-        areas = new HashMap<String, Area>();
+        areaMemoryBudget = Long.MAX_VALUE;
+        areas = new LRUCache<String, Area>(areaMemoryBudget, (areaID, area) -> area.getEstimatedMemoryUsage(),
+                this::unloadArea);
+        unloadedAreas = new HashMap<String, String>();
         transitions = new HashMap<String, Transition>();
         party = new Party();
         encounterTemplates = new HashMap<String, EncounterTemplate>();
@@ -513,6 +574,16 @@ public class Campaign
             return;
         }
 
+        // start decoding the images for the new area while the party is moved, dropping any
+        // images prefetched for an earlier transition which were never used
+        SpriteManager.cancelPrefetches();
+
+        Area nextArea = getArea(endPoint.getAreaID());
+        if (nextArea != null) {
+            getTileset(nextArea.getTileset()).prefetchTiles();
+            nextArea.getEntities().prefetchSprites();
+        }
+
         Creature mainMover = Game.curCampaign.party.getSelected();
 
         List<AbilitySlot> canceledAuraSlots = new ArrayList<AbilitySlot>();
@@ -614,15 +685,34 @@ public class Campaign
     public void removeArea(String id)
     {
         areas.remove(id);
+
+        String segment = unloadedAreas.remove(id);
+        if (segment != null) new SaveSegmentStore(this.id).unpin(segment);
     }
 
+    /**
+     * Returns the area with the specified ID, loading it if it is not already loaded.
+     * If the area was previously unloaded to save memory, it is reloaded from its saved
+     * state.  Since the caller may modify the area, its save data is marked as changed
+     *
+     * @param ref the ID of the area
+     * @return the area, or null if it could not be loaded
+     */
+
     public Area getArea(String ref)
     {
         Area area = areas.get(ref);
 
+        if (area != null) area.markSaveDataChanged();
+
         if (area == null) {
             try {
-                area = new Area(ref);
+                if (unloadedAreas.containsKey(ref)) {
+                    area = reloadArea(ref);
+                } else {
+                    area = new Area(ref);
+                }
+
                 areas.put(ref, area);
             } catch (Exception e) {
                 Logger.appendToErrorLog("Error loading area " + ref, e);
@@ -632,6 +722,94 @@ public class Campaign
         return area;
     }
 
+    /**
+     * Sets the estimated total memory that loaded areas may use.  Once this is exceeded,
+     * the least recently used areas are written to disk and unloaded, and are then
+     * reloaded when next requested with {@link #getArea(String)}.  Only areas for which
+     * {@link Area#canBeUnloaded()} is true, other than the current area, are unloaded.
+     * By default, the budget is unlimited.
+     *
+     * @param budget the memory budget in bytes
+     */
+
+    public void setAreaMemoryBudget(long budget)
+    {
+        this.areaMemoryBudget = budget;
+
+        areas.setBudget(budget);
+    }
+
+    /**
+     * Returns the cache holding the loaded areas, which may be used to report the memory
+     * used by areas and the number of areas that have been unloaded
+     *
+     * @return the area cache
+     */
+
+    public LRUCache<String, Area> getAreaCache()
+    {
+        return areas;
+    }
+
+    /**
+     * Returns the segments holding the save data for all areas that have been unloaded
+     * to save memory.  Saves must include these segments in addition to the loaded areas.
+     *
+     * @return the segments for all unloaded areas
+     */
+
+    public Collection<String> getUnloadedAreaSegments()
+    {
+        return new ArrayList<String>(unloadedAreas.values());
+    }
+
+    /*
+     * Called by the area cache when the area is to be evicted.  The area is written to
+     * a pinned segment, so the segment is kept until the area is reloaded
+     */
+
+    private boolean unloadArea(String ref, Area area)
+    {
+        if (area == curArea || !area.canBeUnloaded()) return false;
+
+        try {
+            String segment = new SaveSegmentStore(id).writePinned((JSONOrderedObject)area.save());
+            unloadedAreas.put(ref, segment);
+
+            return true;
+        } catch (IOException e) {
+            Logger.appendToErrorLog("Error unloading area " + ref, e);
+
+            return false;
+        }
+    }
+
+    private Area reloadArea(String ref) throws IOException, LoadGameException
+    {
+        SaveSegmentStore store = new SaveSegmentStore(id);
+        String segment = unloadedAreas.get(ref);
+
+        // the area can hold no references to anything outside it, so it is loaded on its own
+        ReferenceHandler refHandler = new ReferenceHandler();
+        Area area = Area.load(store.read(segment).getObject(), refHandler);
+        refHandler.resolveAllReferences();
+
+        unloadedAreas.remove(ref);
+        store.unpin(segment);
+
+        return area;
+    }
+
+    private void clearUnloadedAreas()
+    {
+        SaveSegmentStore store = new SaveSegmentStore(id);
+        for (String segment : unloadedAreas.values()) {
+            store.unpin(segment);
+        }
+
+        unloadedAreas.clear();
+    }
+
     public void loadAreaTransitions()
     {
         transitions.clear();
@@ -781,6 +959,18 @@ public class Campaign
         return id;
     }
 
+    /**
+     * Returns all areas that have been loaded in this campaign.  The returned collection
+     * is unmodifiable
+     *
+     * @return the loaded areas
+     */
+
+    public Collection<Area> getLoadedAreas()
+    {
+        return Collections.unmodifiableCollection(areas.values());
+    }
+
     public String getName()
     {
         return name;
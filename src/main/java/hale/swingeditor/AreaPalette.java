@@ -317,7 +317,7 @@ public class AreaPalette extends JPanel implements AreaRenderer.ViewHandler
         public void leftClicked(int x, int y, int r)
         {
             for (PointImmutable p : area.getPoints(x, y, r)) {
-                area.getPassability()[p.x][p.y] = true;
+                area.getPassability().set(p.x, p.y, true);
             }
         }
 
@@ -325,7 +325,7 @@ public class AreaPalette extends JPanel implements AreaRenderer.ViewHandler
         public void rightClicked(int x, int y, int r)
         {
             for (PointImmutable p : area.getPoints(x, y, r)) {
-                area.getPassability()[p.x][p.y] = false;
+                area.getPassability().set(p.x, p.y, false);
             }
         }
     }
@@ -336,7 +336,7 @@ public class AreaPalette extends JPanel implements AreaRenderer.ViewHandler
         public void leftClicked(int x, int y, int r)
         {
             for (PointImmutable p : area.getPoints(x, y, r)) {
-                area.getTransparency()[p.x][p.y] = true;
+                area.getTransparency().set(p.x, p.y, true);
             }
         }
 
@@ -344,7 +344,7 @@ public class AreaPalette extends JPanel implements AreaRenderer.ViewHandler
         public void rightClicked(int x, int y, int r)
         {
             for (PointImmutable p : area.getPoints(x, y, r)) {
-                area.getTransparency()[p.x][p.y] = false;
+                area.getTransparency().set(p.x, p.y, false);
             }
         }
     }
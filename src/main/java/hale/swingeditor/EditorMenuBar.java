@@ -39,7 +39,6 @@ import hale.area.Area;
 import hale.loading.SaveWriter;
 import hale.resource.ResourceType;
 import hale.resource.SpriteManager;
-import hale.util.AreaUtil;
 import hale.util.FileUtil;
 import hale.util.Logger;
 
@@ -270,7 +269,7 @@ public class EditorMenuBar extends JMenuBar
             SpriteManager.setSaveSourceImages(true);
 
             Area area = Game.curCampaign.getArea(areaID);
-            AreaUtil.setMatrix(area.getExplored(), true);
+            area.getExplored().setAll(true);
 
             AreaRenderer viewer = new AreaRenderer(area, frame.getOpenGLCanvas());
             frame.setAreaViewer(viewer);
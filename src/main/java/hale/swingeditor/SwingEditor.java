@@ -75,7 +75,7 @@ public class SwingEditor extends JFrame implements ComponentListener
         // create the basic objects used by the campaign editor
         Game.textureLoader = new AsyncTextureLoader();
         Game.config = new Config(Game.plataform.getConfigDirectory() + "config.json");
-        Game.scriptEngineManager = new JSEngineManager();
+        Game.scriptEngineManager = new JSEngineManager(Game.config.getMaxScriptEngines());
         Game.dice = new Dice();
 
         ResourceManager.registerCorePackage();
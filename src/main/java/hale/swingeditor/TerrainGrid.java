@@ -392,7 +392,7 @@ public class TerrainGrid
 
         if (area.getElevationGrid().getElevation(x, y) != 0) passable = false;
 
-        area.getPassability()[x][y] = passable;
+        area.getPassability().set(x, y, passable);
 
         // set transparency
         boolean transparent = true;
@@ -403,7 +403,7 @@ public class TerrainGrid
 
         if (area.getElevationGrid().getElevation(x, y) > 0) transparent = false;
 
-        area.getTransparency()[x][y] = transparent;
+        area.getTransparency().set(x, y, transparent);
     }
 
     private void setTerrain(int x, int y, TerrainType type)
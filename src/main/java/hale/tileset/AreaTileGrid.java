@@ -28,6 +28,7 @@ import de.matthiasmann.twl.AnimationState;
 import hale.Game;
 import hale.area.Area;
 import hale.loading.JSONOrderedObject;
+import hale.resource.SpriteBatch;
 import hale.util.AreaUtil;
 import hale.util.Point;
 
@@ -300,27 +301,39 @@ public class AreaTileGrid
 
         // TODO draw transitions within the layer like entities
 
-        for (String layerID : tileset.getLayerIDs()) {
-            if (layerID.equals(entityLayerID)) {
-                if (Game.particleManager != null) {
-                    Game.particleManager.drawBelowEntities();
-                }
-
-                renderer.drawTransitions();
-
-                tiles.get(layerID).draw(screenCoordinates, renderer, topLeft, bottomRight);
-
-                if (Game.particleManager != null) {
-                    Game.particleManager.drawAboveEntities();
-                }
-
-            } else
-                if (layerID.equals(interfaceLayerID)) {
-                    tiles.get(layerID).draw(screenCoordinates, topLeft, bottomRight);
-                    renderer.drawInterface(as);
-                } else {
-                    tiles.get(layerID).draw(screenCoordinates, topLeft, bottomRight);
-                }
+        // tiles, entities, and particles are batched; the renderer callbacks may draw
+        // directly, so the batch is flushed before each of them
+
+        SpriteBatch.begin();
+
+        try {
+            for (String layerID : tileset.getLayerIDs()) {
+                if (layerID.equals(entityLayerID)) {
+                    if (Game.particleManager != null) {
+                        Game.particleManager.drawBelowEntities();
+                    }
+
+                    SpriteBatch.flush();
+                    renderer.drawTransitions();
+
+                    tiles.get(layerID).draw(screenCoordinates, renderer, topLeft, bottomRight);
+
+                    if (Game.particleManager != null) {
+                        Game.particleManager.drawAboveEntities();
+                    }
+
+                } else
+                    if (layerID.equals(interfaceLayerID)) {
+                        tiles.get(layerID).draw(screenCoordinates, topLeft, bottomRight);
+
+                        SpriteBatch.flush();
+                        renderer.drawInterface(as);
+                    } else {
+                        tiles.get(layerID).draw(screenCoordinates, topLeft, bottomRight);
+                    }
+            }
+        } finally {
+            SpriteBatch.end();
         }
     }
 
@@ -78,6 +78,18 @@ public class Layer
         return directory + "/" + tileID + ResourceType.PNG.getExtension();
     }
 
+    /**
+     * Starts decoding the images of all spritesheets associated with this layer
+     * on background threads
+     */
+
+    protected void prefetchTiles()
+    {
+        for (String spriteSheet : spriteSheets) {
+            SpriteManager.prefetchSpriteSheet(directory + "/" + spriteSheet + ResourceType.JSON.getExtension());
+        }
+    }
+
     /**
      * Loads all spritesheets associated with this layer, adding all Tiles into
      * the list of tiles for this Layer
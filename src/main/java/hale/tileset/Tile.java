@@ -21,6 +21,8 @@ package hale.tileset;
 
 import hale.Game;
 import hale.resource.Sprite;
+import hale.resource.SpriteBatch;
+import hale.resource.SpriteCache;
 import hale.resource.SpriteManager;
 
 /**
@@ -73,7 +75,20 @@ public class Tile
 
     public final void draw(int screenX, int screenY)
     {
-        sprite.draw(screenX + offsetX, screenY + offsetY);
+        SpriteBatch.draw(sprite, screenX + offsetX, screenY + offsetY);
+    }
+
+    /**
+     * Adds this tile to the specified cache, to be drawn at the specified screen coordinates
+     *
+     * @param cache   the cache to add to
+     * @param screenX the x coordinate
+     * @param screenY the y coordinate
+     */
+
+    public final void cache(SpriteCache cache, int screenX, int screenY)
+    {
+        cache.add(sprite, screenX + offsetX, screenY + offsetY);
     }
 
     /**
@@ -20,6 +20,7 @@
 package hale.tileset;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -28,14 +29,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.lwjgl.opengl.GL11;
-
 import hale.area.Area;
 import hale.entity.Creature;
 import hale.entity.Door;
 import hale.entity.Entity;
 import hale.entity.Trap;
 import hale.loading.JSONOrderedObject;
+import hale.resource.SpriteBatch;
+import hale.resource.SpriteCache;
+import hale.util.BitGrid;
 import hale.util.Point;
 
 /**
@@ -46,11 +48,18 @@ import hale.util.Point;
 
 public class TileLayerList
 {
+    // the width and height in grid points of the chunks that tiles in non entity
+    // layers are cached in, must be an even number
+    private static final int ChunkSize = 16;
+
     private TileList[][] tiles;
 
+    // cached vertex data for drawing each chunk, or null if the chunk must be rebuilt
+    private TileChunk[][] chunks;
+
     // helpers for drawing entity tiles
-    private boolean[][] explored;
-    private boolean[][] visibility;
+    private BitGrid explored;
+    private BitGrid visibility;
     private Area area;
 
     /**
@@ -111,6 +120,8 @@ public class TileLayerList
                 tiles[x][y] = new TileList();
             }
         }
+
+        chunks = createChunks(width, height);
     }
 
     /**
@@ -145,6 +156,7 @@ public class TileLayerList
         }
 
         this.tiles = newTiles;
+        this.chunks = createChunks(newWidth, newHeight);
     }
 
     /**
@@ -172,6 +184,39 @@ public class TileLayerList
                 tiles[x][y].cacheSprites();
             }
         }
+
+        invalidateChunks();
+    }
+
+    /**
+     * Discards the cached drawing data for all tiles in this layer.  The data is rebuilt
+     * as needed the next time this layer is drawn
+     */
+
+    public void invalidateChunks()
+    {
+        for (TileChunk[] column : chunks) {
+            Arrays.fill(column, null);
+        }
+    }
+
+    /**
+     * Returns the number of bytes of vertex data currently cached for drawing this layer
+     *
+     * @return the size of the cached vertex data in bytes
+     */
+
+    public long getChunkMemoryUsage()
+    {
+        long total = 0;
+
+        for (TileChunk[] column : chunks) {
+            for (TileChunk chunk : column) {
+                if (chunk != null) total += chunk.cache.getMemoryUsage();
+            }
+        }
+
+        return total;
     }
 
     /**
@@ -209,6 +254,7 @@ public class TileLayerList
         }
 
         tiles[x][y].add(tile);
+        invalidateChunk(x, y);
 
         return tile;
     }
@@ -228,6 +274,7 @@ public class TileLayerList
         while (iter.hasNext()) {
             if (featureType.getTerrainTile(iter.next().getTileID()) != null) {
                 iter.remove();
+                invalidateChunk(x, y);
             }
         }
     }
@@ -247,6 +294,7 @@ public class TileLayerList
         while (iter.hasNext()) {
             if (!spriteIDs.contains(iter.next().getSpriteID())) {
                 iter.remove();
+                invalidateChunk(x, y);
             }
         }
     }
@@ -266,6 +314,7 @@ public class TileLayerList
         while (iter.hasNext()) {
             if (spriteIDs.contains(iter.next().getSpriteID())) {
                 iter.remove();
+                invalidateChunk(x, y);
             }
         }
     }
@@ -279,11 +328,15 @@ public class TileLayerList
 
     public void removeTiles(int x, int y)
     {
-        tiles[x][y].clear();
+        if (!tiles[x][y].isEmpty()) {
+            tiles[x][y].clear();
+            invalidateChunk(x, y);
+        }
     }
 
     /**
-     * Draws all tiles in this TileLayerList
+     * Draws all tiles in this TileLayerList.  Tiles are drawn from vertex data cached
+     * for each chunk, which is rebuilt only when the tiles in the chunk change
      *
      * @param screenCoordinates the array of screen coordinates for the set
      *                          of grid points in this layer
@@ -295,13 +348,26 @@ public class TileLayerList
 
     protected void draw(Point[][] screenCoordinates, Point topLeft, Point bottomRight)
     {
+        int firstChunkX = topLeft.x / ChunkSize;
+        int lastChunkX = bottomRight.x / ChunkSize;
+
+        // draw a row at a time, even columns and then odd columns, so that overlapping
+        // tiles are drawn in the same order as when drawing tile by tile
         for (int y = topLeft.y; y <= bottomRight.y; y++) {
-            for (int x = topLeft.x; x <= bottomRight.x; x += 2) {
-                draw(x, y, screenCoordinates[x][y].x, screenCoordinates[x][y].y);
-            }
+            int chunkY = y / ChunkSize;
+            int segment = (y % ChunkSize) * 2;
 
-            for (int x = topLeft.x + 1; x <= bottomRight.x; x += 2) {
-                draw(x, y, screenCoordinates[x][y].x, screenCoordinates[x][y].y);
+            for (int parity = 0; parity < 2; parity++) {
+                for (int chunkX = firstChunkX; chunkX <= lastChunkX; chunkX++) {
+                    TileChunk chunk = chunks[chunkX][chunkY];
+
+                    if (chunk == null) {
+                        chunk = new TileChunk(chunkX, chunkY, screenCoordinates);
+                        chunks[chunkX][chunkY] = chunk;
+                    }
+
+                    chunk.draw(segment + parity);
+                }
             }
         }
     }
@@ -311,14 +377,14 @@ public class TileLayerList
         draw(x, y, screen.x, screen.y);
 
         // dont draw entities in unexplored tiles
-        if (!explored[x][y]) return;
+        if (!explored.get(x, y)) return;
 
         Collection<Entity> entities = area.getEntities().getEntitiesSet(x, y);
         if (entities == null) return;
 
         for (Entity entity : entities) {
             // don't draw doors or hostiles that can't be seen
-            if (!visibility[x][y]) {
+            if (!visibility.get(x, y)) {
                 if (entity instanceof Door) continue;
                 if (!entity.isPlayerFaction() && entity instanceof Creature) continue;
             }
@@ -329,7 +395,7 @@ public class TileLayerList
             entity.areaDraw(screen.x, screen.y);
         }
 
-        GL11.glColor3f(1.0f, 1.0f, 1.0f);
+        SpriteBatch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
     }
 
     /**
@@ -368,6 +434,65 @@ public class TileLayerList
         }
     }
 
+    private void invalidateChunk(int x, int y)
+    {
+        chunks[x / ChunkSize][y / ChunkSize] = null;
+    }
+
+    private static TileChunk[][] createChunks(int width, int height)
+    {
+        return new TileChunk[(width + ChunkSize - 1) / ChunkSize][(height + ChunkSize - 1) / ChunkSize];
+    }
+
+    /*
+     * The cached vertex data for a square of grid points.  Quads are stored a row at a time,
+     * with the even columns of each row followed by the odd columns.  Each of these runs
+     * is a segment, which may be drawn individually
+     */
+
+    private class TileChunk
+    {
+        private final SpriteCache cache;
+        private final int[] segmentStarts;
+
+        private TileChunk(int chunkX, int chunkY, Point[][] screenCoordinates)
+        {
+            cache = new SpriteCache();
+            segmentStarts = new int[ChunkSize * 2 + 1];
+
+            int startX = chunkX * ChunkSize;
+            int startY = chunkY * ChunkSize;
+            int endX = Math.min(startX + ChunkSize, tiles.length);
+            int endY = Math.min(startY + ChunkSize, tiles[0].length);
+
+            int segment = 0;
+            for (int y = startY; y < startY + ChunkSize; y++) {
+                for (int parity = 0; parity < 2; parity++) {
+                    segmentStarts[segment] = cache.getQuadCount();
+                    segment++;
+
+                    if (y >= endY) continue;
+
+                    for (int x = startX + parity; x < endX; x += 2) {
+                        Point screen = screenCoordinates[x][y];
+
+                        for (Tile tile : tiles[x][y]) {
+                            tile.cache(cache, screen.x, screen.y);
+                        }
+                    }
+                }
+            }
+            segmentStarts[segment] = cache.getQuadCount();
+
+            cache.trim();
+        }
+
+        private void draw(int segment)
+        {
+            SpriteBatch.draw(cache, segmentStarts[segment], segmentStarts[segment + 1]);
+        }
+    }
+
     private class TileList extends ArrayList<Tile>
     {
         private static final long serialVersionUID = 1L;
@@ -159,16 +159,31 @@ public class Tileset
 
     /**
      * Parses all Spritesheets for all layers in this Tileset.  All sprites will
-     * be loaded via the standard async texture loader
+     * be loaded via the standard async texture loader.  The spritesheet images for
+     * all layers are decoded in parallel.
      */
 
     public void loadTiles()
     {
+        prefetchTiles();
+
         for (String layerID : layers.keySet()) {
             layers.get(layerID).loadTiles();
         }
     }
 
+    /**
+     * Starts decoding the spritesheet images for all layers in this Tileset on background
+     * threads, so that a later call to {@link #loadTiles()} does not need to wait for them
+     */
+
+    public void prefetchTiles()
+    {
+        for (String layerID : layers.keySet()) {
+            layers.get(layerID).prefetchTiles();
+        }
+    }
+
     /**
      * Frees up all texture memory associated with this tileset
      */
@@ -20,12 +20,15 @@
 package hale.util;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import hale.Game;
 import hale.area.Area;
 import hale.entity.Creature;
+import hale.entity.Entity;
 import hale.entity.PC;
 import hale.entity.Path;
 import hale.rules.Faction;
@@ -41,11 +44,28 @@ public class AreaUtil
 {
     private final int width;
     private final int height;
-    private boolean[][] transparent;
+    private BitGrid transparent;
 
     private final Area area;
 
     private PathFinder.Data pathFindData;
+    private final PathCache pathCache;
+
+    // reused for entity passabilities while holding the lock on pathFindData
+    private final BitGrid entityPassabilities;
+
+    // the number of party members that can see each point
+    private final int[][] partyVisibilityCount;
+
+    // the visible points of each party member that are counted in partyVisibilityCount
+    private final Map<Creature, int[]> partyVisibilityPoints;
+
+    // temporary visibility points currently applied to the area visibility
+    private List<Point> temporaryVisibilityPoints;
+
+    // the points changed by the current visibility update, passed on to the area when done
+    private final DirtyRegion visibilityChanges;
+    private final int[] visibilityChangeBounds;
 
     public enum Turn
     {
@@ -57,20 +77,63 @@ public class AreaUtil
     public AreaUtil(Area area)
     {
         this.area = area;
-        boolean[][] trans = area.getTransparency();
+        width = area.getWidth();
+        height = area.getHeight();
 
-        width = trans.length;
-        height = trans[0].length;
+        transparent = new BitGrid(area.getTransparency());
 
-        transparent = new boolean[width][height];
+        pathFindData = new PathFinder.Data(area);
+        pathCache = new PathCache();
+        entityPassabilities = new BitGrid(width, height);
+
+        partyVisibilityCount = new int[width][height];
+        partyVisibilityPoints = new IdentityHashMap<Creature, int[]>();
+        temporaryVisibilityPoints = new ArrayList<Point>();
+        visibilityChanges = new DirtyRegion();
+        visibilityChangeBounds = new int[4];
+    }
 
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                transparent[i][j] = trans[i][j];
-            }
+    /**
+     * Returns the cache of paths computed by {@link #findShortestPath(Creature, Point, int)}
+     * and {@link #findShortestPathIgnoreCreatures(Creature, Point)} for this area
+     *
+     * @return the path cache for this area
+     */
+
+    public PathCache getPathCache()
+    {
+        return pathCache;
+    }
+
+    /**
+     * Removes the cached paths and distance fields that may be affected by a change in the
+     * points that the specified creature threatens with attacks of opportunity.  This waits
+     * for any path search in progress, so a search that read the old threat state cannot
+     * store its result after the entries are removed.
+     *
+     * @param creature the creature whose threat state has changed
+     */
+
+    public void invalidatePathsThreatenedBy(Creature creature)
+    {
+        synchronized (pathFindData) {
+            pathCache.removeThreatenedBy(creature);
         }
+    }
 
-        pathFindData = new PathFinder.Data(area);
+    /**
+     * Removes the cached paths and distance fields for the specified mover, such as when
+     * a creature can no longer take an attack of opportunity against it.  As with
+     * {@link #invalidatePathsThreatenedBy(Creature)}, this waits for any path search in progress.
+     *
+     * @param mover the creature whose paths are removed
+     */
+
+    public void invalidatePathsOf(Creature mover)
+    {
+        synchronized (pathFindData) {
+            pathCache.removeMover(mover);
+        }
     }
 
     public static List<Creature> getVisibleCreatures(Creature activeCreature, Faction.Relationship rel)
@@ -94,82 +157,227 @@ public class AreaUtil
         return creatures;
     }
 
-    public static final void setMatrix(boolean[][] data, Point p, boolean value)
+    public void updateVisibility()
     {
-        setMatrix(data, p.x, p.y, value);
+        updateTransparency(area.getTransparency());
+        for (Creature c : Game.curCampaign.party) {
+            c.computeVisibility();
+        }
+        setPartyVisibility();
     }
 
-    public static final void setMatrix(boolean[][] data, int x, int y, boolean value)
+    /**
+     * Recomputes the visibility of all creatures in this area that are within
+     * visibility range of the specified point, and then updates the party visibility.
+     * This should be called whenever the transparency of the specified point changes.
+     *
+     * @param x the x grid coordinate of the point whose transparency has changed
+     * @param y the y grid coordinate of the point whose transparency has changed
+     */
+
+    public void updateVisibility(int x, int y)
     {
-        if (x < 0 || x >= data.length || y < 0 || y >= data[0].length) return;
+        updateTransparency(area.getTransparency());
 
-        data[x][y] = value;
-    }
+        int radius = area.getVisibilityRadius();
 
-    private static final void orMatrix(boolean[][] source, boolean[][] dest)
-    {
-        if (source.length != dest.length || source[0].length != dest[0].length) return;
+        List<Creature> creatures = new ArrayList<Creature>();
+        synchronized (area.getEntities()) {
+            for (Entity entity : area.getEntities()) {
+                if (!(entity instanceof Creature)) continue;
+
+                if (entity.getLocation().getDistance(x, y) > radius) continue;
 
-        for (int i = 0; i < source.length; i++) {
-            for (int j = 0; j < source[i].length; j++) {
-                dest[i][j] = source[i][j] || dest[i][j];
+                creatures.add((Creature)entity);
             }
         }
-    }
 
-    public void updateVisibility()
-    {
-        updateTransparency(area.getTransparency());
-        for (Creature c : Game.curCampaign.party) {
-            c.computeVisibility();
+        for (Creature creature : creatures) {
+            creature.computeVisibility();
         }
+
         setPartyVisibility();
     }
 
+    /**
+     * Updates the area visibility and explored matrices based on the current visibility
+     * of each party member and any temporary visibility areas.  The number of party members
+     * that can see each point is tracked, so only party members whose visibility has been
+     * recomputed since the last call contribute any work.
+     */
+
     public void setPartyVisibility()
     {
-        boolean[][] visible = area.getVisibility();
-        boolean[][] explored = area.getExplored();
+        BitGrid visible = area.getVisibility();
+        BitGrid explored = area.getExplored();
 
-        setMatrix(visible, false);
+        DirtyRegion changes = visibilityChanges;
+
+        // remove temporary visibility from the previous update
+        for (Point p : temporaryVisibilityPoints) {
+            visible.set(p.x, p.y, partyVisibilityCount[p.x][p.y] > 0);
+            changes.add(p.x, p.y);
+        }
 
+        List<Creature> viewers = new ArrayList<Creature>();
         for (Creature creature : Game.curCampaign.party) {
-            if (creature instanceof PC) {
-                creature.addVisibilityToMatrix(visible);
+            if (creature instanceof PC && creature.getLocation().getArea() == area &&
+                    creature.getVisiblePoints() != null) {
+                viewers.add(creature);
+            }
+        }
+
+        // remove counts for creatures that are no longer party members in this area
+        Iterator<Map.Entry<Creature, int[]>> iter = partyVisibilityPoints.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<Creature, int[]> entry = iter.next();
+
+            if (!viewers.contains(entry.getKey())) {
+                removePartyVisibility(entry.getValue(), visible, changes);
+                iter.remove();
             }
         }
 
-        Game.timer.getTemporaryVisibilityAreas(visible);
+        // update counts for party members whose visibility has changed
+        for (Creature creature : viewers) {
+            int[] points = creature.getVisiblePoints();
+            int[] oldPoints = partyVisibilityPoints.get(creature);
+
+            if (points == oldPoints) continue;
+
+            if (oldPoints != null) removePartyVisibility(oldPoints, visible, changes);
+
+            addPartyVisibility(points, visible, explored, changes);
+            partyVisibilityPoints.put(creature, points);
+        }
+
+        temporaryVisibilityPoints = Game.timer.getTemporaryVisibilityPoints();
+        for (Point p : temporaryVisibilityPoints) {
+            visible.set(p.x, p.y, true);
+            explored.set(p.x, p.y, true);
+            changes.add(p.x, p.y);
+        }
+
+        int[] bounds = visibilityChangeBounds;
+        if (changes.take(bounds)) area.markChanged(bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+
+    private void addPartyVisibility(int[] points, BitGrid visible, BitGrid explored, DirtyRegion changes)
+    {
+        if (points.length == 0) return;
+
+        int minX = width, minY = height, maxX = -1, maxY = -1;
+
+        for (int point : points) {
+            int x = point / height;
+            int y = point % height;
+
+            partyVisibilityCount[x][y]++;
+            visible.set(x, y, true);
+            explored.set(x, y, true);
+
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        changes.add(minX, minY, maxX, maxY);
+    }
+
+    private void removePartyVisibility(int[] points, BitGrid visible, DirtyRegion changes)
+    {
+        if (points.length == 0) return;
+
+        int minX = width, minY = height, maxX = -1, maxY = -1;
+
+        for (int point : points) {
+            int x = point / height;
+            int y = point % height;
+
+            partyVisibilityCount[x][y]--;
+            if (partyVisibilityCount[x][y] == 0) visible.set(x, y, false);
 
-        orMatrix(visible, explored);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        changes.add(minX, minY, maxX, maxY);
     }
 
-    public void updateTransparency(boolean[][] transparent)
+    public void updateTransparency(BitGrid transparent)
     {
         this.transparent = transparent;
     }
 
-    public void setVisibilityWithRespectToPosition(boolean[][] visible, Point center)
+    public void setVisibilityWithRespectToPosition(BitGrid visible, Point center)
     {
         setVisibilityWithRespectToPosition(visible, center.x, center.y);
     }
 
-    public void setVisibilityWithRespectToPosition(boolean[][] visible, int centerX, int centerY)
+    public void setVisibilityWithRespectToPosition(BitGrid visible, int centerX, int centerY)
     {
-        setMatrix(visible, false);
+        visible.setAll(false);
 
-        if (visible.length != width || visible[0].length != height) return;
+        if (visible.getWidth() != width || visible.getHeight() != height) return;
 
         getVisibility(visible, centerX, centerY);
     }
 
-    public static void setMatrix(boolean[][] data, boolean val)
+    /**
+     * Sets all points visible from the specified center to true in the visibility matrix.
+     * Unlike {@link #setVisibilityWithRespectToPosition(BitGrid, int, int)}, the matrix
+     * is not cleared first.
+     *
+     * @param visible the visibility matrix, which must be the same size as this area
+     * @param centerX the x grid coordinate of the viewer
+     * @param centerY the y grid coordinate of the viewer
+     */
+
+    public void addVisibilityFromPosition(BitGrid visible, int centerX, int centerY)
     {
-        for (int i = 0; i < data.length; i++) {
-            for (int j = 0; j < data[0].length; j++) {
-                data[i][j] = val;
+        if (visible.getWidth() != width || visible.getHeight() != height) return;
+
+        getVisibility(visible, centerX, centerY);
+    }
+
+    /**
+     * Returns the list of all points within visibility range of the specified center that
+     * are true in the visibility matrix.  Each point is stored as x * height + y.
+     *
+     * @param visible the visibility matrix, which must be the same size as this area
+     * @param centerX the x grid coordinate of the viewer
+     * @param centerY the y grid coordinate of the viewer
+     * @return the visible points
+     */
+
+    public int[] getVisiblePoints(BitGrid visible, int centerX, int centerY)
+    {
+        int radius = area.getVisibilityRadius() + 1;
+
+        int minX = Math.max(0, centerX - radius);
+        int maxX = Math.min(width - 1, centerX + radius);
+        int minY = Math.max(0, centerY - radius);
+        int maxY = Math.min(height - 1, centerY + radius);
+
+        int count = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                if (visible.get(x, y)) count++;
             }
         }
+
+        int[] points = new int[count];
+        int i = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                if (visible.get(x, y)) points[i++] = x * height + y;
+            }
+        }
+
+        return points;
     }
 
     private final boolean isValidCoordinates(Point p)
@@ -177,13 +385,13 @@ public class AreaUtil
         return p.x >= 0 && p.y >= 0 && p.x < width && p.y < height;
     }
 
-    private boolean[][] getVisibility(boolean[][] visible, int centerX, int centerY)
+    private BitGrid getVisibility(BitGrid visible, int centerX, int centerY)
     {
-        if (centerX < 0 || centerY < 0 || centerX >= visible.length || centerY >= visible[0].length) return visible;
+        if (!visible.isInBounds(centerX, centerY)) return visible;
 
         byte centerElev = this.area.getElevationGrid().getElevation(centerX, centerY);
 
-        visible[centerX][centerY] = true;
+        visible.set(centerX, centerY, true);
 
         LOSCone cone = new LOSCone(0, new Point(Game.TILE_SIZE / 2, 0), 1, new Point(Game.TILE_SIZE, Game.TILE_SIZE / 2));
         cone.next = new LOSCone(2, new Point(Game.TILE_SIZE, Game.TILE_SIZE / 2), 3, new Point(Game.TILE_SIZE / 2, Game.TILE_SIZE));
@@ -213,12 +421,12 @@ public class AreaUtil
                     byte curElev = 0;
 
                     if (isValidCoordinates(currentTile)) {
-                        visible[currentTile.x][currentTile.y] = true;
+                        visible.set(currentTile.x, currentTile.y, true);
 
                         curElev = area.getElevationGrid().getElevation(currentTile.x, currentTile.y);
                     }
 
-                    if (!isValidCoordinates(currentTile) || !transparent[currentTile.x][currentTile.y] || curElev > centerElev) {
+                    if (!isValidCoordinates(currentTile) || !transparent.get(currentTile.x, currentTile.y) || curElev > centerElev) {
                         //System.out.println("    Found opaque tile at " + currentTile);
                         if (currentCone.getStartI() == currentCone.getEndI()) { // This cone has ended, close it out
                             //System.out.println("      Closing cone at " + i + ".");
@@ -297,11 +505,22 @@ public class AreaUtil
 
     public Path findShortestPathIgnoreCreatures(Creature mover, Point end)
     {
-        boolean[][] entityPass = area.getEntities().getDoorPassabilities(mover);
+        int version = area.getEntities().getPassabilityVersion();
+        boolean turnMode = Game.isInTurnMode();
 
         synchronized (pathFindData) {
-            pathFindData.setEntityPassabilities(entityPass);
-            return PathFinder.findPathIgnoreCreatures(mover, end, pathFindData);
+            if (pathCache.contains(version, mover, end, 0, PathFinder.Mode.IgnoreCreatures, turnMode)) {
+                return pathCache.get(mover, end, 0, PathFinder.Mode.IgnoreCreatures, turnMode);
+            }
+
+            area.getEntities().getDoorPassabilities(mover, entityPassabilities);
+
+            pathFindData.setEntityPassabilities(entityPassabilities);
+            Path path = PathFinder.findPathIgnoreCreatures(mover, end, pathFindData);
+
+            pathCache.put(version, mover, end, 0, PathFinder.Mode.IgnoreCreatures, turnMode, path);
+
+            return path;
         }
     }
 
@@ -315,7 +534,7 @@ public class AreaUtil
      * @return the shortest available path or null if no path exists
      */
 
-    public Path findShortestPathIgnoreParty(Creature mover, Point end, boolean[][] entityPass)
+    public Path findShortestPathIgnoreParty(Creature mover, Point end, BitGrid entityPass)
     {
         synchronized (pathFindData) {
             pathFindData.setEntityPassabilities(entityPass);
@@ -338,6 +557,91 @@ public class AreaUtil
      */
 
     public Path findShortestPath(Creature mover, Point end, int distanceAway)
+    {
+        List<Point> goals = getGoalPoints(end, distanceAway);
+
+        int version = area.getEntities().getPassabilityVersion();
+        boolean turnMode = Game.isInTurnMode();
+
+        synchronized (pathFindData) {
+            if (pathCache.contains(version, mover, end, distanceAway, PathFinder.Mode.Normal, turnMode)) {
+                return pathCache.get(mover, end, distanceAway, PathFinder.Mode.Normal, turnMode);
+            }
+
+            Game.curCampaign.curArea.getEntityPassabilities(mover, entityPassabilities);
+
+            pathFindData.setEntityPassabilities(entityPassabilities);
+            Path path = PathFinder.findPath(mover, end, goals, pathFindData);
+
+            pathCache.put(version, mover, end, distanceAway, PathFinder.Mode.Normal, turnMode, path);
+
+            return path;
+        }
+    }
+
+    /**
+     * Computes the movement cost from the mover's current position to every reachable
+     * point in this area.  A single distance field can be used to find paths to any
+     * number of goals, so this should be preferred over repeated calls to
+     * {@link #findShortestPath(Creature, Point, int)} when evaluating many possible
+     * destinations from the same start point.
+     *
+     * @param mover the creature that is moving
+     * @param mode  the rules for determining passability and valid goal points.  Normal
+     *              mode uses the same rules as {@link #findShortestPath(Creature, Point, int)}, while
+     *              IgnoreCreatures uses the same rules as {@link #findShortestPathIgnoreCreatures(Creature, Point)}
+     * @return the distance field for the mover
+     */
+
+    public DistanceField computeDistanceField(Creature mover, PathFinder.Mode mode)
+    {
+        return computeDistanceField(mover, mode, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Computes the movement cost from the mover's current position to every point in this
+     * area that can be reached with a cost of at most maxCost, as in
+     * {@link #computeDistanceField(Creature, PathFinder.Mode)}.  Limiting the cost to the
+     * distance the mover is able to move avoids searching the entire area.
+     *
+     * @param mover   the creature that is moving
+     * @param mode    the rules for determining passability and valid goal points
+     * @param maxCost the maximum cost of the points included in the field
+     * @return the distance field for the mover
+     */
+
+    public DistanceField computeDistanceField(Creature mover, PathFinder.Mode mode, int maxCost)
+    {
+        int version = area.getEntities().getPassabilityVersion();
+        boolean turnMode = Game.isInTurnMode();
+
+        synchronized (pathFindData) {
+            DistanceField field = pathCache.getDistanceField(version, mover, mode, turnMode, maxCost);
+            if (field != null) return field;
+
+            switch (mode) {
+                case IgnoreCreatures:
+                    area.getEntities().getDoorPassabilities(mover, entityPassabilities);
+                    break;
+                default:
+                    area.getEntities().getEntityPassabilities(mover, entityPassabilities);
+            }
+
+            pathFindData.setEntityPassabilities(entityPassabilities);
+            field = PathFinder.computeDistanceField(mover, mode, maxCost, pathFindData);
+
+            pathCache.putDistanceField(version, turnMode, field);
+
+            return field;
+        }
+    }
+
+    /*
+     * Returns the list of points the specified distance away from the end point, or
+     * just the end point if the distance is zero
+     */
+
+    static List<Point> getGoalPoints(Point end, int distanceAway)
     {
         List<Point> goals = new ArrayList<Point>();
 
@@ -350,13 +654,7 @@ public class AreaUtil
             }
         }
 
-        boolean[][] entityPass = Game.curCampaign.curArea.getEntityPassabilities(mover);
-
-        synchronized (pathFindData) {
-            pathFindData.setEntityPassabilities(entityPass);
-
-            return PathFinder.findPath(mover, end, goals, pathFindData);
-        }
+        return goals;
     }
 
     public static Point[] getAdjacentTiles(Point grid)
@@ -436,6 +734,24 @@ public class AreaUtil
     }
 
     public static final Point convertScreenToGrid(int screenX, int screenY)
+    {
+        Point grid = new Point();
+
+        convertScreenToGrid(screenX, screenY, grid);
+
+        return grid;
+    }
+
+    /**
+     * Computes the grid point containing the specified screen point, storing the result
+     * in the specified Point rather than creating a new one
+     *
+     * @param screenX the screen x coordinate
+     * @param screenY the screen y coordinate
+     * @param grid    the Point to store the grid coordinates in
+     */
+
+    public static final void convertScreenToGrid(int screenX, int screenY, Point grid)
     {
         // this function does not work for negative results
 
@@ -474,7 +790,8 @@ public class AreaUtil
                 }
         }
 
-        return new Point(xBase + xOffset, yBase + yOffset);
+        grid.x = xBase + xOffset;
+        grid.y = yBase + yOffset;
     }
 
     public static final Point convertPolarToGridCenter0(int r, int i)
@@ -0,0 +1,293 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.util;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size grid of boolean values, packed 64 to a long.  Each point (x, y) is
+ * stored at bit index x * height + y.  Whole grid operations such as OR, AND,
+ * and clearing operate on an entire word at a time.
+ * <p>
+ * This class is not synchronized.
+ */
+
+public class BitGrid
+{
+    private final int width;
+    private final int height;
+    private final long[] words;
+
+    /**
+     * Creates a new BitGrid of the specified size, with all values false
+     *
+     * @param width  the width of the grid
+     * @param height the height of the grid
+     */
+
+    public BitGrid(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+        this.words = new long[(width * height + 63) >>> 6];
+    }
+
+    /**
+     * Creates a new BitGrid that is a copy of the specified grid
+     *
+     * @param other the grid to copy
+     */
+
+    public BitGrid(BitGrid other)
+    {
+        this.width = other.width;
+        this.height = other.height;
+        this.words = Arrays.copyOf(other.words, other.words.length);
+    }
+
+    /**
+     * Creates a new BitGrid of the specified size, with values taken from the specified
+     * packed words, as returned by {@link #toLongArray()}
+     *
+     * @param width  the width of the grid
+     * @param height the height of the grid
+     * @param words  the packed values
+     * @throws IllegalArgumentException if the number of words does not match the size
+     */
+
+    public BitGrid(int width, int height, long[] words)
+    {
+        this(width, height);
+
+        if (words.length != this.words.length) {
+            throw new IllegalArgumentException("Expected " + this.words.length + " words for a " +
+                    width + "x" + height + " grid, found " + words.length);
+        }
+
+        System.arraycopy(words, 0, this.words, 0, words.length);
+        clearUnusedBits();
+    }
+
+    /**
+     * Returns a copy of the packed values of this grid.  Point (x, y) is held in bit
+     * (x * height + y) % 64 of word (x * height + y) / 64
+     *
+     * @return the packed values
+     */
+
+    public long[] toLongArray()
+    {
+        return Arrays.copyOf(words, words.length);
+    }
+
+    /**
+     * Returns the width of this grid
+     *
+     * @return the width
+     */
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of this grid
+     *
+     * @return the height
+     */
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Returns true if the specified point is within the bounds of this grid
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return whether the point is inside this grid
+     */
+
+    public final boolean isInBounds(int x, int y)
+    {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * Returns the value at the specified point.  The point must be within the bounds
+     * of this grid
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the value at the point
+     */
+
+    public final boolean get(int x, int y)
+    {
+        int index = x * height + y;
+
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns the value at the specified point.  The point must be within the bounds
+     * of this grid
+     *
+     * @param p the point
+     * @return the value at the point
+     */
+
+    public final boolean get(Point p)
+    {
+        return get(p.x, p.y);
+    }
+
+    /**
+     * Sets the value at the specified point.  The point must be within the bounds
+     * of this grid
+     *
+     * @param x     the x coordinate
+     * @param y     the y coordinate
+     * @param value the value to set
+     */
+
+    public final void set(int x, int y, boolean value)
+    {
+        int index = x * height + y;
+
+        if (value) {
+            words[index >>> 6] |= (1L << index);
+        } else {
+            words[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Sets the value at the specified point, if it is within the bounds of this grid.
+     * Points outside the bounds are ignored
+     *
+     * @param x     the x coordinate
+     * @param y     the y coordinate
+     * @param value the value to set
+     */
+
+    public final void setIfInBounds(int x, int y, boolean value)
+    {
+        if (isInBounds(x, y)) set(x, y, value);
+    }
+
+    /**
+     * Sets every point in this grid to the specified value
+     *
+     * @param value the value to set
+     */
+
+    public void setAll(boolean value)
+    {
+        if (value) {
+            Arrays.fill(words, -1L);
+            clearUnusedBits();
+        } else {
+            Arrays.fill(words, 0L);
+        }
+    }
+
+    /**
+     * Sets the values in this grid to the values in the specified grid, which must
+     * be the same size
+     *
+     * @param other the grid to copy from
+     */
+
+    public void copyFrom(BitGrid other)
+    {
+        checkSize(other);
+
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    /**
+     * Sets each point in this grid to true if it is true in this grid or the
+     * specified grid, which must be the same size
+     *
+     * @param other the grid to OR with this one
+     */
+
+    public void or(BitGrid other)
+    {
+        checkSize(other);
+
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Sets each point in this grid to true if it is true in both this grid and the
+     * specified grid, which must be the same size
+     *
+     * @param other the grid to AND with this one
+     */
+
+    public void and(BitGrid other)
+    {
+        checkSize(other);
+
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+    /**
+     * Returns the number of points in this grid that are true
+     *
+     * @return the number of true points
+     */
+
+    public int cardinality()
+    {
+        int count = 0;
+
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    private void clearUnusedBits()
+    {
+        int used = (width * height) & 63;
+
+        if (used != 0) {
+            words[words.length - 1] &= (1L << used) - 1;
+        }
+    }
+
+    private void checkSize(BitGrid other)
+    {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Grid size " + other.width + "x" + other.height +
+                    " does not match " + width + "x" + height);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.util;
+
+/**
+ * Tracks the bounding rectangle of a set of changed grid points, so that a consumer on
+ * another thread can later update only the part of its state covering those points.
+ * Points are added by the thread making changes, and the accumulated bounds are taken,
+ * and reset, by the consuming thread.
+ * <p>
+ * This class is thread safe.
+ */
+
+public class DirtyRegion
+{
+    private boolean empty;
+    private int minX, minY, maxX, maxY;
+
+    /**
+     * Creates a new DirtyRegion containing no points
+     */
+
+    public DirtyRegion()
+    {
+        this.empty = true;
+    }
+
+    /**
+     * Expands this region to include the specified point
+     *
+     * @param x the x grid coordinate
+     * @param y the y grid coordinate
+     */
+
+    public synchronized void add(int x, int y)
+    {
+        add(x, y, x, y);
+    }
+
+    /**
+     * Expands this region to include the specified rectangle
+     *
+     * @param x1 the minimum x grid coordinate
+     * @param y1 the minimum y grid coordinate
+     * @param x2 the maximum x grid coordinate
+     * @param y2 the maximum y grid coordinate
+     */
+
+    public synchronized void add(int x1, int y1, int x2, int y2)
+    {
+        if (x1 > x2 || y1 > y2) return;
+
+        if (empty) {
+            minX = x1;
+            minY = y1;
+            maxX = x2;
+            maxY = y2;
+            empty = false;
+        } else {
+            minX = Math.min(minX, x1);
+            minY = Math.min(minY, y1);
+            maxX = Math.max(maxX, x2);
+            maxY = Math.max(maxY, y2);
+        }
+    }
+
+    /**
+     * If this region contains any points, stores its bounds in the specified array as
+     * minimum x, minimum y, maximum x, and maximum y, and then empties this region
+     *
+     * @param bounds the array of at least 4 elements to store the bounds in
+     * @return true if this region contained any points, false if it was empty and
+     * the array was not modified
+     */
+
+    public synchronized boolean take(int[] bounds)
+    {
+        if (empty) return false;
+
+        bounds[0] = minX;
+        bounds[1] = minY;
+        bounds[2] = maxX;
+        bounds[3] = maxY;
+
+        empty = true;
+
+        return true;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.util;
+
+import java.util.Collections;
+import java.util.List;
+
+import hale.area.Area;
+import hale.entity.Creature;
+import hale.entity.Path;
+
+/**
+ * The movement cost from a single start point to every reachable point in an area,
+ * along with the parent of each point on the cheapest route.  Costs include the
+ * penalties for moving through threatened points and spotted traps, as in path finding.
+ * <p>
+ * A field may be limited to a maximum cost, in which case points that cost more are
+ * treated as unreachable.  Costs are only stored for the rectangle containing the
+ * points that were reached, rather than for the whole area.
+ * <p>
+ * A DistanceField is a snapshot and is not updated if the area changes.  It is immutable
+ * and may be shared between threads.
+ */
+
+public class DistanceField
+{
+    private final Area area;
+    private final Creature mover;
+    private final PathFinder.Mode mode;
+    private final Point start;
+
+    // the area coordinates of the first entry in the cost and parent matrices
+    private final Point offset;
+    private final int areaHeight;
+
+    private final int[][] cost;
+    private final int[][] parent;
+
+    private final int maxCost;
+
+    private final List<Creature> threateningCreatures;
+
+    /**
+     * Creates a new DistanceField.  This should only be called by the PathFinder
+     */
+
+    DistanceField(Area area, Creature mover, PathFinder.Mode mode, Point start, Point offset, int[][] cost,
+                  int[][] parent, int maxCost, List<Creature> threateningCreatures)
+    {
+        this.area = area;
+        this.mover = mover;
+        this.mode = mode;
+        this.start = new Point(start);
+        this.offset = new Point(offset);
+        this.areaHeight = area.getHeight();
+        this.cost = cost;
+        this.parent = parent;
+        this.maxCost = maxCost;
+        this.threateningCreatures = threateningCreatures;
+    }
+
+    /**
+     * Returns the creature that this distance field was computed for
+     *
+     * @return the moving creature
+     */
+
+    public Creature getMover()
+    {
+        return mover;
+    }
+
+    /**
+     * Returns the rules used to determine which goal points are valid
+     *
+     * @return the path finding mode
+     */
+
+    public PathFinder.Mode getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * Returns the maximum cost of the points in this field, or Integer.MAX_VALUE if every
+     * reachable point in the area is included
+     *
+     * @return the maximum cost
+     */
+
+    public int getMaxCost()
+    {
+        return maxCost;
+    }
+
+    /**
+     * Returns true if this field includes every point that can be reached from the start
+     * point, false if it was limited to a maximum cost and some points were left out
+     *
+     * @return whether this field is complete
+     */
+
+    public boolean isComplete()
+    {
+        return maxCost == Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns true if the specified point can be reached from the start point within
+     * the maximum cost of this field
+     *
+     * @param x the x grid coordinate
+     * @param y the y grid coordinate
+     * @return whether the point is reachable
+     */
+
+    public boolean isReachable(int x, int y)
+    {
+        x -= offset.x;
+        y -= offset.y;
+
+        if (x < 0 || y < 0 || x >= cost.length || y >= cost[0].length) return false;
+
+        return cost[x][y] != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the movement cost to reach the specified point, or Integer.MAX_VALUE if
+     * the point cannot be reached within the maximum cost of this field
+     *
+     * @param x the x grid coordinate
+     * @param y the y grid coordinate
+     * @return the movement cost
+     */
+
+    public int getCost(int x, int y)
+    {
+        if (!isReachable(x, y)) return Integer.MAX_VALUE;
+
+        return cost[x - offset.x][y - offset.y];
+    }
+
+    /**
+     * Returns the cheapest path from the start point to the specified end point
+     *
+     * @param end the end point
+     * @return the cheapest path or null if no path exists within the maximum cost
+     */
+
+    public Path getPath(Point end)
+    {
+        return getPath(Collections.singletonList(end));
+    }
+
+    /**
+     * Returns the cheapest path from the start point to any point that is the specified
+     * distance away from the end point, in the same way as
+     * {@link AreaUtil#findShortestPath(Creature, Point, int)}
+     *
+     * @param end          the center of the goal points
+     * @param distanceAway the distance from the end point of the goal points
+     * @return the cheapest path or null if no path exists within the maximum cost
+     */
+
+    public Path getPath(Point end, int distanceAway)
+    {
+        return getPath(AreaUtil.getGoalPoints(end, distanceAway));
+    }
+
+    /**
+     * Returns the cheapest path from the start point to any one of the specified goal points
+     *
+     * @param goals the list of valid goal points
+     * @return the cheapest path or null if no path exists within the maximum cost
+     */
+
+    public Path getPath(List<Point> goals)
+    {
+        Point best = null;
+        int bestCost = Integer.MAX_VALUE;
+
+        for (Point goal : goals) {
+            // we are already at the end, so return an empty path
+            if (goal.equals(start)) return new Path(area);
+
+            if (!isReachable(goal.x, goal.y)) continue;
+
+            if (mode == PathFinder.Mode.Normal && area.getCreatureAtGridPoint(goal) != null) continue;
+
+            int goalCost = getCost(goal.x, goal.y);
+            if (goalCost < bestCost) {
+                best = goal;
+                bestCost = goalCost;
+            }
+        }
+
+        if (best == null) return null;
+
+        return PathFinder.getFinalPath(area, parent, offset, areaHeight, start, best, threateningCreatures);
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Records the time spent in each phase of the main loop, along with a set of per frame
+ * counters, for a rolling window of recent frames.  The main loop calls
+ * {@link #beginFrame()}, then {@link #beginPhase(Phase)} as each phase starts, and finally
+ * {@link #endFrame(int, int, int, int)} once the frame has been displayed.
+ * <p>
+ * Recording a frame only reads the system timer and stores a few values, so the profiler
+ * is always active.  Statistics over the window, such as frame time percentiles, are
+ * computed when requested.
+ * <p>
+ * This class is not synchronized, and should only be used from the main thread.
+ */
+
+public class FrameProfiler
+{
+    /**
+     * The phases of the main loop that are timed separately
+     */
+
+    public enum Phase
+    {
+        TextureLoading, AreaUpdate, Particles, Timer, Content, Interface, Display;
+    }
+
+    /**
+     * The values counted once per frame
+     */
+
+    public enum Counter
+    {
+        DrawCalls, TextureBinds, Particles, ScriptInvocations;
+    }
+
+    /**
+     * The number of frames kept in the rolling window
+     */
+
+    public static final int HistorySize = 600;
+
+    private static final int NumPhases = Phase.values().length;
+    private static final int NumCounters = Counter.values().length;
+
+    // the phase currently being timed, or null if no phase is being timed
+    private Phase currentPhase;
+    private long phaseStart;
+    private long frameStart;
+
+    private final long[] currentPhaseNanos;
+
+    // ring buffers holding the values for each recorded frame
+    private final long[] frameNanos;
+    private final long[][] phaseNanos;
+    private final int[][] counters;
+
+    private int nextFrame;
+    private int framesRecorded;
+    private long totalFrames;
+
+    private final long[] sortScratch;
+
+    /**
+     * Creates a new FrameProfiler with no recorded frames
+     */
+
+    public FrameProfiler()
+    {
+        currentPhaseNanos = new long[NumPhases];
+
+        frameNanos = new long[HistorySize];
+        phaseNanos = new long[NumPhases][HistorySize];
+        counters = new int[NumCounters][HistorySize];
+
+        sortScratch = new long[HistorySize];
+    }
+
+    /**
+     * Starts timing a new frame.  Any phase time from an unfinished frame is discarded
+     */
+
+    public void beginFrame()
+    {
+        Arrays.fill(currentPhaseNanos, 0L);
+        currentPhase = null;
+
+        frameStart = System.nanoTime();
+    }
+
+    /**
+     * Ends the phase currently being timed, if any, and starts timing the specified phase.
+     * A phase may be entered more than once in a frame, in which case its times are added
+     *
+     * @param phase the phase to start timing
+     */
+
+    public void beginPhase(Phase phase)
+    {
+        long now = System.nanoTime();
+
+        if (currentPhase != null) {
+            currentPhaseNanos[currentPhase.ordinal()] += now - phaseStart;
+        }
+
+        currentPhase = phase;
+        phaseStart = now;
+    }
+
+    /**
+     * Ends the current frame and records its times and the specified counters in the window
+     *
+     * @param drawCalls         the number of draw calls made in the frame
+     * @param textureBinds      the number of texture binds made in the frame
+     * @param particles         the number of live particles
+     * @param scriptInvocations the number of script evaluations and function invocations
+     */
+
+    public void endFrame(int drawCalls, int textureBinds, int particles, int scriptInvocations)
+    {
+        long now = System.nanoTime();
+
+        if (currentPhase != null) {
+            currentPhaseNanos[currentPhase.ordinal()] += now - phaseStart;
+            currentPhase = null;
+        }
+
+        int index = nextFrame;
+
+        frameNanos[index] = now - frameStart;
+
+        for (int phase = 0; phase < NumPhases; phase++) {
+            phaseNanos[phase][index] = currentPhaseNanos[phase];
+        }
+
+        counters[Counter.DrawCalls.ordinal()][index] = drawCalls;
+        counters[Counter.TextureBinds.ordinal()][index] = textureBinds;
+        counters[Counter.Particles.ordinal()][index] = particles;
+        counters[Counter.ScriptInvocations.ordinal()][index] = scriptInvocations;
+
+        nextFrame = (index + 1) % HistorySize;
+        framesRecorded = Math.min(framesRecorded + 1, HistorySize);
+        totalFrames++;
+    }
+
+    /**
+     * Returns the number of frames currently held in the rolling window
+     *
+     * @return the number of recorded frames
+     */
+
+    public int getFramesRecorded()
+    {
+        return framesRecorded;
+    }
+
+    /**
+     * Returns the specified percentile of the frame times in the rolling window
+     *
+     * @param percentile the percentile, from 0.0 to 100.0
+     * @return the frame time in nanoseconds, or 0 if no frames have been recorded
+     */
+
+    public long getFrameTimePercentile(double percentile)
+    {
+        if (framesRecorded == 0) return 0L;
+
+        System.arraycopy(frameNanos, 0, sortScratch, 0, framesRecorded);
+        Arrays.sort(sortScratch, 0, framesRecorded);
+
+        int index = (int)Math.ceil(percentile / 100.0 * framesRecorded) - 1;
+
+        return sortScratch[Math.max(0, Math.min(framesRecorded - 1, index))];
+    }
+
+    /**
+     * Returns the mean time spent in the specified phase per frame over the rolling window
+     *
+     * @param phase the phase
+     * @return the mean phase time in nanoseconds, or 0 if no frames have been recorded
+     */
+
+    public long getAveragePhaseTime(Phase phase)
+    {
+        if (framesRecorded == 0) return 0L;
+
+        long total = 0L;
+        for (int i = 0; i < framesRecorded; i++) {
+            total += phaseNanos[phase.ordinal()][i];
+        }
+
+        return total / framesRecorded;
+    }
+
+    /**
+     * Returns the value of the specified counter for the most recently recorded frame
+     *
+     * @param counter the counter
+     * @return the counter value, or 0 if no frames have been recorded
+     */
+
+    public int getLastCounterValue(Counter counter)
+    {
+        if (framesRecorded == 0) return 0;
+
+        return counters[counter.ordinal()][(nextFrame + HistorySize - 1) % HistorySize];
+    }
+
+    /**
+     * Writes all frames in the rolling window to the specified file in CSV format, oldest
+     * frame first.  Each row holds the frame number, the frame time and the time of each
+     * phase in nanoseconds, and the value of each counter
+     *
+     * @param file the file to write
+     * @throws IOException if an error occurs writing the file
+     */
+
+    public void writeCSV(File file) throws IOException
+    {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file))) {
+            out.write("frame,frameNanos");
+            for (Phase phase : Phase.values()) {
+                out.write("," + phase + "Nanos");
+            }
+            for (Counter counter : Counter.values()) {
+                out.write("," + counter);
+            }
+            out.newLine();
+
+            long firstFrame = totalFrames - framesRecorded;
+            int firstIndex = (nextFrame + HistorySize - framesRecorded) % HistorySize;
+
+            for (int i = 0; i < framesRecorded; i++) {
+                int index = (firstIndex + i) % HistorySize;
+
+                StringBuilder row = new StringBuilder();
+                row.append(firstFrame + i).append(',').append(frameNanos[index]);
+
+                for (int phase = 0; phase < NumPhases; phase++) {
+                    row.append(',').append(phaseNanos[phase][index]);
+                }
+
+                for (int counter = 0; counter < NumCounters; counter++) {
+                    row.append(',').append(counters[counter][index]);
+                }
+
+                out.write(row.toString());
+                out.newLine();
+            }
+        }
+    }
+}
@@ -19,7 +19,14 @@
 
 package hale.util;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
@@ -39,9 +46,30 @@ import javax.script.ScriptException;
 
 public class JSEngine
 {
-    private boolean inUse;
+    private static final int MaxCachedScripts = 512;
+
+    // the number of evaluations and function invocations across all engines
+    private static final AtomicInteger invocations = new AtomicInteger();
+
+    private final AtomicBoolean inUse;
     private final ScriptEngine engine;
 
+    // the pool this engine is returned to on release, or null if this engine is not pooled
+    private final JSEngineManager pool;
+
+    // whether this engine is currently present in the pool's free list
+    private final AtomicBoolean queued;
+
+    // the thread currently holding this engine, and when it acquired it
+    private volatile Thread owner;
+    private volatile long leaseStartNanos;
+
+    // whether the pool has given up on this engine being released, and replaced it
+    private volatile boolean reclaimed;
+
+    // the compiled and evaluated state of recently used scripts, keyed on script location
+    private final Map<String, CachedScript> cachedScripts;
+
     /**
      * Create a new JSEngine by obtaining a JavaScript engine
      * from the specified ScriptEngineManager
@@ -51,8 +79,33 @@ public class JSEngine
      */
 
     public JSEngine(ScriptEngineManager manager)
+    {
+        this(manager, null);
+    }
+
+    /**
+     * Create a new JSEngine that will be returned to the specified pool when released
+     *
+     * @param manager the ScriptEngineManager controlling the JavaScript engine(s)
+     * @param pool    the pool owning this engine, or null
+     */
+
+    JSEngine(ScriptEngineManager manager, JSEngineManager pool)
     {
         this.engine = manager.getEngineByName("JavaScript");
+        this.pool = pool;
+        this.inUse = new AtomicBoolean();
+        this.queued = new AtomicBoolean();
+
+        this.cachedScripts = new LinkedHashMap<String, CachedScript>(64, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedScript> eldest)
+            {
+                return size() > MaxCachedScripts;
+            }
+        };
     }
 
     /**
@@ -62,9 +115,27 @@ public class JSEngine
      * @param inUse
      */
 
-    protected synchronized void setInUse(boolean inUse)
+    protected void setInUse(boolean inUse)
     {
-        this.inUse = inUse;
+        this.inUse.set(inUse);
+        this.owner = inUse ? Thread.currentThread() : null;
+        this.leaseStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Attempts to lock this JSEngine for use by the current thread
+     *
+     * @return true if this engine was free and is now locked, false if it is
+     * already in use
+     */
+
+    boolean tryAcquire()
+    {
+        if (!inUse.compareAndSet(false, true)) return false;
+
+        owner = Thread.currentThread();
+        leaseStartNanos = System.nanoTime();
+        return true;
     }
 
     /**
@@ -73,9 +144,67 @@ public class JSEngine
      * @return true if this JSEngine is locked and in use, false otherwise
      */
 
-    protected synchronized boolean inUse()
+    protected boolean inUse()
+    {
+        return inUse.get();
+    }
+
+    /**
+     * Returns the thread that currently holds this engine, or null if it
+     * is not in use
+     *
+     * @return the thread holding this engine
+     */
+
+    Thread getOwner()
     {
-        return inUse;
+        return owner;
+    }
+
+    /**
+     * Returns the time this engine has been held by its current owner, or 0 if it
+     * is not in use
+     *
+     * @return the lease time in nanoseconds
+     */
+
+    long getLeaseNanos()
+    {
+        if (!inUse.get()) return 0l;
+
+        return System.nanoTime() - leaseStartNanos;
+    }
+
+    /**
+     * Marks this engine as reclaimed by its pool, so that it is discarded rather
+     * than returned to the pool once it is released
+     */
+
+    void setReclaimed()
+    {
+        reclaimed = true;
+    }
+
+    /**
+     * Returns true if the pool has reclaimed this engine
+     *
+     * @return whether this engine was reclaimed
+     */
+
+    boolean isReclaimed()
+    {
+        return reclaimed;
+    }
+
+    /**
+     * Returns the flag used by the pool to track whether this engine is in its free list
+     *
+     * @return the queued flag
+     */
+
+    AtomicBoolean getQueuedFlag()
+    {
+        return queued;
     }
 
     /**
@@ -92,6 +221,18 @@ public class JSEngine
         engine.put(key, value);
     }
 
+    /**
+     * Returns the number of script evaluations and function invocations made by all
+     * engines since the last call to this method, and resets the count to zero
+     *
+     * @return the number of script invocations
+     */
+
+    public static int getAndResetInvocations()
+    {
+        return invocations.getAndSet(0);
+    }
+
     /**
      * Evaluates the specified String as JavaScript code.  All code at the top
      * level of the source script is evaluated, code in methods is parsed.
@@ -106,14 +247,51 @@ public class JSEngine
 
     public Object eval(String script) throws ScriptException
     {
-        if (!inUse) throw new IllegalStateException("Script engine was already released.");
+        if (!inUse.get()) throw new IllegalStateException("Script engine was already released.");
+
+        invocations.incrementAndGet();
 
         return engine.eval(script);
     }
 
+    /**
+     * Sets the script state of this engine to the state created by evaluating the specified
+     * script.  The first time a given script is used with this engine, it is compiled (if the
+     * underlying engine supports compilation) and evaluated into its own set of bindings.  Both
+     * the compiled script and the resulting bindings are cached under the specified key, so later
+     * calls with the same key and script simply switch back to the existing bindings without
+     * parsing or evaluating the script again.
+     * <p>
+     * Because the evaluated state is reused, any changes a function makes to top level
+     * variables in the script will be seen by later invocations on this engine.
+     * <p>
+     * This method can be used in place of {@link #eval(String)} prior to calling
+     * {@link #invokeFunction(String, Object...)} or {@link #hasFunction(String)}
+     *
+     * @param key    the key to cache the script under, normally the script's resource location
+     * @param script the JavaScript code to evaluate
+     * @throws ScriptException if an error or errors occur in the script
+     */
+
+    public void evalCached(String key, String script) throws ScriptException
+    {
+        if (!inUse.get()) throw new IllegalStateException("Script engine was already released.");
+
+        CachedScript cached = cachedScripts.get(key);
+
+        // the script contents are compared in case the resource has been reloaded
+        if (cached == null || !cached.script.equals(script)) {
+            cached = new CachedScript(script);
+            cachedScripts.put(key, cached);
+        }
+
+        engine.setBindings(cached.bindings, ScriptContext.ENGINE_SCOPE);
+    }
+
     /**
      * Invokes the specified function with the specified arguments within the script state
-     * that has previously been created through the {@link #eval(String)} method.
+     * that has previously been created through the {@link #eval(String)} or
+     * {@link #evalCached(String, String)} method.
      *
      * @param function the name of the function to be called
      * @param args     a variable length list of arguments to be passed to the function
@@ -124,7 +302,9 @@ public class JSEngine
 
     public Object invokeFunction(String function, Object... args) throws ScriptException, NoSuchMethodException
     {
-        if (!inUse) throw new IllegalStateException("Script engine was already released.");
+        if (!inUse.get()) throw new IllegalStateException("Script engine was already released.");
+
+        invocations.incrementAndGet();
 
         return ((Invocable)engine).invokeFunction(function, args);
     }
@@ -143,7 +323,7 @@ public class JSEngine
 
     public boolean hasFunction(String function)
     {
-        if (!inUse) throw new IllegalStateException("Script engine was already released.");
+        if (!inUse.get()) throw new IllegalStateException("Script engine was already released.");
 
         Bindings bindings = engine.getBindings(ScriptContext.ENGINE_SCOPE);
         return bindings.containsKey(function);
@@ -157,16 +337,45 @@ public class JSEngine
      * After released, the JSEngine can now be leased out by the ScriptEngineManager
      */
 
-    public synchronized void release()
+    public void release()
     {
-        this.inUse = false;
+        if (!inUse.get()) return;
 
         engine.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+
+        owner = null;
+        inUse.set(false);
+
+        if (pool != null) pool.returnEngine(this);
     }
 
     @Override
     public String toString()
     {
-        return engine.toString() + ": " + inUse;
+        return engine.toString() + ": " + inUse.get();
+    }
+
+    /*
+     * A compiled script along with the bindings produced by evaluating it
+     */
+
+    private class CachedScript
+    {
+        private final String script;
+        private final Bindings bindings;
+
+        private CachedScript(String script) throws ScriptException
+        {
+            this.script = script;
+            this.bindings = engine.createBindings();
+
+            if (engine instanceof Compilable) {
+                CompiledScript compiled = ((Compilable)engine).compile(script);
+
+                compiled.eval(bindings);
+            } else {
+                engine.eval(script, bindings);
+            }
+        }
     }
 }
@@ -19,52 +19,141 @@
 
 package hale.util;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.script.ScriptEngineManager;
 
 /**
  * A class for managing a pool of available JavaScript interpreters
+ * <p>
+ * The pool holds at most a fixed number of engines.  Free engines are kept in a
+ * lock free queue.  Each thread first attempts to reuse the engine it used most
+ * recently, as that engine will already hold the compiled scripts the thread has
+ * been running.  This only helps threads that are reused, such as platform script
+ * workers, as virtual threads always take engines from the free queue.  When all engines are in use and the pool is full, callers wait for
+ * an engine to be released.  A thread that already holds an engine (a script running
+ * another script) or that has waited too long is given a new engine beyond the maximum
+ * rather than risk a deadlock.
+ * <p>
+ * Engines that have been held for longer than {@link #MaxLeaseMillis} are considered
+ * leaked.  When the pool runs out of engines, it replaces a leaked engine with a new one,
+ * and the leaked engine is discarded if it is ever released.  Engines still held by a
+ * {@link ScriptExecutor} task once the task finishes are also released as leaked.
  *
  * @author Jared
  */
 
 public class JSEngineManager
 {
+    /**
+     * The default maximum number of pooled engines
+     */
+
+    public static final int DefaultMaxEngines = 8;
+
+    /**
+     * The time an engine may be held before it is considered leaked
+     */
+
+    public static final long MaxLeaseMillis = 30000;
+
+    private static final long MaxWaitMillis = 2000;
+
     private final ScriptEngineManager manager;
 
+    private final int maxEngines;
+
     private final List<JSEngine> engines;
+    private final ConcurrentLinkedQueue<JSEngine> freeEngines;
+    private final AtomicInteger poolSize;
+
+    private final ThreadLocal<ThreadState> threadStates;
+
+    private final Object waitLock;
+    private final AtomicInteger waiters;
+
+    private final AtomicInteger enginesCreated;
+    private final AtomicLong leases;
+    private final AtomicLong waitNanos;
+    private final AtomicInteger leakedEngines;
 
     /**
-     * Creates a new empty manager
+     * Creates a new empty manager with the default maximum number of engines
      */
 
     public JSEngineManager()
     {
+        this(DefaultMaxEngines);
+    }
+
+    /**
+     * Creates a new empty manager
+     *
+     * @param maxEngines the maximum number of engines that will normally be created
+     *                   by this pool
+     */
+
+    public JSEngineManager(int maxEngines)
+    {
+        if (maxEngines < 1) {
+            throw new IllegalArgumentException("The engine pool must allow at least one engine");
+        }
+
         this.manager = new ScriptEngineManager();
-        this.engines = new ArrayList<>();
+        this.maxEngines = maxEngines;
+        this.engines = new CopyOnWriteArrayList<>();
+        this.freeEngines = new ConcurrentLinkedQueue<>();
+        this.poolSize = new AtomicInteger();
+
+        this.threadStates = new ThreadLocal<ThreadState>() {
+            @Override
+            protected ThreadState initialValue()
+            {
+                return new ThreadState();
+            }
+        };
+
+        this.waitLock = new Object();
+        this.waiters = new AtomicInteger();
+
+        this.enginesCreated = new AtomicInteger();
+        this.leases = new AtomicLong();
+        this.waitNanos = new AtomicLong();
+        this.leakedEngines = new AtomicInteger();
     }
 
     /**
      * Gets an available javascript engine.  If one is not available, a new one is
-     * created
+     * created if the pool is not full, otherwise this method waits for an engine to
+     * be released.  The engine must be released via {@link JSEngine#release()} when
+     * the caller is finished with it.
      *
      * @return the available JavaScript engine
      */
 
-    public synchronized JSEngine getEngine()
+    public JSEngine getEngine()
     {
-        for (JSEngine engine : engines) {
-            if (!engine.inUse()) {
-                engine.setInUse(true);
-                return engine;
-            }
+        ThreadState state = threadStates.get();
+
+        JSEngine engine = acquireWithoutWaiting(state);
+
+        if (engine == null) {
+            long startTime = System.nanoTime();
+
+            engine = acquireWaiting(state);
+
+            waitNanos.addAndGet(System.nanoTime() - startTime);
         }
 
-        JSEngine engine = new JSEngine(manager);
-        engine.setInUse(true);
-        engines.add(engine);
+        state.lastEngine = engine;
+        state.enginesHeld++;
+        leases.incrementAndGet();
+
         return engine;
     }
 
@@ -81,4 +170,252 @@ public class JSEngineManager
         engine.setInUse(true);
         return engine;
     }
+
+    /**
+     * Returns the maximum number of engines this pool will normally create
+     *
+     * @return the maximum number of engines
+     */
+
+    public int getMaxEngines()
+    {
+        return maxEngines;
+    }
+
+    /**
+     * Returns the number of engines that have been created by this pool
+     *
+     * @return the number of engines created
+     */
+
+    public int getEnginesCreated()
+    {
+        return enginesCreated.get();
+    }
+
+    /**
+     * Returns the number of times an engine has been leased from this pool
+     *
+     * @return the number of leases
+     */
+
+    public long getLeases()
+    {
+        return leases.get();
+    }
+
+    /**
+     * Returns the total time callers have spent waiting for an engine to be released,
+     * in nanoseconds
+     *
+     * @return the total wait time
+     */
+
+    public long getWaitNanos()
+    {
+        return waitNanos.get();
+    }
+
+    /**
+     * Returns the number of engines that have been held for longer than
+     * {@link #MaxLeaseMillis}, or that were not released by the script task holding them.
+     * This includes engines that have already been reclaimed or released by the pool.
+     *
+     * @return the number of leaked engines
+     */
+
+    public int getLeakedEngines()
+    {
+        int count = leakedEngines.get();
+
+        for (JSEngine engine : engines) {
+            if (isLeaked(engine)) count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Releases any pooled engines still held by the current thread.  This is called by
+     * the {@link ScriptExecutor} once each task finishes.  Its worker threads are reused
+     * rather than terminating, so an engine a task failed to release would otherwise
+     * stay in use forever.
+     */
+
+    public void releaseEnginesHeldByCurrentThread()
+    {
+        Thread thread = Thread.currentThread();
+
+        for (JSEngine engine : engines) {
+            if (engine.getOwner() != thread) continue;
+
+            engine.release();
+
+            leakedEngines.incrementAndGet();
+            Logger.appendToWarningLog("Released script engine leaked by a script task on thread " + thread.getName());
+        }
+    }
+
+    /*
+     * Called by a pooled engine when it is released
+     */
+
+    void returnEngine(JSEngine engine)
+    {
+        ThreadState state = threadStates.get();
+        if (state.enginesHeld > 0) state.enginesHeld--;
+
+        // a reclaimed engine has already been replaced in the pool
+        if (engine.isReclaimed()) return;
+
+        if (poolSize.get() > maxEngines) {
+            discardEngine(engine);
+        } else if (engine.getQueuedFlag().compareAndSet(false, true)) {
+            freeEngines.offer(engine);
+        }
+
+        if (waiters.get() > 0) {
+            synchronized (waitLock) {
+                waitLock.notifyAll();
+            }
+        }
+    }
+
+    private JSEngine acquireWithoutWaiting(ThreadState state)
+    {
+        // prefer the engine this thread used last
+        JSEngine engine = state.lastEngine;
+        if (engine != null && engine.tryAcquire()) return engine;
+
+        engine = pollFreeEngine();
+        if (engine != null) return engine;
+
+        if (reserveIfBelowMax()) return createEngine();
+
+        // a thread that already holds an engine may be waiting on itself
+        if (state.enginesHeld > 0) {
+            poolSize.incrementAndGet();
+            return createEngine();
+        }
+
+        return reclaimLeakedEngine();
+    }
+
+    private JSEngine acquireWaiting(ThreadState state)
+    {
+        long deadline = System.currentTimeMillis() + MaxWaitMillis;
+
+        synchronized (waitLock) {
+            waiters.incrementAndGet();
+
+            try {
+                while (true) {
+                    JSEngine engine = acquireWithoutWaiting(state);
+                    if (engine != null) return engine;
+
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) break;
+
+                    try {
+                        waitLock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+
+        Logger.appendToWarningLog("Timed out after " + TimeUnit.MILLISECONDS.toSeconds(MaxWaitMillis) +
+                " seconds waiting for a script engine; exceeding the pool maximum of " + maxEngines);
+
+        poolSize.incrementAndGet();
+        return createEngine();
+    }
+
+    private JSEngine pollFreeEngine()
+    {
+        JSEngine engine;
+
+        while ((engine = freeEngines.poll()) != null) {
+            engine.getQueuedFlag().set(false);
+
+            // the engine may have been taken by its previous thread while it was queued
+            if (engine.tryAcquire()) return engine;
+        }
+
+        return null;
+    }
+
+    private boolean reserveIfBelowMax()
+    {
+        while (true) {
+            int size = poolSize.get();
+            if (size >= maxEngines) return false;
+
+            if (poolSize.compareAndSet(size, size + 1)) return true;
+        }
+    }
+
+    /*
+     * Creates a new engine in use by the current thread.  The caller must have
+     * already reserved space for the engine in the pool size
+     */
+
+    private JSEngine createEngine()
+    {
+        JSEngine engine = new JSEngine(manager, this);
+        engine.setInUse(true);
+        engines.add(engine);
+        enginesCreated.incrementAndGet();
+
+        return engine;
+    }
+
+    /*
+     * Removes an engine created above the maximum from the pool.  The engine is
+     * locked so that the thread that last used it cannot reacquire it
+     */
+
+    private void discardEngine(JSEngine engine)
+    {
+        if (engine.tryAcquire() && engines.remove(engine)) {
+            poolSize.decrementAndGet();
+        }
+    }
+
+    private JSEngine reclaimLeakedEngine()
+    {
+        for (JSEngine engine : engines) {
+            Thread owner = engine.getOwner();
+
+            if (isLeaked(engine) && engines.remove(engine)) {
+                engine.setReclaimed();
+
+                leakedEngines.incrementAndGet();
+                Logger.appendToWarningLog("Reclaiming script engine held for " +
+                        TimeUnit.NANOSECONDS.toSeconds(engine.getLeaseNanos()) + " seconds by thread " +
+                        (owner == null ? "unknown" : owner.getName()));
+
+                // create a replacement in the leaked engine's place, as the leaked engine
+                // may be in an inconsistent state
+                return createEngine();
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isLeaked(JSEngine engine)
+    {
+        return engine.getLeaseNanos() > TimeUnit.MILLISECONDS.toNanos(MaxLeaseMillis);
+    }
+
+    private static class ThreadState
+    {
+        private JSEngine lastEngine;
+        private int enginesHeld;
+    }
 }
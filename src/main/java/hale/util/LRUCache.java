@@ -0,0 +1,328 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache holding values up to a total size budget, evicting the least recently used
+ * values once the budget is exceeded.  The size of each value is given by a
+ * {@link Weigher}, and is measured when the value is added.  An {@link EvictionHook} is
+ * called for each value that is to be evicted, and may keep the value in the cache by
+ * refusing the eviction.  The most recently added value is never evicted, so a single
+ * value larger than the budget can still be cached.
+ * <p>
+ * The numbers of hits, misses, and evictions are recorded.  This class is synchronized,
+ * but the weigher and eviction hook are called while holding the lock.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+
+public class LRUCache<K, V>
+{
+    private final Map<K, Entry<V>> entries;
+    private final Weigher<K, V> weigher;
+    private final EvictionHook<K, V> evictionHook;
+
+    private long budget;
+    private long size;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Measures the approximate memory used by the values in a cache
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+
+    public interface Weigher<K, V>
+    {
+        /**
+         * Returns the approximate size of the specified value, in bytes
+         *
+         * @param key   the key of the value
+         * @param value the value
+         * @return the size of the value
+         */
+
+        public long weigh(K key, V value);
+    }
+
+    /**
+     * Called when values are evicted from a cache
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+
+    public interface EvictionHook<K, V>
+    {
+        /**
+         * Called when the specified value is about to be evicted from the cache
+         *
+         * @param key   the key of the value
+         * @param value the value
+         * @return true if the value may be evicted, or false to keep it in the cache
+         */
+
+        public boolean evict(K key, V value);
+    }
+
+    /**
+     * Creates a new, empty LRUCache
+     *
+     * @param budget       the total size of the values that may be held, in bytes
+     * @param weigher      the weigher measuring the size of each value
+     * @param evictionHook the hook called for each evicted value, or null to always
+     *                     allow eviction
+     */
+
+    public LRUCache(long budget, Weigher<K, V> weigher, EvictionHook<K, V> evictionHook)
+    {
+        this.entries = new LinkedHashMap<K, Entry<V>>(64, 0.75f, true);
+        this.weigher = weigher;
+        this.evictionHook = evictionHook;
+        this.budget = budget;
+    }
+
+    /**
+     * Returns true if this cache contains a value for the specified key.  This does not
+     * count as a use of the value
+     *
+     * @param key the key
+     * @return whether a value is cached for the key
+     */
+
+    public synchronized boolean containsKey(K key)
+    {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Returns the value cached for the specified key, and marks it as the most
+     * recently used value
+     *
+     * @param key the key
+     * @return the cached value, or null if no value is cached for the key
+     */
+
+    public synchronized V get(K key)
+    {
+        Entry<V> entry = entries.get(key);
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Adds the specified value to this cache as the most recently used value, replacing
+     * any value already cached for the key, and then evicts values until this cache is
+     * within its budget
+     *
+     * @param key   the key
+     * @param value the value
+     */
+
+    public synchronized void put(K key, V value)
+    {
+        Entry<V> entry = new Entry<V>(value, weigher.weigh(key, value));
+
+        Entry<V> old = entries.put(key, entry);
+        if (old != null) size -= old.size;
+
+        size += entry.size;
+
+        evict(key);
+    }
+
+    /**
+     * Removes the value for the specified key from this cache, without calling the
+     * eviction hook
+     *
+     * @param key the key
+     * @return the removed value, or null if no value was cached for the key
+     */
+
+    public synchronized V remove(K key)
+    {
+        Entry<V> entry = entries.remove(key);
+        if (entry == null) return null;
+
+        size -= entry.size;
+        return entry.value;
+    }
+
+    /**
+     * Removes all values from this cache, without calling the eviction hook
+     */
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns a list of all values in this cache, from least to most recently used.  The
+     * list is a copy, so this cache may be modified while it is in use
+     *
+     * @return the list of values
+     */
+
+    public synchronized List<V> values()
+    {
+        List<V> values = new ArrayList<V>(entries.size());
+        for (Entry<V> entry : entries.values()) {
+            values.add(entry.value);
+        }
+
+        return values;
+    }
+
+    /**
+     * Returns the number of values in this cache
+     *
+     * @return the number of values
+     */
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total size of the values in this cache, in bytes, as measured when each
+     * value was added
+     *
+     * @return the size of the values
+     */
+
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the total size of the values that may be held by this cache, in bytes
+     *
+     * @return the budget
+     */
+
+    public synchronized long getBudget()
+    {
+        return budget;
+    }
+
+    /**
+     * Sets the total size of the values that may be held by this cache, evicting values
+     * if the cache is now over budget
+     *
+     * @param budget the budget, in bytes
+     */
+
+    public synchronized void setBudget(long budget)
+    {
+        this.budget = budget;
+
+        evict(null);
+    }
+
+    /**
+     * Returns the number of calls to {@link #get(Object)} that found a value
+     *
+     * @return the number of hits
+     */
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of calls to {@link #get(Object)} that did not find a value
+     *
+     * @return the number of misses
+     */
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Returns the number of values that have been evicted to keep this cache within budget
+     *
+     * @return the number of evictions
+     */
+
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /*
+     * Evicts the least recently used values, other than the value with the specified key,
+     * until this cache is within budget or no more values may be evicted
+     */
+
+    private void evict(K keep)
+    {
+        Iterator<Map.Entry<K, Entry<V>>> iter = entries.entrySet().iterator();
+
+        while (size > budget && iter.hasNext()) {
+            Map.Entry<K, Entry<V>> next = iter.next();
+
+            K key = next.getKey();
+            if (key == keep || (key != null && key.equals(keep))) continue;
+
+            Entry<V> entry = next.getValue();
+            if (evictionHook != null && !evictionHook.evict(key, entry.value)) continue;
+
+            iter.remove();
+            size -= entry.size;
+            evictions++;
+        }
+    }
+
+    private static class Entry<V>
+    {
+        private final V value;
+        private final long size;
+
+        private Entry(V value, long size)
+        {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
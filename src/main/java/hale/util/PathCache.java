@@ -0,0 +1,353 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import hale.entity.Creature;
+import hale.entity.Path;
+
+/**
+ * A cache of recently computed paths within a single area.  Each cached path is
+ * stored along with the passability version of the area's entity list at the time it
+ * was computed.  Any change in that version (an entity moving, a door opening, a trap
+ * being spotted, etc) causes all previously cached paths to be discarded.
+ * <p>
+ * Path costs also depend on which points hostile creatures threaten with attacks of
+ * opportunity.  Changes to that threat state (a creature using up its attacks of
+ * opportunity, falling unconscious, or changing weapons) do not change the passability
+ * version.  Instead, only the entries for the affected movers are removed, using
+ * {@link #removeThreatenedBy(Creature)} and {@link #removeMover(Creature)}.
+ * <p>
+ * This class is synchronized, as paths are computed from both the main thread and
+ * AI script threads.
+ */
+
+public class PathCache
+{
+    private static final int MaxEntries = 256;
+    private static final int MaxDistanceFields = 8;
+
+    private final Map<Key, Entry> entries;
+    private final Map<Key, DistanceField> distanceFields;
+
+    private int version;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a new, empty PathCache
+     */
+
+    public PathCache()
+    {
+        entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest)
+            {
+                return size() > MaxEntries;
+            }
+        };
+
+        distanceFields = new LinkedHashMap<Key, DistanceField>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, DistanceField> eldest)
+            {
+                return size() > MaxDistanceFields;
+            }
+        };
+    }
+
+    /**
+     * Returns true if a path for the specified search is cached and still valid for
+     * the specified passability version.  Note that the cached path may be null, indicating
+     * that no path exists.  This also updates the hit and miss counters.
+     *
+     * @param version     the current passability version of the area
+     * @param mover       the creature moving
+     * @param end         the end point or center of the goal points
+     * @param distanceAway the distance of the goal points from the end point
+     * @param mode        the path finding rules
+     * @param turnMode    whether the game is currently in turn mode
+     * @return whether the search result is cached
+     */
+
+    public synchronized boolean contains(int version, Creature mover, Point end, int distanceAway, PathFinder.Mode mode,
+                                         boolean turnMode)
+    {
+        checkVersion(version);
+
+        if (entries.containsKey(new Key(mover, end, distanceAway, mode, turnMode))) {
+            hits++;
+            return true;
+        } else {
+            misses++;
+            return false;
+        }
+    }
+
+    /**
+     * Returns the cached path for the specified search.  This should only be called
+     * after {@link #contains(int, Creature, Point, int, PathFinder.Mode, boolean)} returns true.
+     *
+     * @param mover       the creature moving
+     * @param end         the end point or center of the goal points
+     * @param distanceAway the distance of the goal points from the end point
+     * @param mode        the path finding rules
+     * @param turnMode    whether the game is currently in turn mode
+     * @return the cached path, or null if there is no cached path or no path exists
+     */
+
+    public synchronized Path get(Creature mover, Point end, int distanceAway, PathFinder.Mode mode, boolean turnMode)
+    {
+        Entry entry = entries.get(new Key(mover, end, distanceAway, mode, turnMode));
+
+        return entry == null ? null : entry.path;
+    }
+
+    /**
+     * Stores the specified path (which may be null) as the result of the specified search
+     *
+     * @param version     the passability version of the area when the path was computed
+     * @param mover       the creature moving
+     * @param end         the end point or center of the goal points
+     * @param distanceAway the distance of the goal points from the end point
+     * @param mode        the path finding rules
+     * @param turnMode    whether the game is currently in turn mode
+     * @param path        the computed path
+     */
+
+    public synchronized void put(int version, Creature mover, Point end, int distanceAway, PathFinder.Mode mode,
+                                 boolean turnMode, Path path)
+    {
+        checkVersion(version);
+
+        entries.put(new Key(mover, end, distanceAway, mode, turnMode), new Entry(path));
+    }
+
+    /**
+     * Returns the cached distance field for the specified mover at its current location,
+     * or null if no valid distance field is cached.  A cached field limited to a lower
+     * maximum cost than requested is not valid.  This also updates the hit and miss counters.
+     *
+     * @param version  the current passability version of the area
+     * @param mover    the creature moving
+     * @param mode     the path finding rules
+     * @param turnMode whether the game is currently in turn mode
+     * @param maxCost  the maximum cost of the points the field must include
+     * @return the cached distance field, or null
+     */
+
+    public synchronized DistanceField getDistanceField(int version, Creature mover, PathFinder.Mode mode,
+                                                       boolean turnMode, int maxCost)
+    {
+        checkVersion(version);
+
+        DistanceField field = distanceFields.get(new Key(mover, null, 0, mode, turnMode));
+
+        if (field != null && field.getMaxCost() < maxCost) field = null;
+
+        if (field != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+
+        return field;
+    }
+
+    /**
+     * Stores the specified distance field for the mover at its current location
+     *
+     * @param version  the passability version of the area when the field was computed
+     * @param turnMode whether the game is currently in turn mode
+     * @param field    the computed distance field
+     */
+
+    public synchronized void putDistanceField(int version, boolean turnMode, DistanceField field)
+    {
+        checkVersion(version);
+
+        distanceFields.put(new Key(field.getMover(), null, 0, field.getMode(), turnMode), field);
+    }
+
+    /**
+     * Removes all cached paths and distance fields for movers that the specified creature is
+     * hostile to.  This should be called whenever the points that the creature threatens with
+     * attacks of opportunity change, as the cost of moving past it changes for those movers.
+     * Entries for other movers are kept.
+     *
+     * @param threatener the creature whose threat state has changed
+     */
+
+    public synchronized void removeThreatenedBy(Creature threatener)
+    {
+        Iterator<Key> iter = entries.keySet().iterator();
+        while (iter.hasNext()) {
+            if (isThreatenedBy(iter.next().mover, threatener)) iter.remove();
+        }
+
+        iter = distanceFields.keySet().iterator();
+        while (iter.hasNext()) {
+            if (isThreatenedBy(iter.next().mover, threatener)) iter.remove();
+        }
+    }
+
+    /**
+     * Removes all cached paths and distance fields for the specified mover.  Entries for
+     * other movers are kept.
+     *
+     * @param mover the creature whose entries are removed
+     */
+
+    public synchronized void removeMover(Creature mover)
+    {
+        Iterator<Key> iter = entries.keySet().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().mover == mover) iter.remove();
+        }
+
+        iter = distanceFields.keySet().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().mover == mover) iter.remove();
+        }
+    }
+
+    /**
+     * Removes all cached paths and distance fields from this cache
+     */
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        distanceFields.clear();
+    }
+
+    /**
+     * Returns the number of searches that were answered by this cache
+     *
+     * @return the number of cache hits
+     */
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of searches that were not answered by this cache
+     *
+     * @return the number of cache misses
+     */
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    private void checkVersion(int version)
+    {
+        if (this.version != version) {
+            entries.clear();
+            distanceFields.clear();
+            this.version = version;
+        }
+    }
+
+    /*
+     * Only hostile creatures are considered when adding the threat costs to a path, see
+     * PathFinder.computeThreateningCreatures
+     */
+
+    private static boolean isThreatenedBy(Creature mover, Creature threatener)
+    {
+        return mover != threatener && threatener.getFaction().isHostile(mover);
+    }
+
+    private class Entry
+    {
+        private final Path path;
+
+        private Entry(Path path)
+        {
+            this.path = path;
+        }
+    }
+
+    private class Key
+    {
+        private final Creature mover;
+        private final int startX, startY;
+        private final int endX, endY;
+        private final int distanceAway;
+        private final PathFinder.Mode mode;
+        private final boolean turnMode;
+
+        /*
+         * Distance fields do not have an end point and use a null end, which is
+         * stored as (-1, -1)
+         */
+
+        private Key(Creature mover, Point end, int distanceAway, PathFinder.Mode mode, boolean turnMode)
+        {
+            this.mover = mover;
+            this.startX = mover.getLocation().getX();
+            this.startY = mover.getLocation().getY();
+            this.endX = end == null ? -1 : end.x;
+            this.endY = end == null ? -1 : end.y;
+            this.distanceAway = distanceAway;
+            this.mode = mode;
+            this.turnMode = turnMode;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = System.identityHashCode(mover);
+            hash = 31 * hash + startX;
+            hash = 31 * hash + startY;
+            hash = 31 * hash + endX;
+            hash = 31 * hash + endY;
+            hash = 31 * hash + distanceAway;
+            hash = 31 * hash + mode.ordinal();
+
+            return turnMode ? hash : -hash;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Key)) return false;
+
+            Key key = (Key)other;
+
+            return mover == key.mover && startX == key.startX && startY == key.startY && endX == key.endX &&
+                    endY == key.endY && distanceAway == key.distanceAway && mode == key.mode &&
+                    turnMode == key.turnMode;
+        }
+    }
+}
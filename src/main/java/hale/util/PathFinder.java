@@ -20,6 +20,7 @@
 package hale.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -39,6 +40,24 @@ import hale.entity.Trap;
 
 public class PathFinder
 {
+    /**
+     * The rules used to determine entity passabilities when computing a distance field
+     */
+
+    public enum Mode
+    {
+        /**
+         * Closed doors and creatures that are hostile to the mover and not helpless
+         * block movement.  Goal points occupied by a creature are not valid
+         */
+        Normal,
+
+        /**
+         * Only closed doors block movement.  Goal points occupied by a creature are valid
+         */
+        IgnoreCreatures;
+    }
+
     private enum EndPointStatus
     {
         Normal, IgnoreParty, IgnoreCreatures;
@@ -107,45 +126,30 @@ public class PathFinder
             }
         }
 
-        // compute initial state of open and closed sets based on passabilitiy
-        for (int i = 0; i < data.width; i++) {
-            for (int j = 0; j < data.height; j++) {
-                if (!data.pass[i][j] || !data.entityPass[i][j]) {
-                    data.closed[i][j] = true;
-                } else {
-                    data.closed[i][j] = false;
-                }
-
-
-                data.open[i][j] = false;
-            }
-        }
-        data.openSet.clear();
+        // start a new search generation; this implicitly empties the open and closed sets
+        data.beginSearch();
 
         // add the starting point to the list of points we are following
-        data.openSet.add(new Point(start.x, start.y));
-        data.open[start.x][start.y] = true;
-
         data.gScore[start.x][start.y] = 0;
         data.hScore[start.x][start.y] = AreaUtil.distance(start, end);
         data.fScore[start.x][start.y] = data.hScore[start.x][start.y] + data.gScore[start.x][start.y];
+        data.addToOpenSet(start.x, start.y);
 
         // loop as long as there is at least one point in the open set
         // if there are no points, the entire accessible area has been traversed and there is no path
-        while (!data.openSet.isEmpty()) {
+        while (!data.isOpenSetEmpty()) {
 
             // find the point within the open set with the lowest f score, which is most likely
             // to be along the correct path based on the simple grid distance heuristic
-            int currentIndex = PathFinder.findLowestFScore(data.openSet, data.fScore, lowest);
+            data.removeLowestFScore(lowest);
 
             if (PathFinder.isEndPoint(lowest, goals, data, status)) {
                 // we are done, find the path using the parents list
-                return PathFinder.getFinalPath(data, start, lowest, threateningCreatures);
+                return PathFinder.getFinalPath(data.area, data.parent, new Point(0, 0), data.height, start, lowest,
+                        threateningCreatures);
             }
 
-            data.openSet.remove(currentIndex);
-            data.open[lowest.x][lowest.y] = false;
-            data.closed[lowest.x][lowest.y] = true;
+            data.close(lowest.x, lowest.y);
 
             byte lowestElev = data.area.getElevationGrid().getElevation(lowest.x, lowest.y);
 
@@ -155,36 +159,32 @@ public class PathFinder
                 // if the point is outside the grid boundaries
                 if (!PathFinder.checkCoordinates(adjacent[i], data)) continue;
 
+                int x = adjacent[i].x;
+                int y = adjacent[i].y;
+
                 // if the point is in the closed set (already traversed or not passable)
-                if (data.closed[adjacent[i].x][adjacent[i].y]) continue;
+                if (data.isClosed(x, y)) continue;
 
                 // if the elevation is different from the previous point elevation
-                if (data.area.getElevationGrid().getElevation(adjacent[i].x, adjacent[i].y) != lowestElev) {
+                if (data.area.getElevationGrid().getElevation(x, y) != lowestElev) {
                     continue;
                 }
 
                 int tentativeGScore = data.gScore[lowest.x][lowest.y] + getCost(mover, data, adjacent[i], threateningCreatures);
 
-                boolean tentativeIsBetter;
-                if (!data.open[adjacent[i].x][adjacent[i].y]) {
-                    data.openSet.add(adjacent[i]);
-                    data.open[adjacent[i].x][adjacent[i].y] = true;
-                    tentativeIsBetter = true;
-                } else
-                    if (tentativeGScore < data.gScore[adjacent[i].x][adjacent[i].y]) {
-                        tentativeIsBetter = true;
-                    } else {
-                        tentativeIsBetter = false;
-                    }
+                boolean isOpen = data.isOpen(x, y);
+                if (isOpen && tentativeGScore >= data.gScore[x][y]) continue;
+
+                data.parent[x][y] = lowest.x * data.height + lowest.y;
 
-                if (tentativeIsBetter) {
-                    data.parent[adjacent[i].x][adjacent[i].y].x = lowest.x;
-                    data.parent[adjacent[i].x][adjacent[i].y].y = lowest.y;
+                data.gScore[x][y] = tentativeGScore;
+                data.hScore[x][y] = AreaUtil.distance(adjacent[i], end);
+                data.fScore[x][y] = data.gScore[x][y] + data.hScore[x][y];
 
-                    data.gScore[adjacent[i].x][adjacent[i].y] = tentativeGScore;
-                    data.hScore[adjacent[i].x][adjacent[i].y] = AreaUtil.distance(adjacent[i], end);
-                    data.fScore[adjacent[i].x][adjacent[i].y] = data.gScore[adjacent[i].x][adjacent[i].y] +
-                            data.hScore[adjacent[i].x][adjacent[i].y];
+                if (isOpen) {
+                    data.decreaseKey(x, y);
+                } else {
+                    data.addToOpenSet(x, y);
                 }
             }
         }
@@ -192,6 +192,121 @@ public class PathFinder
         return null;
     }
 
+    /**
+     * Computes the cost of moving from the mover's position to every reachable point in
+     * the area, using the same movement costs as path finding.  Paths to any number of
+     * goals may then be read from the returned field without further searching.
+     *
+     * @param mover the creature starting at the start point
+     * @param mode  the rules used to determine which goal points are valid.  The entity
+     *              passabilities in the data must already be set based on this mode
+     * @param data  data built from the area being traversed
+     * @return the distance field for the mover
+     */
+
+    public static DistanceField computeDistanceField(Creature mover, Mode mode, Data data)
+    {
+        return computeDistanceField(mover, mode, Integer.MAX_VALUE, data);
+    }
+
+    /**
+     * Computes the cost of moving from the mover's position to every point that can be
+     * reached with a cost of at most maxCost.  The search stops once all remaining points
+     * cost more than that, so a small bound only searches the area around the mover.
+     *
+     * @param mover   the creature starting at the start point
+     * @param mode    the rules used to determine which goal points are valid.  The entity
+     *                passabilities in the data must already be set based on this mode
+     * @param maxCost the maximum cost of the points included in the field
+     * @param data    data built from the area being traversed
+     * @return the distance field for the mover
+     */
+
+    public static DistanceField computeDistanceField(Creature mover, Mode mode, int maxCost, Data data)
+    {
+        List<Creature> threateningCreatures = computeThreateningCreatures(mover, data);
+
+        Point start = mover.getLocation().toPoint();
+        Point lowest = new Point();
+
+        data.beginSearch();
+
+        // with no heuristic, the f score is just the g score and this is Dijkstra's algorithm
+        data.gScore[start.x][start.y] = 0;
+        data.fScore[start.x][start.y] = 0;
+        data.addToOpenSet(start.x, start.y);
+
+        // the bounds of the points that have been reached, which are recorded as they are closed
+        int settledCount = 0;
+        int minX = start.x, maxX = start.x, minY = start.y, maxY = start.y;
+        boolean complete = true;
+
+        while (!data.isOpenSetEmpty()) {
+            data.removeLowestFScore(lowest);
+
+            // every point remaining in the open set costs at least as much as this one
+            if (data.gScore[lowest.x][lowest.y] > maxCost) {
+                complete = false;
+                break;
+            }
+
+            data.close(lowest.x, lowest.y);
+
+            data.settled[settledCount++] = lowest.x * data.height + lowest.y;
+            minX = Math.min(minX, lowest.x);
+            maxX = Math.max(maxX, lowest.x);
+            minY = Math.min(minY, lowest.y);
+            maxY = Math.max(maxY, lowest.y);
+
+            byte lowestElev = data.area.getElevationGrid().getElevation(lowest.x, lowest.y);
+
+            Point[] adjacent = AreaUtil.getAdjacentTiles(lowest);
+            for (int i = 0; i < adjacent.length; i++) {
+                if (!PathFinder.checkCoordinates(adjacent[i], data)) continue;
+
+                int x = adjacent[i].x;
+                int y = adjacent[i].y;
+
+                if (data.isClosed(x, y)) continue;
+
+                if (data.area.getElevationGrid().getElevation(x, y) != lowestElev) continue;
+
+                int tentativeGScore = data.gScore[lowest.x][lowest.y] + getCost(mover, data, adjacent[i], threateningCreatures);
+
+                boolean isOpen = data.isOpen(x, y);
+                if (isOpen && tentativeGScore >= data.gScore[x][y]) continue;
+
+                data.parent[x][y] = lowest.x * data.height + lowest.y;
+                data.gScore[x][y] = tentativeGScore;
+                data.fScore[x][y] = tentativeGScore;
+
+                if (isOpen) {
+                    data.decreaseKey(x, y);
+                } else {
+                    data.addToOpenSet(x, y);
+                }
+            }
+        }
+
+        // only the window containing the reached points is copied out of the data
+        int[][] cost = new int[maxX - minX + 1][maxY - minY + 1];
+        int[][] parent = new int[maxX - minX + 1][maxY - minY + 1];
+        for (int i = 0; i < cost.length; i++) {
+            Arrays.fill(cost[i], Integer.MAX_VALUE);
+        }
+
+        for (int i = 0; i < settledCount; i++) {
+            int x = data.settled[i] / data.height;
+            int y = data.settled[i] % data.height;
+
+            cost[x - minX][y - minY] = data.gScore[x][y];
+            parent[x - minX][y - minY] = data.parent[x][y];
+        }
+
+        return new DistanceField(data.area, mover, mode, start, new Point(minX, minY), cost, parent,
+                complete ? Integer.MAX_VALUE : maxCost, threateningCreatures);
+    }
+
     /*
      * Returns the list of all creatures that can potentially threaten AoOs against the mover, assuming
      * the mover were to move into an appropriate position
@@ -283,11 +398,15 @@ public class PathFinder
 
     /*
      * Traverses back through the linked list of parent points to compute the path from the
-     * start to end points
+     * start to end points.  The parent matrix may cover only part of the area, starting at
+     * the specified offset.  Parents are stored as x * height + y indices, using the height
+     * of the whole area
      */
 
-    private static final Path getFinalPath(Data data, Point start, Point end, List<Creature> threateningCreatures)
+    static final Path getFinalPath(Area area, int[][] parent, Point offset, int height, Point start, Point end,
+                                   List<Creature> threateningCreatures)
     {
+
         List<Creature> attacksOfOpportunity = new ArrayList<Creature>();
 
         List<Point> path = new ArrayList<Point>();
@@ -296,9 +415,9 @@ public class PathFinder
         path.add(cur);
 
         while (cur.x != start.x || cur.y != start.y) {
-            Point next = data.parent[cur.x][cur.y];
-            path.add(new Point(next));
-            cur = next;
+            int next = parent[cur.x - offset.x][cur.y - offset.y];
+            cur = new Point(next / height, next % height);
+            path.add(cur);
 
             // we check for threatening here, that way we don't check the first point
             // which is the goal point.  AoOs are provoked when moving out of a tile,
@@ -318,39 +437,7 @@ public class PathFinder
             return null;
         }
 
-        return new Path(data.area, path, attacksOfOpportunity);
-    }
-
-    /*
-     * Finds the point with the smallest fScore within the openSet
-     */
-
-    private static final int findLowestFScore(List<Point> open, int[][] fScore, Point lowest)
-    {
-        int i = open.size() - 1;
-
-        // Start at the end of the list and work backwards.  This prioritizes points that were
-        // added to the open set more recently (and thus are likely to be closer to the end)
-        // in the event of a tie.
-
-        lowest.x = open.get(i).x;
-        lowest.y = open.get(i).y;
-        int curLowestFScore = fScore[lowest.x][lowest.y];
-        int curLowestIndex = i;
-
-        for (i = open.size() - 2; i >= 0; i--) {
-            int x = open.get(i).x;
-            int y = open.get(i).y;
-
-            if (fScore[x][y] <= curLowestFScore) {
-                curLowestFScore = fScore[x][y];
-                lowest.x = x;
-                lowest.y = y;
-                curLowestIndex = i;
-            }
-        }
-
-        return curLowestIndex;
+        return new Path(area, path, attacksOfOpportunity);
     }
 
     /**
@@ -375,31 +462,22 @@ public class PathFinder
         {
             this.area = area;
 
-            boolean[][] passability = area.getPassability();
-
-            width = passability.length;
-            height = passability[0].length;
+            width = area.getWidth();
+            height = area.getHeight();
 
-            pass = new boolean[width][height];
+            pass = new BitGrid(area.getPassability());
 
             gScore = new int[width][height];
             hScore = new int[width][height];
             fScore = new int[width][height];
-            closed = new boolean[width][height];
-            open = new boolean[width][height];
-            parent = new Point[width][height];
-
-            openSet = new ArrayList<Point>(100);
-
-            for (int i = 0; i < width; i++) {
-                for (int j = 0; j < height; j++) {
-                    pass[i][j] = passability[i][j];
-
-                    closed[i][j] = !pass[i][j];
-                    open[i][j] = false;
-                    parent[i][j] = new Point();
-                }
-            }
+            closedGeneration = new int[width][height];
+            openGeneration = new int[width][height];
+            insertionOrder = new int[width][height];
+            heapIndex = new int[width][height];
+            parent = new int[width][height];
+
+            heap = new int[width * height];
+            settled = new int[width * height];
         }
 
         /**
@@ -410,27 +488,186 @@ public class PathFinder
          * @param entityPass
          */
 
-        public void setEntityPassabilities(boolean[][] entityPass)
+        public void setEntityPassabilities(BitGrid entityPass)
         {
             this.entityPass = entityPass;
         }
 
+        /*
+         * Starts a new search.  Rather than clearing the open and closed matrices, the
+         * generation is incremented so that all entries stamped with an earlier generation
+         * are treated as neither open nor closed
+         */
+
+        private void beginSearch()
+        {
+            heapSize = 0;
+            insertionCount = 0;
+
+            generation++;
+
+            // on overflow, reset the stamps so stale entries can't match a reused generation
+            if (generation == Integer.MAX_VALUE) {
+                for (int i = 0; i < width; i++) {
+                    for (int j = 0; j < height; j++) {
+                        closedGeneration[i][j] = 0;
+                        openGeneration[i][j] = 0;
+                    }
+                }
+
+                generation = 1;
+            }
+        }
+
+        private boolean isClosed(int x, int y)
+        {
+            return closedGeneration[x][y] == generation || !pass.get(x, y) || !entityPass.get(x, y);
+        }
+
+        private void close(int x, int y)
+        {
+            closedGeneration[x][y] = generation;
+        }
+
+        private boolean isOpen(int x, int y)
+        {
+            return openGeneration[x][y] == generation;
+        }
+
+        private boolean isOpenSetEmpty()
+        {
+            return heapSize == 0;
+        }
+
+        /*
+         * Adds the specified point to the open set.  The fScore for the point must
+         * already be set
+         */
+
+        private void addToOpenSet(int x, int y)
+        {
+            openGeneration[x][y] = generation;
+            insertionOrder[x][y] = insertionCount++;
+
+            heap[heapSize] = x * height + y;
+            heapIndex[x][y] = heapSize;
+            heapSize++;
+
+            siftUp(heapSize - 1);
+        }
+
+        /*
+         * Moves the specified point towards the top of the open set after its
+         * fScore has been lowered
+         */
+
+        private void decreaseKey(int x, int y)
+        {
+            siftUp(heapIndex[x][y]);
+        }
+
+        /*
+         * Removes the point with the lowest fScore from the open set and stores
+         * its coordinates in lowest
+         */
+
+        private void removeLowestFScore(Point lowest)
+        {
+            int node = heap[0];
+            lowest.x = node / height;
+            lowest.y = node % height;
+
+            openGeneration[lowest.x][lowest.y] = 0;
+
+            heapSize--;
+            if (heapSize > 0) {
+                setHeapEntry(0, heap[heapSize]);
+                siftDown(0);
+            }
+        }
+
+        private void siftUp(int index)
+        {
+            int node = heap[index];
+
+            while (index > 0) {
+                int parentIndex = (index - 1) / 2;
+                if (!isLower(node, heap[parentIndex])) break;
+
+                setHeapEntry(index, heap[parentIndex]);
+                index = parentIndex;
+            }
+
+            setHeapEntry(index, node);
+        }
+
+        private void siftDown(int index)
+        {
+            int node = heap[index];
+
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= heapSize) break;
+
+                if (child + 1 < heapSize && isLower(heap[child + 1], heap[child])) child++;
+
+                if (!isLower(heap[child], node)) break;
+
+                setHeapEntry(index, heap[child]);
+                index = child;
+            }
+
+            setHeapEntry(index, node);
+        }
+
+        private void setHeapEntry(int index, int node)
+        {
+            heap[index] = node;
+            heapIndex[node / height][node % height] = index;
+        }
+
+        /*
+         * Ties in fScore are broken in favor of the point added to the open set earliest,
+         * which is the point the previous linear scan of the open set list chose
+         */
+
+        private boolean isLower(int nodeA, int nodeB)
+        {
+            int ax = nodeA / height, ay = nodeA % height;
+            int bx = nodeB / height, by = nodeB % height;
+
+            if (fScore[ax][ay] != fScore[bx][by]) return fScore[ax][ay] < fScore[bx][by];
+
+            return insertionOrder[ax][ay] < insertionOrder[bx][by];
+        }
+
         private Area area;
 
-        private boolean[][] entityPass;
+        private BitGrid entityPass;
 
         private final int width;
         private final int height;
 
-        private final boolean[][] pass;
+        private final BitGrid pass;
 
         private final int[][] gScore;
         private final int[][] hScore;
         private final int[][] fScore;
-        private final boolean[][] closed;
-        private final boolean[][] open;
-        private final Point[][] parent;
-
-        private final List<Point> openSet;
+        private final int[][] parent;
+
+        // generation stamps for the open and closed sets
+        private int generation;
+        private final int[][] closedGeneration;
+        private final int[][] openGeneration;
+
+        // the open set, stored as a binary min heap of x * height + y indices
+        private final int[] heap;
+        private final int[][] heapIndex;
+        private final int[][] insertionOrder;
+        private int heapSize;
+        private int insertionCount;
+
+        // the x * height + y indices of the points reached by a distance field search
+        private final int[] settled;
     }
 }
@@ -22,9 +22,13 @@ package hale.util;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -32,6 +36,7 @@ import java.util.List;
 import java.util.zip.GZIPOutputStream;
 
 import hale.Game;
+import hale.loading.BinarySaveWriter;
 import hale.loading.JSONOrderedObject;
 import hale.loading.LoadGameException;
 import hale.loading.SaveWriter;
@@ -163,10 +168,23 @@ public class SaveGameUtil
      */
 
     public static File getNextQuickSaveFile()
+    {
+        return getSaveFile("quicksave" + getNextQuickSaveIndex());
+    }
+
+    /**
+     * Returns the index of the next quicksave that should be written, as described in
+     * {@link #getNextQuickSaveFile()}.  Files other than save files, such as the temporary
+     * files of saves still being written, are ignored
+     *
+     * @return the index of the next quicksave, between 1 and 9
+     */
+
+    public static int getNextQuickSaveIndex()
     {
         File[] files = new File(Game.plataform.getSaveDirectory()).listFiles();
 
-        if (files == null) return getSaveFile("quicksave1");
+        if (files == null) return 1;
 
         sortFilesByTimeModified(files);
 
@@ -175,6 +193,8 @@ public class SaveGameUtil
 
             if (!name.startsWith(Game.curCampaign.getID())) continue;
 
+            if (!name.endsWith(ResourceType.SaveGame.getExtension())) continue;
+
             String subName = name.substring(Game.curCampaign.getID().length() + 1,
                     name.length() - ResourceType.SaveGame.getLength());
 
@@ -190,10 +210,10 @@ public class SaveGameUtil
             index++;
             if (index > 9) index = 1;
 
-            return getSaveFile("quicksave" + index);
+            return index;
         }
 
-        return getSaveFile("quicksave1");
+        return 1;
     }
 
     /**
@@ -219,7 +239,10 @@ public class SaveGameUtil
     /**
      * The current state of the game (as contained in the Game.curCampaign object)
      * is saved to the specified file in a compressed format.  A header containing
-     * some basic information is also saved to the file.
+     * some basic information is also saved to the file.  The game data is written in
+     * either the binary or JSON format, as specified by the config.  The entire save
+     * is performed on the calling thread; use the {@link SaveGameWriter} to write
+     * the save in the background.
      *
      * @param file the file to save to
      * @throws IOException any exception thrown by the OutputStream used to write the file
@@ -229,15 +252,68 @@ public class SaveGameUtil
     {
         JSONOrderedObject data = Game.curCampaign.getSaveGameData();
 
-        FileOutputStream fos = new FileOutputStream(file);
-        GZIPOutputStream gz = new GZIPOutputStream(fos);
-
         SaveFileHeader header = new SaveFileHeader(Game.curCampaign);
-        SaveFileHeader.write(header, gz);
 
-        PrintWriter writer = new PrintWriter(gz);
-        SaveWriter.writeJSON(data, writer);
+        writeSaveGame(new FileOutputStream(file), header, data, Game.config.useBinarySaves());
+    }
+
+    /**
+     * Moves the specified source file to the specified target, replacing the target if
+     * it exists.  Where the file system supports it, the move is atomic, so the target is
+     * never seen in a partially written state
+     *
+     * @param source the file to move
+     * @param target the destination of the file
+     * @throws IOException if the file cannot be moved
+     */
 
-        writer.close();
+    public static void replaceFile(File source, File target) throws IOException
+    {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Compresses and writes the specified header and save data to the specified stream,
+     * which is closed once writing is complete or an error occurs.  This does not access
+     * the current campaign, so it may be called from any thread
+     *
+     * @param out    the stream to write to
+     * @param header the save file header
+     * @param data   the save data, as returned by the campaign
+     * @param binary true to write the data in the binary format, false to write it as JSON
+     * @throws IOException any exception thrown by the OutputStream used to write the file
+     */
+
+    static void writeSaveGame(OutputStream out, SaveFileHeader header, JSONOrderedObject data,
+                              boolean binary) throws IOException
+    {
+        try {
+            GZIPOutputStream gz = new GZIPOutputStream(out);
+
+            SaveFileHeader.write(header, gz);
+
+            if (binary) {
+                BinarySaveWriter writer = new BinarySaveWriter(gz);
+                writer.write(data);
+
+                writer.close();
+            } else {
+                PrintWriter writer = new PrintWriter(gz);
+                SaveWriter.writeJSON(data, writer);
+
+                writer.close();
+
+                // PrintWriter does not throw, so a failed write must be checked for explicitly
+                if (writer.checkError()) {
+                    throw new IOException("Error writing save game data.");
+                }
+            }
+        } finally {
+            out.close();
+        }
     }
 }
@@ -0,0 +1,460 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hale.Game;
+import hale.area.Area;
+import hale.loading.JSONOrderedObject;
+import hale.loading.SaveSegmentStore;
+import hale.rules.Campaign;
+
+/**
+ * Saves the game without blocking the main thread for the full save.  Each save is split
+ * into two phases.  The snapshot phase runs on the calling thread, and builds the save data
+ * tree and header from the current campaign.  Since the save methods of all game objects
+ * produce new objects holding copies of their state, the snapshot is consistent with the
+ * frame it was taken on and is not affected by later changes to the game.
+ * <p>
+ * The write phase compresses and writes the snapshot on a single background thread, to
+ * a temporary file in the same directory as the save file.  Once the write is complete,
+ * the temporary file is renamed over the save file, so an existing save is never left
+ * partially written.  Saves are written in the order they are submitted.
+ * <p>
+ * Binary saves store each area as a separate segment, shared between saves.  The save
+ * version of each area is compared against the version of its most recently written
+ * segment, so areas which have not changed are neither saved in the snapshot nor written,
+ * and the cost of a save is proportional to what has changed since the last save.
+ * <p>
+ * The time taken by the snapshot phase, which is the hitch seen on the main thread, and
+ * by the write phase are recorded for the most recent save.
+ */
+
+public class SaveGameWriter
+{
+    private static final String TempFileExtension = ".tmp";
+
+    private final ExecutorService writer;
+
+    private final AtomicInteger pendingSaves;
+    private final AtomicLong lastSnapshotNanos;
+    private final AtomicLong lastWriteNanos;
+
+    private Future<?> lastSave;
+
+    // the most recently written segment for each area, used to avoid saving unchanged areas
+    private final Map<Area, SavedSegment> savedSegments;
+
+    // the index of the most recently submitted quicksave, and the campaign it was for
+    private String quickSaveCampaignID;
+    private int quickSaveIndex;
+
+    /**
+     * The stages of a save reported to a {@link Listener}
+     */
+
+    public enum Stage
+    {
+        /**
+         * The snapshot has been taken and the save is waiting to be written
+         */
+        Queued,
+
+        /**
+         * The snapshot is being compressed and written to the temporary file
+         */
+        Writing,
+
+        /**
+         * The temporary file is being renamed to the save file
+         */
+        Moving;
+    }
+
+    /**
+     * A listener notified as a save progresses.  All methods other than the first
+     * call to {@link #saveProgress(File, Stage)} are called from the background thread,
+     * so implementations must be thread safe.
+     */
+
+    public interface Listener
+    {
+        /**
+         * Called each time the save reaches a new stage
+         *
+         * @param file  the file being saved
+         * @param stage the stage that has been reached
+         */
+
+        public void saveProgress(File file, Stage stage);
+
+        /**
+         * Called once the save has either completed or failed.  If the save failed,
+         * any existing file with the same name is left unchanged
+         *
+         * @param file  the file that was saved
+         * @param error the error that caused the save to fail, or null if the
+         *              save completed successfully
+         */
+
+        public void saveCompleted(File file, Exception error);
+    }
+
+    /**
+     * Creates a new SaveGameWriter with no pending saves.  The background thread is
+     * only started when a save is submitted, and stops once it has been idle for a time.
+     * It is not a daemon, so the game does not exit until pending saves are written.
+     */
+
+    public SaveGameWriter()
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new WriterThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+
+        this.writer = executor;
+
+        this.pendingSaves = new AtomicInteger();
+        this.lastSnapshotNanos = new AtomicLong();
+        this.lastWriteNanos = new AtomicLong();
+
+        this.savedSegments = new WeakHashMap<Area, SavedSegment>();
+    }
+
+    /**
+     * Takes a snapshot of the current state of the game (as contained in the
+     * Game.curCampaign object) and then writes it to the specified file in the
+     * background.  When saves are written in the binary format, each loaded area is
+     * saved as a separate segment in the campaign's {@link SaveSegmentStore}, and only
+     * the areas which have changed since they were last saved are included in the
+     * snapshot and written.  Otherwise, the save is written in the same format as
+     * {@link SaveGameUtil#saveGame(File)}.  This method must be called from the main thread.
+     *
+     * @param file     the file to save to
+     * @param listener the listener to notify as the save progresses, or null
+     */
+
+    public void save(File file, Listener listener)
+    {
+        long startTime = System.nanoTime();
+
+        final Snapshot snapshot = new Snapshot(file, listener);
+
+        lastSnapshotNanos.set(System.nanoTime() - startTime);
+
+        if (listener != null) listener.saveProgress(file, Stage.Queued);
+
+        pendingSaves.incrementAndGet();
+
+        Runnable task = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    snapshot.write();
+                } finally {
+                    pendingSaves.decrementAndGet();
+                }
+            }
+        };
+
+        synchronized (this) {
+            lastSave = writer.submit(task);
+        }
+    }
+
+    /**
+     * Returns the File for the next quicksave that should be written for the current
+     * campaign.  The first quicksave follows the most recently written quicksave in the
+     * save directory, as given by {@link SaveGameUtil#getNextQuickSaveFile()}.  After that,
+     * the index is tracked here, so a quicksave taken while the previous one is still
+     * being written does not reuse its index.  This method must be called from the main thread.
+     *
+     * @return the File for the next quicksave
+     */
+
+    public File getNextQuickSaveFile()
+    {
+        String campaignID = Game.curCampaign.getID();
+
+        if (campaignID.equals(quickSaveCampaignID)) {
+            quickSaveIndex++;
+            if (quickSaveIndex > 9) quickSaveIndex = 1;
+        } else {
+            quickSaveCampaignID = campaignID;
+            quickSaveIndex = SaveGameUtil.getNextQuickSaveIndex();
+        }
+
+        return SaveGameUtil.getSaveFile("quicksave" + quickSaveIndex);
+    }
+
+    /**
+     * Blocks until all saves submitted before this method was called have been written.
+     * This should be called before reading a save file that may have been recently saved.
+     */
+
+    public void waitForPendingSaves()
+    {
+        Future<?> save;
+        synchronized (this) {
+            save = lastSave;
+        }
+
+        if (save == null) return;
+
+        try {
+            save.get();
+        } catch (Exception e) {
+            Logger.appendToErrorLog("Error waiting for pending saves", e);
+        }
+    }
+
+    /**
+     * Returns the number of saves that have been submitted but have not yet been
+     * completely written
+     *
+     * @return the number of pending saves
+     */
+
+    public int getPendingSaves()
+    {
+        return pendingSaves.get();
+    }
+
+    /**
+     * Returns the time spent on the main thread taking the snapshot for the most
+     * recent save
+     *
+     * @return the most recent snapshot time in nanoseconds
+     */
+
+    public long getLastSnapshotNanos()
+    {
+        return lastSnapshotNanos.get();
+    }
+
+    /**
+     * Returns the time spent on the background thread writing the most recently
+     * completed save
+     *
+     * @return the most recent write time in nanoseconds
+     */
+
+    public long getLastWriteNanos()
+    {
+        return lastWriteNanos.get();
+    }
+
+    /*
+     * The last segment written for an area, which may be reused by later saves for as
+     * long as the save version of the area is unchanged
+     */
+
+    private static class SavedSegment
+    {
+        private final int saveVersion;
+        private final String hash;
+
+        private SavedSegment(int saveVersion, String hash)
+        {
+            this.saveVersion = saveVersion;
+            this.hash = hash;
+        }
+    }
+
+    /*
+     * The save data for an area that has changed and must be written as a new segment
+     */
+
+    private static class PendingSegment
+    {
+        private final Area area;
+        private final int saveVersion;
+        private final int index;
+        private final JSONOrderedObject data;
+
+        private PendingSegment(Area area, int saveVersion, int index, JSONOrderedObject data)
+        {
+            this.area = area;
+            this.saveVersion = saveVersion;
+            this.index = index;
+            this.data = data;
+        }
+    }
+
+    /*
+     * The state of the game captured on the main thread, which is then written by the
+     * background thread
+     */
+
+    private class Snapshot
+    {
+        private final File file;
+        private final Listener listener;
+
+        private final SaveFileHeader header;
+        private final boolean binary;
+        private final JSONOrderedObject data;
+
+        // only used when saving areas as segments
+        private SaveSegmentStore store;
+        private String[] segmentHashes;
+        private List<PendingSegment> pendingSegments;
+
+        private Snapshot(File file, Listener listener)
+        {
+            this.file = file;
+            this.listener = listener;
+
+            this.header = new SaveFileHeader(Game.curCampaign);
+            this.binary = Game.config.useBinarySaves();
+
+            if (binary) {
+                this.data = takeSegmentedData(Game.curCampaign);
+            } else {
+                this.data = Game.curCampaign.getSaveGameData();
+            }
+        }
+
+        private JSONOrderedObject takeSegmentedData(Campaign campaign)
+        {
+            // the state of the current area is not tracked, and is always assumed to have changed
+            campaign.curArea.markSaveDataChanged();
+
+            Collection<Area> areas = campaign.getLoadedAreas();
+
+            // unloaded areas are already stored as pinned segments, and can never have changed
+            Collection<String> unloadedSegments = campaign.getUnloadedAreaSegments();
+
+            store = new SaveSegmentStore(campaign.getID());
+            segmentHashes = new String[areas.size() + unloadedSegments.size()];
+            pendingSegments = new ArrayList<PendingSegment>();
+
+            int index = 0;
+            for (Area area : areas) {
+                int saveVersion = area.getSaveVersion();
+
+                SavedSegment saved;
+                synchronized (savedSegments) {
+                    saved = savedSegments.get(area);
+                }
+
+                if (saved != null && saved.saveVersion == saveVersion && store.contains(saved.hash)) {
+                    segmentHashes[index] = saved.hash;
+                } else {
+                    pendingSegments.add(new PendingSegment(area, saveVersion, index, (JSONOrderedObject)area.save()));
+                }
+
+                index++;
+            }
+
+            for (String segment : unloadedSegments) {
+                segmentHashes[index] = segment;
+                index++;
+            }
+
+            JSONOrderedObject data = new JSONOrderedObject();
+
+            // the segment list is the first entry, so it can be read without reading the whole save
+            data.put(SaveSegmentStore.SegmentsKey, segmentHashes);
+            data.putAll(campaign.getSaveGameData(false));
+
+            return data;
+        }
+
+        private void write()
+        {
+            long startTime = System.nanoTime();
+
+            File tempFile = new File(file.getPath() + TempFileExtension);
+
+            Exception error = null;
+            try {
+                if (listener != null) listener.saveProgress(file, Stage.Writing);
+
+                if (pendingSegments != null) {
+                    for (PendingSegment segment : pendingSegments) {
+                        segmentHashes[segment.index] = store.write(segment.data);
+                    }
+                }
+
+                SaveGameUtil.writeSaveGame(new FileOutputStream(tempFile), header, data, binary);
+
+                if (listener != null) listener.saveProgress(file, Stage.Moving);
+
+                SaveGameUtil.replaceFile(tempFile, file);
+
+            } catch (Exception e) {
+                error = e;
+
+                tempFile.delete();
+            }
+
+            if (error == null && pendingSegments != null && !pendingSegments.isEmpty()) {
+                List<String> keep = new ArrayList<String>();
+
+                synchronized (savedSegments) {
+                    for (PendingSegment segment : pendingSegments) {
+                        savedSegments.put(segment.area, new SavedSegment(segment.saveVersion,
+                                segmentHashes[segment.index]));
+                    }
+
+                    // segments that may be reused by a later save must be kept
+                    for (SavedSegment saved : savedSegments.values()) {
+                        keep.add(saved.hash);
+                    }
+                }
+
+                store.collectGarbage(keep);
+            }
+
+            lastWriteNanos.set(System.nanoTime() - startTime);
+
+            if (listener != null) listener.saveCompleted(file, error);
+        }
+    }
+
+    private static class WriterThreadFactory implements ThreadFactory
+    {
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "SaveGameWriter");
+            thread.setDaemon(false);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A shared executor for running game scripts off of the main thread.  Tasks may be
+ * submitted to run immediately or after a delay.  Delays are handled by a single
+ * scheduling thread, which hands each task to a worker pool once its delay expires.
+ * The worker pool uses virtual threads where the JVM supports them, and otherwise
+ * a cached pool of daemon threads that are reused between tasks.
+ * <p>
+ * The executor keeps track of the number of tasks waiting to start, as well as the
+ * latency between when each task was due to start and when it actually started.
+ * <p>
+ * Since worker threads are reused, any script engine a task fails to release is
+ * released back to the engine pool once the task finishes.
+ */
+
+public class ScriptExecutor
+{
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+    private final boolean virtualThreads;
+
+    private final JSEngineManager engineManager;
+
+    private final AtomicInteger queueDepth;
+    private final AtomicLong tasksStarted;
+    private final AtomicLong totalLatencyNanos;
+    private final AtomicLong maxLatencyNanos;
+
+    /**
+     * Creates a new ScriptExecutor, with no tasks
+     *
+     * @param engineManager the pool of script engines used by the tasks
+     */
+
+    public ScriptExecutor(JSEngineManager engineManager)
+    {
+        this.engineManager = engineManager;
+
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("ScriptScheduler"));
+
+        ExecutorService virtualExecutor = createVirtualThreadExecutor();
+        if (virtualExecutor != null) {
+            this.workers = virtualExecutor;
+            this.virtualThreads = true;
+        } else {
+            this.workers = Executors.newCachedThreadPool(new DaemonThreadFactory("ScriptWorker"));
+            this.virtualThreads = false;
+        }
+
+        this.queueDepth = new AtomicInteger();
+        this.tasksStarted = new AtomicLong();
+        this.totalLatencyNanos = new AtomicLong();
+        this.maxLatencyNanos = new AtomicLong();
+    }
+
+    /**
+     * Submits the specified task to be run after the specified delay
+     *
+     * @param task        the task to run
+     * @param delayMillis the delay in milliseconds, or 0 to run the task as soon as possible
+     * @return a handle that can be used to check whether the task has completed or to
+     * cancel it
+     */
+
+    public Task submit(Runnable task, long delayMillis)
+    {
+        Task handle = new Task(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+
+        queueDepth.incrementAndGet();
+
+        try {
+            if (delayMillis > 0) {
+                handle.scheduled = scheduler.schedule(handle::dispatch, delayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                workers.execute(handle);
+            }
+        } catch (RejectedExecutionException e) {
+            queueDepth.decrementAndGet();
+            throw e;
+        }
+
+        return handle;
+    }
+
+    /**
+     * Returns true if tasks are run on virtual threads, false if they are run on a
+     * pool of platform threads
+     *
+     * @return whether tasks are run on virtual threads
+     */
+
+    public boolean usesVirtualThreads()
+    {
+        return virtualThreads;
+    }
+
+    /**
+     * Returns the number of tasks that have been submitted but have not yet started,
+     * including tasks whose delay has not yet expired
+     *
+     * @return the number of waiting tasks
+     */
+
+    public int getQueueDepth()
+    {
+        return queueDepth.get();
+    }
+
+    /**
+     * Returns the number of tasks that have started running
+     *
+     * @return the number of started tasks
+     */
+
+    public long getTasksStarted()
+    {
+        return tasksStarted.get();
+    }
+
+    /**
+     * Returns the average time between when tasks were due to start and when they
+     * actually started, in nanoseconds
+     *
+     * @return the average start latency
+     */
+
+    public long getAverageLatencyNanos()
+    {
+        long started = tasksStarted.get();
+
+        return started == 0 ? 0 : totalLatencyNanos.get() / started;
+    }
+
+    /**
+     * Returns the longest time between when a task was due to start and when it
+     * actually started, in nanoseconds
+     *
+     * @return the maximum start latency
+     */
+
+    public long getMaxLatencyNanos()
+    {
+        return maxLatencyNanos.get();
+    }
+
+    private void recordStart(long dueTime)
+    {
+        long latency = Math.max(0, System.nanoTime() - dueTime);
+
+        queueDepth.decrementAndGet();
+        tasksStarted.incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    }
+
+    /*
+     * Uses Executors.newVirtualThreadPerTaskExecutor if it is available in the running JVM
+     */
+
+    private static ExecutorService createVirtualThreadExecutor()
+    {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+            return (ExecutorService)method.invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * A task that has been submitted to the ScriptExecutor
+     */
+
+    public class Task extends FutureTask<Void>
+    {
+        private final long dueTime;
+        private volatile ScheduledFuture<?> scheduled;
+        private boolean started;
+
+        // counted down once the task has finished running, or will never run
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private Task(Runnable task, long dueTime)
+        {
+            super(task, null);
+
+            this.dueTime = dueTime;
+        }
+
+        private void dispatch()
+        {
+            if (isCancelled()) return;
+
+            workers.execute(this);
+        }
+
+        @Override
+        public void run()
+        {
+            synchronized (this) {
+                if (started) return;
+
+                started = true;
+            }
+
+            recordStart(dueTime);
+
+            try {
+                super.run();
+            } finally {
+                try {
+                    engineManager.releaseEnginesHeldByCurrentThread();
+                } finally {
+                    finished.countDown();
+                }
+            }
+        }
+
+        /**
+         * Returns true if this task has finished running, or was cancelled before it
+         * started.  Unlike {@link #isDone()}, this is not true for a task that was
+         * cancelled while it was running until the task actually stops.
+         *
+         * @return whether this task has finished
+         */
+
+        public boolean isFinished()
+        {
+            return finished.getCount() == 0;
+        }
+
+        /**
+         * Blocks until this task has finished running, as defined by {@link #isFinished()}
+         *
+         * @throws InterruptedException if the calling thread is interrupted while waiting
+         */
+
+        public void awaitFinished() throws InterruptedException
+        {
+            finished.await();
+        }
+
+        /*
+         * The results of tasks are never retrieved, so an exception thrown by the task
+         * would otherwise be lost
+         */
+
+        @Override
+        protected void setException(Throwable exception)
+        {
+            Logger.appendToErrorLog("Error running asynchronous script task", exception);
+
+            super.setException(exception);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+            if (cancelled) {
+                ScheduledFuture<?> scheduled = this.scheduled;
+                if (scheduled != null) scheduled.cancel(false);
+
+                // a cancelled task will never start
+                synchronized (this) {
+                    if (!started) {
+                        started = true;
+                        queueDepth.decrementAndGet();
+                        finished.countDown();
+                    }
+                }
+            }
+
+            return cancelled;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory
+    {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private DaemonThreadFactory(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -405,6 +405,27 @@ public class SimpleJSONObject
             }
     }
 
+    /**
+     * Returns the grid corresponding to the specified key.  Grids are only present in
+     * data read from a binary save file; the JSON format stores grids as arrays.  If there
+     * is no such key, or the key does not point to a grid, returns null
+     *
+     * @param key the key for the grid
+     * @return the grid corresponding to the specified key
+     */
+
+    public BitGrid getBitGrid(String key)
+    {
+        Object obj = object.get(key);
+
+        if (obj instanceof BitGrid) {
+            usedKeys.add(key);
+            return (BitGrid)obj;
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Returns true if and only if this object contains a value with the specified key
      *
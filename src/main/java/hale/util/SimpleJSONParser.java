@@ -56,7 +56,7 @@ public class SimpleJSONParser
 
     public SimpleJSONParser(String resource, ResourceType type)
     {
-        initialize(ResourceManager.getReader(resource + type.getExtension()), resource);
+        initialize(resource + type.getExtension(), resource);
     }
 
     /**
@@ -68,7 +68,7 @@ public class SimpleJSONParser
 
     public SimpleJSONParser(String resource)
     {
-        initialize(ResourceManager.getReader(resource), resource);
+        initialize(resource, resource);
     }
 
     /**
@@ -110,6 +110,30 @@ public class SimpleJSONParser
         initialize(reader, id);
     }
 
+    /**
+     * Creates a new JSONParser wrapping the specified already parsed data
+     *
+     * @param object the parsed data
+     * @param id     the ID of the resource the data was read from
+     */
+
+    public SimpleJSONParser(JSONObject object, String id)
+    {
+        result = new SimpleJSONObject(object, id);
+    }
+
+    private void initialize(String path, String id)
+    {
+        // resource packs store JSON already parsed
+        JSONObject parsed = ResourceManager.getParsedJSON(path);
+
+        if (parsed != null) {
+            result = new SimpleJSONObject(parsed, id);
+        } else {
+            initialize(ResourceManager.getReader(path), id);
+        }
+    }
+
     private void initialize(Reader reader, String id)
     {
         JSONParser parser = new JSONParser(JSONParser.MODE_PERMISSIVE);
@@ -29,6 +29,7 @@ import hale.entity.PC;
 import hale.entity.Entity;
 import hale.interfacelock.InterfaceLock;
 import hale.util.AreaUtil;
+import hale.util.BitGrid;
 import hale.util.Point;
 import hale.widgets.EntityMouseover;
 import hale.widgets.OverHeadFadeAway;
@@ -69,6 +70,7 @@ public class AreaViewer extends Widget implements AreaTileGrid.AreaRenderer
     public boolean mouseHoverValid;
 
     private Area area;
+    private FogMask fogMask;
     private final Point scroll;
     private final Point maxScroll;
     private final Point minScroll;
@@ -222,7 +224,7 @@ public class AreaViewer extends Widget implements AreaTileGrid.AreaRenderer
         Entity mouseOverEntity = Game.mainViewer.getMouseOver().getSelectedEntity();
 
         if (!Game.isInTurnMode() || !(mouseOverEntity instanceof PC)) {
-            drawVisibility(area.getVisibility(), as, topLeft, bottomRight);
+            drawFog();
         } else {
             drawCreatureVisibility((Creature)mouseOverEntity, as, topLeft, bottomRight);
         }
@@ -530,40 +532,33 @@ public class AreaViewer extends Widget implements AreaTileGrid.AreaRenderer
         return new Point(scrollXAmount, scrollYAmount);
     }
 
-    /**
-     * draws the visibility of the Area viewed by this AreaViewer
-     *
-     * @param visibility the visibility matrix to be drawn
+    /*
+     * Draws the party's fog of war, first uploading any changes since the last frame
      */
 
-    private void drawVisibility(boolean[][] visibility, AnimationState as, Point topLeft, Point bottomRight)
+    private void drawFog()
     {
-        boolean[][] explored = area.getExplored();
+        if (fogMask == null || fogMask.getArea() != area) {
+            if (fogMask != null) fogMask.dispose();
 
-        for (int x = topLeft.x; x <= bottomRight.x; x++) {
-            for (int y = topLeft.y; y <= bottomRight.y; y++) {
-                Point screenPoint = AreaUtil.convertGridToScreen(x, y);
-
-                if (!explored[x][y]) {
-                    hexFilledBlack.draw(as, screenPoint.x, screenPoint.y);
-                } else
-                    if (!visibility[x][y]) {
-                        hexFilledGrey.draw(as, screenPoint.x, screenPoint.y);
-                    }
-            }
+            fogMask = new FogMask(area);
         }
+
+        fogMask.update();
+        fogMask.draw();
+
         GL11.glColor3f(1.0f, 1.0f, 1.0f);
     }
 
     private void drawCreatureVisibility(Creature creature, AnimationState as, Point topLeft, Point bottomRight)
     {
-        boolean[][] explored = area.getExplored();
+        BitGrid explored = area.getExplored();
 
         for (int x = topLeft.x; x <= bottomRight.x; x++) {
             for (int y = topLeft.y; y <= bottomRight.y; y++) {
                 Point screenPoint = AreaUtil.convertGridToScreen(x, y);
 
-                if (!explored[x][y]) {
+                if (!explored.get(x, y)) {
                     hexFilledBlack.draw(as, screenPoint.x, screenPoint.y);
                 } else
                     if (!creature.hasVisibilityInCurrentArea(x, y)) {
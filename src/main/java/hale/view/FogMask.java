@@ -0,0 +1,222 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.view;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+
+import hale.Game;
+import hale.area.Area;
+import hale.resource.SpriteBatch;
+import hale.util.AreaUtil;
+import hale.util.BitGrid;
+import hale.util.DirtyRegion;
+import hale.util.Point;
+
+/**
+ * The fog of war for an area, held in an alpha texture covering the entire area.  Each
+ * texel of the texture covers a small square of screen pixels, and holds the fog opacity
+ * of the hex containing the center of that square.  The fog is drawn as a single quad.
+ * <p>
+ * The texture is only modified when the area's visibility or explored state changes,
+ * and then only the part of the texture covering the changed points is rebuilt and
+ * uploaded.
+ * <p>
+ * This class may only be used from the OpenGL thread.
+ */
+
+public class FogMask
+{
+    // the opacity of unexplored and explored but not visible points, matching the
+    // hex-filled-black and hex-filled-grey theme images
+    private static final byte UnexploredAlpha = (byte)255;
+    private static final byte NotVisibleAlpha = (byte)153;
+
+    private static final int MinScale = 4;
+    private static final int MaxTextureSize = 2048;
+
+    private final Area area;
+
+    // the size of the square of screen pixels covered by each texel
+    private final int scale;
+
+    private final int maskWidth, maskHeight;
+    private final int textureWidth, textureHeight;
+    private int texture;
+
+    private final ByteBuffer pixels;
+    private final DirtyRegion changes;
+    private final int[] bounds;
+    private final Point grid;
+
+    /**
+     * Creates a new FogMask for the specified area and uploads its initial contents
+     *
+     * @param area the area to draw the fog of war for
+     */
+
+    public FogMask(Area area)
+    {
+        this.area = area;
+        this.changes = new DirtyRegion();
+        this.bounds = new int[4];
+        this.grid = new Point();
+
+        int pixelWidth = area.getWidth() * Game.TILE_WIDTH + Game.TILE_SIZE - Game.TILE_WIDTH;
+        int pixelHeight = area.getHeight() * Game.TILE_SIZE + Game.TILE_SIZE / 2;
+
+        int maxSize = Math.min(MaxTextureSize, GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE));
+
+        int scale = MinScale;
+        while (nextPowerOfTwo(divideRoundUp(pixelWidth, scale)) > maxSize ||
+                nextPowerOfTwo(divideRoundUp(pixelHeight, scale)) > maxSize) {
+            scale *= 2;
+        }
+
+        this.scale = scale;
+        this.maskWidth = divideRoundUp(pixelWidth, scale);
+        this.maskHeight = divideRoundUp(pixelHeight, scale);
+        this.textureWidth = nextPowerOfTwo(maskWidth);
+        this.textureHeight = nextPowerOfTwo(maskHeight);
+
+        this.pixels = BufferUtils.createByteBuffer(maskWidth * maskHeight);
+
+        texture = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_ALPHA, textureWidth, textureHeight, 0,
+                GL11.GL_ALPHA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer)null);
+
+        // any changes made before now are covered by uploading the whole mask
+        area.addChangeTracker(changes);
+        upload(0, 0, maskWidth, maskHeight);
+    }
+
+    /**
+     * Returns the area that this FogMask draws the fog of war for
+     *
+     * @return the area
+     */
+
+    public Area getArea()
+    {
+        return area;
+    }
+
+    /**
+     * Rebuilds and uploads the part of the mask covering any points whose visibility
+     * or explored state has changed since the last update
+     */
+
+    public void update()
+    {
+        if (!changes.take(bounds)) return;
+
+        // the screen bounds of the changed hexes, including the half hex offset of odd columns
+        int x1 = bounds[0] * Game.TILE_WIDTH;
+        int y1 = bounds[1] * Game.TILE_SIZE;
+        int x2 = bounds[2] * Game.TILE_WIDTH + Game.TILE_SIZE;
+        int y2 = bounds[3] * Game.TILE_SIZE + Game.TILE_SIZE + Game.TILE_SIZE / 2;
+
+        upload(Math.max(0, x1 / scale), Math.max(0, y1 / scale),
+                Math.min(maskWidth, divideRoundUp(x2, scale)), Math.min(maskHeight, divideRoundUp(y2, scale)));
+    }
+
+    /**
+     * Draws the fog of war over the area, relative to the current OpenGL matrix
+     */
+
+    public void draw()
+    {
+        SpriteBatch.setColor(0.0f, 0.0f, 0.0f, 1.0f);
+        SpriteBatch.drawQuad(texture, 0, 0, maskWidth * scale, maskHeight * scale,
+                0.0, 0.0, (double)maskWidth / textureWidth, (double)maskHeight / textureHeight);
+    }
+
+    /**
+     * Frees the texture used by this FogMask and stops tracking changes to its area.
+     * The mask may not be used after this method is called
+     */
+
+    public void dispose()
+    {
+        area.removeChangeTracker(changes);
+
+        GL11.glDeleteTextures(texture);
+        texture = 0;
+    }
+
+    private void upload(int texelX1, int texelY1, int texelX2, int texelY2)
+    {
+        if (texelX1 >= texelX2 || texelY1 >= texelY2) return;
+
+        BitGrid explored = area.getExplored();
+        BitGrid visibility = area.getVisibility();
+
+        pixels.clear();
+
+        for (int texelY = texelY1; texelY < texelY2; texelY++) {
+            for (int texelX = texelX1; texelX < texelX2; texelX++) {
+                AreaUtil.convertScreenToGrid(texelX * scale + scale / 2, texelY * scale + scale / 2, grid);
+
+                if (!explored.isInBounds(grid.x, grid.y)) {
+                    pixels.put((byte)0);
+                } else
+                    if (!explored.get(grid.x, grid.y)) {
+                        pixels.put(UnexploredAlpha);
+                    } else
+                        if (!visibility.get(grid.x, grid.y)) {
+                            pixels.put(NotVisibleAlpha);
+                        } else {
+                            pixels.put((byte)0);
+                        }
+            }
+        }
+
+        pixels.flip();
+
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+        GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, texelX1, texelY1, texelX2 - texelX1, texelY2 - texelY1,
+                GL11.GL_ALPHA, GL11.GL_UNSIGNED_BYTE, pixels);
+        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+    }
+
+    private static int divideRoundUp(int value, int divisor)
+    {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private static int nextPowerOfTwo(int value)
+    {
+        int power = 1;
+        while (power < value) {
+            power *= 2;
+        }
+
+        return power;
+    }
+}
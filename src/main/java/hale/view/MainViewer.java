@@ -37,6 +37,8 @@ import hale.resource.SpriteManager;
 import hale.rules.Merchant;
 import hale.rules.QuestEntry;
 import hale.util.AreaUtil;
+import hale.util.FrameProfiler;
+import hale.util.JSEngine;
 import hale.util.Logger;
 import hale.util.Point;
 import hale.widgets.EntityMouseover;
@@ -45,6 +47,7 @@ import hale.widgets.InitiativeTicker;
 import hale.widgets.MainPane;
 import hale.widgets.OverHeadFadeAway;
 import hale.widgets.PortraitArea;
+import hale.widgets.ProfilerOverlay;
 import hale.widgets.RightClickMenu;
 import hale.widgets.TextAreaNoInput;
 
@@ -77,6 +80,7 @@ public class MainViewer extends DesktopArea
     private final List<PopupWindow> popupsToShow = new ArrayList<PopupWindow>();
     private final List<PopupWindow> popupsToHide = new ArrayList<PopupWindow>();
     private final FPSCounter fpsCounter;
+    public final ProfilerOverlay profilerOverlay;
 
     public final CharacterWindow characterWindow;
     public final InventoryWindow inventoryWindow;
@@ -129,10 +133,15 @@ public class MainViewer extends DesktopArea
 
         this.setTheme("");
 
-        gui = new GUI(this, Game.renderer);
-        gui.setSize();
-        gui.applyTheme(Game.themeManager);
-        gui.setTooltipDelay(Game.config.getTooltipDelay());
+        // a headless simulation has no renderer, and only uses the widgets to hold game state
+        if (Game.isHeadless()) {
+            gui = null;
+        } else {
+            gui = new GUI(this, Game.renderer);
+            gui.setSize();
+            gui.applyTheme(Game.themeManager);
+            gui.setTooltipDelay(Game.config.getTooltipDelay());
+        }
 
         messagesWindow = new MessagesWindow();
         messagesWindow.setVisible(false);
@@ -172,6 +181,8 @@ public class MainViewer extends DesktopArea
 
         mainPane = new MainPane();
         fpsCounter = new FPSCounter();
+        profilerOverlay = new ProfilerOverlay();
+        profilerOverlay.setVisible(false);
         quickbarViewer = new QuickbarViewer();
         portraitArea = new PortraitArea();
         ticker = new InitiativeTicker();
@@ -192,6 +203,7 @@ public class MainViewer extends DesktopArea
         if (Game.config.showFPS()) {
             this.add(fpsCounter);
         }
+        this.add(profilerOverlay);
 
         this.add(quickbarViewer);
         this.add(portraitArea);
@@ -338,9 +350,12 @@ public class MainViewer extends DesktopArea
             if (loader != null && !loader.isAlive()) {
                 running = false;
                 this.hidePopup(popup);
-            }
 
-            Game.textureLoader.update();
+                // upload everything loaded so the first frames afterwards are complete
+                Game.textureLoader.flush();
+            } else {
+                Game.textureLoader.update();
+            }
 
             GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
 
@@ -399,7 +414,10 @@ public class MainViewer extends DesktopArea
 
         // run the main loop
         while (isRunning) {
+            Game.profiler.beginFrame();
+
             // load any async textures
+            Game.profiler.beginPhase(FrameProfiler.Phase.TextureLoading);
             Game.textureLoader.update();
 
             GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
@@ -407,28 +425,42 @@ public class MainViewer extends DesktopArea
 
             frameTime = System.currentTimeMillis();
 
+            Game.profiler.beginPhase(FrameProfiler.Phase.AreaUpdate);
             Game.areaViewer.update(frameTime);
+
+            Game.profiler.beginPhase(FrameProfiler.Phase.Particles);
             Game.particleManager.update(frameTime);
+
+            Game.profiler.beginPhase(FrameProfiler.Phase.Timer);
             Game.interfaceLocker.checkTime(frameTime);
             Game.timer.updateTime(frameTime);
 
+            Game.profiler.beginPhase(FrameProfiler.Phase.Content);
             if (menu.shouldPopupToggle()) {
                 menu.togglePopup();
             }
 
             updateContent(frameTime);
+            profilerOverlay.update(frameTime);
 
+            Game.profiler.beginPhase(FrameProfiler.Phase.Interface);
             try {
                 gui.update();
             } catch (Exception e) {
                 Logger.appendToErrorLog("Error in GUI update", e);
             }
 
+            Game.profiler.beginPhase(FrameProfiler.Phase.Display);
             Display.update(false);
             GL11.glGetError();
             if (Game.config.capFPS()) Display.sync(60);
             Display.processMessages();
 
+            // the frame has been drawn, so collect its draw statistics
+            SpriteManager.beginFrame();
+            Game.profiler.endFrame(SpriteManager.getDrawCallsLastFrame(), SpriteManager.getTextureBindsLastFrame(),
+                    Game.particleManager.getActiveParticleCount(), JSEngine.getAndResetInvocations());
+
             if (Display.isCloseRequested()) {
                 new ConfirmQuitPopup(this, ConfirmQuitPopup.QuitMode.ExitGame).openPopupCentered();
             }
@@ -673,6 +705,48 @@ public class MainViewer extends DesktopArea
     public void updateInterface()
     {
         this.updateInterface = true;
+
+        if (Game.isHeadless()) Game.headlessSimulation.signalWork();
+    }
+
+    /**
+     * Performs the part of the per frame content update that affects the game state, for
+     * use by a headless simulation in place of the main loop.  Updated entities are checked
+     * for death and canceled targeters are removed, while pending popups and fade aways,
+     * which can never be shown, are discarded.
+     */
+
+    public void updateHeadlessContent()
+    {
+        synchronized (popupsToShow) {
+            popupsToShow.clear();
+        }
+
+        synchronized (popupsToHide) {
+            popupsToHide.clear();
+        }
+
+        synchronized (fadeAwaysToAdd) {
+            fadeAwaysToAdd.clear();
+        }
+
+        synchronized (entityUpdateList) {
+            for (int i = 0; i < entityUpdateList.size(); i++) {
+                Game.areaListener.checkKillEntity(entityUpdateList.get(i));
+            }
+            entityUpdateList.clear();
+        }
+
+        if (updateInterface) {
+            this.updateInterface = false;
+
+            // a script canceling its targeter blocks until the targeter is checked here
+            Game.areaListener.getTargeterManager().checkCurrentTargeter();
+        }
+
+        synchronized (this) {
+            this.notifyAll();
+        }
     }
 
     private void updateContent(long curTime)
@@ -864,6 +938,7 @@ public class MainViewer extends DesktopArea
         portraitArea.setPosition(getInnerRight() - portraitArea.getWidth(), getInnerY());
 
         fpsCounter.setPosition(ticker.getRight(), getInnerY() + fpsCounter.getPreferredHeight() / 2);
+        profilerOverlay.setPosition(ticker.getRight(), getInnerY() + fpsCounter.getPreferredHeight() * 2);
 
         int areaViewerOffset;
 
@@ -21,11 +21,16 @@ package hale.view;
 
 import hale.Game;
 import hale.area.Area;
+import hale.area.AreaEntityList;
 import hale.area.Transition;
 import hale.entity.Creature;
 import hale.entity.Entity;
 import hale.entity.Location;
 import hale.entity.Trap;
+import hale.resource.RenderTexture;
+import hale.util.BitGrid;
+import hale.util.DirtyRegion;
+import hale.util.Logger;
 import hale.util.Point;
 
 import org.lwjgl.opengl.GL11;
@@ -63,6 +68,15 @@ public class MiniMapWindow extends GameSubWindow
     private ScrollPane scrollPane;
     private Content content;
 
+    // the terrain, containers, and doors of the explored cells, redrawn only where changed
+    private RenderTexture staticLayer;
+    private Area staticLayerArea;
+    private int staticLayerTileSize;
+    private boolean staticLayerSupported = true;
+    private final DirtyRegion staticLayerChanges = new DirtyRegion();
+    private final int[] staticLayerBounds = new int[4];
+    private int cellsRedrawnLastUpdate;
+
     /**
      * Creates an empty mini map Widget.  updateContent should be used to set
      * the Area being viewed.
@@ -158,6 +172,30 @@ public class MiniMapWindow extends GameSubWindow
         scrollPane.setScrollPositionY(screenY - scrollPane.getHeight() / 2);
     }
 
+    /**
+     * Returns the number of cells drawn in the most recent update of the minimap's
+     * static layer.  When the static layer cannot be cached, this is the number of
+     * cells drawn each frame
+     *
+     * @return the number of cells redrawn in the last update
+     */
+
+    public int getCellsRedrawnLastUpdate()
+    {
+        return cellsRedrawnLastUpdate;
+    }
+
+    private void disposeStaticLayer()
+    {
+        if (staticLayer == null) return;
+
+        staticLayerArea.removeChangeTracker(staticLayerChanges);
+        staticLayer.dispose();
+
+        staticLayer = null;
+        staticLayerArea = null;
+    }
+
     public void updateContent(Area area)
     {
         if (this.area != area && area != null) {
@@ -244,29 +282,105 @@ public class MiniMapWindow extends GameSubWindow
             GL11.glPushMatrix();
             GL11.glTranslatef(getInnerX() - tileQuarter, getInnerY() - tileHalf, 0.0f);
 
-            boolean[][] pass = area.getPassability();
-            boolean[][] explored = area.getExplored();
-            boolean[][] visible = area.getVisibility();
+            if (updateStaticLayer(as)) {
+                staticLayer.draw(0, 0);
+            } else {
+                cellsRedrawnLastUpdate = drawStaticCells(as, 0, 0, area.getWidth() - 1, area.getHeight() - 1);
+            }
+
+            drawMarkers(as, selected);
+
+            int viewportX = Game.areaViewer.getScrollX() / scale;
+            int viewportY = Game.areaViewer.getScrollY() / scale;
+
+            viewport.draw(as, viewportX, viewportY, areaViewerWidth, areaViewerHeight);
+
+            GL11.glPopMatrix();
+        }
+
+        /*
+         * Creates the static layer texture for the current area if needed, and redraws any
+         * changed cells in it.  Returns false if the static layer cannot be used, in which
+         * case the static cells must be drawn directly
+         */
+
+        private boolean updateStaticLayer(AnimationState as)
+        {
+            if (!staticLayerSupported) return false;
+
+            if (staticLayer == null || staticLayerArea != area || staticLayerTileSize != tileSize) {
+                disposeStaticLayer();
+
+                int width = (area.getWidth() - 1) * tileWidth + tileSize;
+                int height = area.getHeight() * tileSize + tileHalf;
+
+                if (!RenderTexture.isSupported(width, height)) return false;
+
+                try {
+                    staticLayer = new RenderTexture(width, height);
+                } catch (IllegalStateException e) {
+                    Logger.appendToErrorLog("Unable to create minimap texture, drawing directly", e);
+                    staticLayerSupported = false;
+                    return false;
+                }
+
+                staticLayerArea = area;
+                staticLayerTileSize = tileSize;
+                area.addChangeTracker(staticLayerChanges);
+                staticLayerChanges.add(0, 0, area.getWidth() - 1, area.getHeight() - 1);
+            }
+
+            int[] bounds = staticLayerBounds;
+            if (!staticLayerChanges.take(bounds)) {
+                cellsRedrawnLastUpdate = 0;
+                return true;
+            }
+
+            // the pixel bounds of the changed cells, including the half cell offset of odd columns
+            int x1 = bounds[0] * tileWidth;
+            int y1 = bounds[1] * tileSize;
+            int x2 = bounds[2] * tileWidth + tileSize;
+            int y2 = bounds[3] * tileSize + tileSize + tileHalf;
+
+            // neighboring cells overlap the changed pixels, so they are redrawn as well
+            staticLayer.begin(x1, y1, x2 - x1, y2 - y1);
+            cellsRedrawnLastUpdate = drawStaticCells(as, bounds[0] - 1, bounds[1] - 1, bounds[2] + 1, bounds[3] + 1);
+            staticLayer.end();
+
+            return true;
+        }
+
+        /*
+         * Draws the terrain, containers, and doors of all explored cells within the specified
+         * bounds, and returns the number of cells drawn
+         */
+
+        private int drawStaticCells(AnimationState as, int minX, int minY, int maxX, int maxY)
+        {
+            BitGrid pass = area.getPassability();
+            BitGrid explored = area.getExplored();
+
+            minX = Math.max(0, minX);
+            minY = Math.max(0, minY);
+            maxX = Math.min(explored.getWidth() - 1, maxX);
+            maxY = Math.min(explored.getHeight() - 1, maxY);
 
-            for (int y = 0; y < explored[0].length; y++) {
-                for (int x = 0; x < explored.length; x++) {
-                    if (!explored[x][y]) continue;
+            int count = 0;
+
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    if (!explored.get(x, y)) continue;
 
                     int screenX = x * tileWidth;
                     int screenY = y * tileSize;
                     if (x % 2 == 1) screenY += tileHalf;
 
-                    if (!pass[x][y] || area.getElevationGrid().getElevation(x, y) != 0) {
+                    if (!pass.get(x, y) || area.getElevationGrid().getElevation(x, y) != 0) {
                         impass.draw(as, screenX, screenY);
                     } else {
                         tile.draw(as, screenX, screenY);
                     }
 
-                    Transition areaTransition = area.getTransitionAtGridPoint(x, y);
-                    if (areaTransition != null && areaTransition.isActivated()) {
-                        transition.draw(as, screenX, screenY);
-                    }
-
                     if (area.getContainerAtGridPoint(x, y) != null) {
                         container.draw(as, screenX, screenY);
                     }
@@ -275,40 +389,74 @@ public class MiniMapWindow extends GameSubWindow
                         door.draw(as, screenX, screenY);
                     }
 
-                    Trap areaTrap = area.getTrapAtGridPoint(x, y);
+                    count++;
+                }
+            }
 
-                    if (areaTrap != null && areaTrap.isSpotted()) {
-                        trap.draw(as, screenX, screenY);
-                    }
+            return count;
+        }
 
-                    // only draw creatures for visible tiles
-                    if (!visible[x][y]) continue;
-
-                    Creature creature = area.getCreatureAtGridPoint(x, y);
-                    if (creature != null) {
-                        switch (selected.getFaction().getRelationship(creature)) {
-                            case Hostile:
-                                hostile.draw(as, screenX, screenY);
-                                break;
-                            case Neutral:
-                                neutral.draw(as, screenX, screenY);
-                                break;
-                            case Friendly:
-                                friendly.draw(as, screenX, screenY);
-                                break;
-                        }
-                    }
+        /*
+         * Draws the symbols that change without notifying the area: activated transitions,
+         * spotted traps, and creatures in visible cells
+         */
+
+        private void drawMarkers(AnimationState as, Creature selected)
+        {
+            BitGrid explored = area.getExplored();
+            BitGrid visible = area.getVisibility();
 
+            for (String transitionID : area.getTransitions()) {
+                Transition areaTransition = Game.curCampaign.getAreaTransition(transitionID);
+                if (!areaTransition.isActivated()) continue;
 
-                }
+                Transition.EndPoint endPoint = areaTransition.getEndPointInArea(area);
+                int x = endPoint.getX();
+                int y = endPoint.getY();
+                if (!explored.isInBounds(x, y) || !explored.get(x, y)) continue;
+
+                drawMarker(transition, as, x, y);
             }
 
-            int viewportX = Game.areaViewer.getScrollX() / scale;
-            int viewportY = Game.areaViewer.getScrollY() / scale;
+            AreaEntityList entities = area.getEntities();
+            synchronized (entities) {
+                for (Entity entity : entities) {
+                    int x = entity.getLocation().getX();
+                    int y = entity.getLocation().getY();
+                    if (!explored.isInBounds(x, y)) continue;
 
-            viewport.draw(as, viewportX, viewportY, areaViewerWidth, areaViewerHeight);
+                    if (entity instanceof Trap) {
+                        if (((Trap)entity).isSpotted() && explored.get(x, y)) {
+                            drawMarker(trap, as, x, y);
+                        }
+                    } else
+                        if (entity instanceof Creature) {
+                            // only draw creatures for visible tiles
+                            if (!visible.get(x, y)) continue;
+
+                            switch (selected.getFaction().getRelationship(entity)) {
+                                case Hostile:
+                                    drawMarker(hostile, as, x, y);
+                                    break;
+                                case Neutral:
+                                    drawMarker(neutral, as, x, y);
+                                    break;
+                                case Friendly:
+                                    drawMarker(friendly, as, x, y);
+                                    break;
+                            }
+                        }
+                }
+            }
+        }
 
-            GL11.glPopMatrix();
+        private void drawMarker(Image image, AnimationState as, int x, int y)
+        {
+            int screenX = x * tileWidth;
+            int screenY = y * tileSize;
+            if (x % 2 == 1) screenY += tileHalf;
+
+            image.draw(as, screenX, screenY);
         }
     }
 
@@ -0,0 +1,127 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.widgets;
+
+import hale.Game;
+import hale.resource.ResourceManager;
+import hale.util.FrameProfiler;
+import hale.util.LRUCache;
+import hale.util.ScriptExecutor;
+
+import de.matthiasmann.twl.Event;
+import de.matthiasmann.twl.Label;
+
+/**
+ * A label showing the frame time percentiles, mean phase times, and frame counters
+ * recorded by the {@link FrameProfiler}, along with the time taken by the most recent
+ * save, the queue depth and start latency of script tasks, and resource and area cache
+ * statistics.  The text is only rebuilt periodically while the overlay is visible.
+ */
+
+public class ProfilerOverlay extends Label
+{
+    private static final long UpdateIntervalMillis = 500;
+
+    private long lastUpdateTime;
+
+    /**
+     * Creates a new, empty ProfilerOverlay
+     */
+
+    public ProfilerOverlay()
+    {
+        setTheme("profileroverlay");
+    }
+
+    /**
+     * Rebuilds the displayed statistics if this overlay is visible and the update
+     * interval has elapsed
+     *
+     * @param curTime the current time in milliseconds
+     */
+
+    public void update(long curTime)
+    {
+        if (!isVisible() || curTime - lastUpdateTime < UpdateIntervalMillis) return;
+
+        lastUpdateTime = curTime;
+
+        FrameProfiler profiler = Game.profiler;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Frame p50 ").append(formatNanos(profiler.getFrameTimePercentile(50.0)));
+        sb.append("  p95 ").append(formatNanos(profiler.getFrameTimePercentile(95.0)));
+        sb.append("  p99 ").append(formatNanos(profiler.getFrameTimePercentile(99.0)));
+
+        for (FrameProfiler.Phase phase : FrameProfiler.Phase.values()) {
+            sb.append('\n').append(phase).append(' ');
+            sb.append(formatNanos(profiler.getAveragePhaseTime(phase)));
+        }
+
+        for (FrameProfiler.Counter counter : FrameProfiler.Counter.values()) {
+            sb.append('\n').append(counter).append(' ');
+            sb.append(profiler.getLastCounterValue(counter));
+        }
+
+        sb.append("\nSave snapshot ").append(formatNanos(Game.saveWriter.getLastSnapshotNanos()));
+        sb.append("  write ").append(formatNanos(Game.saveWriter.getLastWriteNanos()));
+
+        ScriptExecutor executor = Game.scriptExecutor;
+        sb.append("\nScripts queued ").append(executor.getQueueDepth());
+        sb.append("  started ").append(executor.getTasksStarted());
+        sb.append("  latency ").append(formatNanos(executor.getAverageLatencyNanos()));
+        sb.append("  max ").append(formatNanos(executor.getMaxLatencyNanos()));
+
+        sb.append("\nResource lookups ").append(ResourceManager.getResourceLookups());
+        sb.append("  misses ").append(ResourceManager.getResourceLookupMisses());
+
+        appendCache(sb, "Resource cache", ResourceManager.getFileCache());
+
+        if (Game.curCampaign != null) {
+            appendCache(sb, "Area cache", Game.curCampaign.getAreaCache());
+        }
+
+        setText(sb.toString());
+        setSize(getPreferredWidth(), getPreferredHeight());
+    }
+
+    private static void appendCache(StringBuilder sb, String name, LRUCache<?, ?> cache)
+    {
+        sb.append('\n').append(name).append(' ').append(cache.getSize() / 1024).append("KB");
+        if (cache.getBudget() != Long.MAX_VALUE) {
+            sb.append(" / ").append(cache.getBudget() / 1024).append("KB");
+        }
+
+        sb.append("  hits ").append(cache.getHits());
+        sb.append("  misses ").append(cache.getMisses());
+        sb.append("  evictions ").append(cache.getEvictions());
+    }
+
+    private static String formatNanos(long nanos)
+    {
+        return Game.numberFormat(2).format(nanos / 1000000.0) + " ms";
+    }
+
+    @Override
+    protected boolean handleEvent(Event evt)
+    {
+        return false;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hale.Game;
+import hale.bonus.Bonus;
+import hale.bonus.Stat;
+import hale.entity.Creature;
+import hale.entity.Inventory;
+import hale.entity.PC;
+import hale.rules.Attack;
+
+/**
+ * Times attack resolution and the bonus lookups it is built on, for the party and the
+ * creatures hostile to it in the current area of a save.  Weapon attacks from each party
+ * member against each hostile creature are computed in turn.  Attacks are only constructed,
+ * as checking for a hit consumes ammo.  The stats of every creature are then recomputed
+ * from their effects and equipment, and every bonus type is looked up for every creature.
+ * Each measurement is run once untimed first, to warm up the JIT.  Run with the arguments
+ * <pre>campaignID saveName [partyID] [attacks]</pre>
+ */
+
+public class AttackBenchmark
+{
+    private static final int DefaultAttacks = 1000000;
+
+    public static void main(String[] args)
+    {
+        if (args.length < 2) {
+            BenchmarkSupport.fail("Usage: AttackBenchmark campaignID saveName [partyID] [attacks]");
+        }
+
+        String partyID = args.length > 2 && args[2].length() > 0 ? args[2] : null;
+        int attacks = args.length > 3 ? Integer.parseInt(args[3]) : DefaultAttacks;
+
+        BenchmarkSupport.loadSave(args[0], args[1], partyID);
+
+        List<Creature> attackers = new ArrayList<Creature>();
+        for (PC pc : Game.curCampaign.party) {
+            attackers.add(pc);
+        }
+
+        List<Creature> defenders = BenchmarkSupport.getHostileCreatures();
+
+        if (attackers.isEmpty() || defenders.isEmpty()) BenchmarkSupport.fail("No attackers or defenders in the area");
+
+        List<Creature> creatures = new ArrayList<Creature>(attackers);
+        creatures.addAll(defenders);
+
+        // the sums are printed so the work cannot be optimized away
+        long checksum = 0l;
+        long attackNanos = 0l, recomputeNanos = 0l, lookupNanos = 0l;
+
+        int recomputes = Math.max(1, attacks / 100);
+        int lookups = Math.max(1, attacks / creatures.size());
+
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+
+            for (int i = 0; i < attacks; i++) {
+                Creature attacker = attackers.get(i % attackers.size());
+                Creature defender = defenders.get((i / attackers.size()) % defenders.size());
+
+                Attack attack = new Attack(attacker, defender, Inventory.Slot.MainHand);
+                checksum += attack.getTotalAttack() + attack.getTotalDamage() - attack.getDefenderAC();
+            }
+
+            long recomputeStart = System.nanoTime();
+
+            for (int i = 0; i < recomputes; i++) {
+                Creature creature = creatures.get(i % creatures.size());
+                creature.stats.recomputeAllStats();
+                checksum += creature.stats.get(Stat.ArmorClass);
+            }
+
+            long lookupStart = System.nanoTime();
+
+            for (int i = 0; i < lookups; i++) {
+                for (Creature creature : creatures) {
+                    for (Bonus.Type type : Bonus.Type.values()) {
+                        checksum += creature.stats.get(type);
+                    }
+                }
+            }
+
+            long end = System.nanoTime();
+
+            attackNanos = recomputeStart - start;
+            recomputeNanos = lookupStart - recomputeStart;
+            lookupNanos = end - lookupStart;
+        }
+
+        long lookupCount = (long)lookups * creatures.size() * Bonus.Type.values().length;
+
+        System.out.println(attackers.size() + " attackers, " + defenders.size() + " defenders (checksum " +
+                checksum + ")");
+        printRate("Attacks", attacks, attackNanos);
+        printRate("Stat recomputes", recomputes, recomputeNanos);
+        printRate("Bonus lookups", lookupCount, lookupNanos);
+
+        System.exit(0);
+    }
+
+    private static void printRate(String label, long count, long nanos)
+    {
+        System.out.println(String.format("%s: %d in %.1f ms, %.1f ns each, %.0f per second", label, count,
+                nanos / 1000000.0, nanos / (double)count, count / (nanos / 1000000000.0)));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import hale.Game;
+import hale.HeadlessSimulation;
+import hale.entity.Creature;
+import hale.entity.Entity;
+
+/**
+ * Shared setup and reporting for the benchmark harnesses.  The harnesses run the game
+ * rules without a display, in the same way as the {@link HeadlessSimulation}, against
+ * the campaigns and premade parties shipped in src/main/resources.
+ */
+
+public class BenchmarkSupport
+{
+    private BenchmarkSupport()
+    {
+    }
+
+    /**
+     * Initializes the game without a display and loads the specified campaign
+     *
+     * @param campaignID the ID of the campaign to load
+     * @param saveName   the name of the save, which is created from the party if it does
+     *                   not exist yet
+     * @param partyID    the ID of a premade party, or null to require an existing save
+     * @return the simulation used to load the campaign
+     */
+
+    public static HeadlessSimulation loadCampaign(String campaignID, String saveName, String partyID)
+    {
+        Game.initialize();
+
+        String[] args = { HeadlessSimulation.Argument, campaignID, saveName, "0", "0", partyID };
+        Game.headlessSimulation = new HeadlessSimulation(partyID == null ? Arrays.copyOf(args, 5) : args);
+
+        if (!Game.headlessSimulation.loadCampaign()) fail("Unable to load campaign " + campaignID);
+
+        return Game.headlessSimulation;
+    }
+
+    /**
+     * Initializes the game without a display, then loads the specified campaign and save
+     *
+     * @param campaignID the ID of the campaign to load
+     * @param saveName   the name of the save to load
+     * @param partyID    the ID of a premade party, used to create the save if it does
+     *                   not exist yet, or null to require an existing save
+     */
+
+    public static void loadSave(String campaignID, String saveName, String partyID)
+    {
+        HeadlessSimulation simulation = loadCampaign(campaignID, saveName, partyID);
+
+        if (!simulation.loadSave()) fail("Unable to load save " + saveName);
+
+        System.out.println("Loaded " + saveName + " in " + Game.curCampaign.curArea.getName() + " (" +
+                Game.curCampaign.curArea.getWidth() + " x " + Game.curCampaign.curArea.getHeight() + ")");
+    }
+
+    /**
+     * Returns all creatures in the current area that are hostile to the party
+     *
+     * @return the list of hostile creatures
+     */
+
+    public static List<Creature> getHostileCreatures()
+    {
+        List<Creature> creatures = new ArrayList<Creature>();
+
+        for (Entity entity : Game.curCampaign.curArea.getEntities()) {
+            if (!(entity instanceof Creature)) continue;
+
+            Creature creature = (Creature)entity;
+            if (creature.getFaction().isHostile(Game.curCampaign.party.getSelected())) creatures.add(creature);
+        }
+
+        return creatures;
+    }
+
+    /**
+     * Prints the mean and percentiles of the specified times
+     *
+     * @param label the description of what was timed
+     * @param nanos the times, in nanoseconds.  This array is sorted
+     * @param count the number of times in the array to use
+     */
+
+    public static void printTimes(String label, long[] nanos, int count)
+    {
+        if (count == 0) {
+            System.out.println(label + ": no runs");
+            return;
+        }
+
+        Arrays.sort(nanos, 0, count);
+
+        long total = 0l;
+        for (int i = 0; i < count; i++) {
+            total += nanos[i];
+        }
+
+        System.out.println(String.format("%s: %d runs, mean %.1f us, p50 %.1f us, p95 %.1f us, max %.1f us", label,
+                count, total / 1000.0 / count, percentile(nanos, count, 50.0), percentile(nanos, count, 95.0),
+                percentile(nanos, count, 100.0)));
+    }
+
+    /**
+     * Prints the specified message to standard error and exits with a nonzero status
+     *
+     * @param message the message to print
+     */
+
+    public static void fail(String message)
+    {
+        System.err.println(message);
+        System.exit(1);
+    }
+
+    private static double percentile(long[] sorted, int count, double percentile)
+    {
+        int index = (int)Math.ceil(percentile / 100.0 * count) - 1;
+
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1000.0;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.tools;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import hale.Game;
+import hale.area.Area;
+import hale.particle.ParticleGenerator;
+import hale.resource.ResourceManager;
+import hale.resource.ResourceType;
+import hale.util.Point;
+
+/**
+ * Times updating the core particle effects, as the particle manager does each frame.  A
+ * number of copies of each effect are started at the center of the current area of a save
+ * and updated at 60 frames per second until they have all finished.  Drawing requires a
+ * display and is not timed.  The memory allocated by the updates is also reported.  Run
+ * with the arguments
+ * <pre>campaignID saveName [partyID] [copies] [seconds]</pre>
+ */
+
+public class ParticleBenchmark
+{
+    private static final float FrameSeconds = 1.0f / 60.0f;
+
+    private static final int DefaultCopies = 10;
+    private static final float DefaultSeconds = 5.0f;
+
+    public static void main(String[] args)
+    {
+        if (args.length < 2) {
+            BenchmarkSupport.fail("Usage: ParticleBenchmark campaignID saveName [partyID] [copies] [seconds]");
+        }
+
+        String partyID = args.length > 2 && args[2].length() > 0 ? args[2] : null;
+        int copies = args.length > 3 ? Integer.parseInt(args[3]) : DefaultCopies;
+        float seconds = args.length > 4 ? Float.parseFloat(args[4]) : DefaultSeconds;
+
+        BenchmarkSupport.loadSave(args[0], args[1], partyID);
+
+        List<String> effects = new ArrayList<String>();
+        for (String resource : ResourceManager.getResourcesInDirectory("scripts/particleEffects")) {
+            if (!resource.endsWith(ResourceType.JavaScript.getExtension())) continue;
+
+            effects.add(ResourceManager.getResourceIDNoPath(resource, ResourceType.JavaScript));
+        }
+
+        // the first run warms up the updates and is not reported
+        runScene(effects, copies, seconds, false);
+        runScene(effects, copies, seconds, true);
+
+        System.exit(0);
+    }
+
+    /*
+     * Starts the specified number of copies of each effect and updates them until all of
+     * them have finished, printing the results if report is true
+     */
+
+    private static void runScene(List<String> effects, int copies, float seconds, boolean report)
+    {
+        Area area = Game.curCampaign.curArea;
+        Point center = new Point(area.getWidth() / 2, area.getHeight() / 2);
+
+        List<ParticleGenerator> generators = new ArrayList<ParticleGenerator>();
+        for (String effect : effects) {
+            for (int i = 0; i < copies; i++) {
+                ParticleGenerator generator = Game.particleManager.getParticleGenerator(effect);
+                generator.setPosition(center);
+                generator.setDuration(seconds);
+                generator.initialize();
+
+                generators.add(generator);
+            }
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadID = Thread.currentThread().getId();
+
+        int maxFrames = (int)Math.ceil(seconds / FrameSeconds) * 4;
+        long[] frameNanos = new long[maxFrames];
+        int frames = 0;
+        long particleUpdates = 0l;
+        int peakParticles = 0;
+        long totalNanos = 0l;
+
+        long startBytes = threads.getThreadAllocatedBytes(threadID);
+
+        while (!generators.isEmpty() && frames < maxFrames) {
+            int particles = 0;
+            for (ParticleGenerator generator : generators) {
+                particles += generator.getParticleCount();
+            }
+
+            particleUpdates += particles;
+            peakParticles = Math.max(peakParticles, particles);
+
+            long start = System.nanoTime();
+
+            Iterator<ParticleGenerator> iter = generators.iterator();
+            while (iter.hasNext()) {
+                if (iter.next().elapseTime(FrameSeconds)) iter.remove();
+            }
+
+            frameNanos[frames] = System.nanoTime() - start;
+            totalNanos += frameNanos[frames];
+            frames++;
+        }
+
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadID) - startBytes;
+
+        // the particles left at the frame limit are never removed
+        Game.particleManager.clear();
+
+        if (!report) return;
+
+        System.out.println(effects.size() + " effects, " + copies + " copies each, " + frames + " frames, peak " +
+                peakParticles + " particles");
+
+        BenchmarkSupport.printTimes("Frame update", frameNanos, frames);
+
+        System.out.println(String.format("Per particle update: %.1f ns", totalNanos / (double)Math.max(1l, particleUpdates)));
+        System.out.println(String.format("Allocated: %.2f MB, %.1f bytes per particle update",
+                allocatedBytes / (1024.0 * 1024.0), allocatedBytes / (double)Math.max(1l, particleUpdates)));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import hale.AITargetSet;
+import hale.Game;
+import hale.area.Area;
+import hale.bonus.Stat;
+import hale.entity.Creature;
+import hale.entity.PC;
+import hale.entity.Path;
+import hale.util.AreaUtil;
+import hale.util.BitGrid;
+import hale.util.PathFinder;
+import hale.util.Point;
+
+/**
+ * Times path finding in the current area of a save, as the AI does during combat.  Each
+ * creature hostile to the party searches for a path to a point adjacent to each party
+ * member and to each other hostile creature, and computes a distance field from its
+ * position, both for the whole area and within the distance it can move in one turn.
+ * Searches for unreachable targets cover the whole region the mover can reach, so those
+ * are timed separately.  The AI target set is also timed, with the path cache cleared
+ * first, for the other hostile creatures within the distance the mover can move and for
+ * the party, which the movers may not be able to reach.  The area is in turn mode, so the
+ * costs of threatened points are included.  Run with the arguments
+ * <pre>campaignID saveName [partyID] [iterations]</pre>
+ */
+
+public class PathFinderBenchmark
+{
+    private static final int WarmupIterations = 5;
+    private static final int DefaultIterations = 20;
+
+    public static void main(String[] args)
+    {
+        if (args.length < 2) {
+            BenchmarkSupport.fail("Usage: PathFinderBenchmark campaignID saveName [partyID] [iterations]");
+        }
+
+        String partyID = args.length > 2 ? args[2] : null;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : DefaultIterations;
+
+        BenchmarkSupport.loadSave(args[0], args[1], partyID);
+
+        Game.setTurnMode(true);
+
+        Area area = Game.curCampaign.curArea;
+        List<Creature> movers = BenchmarkSupport.getHostileCreatures();
+
+        PathFinder.Data data = new PathFinder.Data(area);
+        BitGrid entityPass = new BitGrid(area.getWidth(), area.getHeight());
+
+        List<Creature> targets = new ArrayList<Creature>(movers);
+        for (PC pc : Game.curCampaign.party) {
+            targets.add(pc);
+        }
+
+        int searches = movers.size() * (targets.size() - 1);
+        long[] foundNanos = new long[searches * iterations];
+        long[] notFoundNanos = new long[searches * iterations];
+        long[] fieldNanos = new long[movers.size() * iterations];
+        long[] boundedFieldNanos = new long[movers.size() * iterations];
+        long[] nearbyTargetNanos = new long[movers.size() * iterations];
+        long[] partyTargetNanos = new long[movers.size() * iterations];
+        int foundCount = 0, notFoundCount = 0, fieldCount = 0;
+
+        List<Creature> party = new ArrayList<Creature>();
+        for (PC pc : Game.curCampaign.party) {
+            party.add(pc);
+        }
+
+        // the movers have their full AP, as at the start of their turns
+        for (Creature mover : movers) {
+            mover.timer.reset();
+        }
+
+        for (int i = -WarmupIterations; i < iterations; i++) {
+            for (Creature mover : movers) {
+                area.getEntityPassabilities(mover, entityPass);
+                data.setEntityPassabilities(entityPass);
+
+                for (Creature target : targets) {
+                    if (target == mover) continue;
+
+                    Point end = target.getLocation().toPoint();
+                    List<Point> goals = Arrays.asList(AreaUtil.getAdjacentTiles(end));
+
+                    long start = System.nanoTime();
+                    Path path = PathFinder.findPath(mover, end, goals, data);
+                    long nanos = System.nanoTime() - start;
+
+                    if (i < 0) continue;
+
+                    if (path != null) {
+                        foundNanos[foundCount++] = nanos;
+                    } else {
+                        notFoundNanos[notFoundCount++] = nanos;
+                    }
+                }
+
+                int maxCost = mover.timer.getAP() / mover.stats.get(Stat.MovementCost);
+
+                long fieldStart = System.nanoTime();
+                PathFinder.computeDistanceField(mover, PathFinder.Mode.Normal, data);
+                long boundedFieldStart = System.nanoTime();
+                PathFinder.computeDistanceField(mover, PathFinder.Mode.Normal, maxCost, data);
+                long boundedFieldEnd = System.nanoTime();
+
+                List<Creature> nearby = getWithinDistance(mover, movers, maxCost);
+
+                area.getUtil().getPathCache().clear();
+                long nearbyStart = System.nanoTime();
+                new AITargetSet(mover, nearby);
+                long nearbyEnd = System.nanoTime();
+
+                area.getUtil().getPathCache().clear();
+                long partyStart = System.nanoTime();
+                new AITargetSet(mover, party);
+                long partyEnd = System.nanoTime();
+
+                if (i < 0) continue;
+
+                fieldNanos[fieldCount] = boundedFieldStart - fieldStart;
+                boundedFieldNanos[fieldCount] = boundedFieldEnd - boundedFieldStart;
+                nearbyTargetNanos[fieldCount] = nearbyEnd - nearbyStart;
+                partyTargetNanos[fieldCount] = partyEnd - partyStart;
+                fieldCount++;
+            }
+        }
+
+        System.out.println(movers.size() + " hostile movers, " + Game.curCampaign.party.size() + " party members, " +
+                (foundCount / iterations) + " of " + searches + " paths found");
+
+        BenchmarkSupport.printTimes("A* path found", foundNanos, foundCount);
+        BenchmarkSupport.printTimes("A* no path", notFoundNanos, notFoundCount);
+        BenchmarkSupport.printTimes("Distance field", fieldNanos, fieldCount);
+        BenchmarkSupport.printTimes("Distance field within AP", boundedFieldNanos, fieldCount);
+        BenchmarkSupport.printTimes("AI target set, creatures within a move", nearbyTargetNanos, fieldCount);
+        BenchmarkSupport.printTimes("AI target set, party out of reach", partyTargetNanos, fieldCount);
+
+        System.exit(0);
+    }
+
+    /*
+     * Returns the creatures other than the mover within the specified distance of it
+     */
+
+    private static List<Creature> getWithinDistance(Creature mover, List<Creature> creatures, int distance)
+    {
+        List<Creature> nearby = new ArrayList<Creature>();
+
+        for (Creature creature : creatures) {
+            if (creature == mover) continue;
+
+            if (AreaUtil.distance(mover.getLocation().toPoint(), creature.getLocation().toPoint()) <= distance) {
+                nearby.add(creature);
+            }
+        }
+
+        return nearby;
+    }
+}
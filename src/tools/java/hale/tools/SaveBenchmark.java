@@ -0,0 +1,192 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.tools;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import hale.Game;
+import hale.area.Area;
+import hale.loading.BinarySaveReader;
+import hale.loading.BinarySaveWriter;
+import hale.loading.JSONOrderedObject;
+import hale.loading.SaveWriter;
+import hale.resource.ResourceManager;
+import hale.resource.ResourceType;
+import hale.util.SaveFileHeader;
+import hale.util.SimpleJSONParser;
+
+/**
+ * Times writing and reading a save in the binary and JSON formats.  The save data of the
+ * campaign is written to memory in each format, with the header and compression used for
+ * save files, and then parsed back into the tree that the campaign loads from.  The save is
+ * timed first as loaded, then with every area of the campaign loaded, and finally with
+ * every area also fully explored, as in a save late in the campaign.  Run with the arguments
+ * <pre>campaignID saveName [partyID] [iterations]</pre>
+ */
+
+public class SaveBenchmark
+{
+    private static final int WarmupIterations = 3;
+    private static final int DefaultIterations = 10;
+
+    public static void main(String[] args)
+    {
+        if (args.length < 2) {
+            BenchmarkSupport.fail("Usage: SaveBenchmark campaignID saveName [partyID] [iterations]");
+        }
+
+        String partyID = args.length > 2 && args[2].length() > 0 ? args[2] : null;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : DefaultIterations;
+
+        BenchmarkSupport.loadSave(args[0], args[1], partyID);
+
+        try {
+            System.out.println("Save as loaded:");
+            run(iterations);
+
+            List<Area> areas = new ArrayList<Area>();
+            for (String resource : ResourceManager.getResourcesInDirectory("areas")) {
+                if (!resource.endsWith(ResourceType.JSON.getExtension())) continue;
+
+                Area area = Game.curCampaign.getArea(ResourceManager.getResourceIDNoPath(resource, ResourceType.JSON));
+                if (area != null) areas.add(area);
+            }
+
+            System.out.println("Save with all " + areas.size() + " areas loaded:");
+            run(iterations);
+
+            for (Area area : areas) {
+                area.getExplored().setAll(true);
+            }
+
+            System.out.println("Save with all " + areas.size() + " areas loaded and explored:");
+            run(iterations);
+        } catch (IOException e) {
+            BenchmarkSupport.fail("Error writing or reading the save: " + e.getMessage());
+        }
+
+        System.exit(0);
+    }
+
+    private static void run(int iterations) throws IOException
+    {
+        long[] snapshotNanos = new long[iterations];
+        long[] binaryWriteNanos = new long[iterations];
+        long[] jsonWriteNanos = new long[iterations];
+        long[] binaryReadNanos = new long[iterations];
+        long[] jsonReadNanos = new long[iterations];
+
+        int binarySize = 0, jsonSize = 0;
+
+        for (int i = -WarmupIterations; i < iterations; i++) {
+            long start = System.nanoTime();
+            JSONOrderedObject data = Game.curCampaign.getSaveGameData();
+            SaveFileHeader header = new SaveFileHeader(Game.curCampaign);
+            long snapshotEnd = System.nanoTime();
+
+            byte[] binary = write(header, data, true);
+            long binaryEnd = System.nanoTime();
+
+            byte[] json = write(header, data, false);
+            long jsonEnd = System.nanoTime();
+
+            read(binary);
+            long binaryReadEnd = System.nanoTime();
+
+            read(json);
+            long jsonReadEnd = System.nanoTime();
+
+            if (i < 0) continue;
+
+            snapshotNanos[i] = snapshotEnd - start;
+            binaryWriteNanos[i] = binaryEnd - snapshotEnd;
+            jsonWriteNanos[i] = jsonEnd - binaryEnd;
+            binaryReadNanos[i] = binaryReadEnd - jsonEnd;
+            jsonReadNanos[i] = jsonReadEnd - binaryReadEnd;
+
+            binarySize = binary.length;
+            jsonSize = json.length;
+        }
+
+        System.out.println(String.format("  Compressed size: binary %.1f KB, JSON %.1f KB", binarySize / 1024.0,
+                jsonSize / 1024.0));
+
+        BenchmarkSupport.printTimes("  Save data snapshot", snapshotNanos, iterations);
+        BenchmarkSupport.printTimes("  Binary write", binaryWriteNanos, iterations);
+        BenchmarkSupport.printTimes("  JSON write", jsonWriteNanos, iterations);
+        BenchmarkSupport.printTimes("  Binary read", binaryReadNanos, iterations);
+        BenchmarkSupport.printTimes("  JSON read", jsonReadNanos, iterations);
+    }
+
+    /*
+     * Writes the save in the same way as SaveGameUtil, but to memory
+     */
+
+    private static byte[] write(SaveFileHeader header, JSONOrderedObject data, boolean binary) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gz = new GZIPOutputStream(out);
+
+        SaveFileHeader.write(header, gz);
+
+        if (binary) {
+            BinarySaveWriter writer = new BinarySaveWriter(gz);
+            writer.write(data);
+            writer.close();
+        } else {
+            PrintWriter writer = new PrintWriter(gz);
+            SaveWriter.writeJSON(data, writer);
+            writer.close();
+        }
+
+        return out.toByteArray();
+    }
+
+    /*
+     * Parses the save in the same way as the LoadGameLoadingTaskList
+     */
+
+    private static SimpleJSONParser read(byte[] save) throws IOException
+    {
+        GZIPInputStream gz = new GZIPInputStream(new ByteArrayInputStream(save));
+
+        SaveFileHeader.read(gz);
+
+        InputStream in = new BufferedInputStream(gz);
+
+        if (BinarySaveReader.isBinarySave(in)) {
+            SimpleJSONParser parser = new BinarySaveReader(in).read("benchmark");
+            in.close();
+            return parser;
+        } else {
+            return new SimpleJSONParser(new InputStreamReader(in), "benchmark");
+        }
+    }
+}
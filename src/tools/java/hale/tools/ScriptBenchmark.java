@@ -0,0 +1,117 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.script.ScriptException;
+
+import hale.Game;
+import hale.resource.ResourceManager;
+import hale.resource.ResourceType;
+import hale.util.JSEngine;
+
+/**
+ * Times preparing the core Scriptable scripts for a function call, as a Scriptable does
+ * before each call.  An engine is taken from the pool, the script is set up, the engine is checked for
+ * a function and then released.  The script is set up either by evaluating its source, or
+ * with {@link JSEngine#evalCached(String, String)}.  Run with the arguments
+ * <pre>[iterations]</pre>
+ */
+
+public class ScriptBenchmark
+{
+    private static final int WarmupIterations = 3;
+    private static final int DefaultIterations = 10;
+
+    public static void main(String[] args)
+    {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DefaultIterations;
+
+        Game.initialize();
+
+        List<String> locations = new ArrayList<String>();
+        List<String> scripts = new ArrayList<String>();
+
+        for (String resource : ResourceManager.getResourcesInDirectory("scripts")) {
+            if (!resource.endsWith(ResourceType.JavaScript.getExtension())) continue;
+
+            // particle effects and animations are run by the particle manager, not a Scriptable
+            if (resource.startsWith("scripts/particleEffects") || resource.startsWith("scripts/animations")) continue;
+
+            locations.add(resource);
+            scripts.add(ResourceManager.getResourceAsString(resource));
+        }
+
+        System.out.println(scripts.size() + " core Scriptable scripts, " + Game.scriptEngineManager.getMaxEngines() + " engines");
+
+        long[] evalNanos = new long[scripts.size() * iterations];
+        long[] cachedNanos = new long[scripts.size() * iterations];
+        int count = 0;
+
+        try {
+            for (int i = -WarmupIterations; i < iterations; i++) {
+                for (int j = 0; j < scripts.size(); j++) {
+                    long start = System.nanoTime();
+                    prepare(null, scripts.get(j));
+                    long cachedStart = System.nanoTime();
+                    prepare(locations.get(j), scripts.get(j));
+                    long end = System.nanoTime();
+
+                    if (i < 0) continue;
+
+                    evalNanos[count] = cachedStart - start;
+                    cachedNanos[count] = end - cachedStart;
+                    count++;
+                }
+            }
+        } catch (ScriptException e) {
+            BenchmarkSupport.fail("Error evaluating script: " + e.getMessage());
+        }
+
+        BenchmarkSupport.printTimes("eval", evalNanos, count);
+        BenchmarkSupport.printTimes("evalCached", cachedNanos, count);
+
+        System.exit(0);
+    }
+
+    /*
+     * Prepares the script for a call in the same way as a Scriptable, evaluating the script if
+     * the location is null and otherwise using the cached script for the location
+     */
+
+    private static void prepare(String location, String script) throws ScriptException
+    {
+        JSEngine engine = Game.scriptEngineManager.getEngine();
+
+        try {
+            if (location == null) {
+                engine.eval(script);
+            } else {
+                engine.evalCached(location, script);
+            }
+
+            engine.hasFunction("onActivate");
+        } finally {
+            engine.release();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package hale.tools;
+
+import hale.Game;
+import hale.entity.EntityManager;
+import hale.loading.CampaignLoadingTaskList;
+import hale.resource.ResourceManager;
+import hale.resource.ResourceType;
+import hale.resource.SpriteManager;
+import hale.rules.Campaign;
+import hale.rules.Ruleset;
+
+/**
+ * Times loading a campaign, as the game does at startup.  Each iteration loads the campaign
+ * with a {@link CampaignLoadingTaskList}, which runs independent tasks concurrently, and
+ * also runs the same tasks one after another, timing each of them.  The sum of the task
+ * times is the cost of loading on a single thread, and the longest chain of dependent tasks
+ * is the least time the task list can take given enough processors.  The first iteration
+ * is a warmup and is not reported.  Run with the arguments
+ * <pre>campaignID [iterations]</pre>
+ */
+
+public class StartupBenchmark
+{
+    private static final int DefaultIterations = 6;
+
+    private static final int Register = 0, Sprites = 1, Animations = 2, Rules = 3, CampaignFile = 4;
+
+    private static final String[] PhaseNames = {
+            "Registering campaign resources", "Loading images", "Loading animations", "Loading ruleset",
+            "Loading campaign resources" };
+
+    public static void main(String[] args)
+    {
+        if (args.length < 1) BenchmarkSupport.fail("Usage: StartupBenchmark campaignID [iterations]");
+
+        String campaignID = args[0];
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DefaultIterations;
+
+        Game.initialize();
+
+        long[] listNanos = new long[iterations];
+        long[] sequentialNanos = new long[iterations];
+        long[] criticalPathNanos = new long[iterations];
+        long[][] phaseNanos = new long[PhaseNames.length][iterations];
+
+        for (int i = -1; i < iterations; i++) {
+            // whichever load runs first is slowed by the garbage left by the previous
+            // iteration, so the order is alternated
+            long[] phases = null;
+            if (i % 2 == 0) phases = loadSequentially(campaignID);
+
+            long nanos = loadWithTaskList(campaignID);
+
+            if (phases == null) phases = loadSequentially(campaignID);
+
+            if (i < 0) continue;
+
+            listNanos[i] = nanos;
+
+            for (int phase = 0; phase < phases.length; phase++) {
+                phaseNanos[phase][i] = phases[phase];
+                sequentialNanos[i] += phases[phase];
+            }
+
+            // the ruleset runs alongside the images and then the animations
+            criticalPathNanos[i] = phases[Register] + Math.max(phases[Sprites] + phases[Animations], phases[Rules]) +
+                    phases[CampaignFile];
+        }
+
+        System.out.println("Loaded " + campaignID + " " + iterations + " times with " +
+                Runtime.getRuntime().availableProcessors() + " processors");
+
+        BenchmarkSupport.printTimes("Task list", listNanos, iterations);
+        BenchmarkSupport.printTimes("Tasks in sequence", sequentialNanos, iterations);
+        BenchmarkSupport.printTimes("Longest dependent chain", criticalPathNanos, iterations);
+
+        for (int phase = 0; phase < PhaseNames.length; phase++) {
+            BenchmarkSupport.printTimes("  " + PhaseNames[phase], phaseNanos[phase], iterations);
+        }
+
+        System.exit(0);
+    }
+
+    /*
+     * Loads the campaign with a CampaignLoadingTaskList, returning the time taken
+     */
+
+    private static long loadWithTaskList(String campaignID)
+    {
+        Game.curCampaign = new Campaign(campaignID);
+
+        long start = System.nanoTime();
+        CampaignLoadingTaskList loader = new CampaignLoadingTaskList();
+        loader.start();
+
+        try {
+            loader.join();
+        } catch (InterruptedException e) {
+            BenchmarkSupport.fail("Interrupted while loading " + campaignID);
+        }
+
+        long nanos = System.nanoTime() - start;
+
+        if (!loader.isCompletedSuccessfully()) BenchmarkSupport.fail("Unable to load campaign " + campaignID);
+
+        return nanos;
+    }
+
+    /*
+     * Runs the tasks of a CampaignLoadingTaskList one after another on the current thread,
+     * returning the time taken by each phase.  The images are timed together, as the sum of
+     * the sprite sheet tasks
+     */
+
+    private static long[] loadSequentially(String campaignID)
+    {
+        long[] nanos = new long[PhaseNames.length];
+
+        Game.curCampaign = new Campaign(campaignID);
+        SpriteManager.clear();
+
+        long start = System.nanoTime();
+        ResourceManager.registerCampaignPackage();
+        nanos[Register] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (String resource : ResourceManager.getResourcesInDirectory("images")) {
+            if (resource.endsWith(ResourceType.JSON.getExtension())) SpriteManager.readSpriteSheet(resource);
+        }
+        nanos[Sprites] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Game.particleManager.loadBaseResources();
+        nanos[Animations] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Game.ruleset = new Ruleset();
+        Game.ruleset.readData();
+        EntityManager.clear();
+        nanos[Rules] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Game.curCampaign.readCampaignFile();
+        System.gc();
+        nanos[CampaignFile] = System.nanoTime() - start;
+
+        return nanos;
+    }
+}